@@ -13,25 +13,47 @@ package org.eclipse.epp.usagedata.internal.gathering;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.epp.usagedata.internal.gathering.monitors.BundleUsageMonitor;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataLog;
 import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataService;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataServiceConfiguration;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataSnapshot;
+import org.eclipse.epp.usagedata.internal.gathering.services.WorkbenchIdleDetector;
+import org.eclipse.epp.usagedata.internal.gathering.services.WorkbenchUsageDataService;
 import org.eclipse.epp.usagedata.internal.gathering.settings.UsageDataCaptureSettings;
 import org.eclipse.jface.util.IPropertyChangeListener;
 import org.eclipse.jface.util.PropertyChangeEvent;
 import org.eclipse.ui.IStartup;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
 import org.eclipse.ui.progress.UIJob;
+import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceRegistration;
 import org.osgi.util.tracker.ServiceTracker;
 
 /**
- * The activator class controls the plug-in life cycle
+ * The activator class controls the plug-in life cycle. It is a thin adapter
+ * between OSGi and the {@link UsageDataService}: it creates the service from
+ * a {@link UsageDataServiceConfiguration}, registers it, and turns it on and
+ * off in response to preference changes.
  */
-public class UsageDataCaptureActivator extends AbstractUIPlugin implements IStartup {
+public class UsageDataCaptureActivator extends AbstractUIPlugin implements IStartup, UsageDataLog {
 
 	// The plug-in ID
 	public static final String PLUGIN_ID = "org.eclipse.epp.usagedata.gathering"; //$NON-NLS-1$
 
+	/**
+	 * Events that could not be dispatched before shutdown are written
+	 * to a file with this name in the state location.
+	 */
+	private static final String SPILL_FILE_NAME = "events.spill"; //$NON-NLS-1$
+
+	/**
+	 * Lookup indexes are saved to a file with this name in the state
+	 * location.
+	 */
+	private static final String SNAPSHOT_FILE_NAME = "lookup.snapshot"; //$NON-NLS-1$
+
 	// The shared instance
 	private static UsageDataCaptureActivator plugin;
 
@@ -41,6 +63,15 @@ public class UsageDataCaptureActivator extends AbstractUIPlugin implements IStar
 
 	private UsageDataCaptureSettings settings;
 
+	private UsageDataSnapshot snapshot;
+
+	/**
+	 * Bundles are tracked from the moment the receiver starts, rather than
+	 * when monitoring starts, so that the activations of the bundles that are
+	 * started along with the workbench are not missed.
+	 */
+	private BundleUsageMonitor bundleUsageMonitor;
+
 	private BundleContext context;
 	
 	/*
@@ -52,9 +83,20 @@ public class UsageDataCaptureActivator extends AbstractUIPlugin implements IStar
 		plugin = this;
 		this.context = context;
 		
+		bundleUsageMonitor = new BundleUsageMonitor();
+		bundleUsageMonitor.startTracking(context);
+		
 		settings = new UsageDataCaptureSettings();
 		
-		final UsageDataService service = new UsageDataService();
+		UsageDataServiceConfiguration configuration = new UsageDataServiceConfiguration();
+		configuration.setLog(this);
+		configuration.setOverheadBudget(settings.getOverheadBudget());
+		configuration.setSpillFile(getStateLocation().append(SPILL_FILE_NAME).toFile());
+		configuration.setIdleDetector(new WorkbenchIdleDetector());
+		snapshot = new UsageDataSnapshot(getStateLocation().append(SNAPSHOT_FILE_NAME).toFile(), getInstallationFingerprint(context));
+		configuration.setSnapshot(snapshot);
+		configuration.addMonitor(bundleUsageMonitor);
+		final UsageDataService service = new WorkbenchUsageDataService(configuration);
 				
 		getPreferenceStore().addPropertyChangeListener(new IPropertyChangeListener() {
 
@@ -116,6 +158,7 @@ public class UsageDataCaptureActivator extends AbstractUIPlugin implements IStar
 		this.context = context;
 		UsageDataService service = getUsageDataCaptureService();
 		if (service != null) service.stopMonitoring();
+		bundleUsageMonitor.stopTracking();
 		
 		usageDataServiceTracker.close();
 		registration.unregister();
@@ -124,6 +167,25 @@ public class UsageDataCaptureActivator extends AbstractUIPlugin implements IStar
 		super.stop(context);
 	}
 
+	/**
+	 * This method answers a fingerprint of the installed bundles. It changes
+	 * whenever a bundle is installed, updated, or uninstalled, and so
+	 * whenever the extension registry (which is built from the bundles) may
+	 * have changed.
+	 * 
+	 * @see UsageDataSnapshot
+	 */
+	private long getInstallationFingerprint(BundleContext context) {
+		long fingerprint = 17;
+		for (Bundle bundle : context.getBundles()) {
+			fingerprint = 31 * fingerprint + bundle.getBundleId();
+			fingerprint = 31 * fingerprint + bundle.getLastModified();
+			String name = bundle.getSymbolicName();
+			if (name != null) fingerprint = 31 * fingerprint + name.hashCode();
+		}
+		return fingerprint;
+	}
+
 	private UsageDataService getUsageDataCaptureService() {
 		return (UsageDataService)usageDataServiceTracker.getService();
 	}
@@ -152,7 +214,15 @@ public class UsageDataCaptureActivator extends AbstractUIPlugin implements IStar
 	 *            the exception to capture in the log.
 	 */
 	public void logException(String message, Throwable e) {
-		getLog().log(new Status(IStatus.ERROR, PLUGIN_ID, message, e));
+		log(IStatus.ERROR, message, e);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.epp.usagedata.internal.gathering.services.UsageDataLog#log(int, java.lang.String, java.lang.Throwable)
+	 */
+	public void log(int severity, String message, Throwable exception) {
+		getLog().log(new Status(severity, PLUGIN_ID, message, exception));
 	}
 
 	/**
@@ -169,6 +239,16 @@ public class UsageDataCaptureActivator extends AbstractUIPlugin implements IStar
 		return settings;
 	}
 
+	/**
+	 * This method returns the snapshot that lookup indexes are kept in
+	 * across sessions.
+	 * 
+	 * @see UsageDataSnapshot
+	 */
+	public UsageDataSnapshot getSnapshot() {
+		return snapshot;
+	}
+
 	public BundleContext getContext() {
 		return context;
 	}
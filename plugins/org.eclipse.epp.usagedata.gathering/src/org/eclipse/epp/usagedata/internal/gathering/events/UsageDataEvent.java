@@ -12,7 +12,8 @@ package org.eclipse.epp.usagedata.internal.gathering.events;
 
 /**
  * The {@link UsageDataEvent} class captures information about a single
- * event. Once created, instances of this class cannot be modified.
+ * event. Once created, instances of this class cannot be modified, other
+ * than by the service filling in the bundle version and timing fields.
  * 
  * @author Wayne Beaton
  *
@@ -58,6 +59,22 @@ public class UsageDataEvent {
 	 */
 	public final long when;
 
+	/**
+	 * The {@link #enqueued} field contains the value of
+	 * <code>System.nanoTime()</code> when the event was queued by the
+	 * service, or <code>0</code> if it was not (e.g. if it was read back from
+	 * a file). It is only meaningful within the virtual machine that set it
+	 * and is used to measure how long the event takes to reach the disk.
+	 */
+	public long enqueued;
+
+	/**
+	 * The {@link #dispatched} field contains the value of
+	 * <code>System.nanoTime()</code> when the service started handing the
+	 * event to its listeners, or <code>0</code> if it has not yet done so.
+	 */
+	public long dispatched;
+
 	public UsageDataEvent(String what, String kind, String description, String bundleId,
 			String bundleVersion, long when) {
 				this.what = what;
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.gathering.events;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataService;
+
+/**
+ * A {@link UsageDataEventSubscription} describes the events that a
+ * {@link UsageDataEventListener} wants to receive. It is provided when the
+ * listener is registered with the {@link UsageDataService}, which uses the
+ * kinds to build its dispatch tables; events that the listener has not
+ * subscribed to are never delivered to it.
+ * <p>
+ * A subscription has three parts: the event kinds (e.g. "view", "command"),
+ * the event whats (e.g. "activated", "executed"), and patterns for the
+ * symbolic name of the bundle that caused the event (e.g. "org.eclipse.*").
+ * A part that is <code>null</code> (or empty) matches everything. An event
+ * is delivered only if it matches all three parts.
+ * </p>
+ * <p>
+ * Instances of this class cannot be modified once created.
+ * </p>
+ */
+public class UsageDataEventSubscription {
+
+	/**
+	 * This subscription matches every event.
+	 */
+	public static final UsageDataEventSubscription ALL = new UsageDataEventSubscription(null, null, null);
+
+	private final Set<String> kinds;
+	private final Set<String> whats;
+	private final Pattern[] bundleIdPatterns;
+
+	/**
+	 * @param kinds
+	 *            the event kinds to subscribe to, or <code>null</code> for
+	 *            all kinds.
+	 * @param whats
+	 *            the event whats to subscribe to, or <code>null</code> for
+	 *            all whats.
+	 * @param bundleIdPatterns
+	 *            patterns for the symbolic name of the bundle that caused the
+	 *            event, or <code>null</code> for all bundles. An asterisk (*)
+	 *            matches any sequence of characters.
+	 */
+	public UsageDataEventSubscription(String[] kinds, String[] whats, String[] bundleIdPatterns) {
+		this.kinds = asSet(kinds);
+		this.whats = asSet(whats);
+		this.bundleIdPatterns = asPatterns(bundleIdPatterns);
+	}
+
+	/**
+	 * This convenience method creates a subscription for all events of the
+	 * given kinds.
+	 */
+	public static UsageDataEventSubscription forKinds(String... kinds) {
+		return new UsageDataEventSubscription(kinds, null, null);
+	}
+
+	private static Set<String> asSet(String[] values) {
+		if (values == null || values.length == 0) return null;
+		Set<String> set = new HashSet<String>();
+		for (String value : values) {
+			set.add(value);
+		}
+		return Collections.unmodifiableSet(set);
+	}
+
+	private static Pattern[] asPatterns(String[] patterns) {
+		if (patterns == null || patterns.length == 0) return null;
+		Pattern[] compiled = new Pattern[patterns.length];
+		for (int index = 0; index < patterns.length; index++) {
+			compiled[index] = Pattern.compile(asRegex(patterns[index]));
+		}
+		return compiled;
+	}
+
+	static String asRegex(String pattern) {
+		StringBuilder builder = new StringBuilder();
+		int start = 0;
+		for (int index = 0; index < pattern.length(); index++) {
+			if (pattern.charAt(index) != '*') continue;
+			if (index > start) builder.append(Pattern.quote(pattern.substring(start, index)));
+			builder.append(".*"); //$NON-NLS-1$
+			start = index + 1;
+		}
+		if (start < pattern.length()) builder.append(Pattern.quote(pattern.substring(start)));
+		return builder.toString();
+	}
+
+	/**
+	 * @return the kinds that the receiver subscribes to, or <code>null</code>
+	 *         if it subscribes to all kinds.
+	 */
+	public Set<String> getKinds() {
+		return kinds;
+	}
+
+	/**
+	 * This method answers whether or not the receiver restricts the events it
+	 * matches by anything other than their kind. When it does not, the
+	 * dispatch table alone decides which events are delivered.
+	 */
+	public boolean hasDetailConstraints() {
+		return whats != null || bundleIdPatterns != null;
+	}
+
+	/**
+	 * This method answers whether or not <code>event</code> matches the
+	 * receiver.
+	 */
+	public boolean matches(UsageDataEvent event) {
+		if (kinds != null && !kinds.contains(event.kind)) return false;
+		return matchesDetails(event);
+	}
+
+	/**
+	 * This method answers whether or not the what and bundle id of
+	 * <code>event</code> match the receiver; the kind is not considered.
+	 */
+	public boolean matchesDetails(UsageDataEvent event) {
+		if (whats != null && !whats.contains(event.what)) return false;
+		if (bundleIdPatterns == null) return true;
+		if (event.bundleId == null) return false;
+		for (Pattern pattern : bundleIdPatterns) {
+			if (pattern.matcher(event.bundleId).matches()) return true;
+		}
+		return false;
+	}
+}
@@ -0,0 +1,28 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.gathering.events;
+
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataService;
+
+/**
+ * A {@link UsageDataEventListener} that also implements this interface is
+ * told when the {@link UsageDataService} has finished delivering a batch of
+ * events. This happens when the user is idle (or when events have waited as
+ * long as they are allowed to), so it is a good time for the listener to do
+ * expensive work like writing buffered events to disk.
+ */
+public interface UsageDataIdleListener {
+
+	/**
+	 * This method is invoked after a batch of events has been delivered.
+	 */
+	void idle();
+}
@@ -0,0 +1,283 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.gathering.monitors;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.ICommand;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.IncrementalProjectBuilder;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.epp.usagedata.internal.gathering.services.DurationHistogram;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataService;
+
+/**
+ * Instances of this class monitor workspace builds. Each build is timed from
+ * the {@link IResourceChangeEvent#PRE_BUILD} notification to the matching
+ * {@link IResourceChangeEvent#POST_BUILD} notification, and the number of
+ * projects in the delta that triggered it is counted.
+ * <p>
+ * The notifications bracket the whole workspace build, not the individual
+ * builders, so the duration of a build is attributed to every bundle that
+ * contributes a builder (via the
+ * <code>org.eclipse.core.resources.builders</code> extension point) to the
+ * projects being built. Measurements are aggregated per contributing bundle
+ * and build kind and recorded every {@link #REPORTING_PERIOD} milliseconds
+ * (and when monitoring stops); e.g.
+ * </p>
+ *
+ * <pre>
+ * what=aggregate, kind=build, description=incremental;duration:count=12;mean=310;...;delta:count=12;mean=3;..., bundleId=org.eclipse.jdt.core
+ * </pre>
+ * <p>
+ * The notifications are sent on the build thread, so all that is done there
+ * is to note the names of the projects involved; the builders configured on
+ * them are looked up when the aggregates are recorded.
+ * </p>
+ * <p>
+ * The resources bundle is an optional dependency; if it is not installed,
+ * this monitor cannot be created and is skipped.
+ * </p>
+ */
+public class BuildUsageMonitor implements UsageMonitor {
+	private static final String BUILDERS_EXTENSION_POINT = "org.eclipse.core.resources.builders"; //$NON-NLS-1$
+
+	private static final String BUILD = "build"; //$NON-NLS-1$
+	private static final String AGGREGATE = "aggregate"; //$NON-NLS-1$
+
+	/**
+	 * How often, in milliseconds, are aggregates recorded?
+	 */
+	static final long REPORTING_PERIOD = 5 * 60 * 1000;
+
+	/**
+	 * How many finished builds are kept, at most, until they are reported?
+	 * Further builds are not counted.
+	 */
+	static final int MAXIMUM_PENDING_BUILDS = 1000;
+
+	/**
+	 * A finished build, waiting for the builders of its projects to be
+	 * looked up.
+	 */
+	static class Build {
+		final int kind;
+		final int deltaSize;
+		final Collection<String> projectNames;
+		final long duration;
+
+		Build(int kind, int deltaSize, Collection<String> projectNames, long duration) {
+			this.kind = kind;
+			this.deltaSize = deltaSize;
+			this.projectNames = projectNames;
+			this.duration = duration;
+		}
+	}
+
+	/**
+	 * The statistics gathered for the builds of a single kind that involve
+	 * the builders of a single bundle.
+	 */
+	static class BuildStatistics {
+		final String bundleId;
+		final int kind;
+		final DurationHistogram duration = new DurationHistogram();
+		final DurationHistogram delta = new DurationHistogram();
+
+		BuildStatistics(String bundleId, int kind) {
+			this.bundleId = bundleId;
+			this.kind = kind;
+		}
+	}
+
+	private UsageDataService usageDataService;
+
+	private ExtensionIdToBundleMapper builderToBundleIdMapper;
+
+	/**
+	 * The builds that have finished since the aggregates were last recorded.
+	 * Access is synchronized on the receiver.
+	 */
+	private List<Build> builds = new ArrayList<Build>();
+
+	/**
+	 * The build in progress, if any. Access is synchronized on the receiver.
+	 */
+	private int buildKind;
+	private int buildDeltaSize;
+	private Collection<String> buildProjectNames;
+	private long buildStarted = -1;
+
+	private PeriodicReportingJob reportingJob;
+
+	private IResourceChangeListener resourceListener = new IResourceChangeListener() {
+		public void resourceChanged(IResourceChangeEvent event) {
+			switch (event.getType()) {
+			case IResourceChangeEvent.PRE_BUILD:
+				buildStarting(event);
+				break;
+			case IResourceChangeEvent.POST_BUILD:
+				buildFinished(System.currentTimeMillis());
+				break;
+			}
+		}
+	};
+
+	public void startMonitoring(UsageDataService usageDataService) {
+		this.usageDataService = usageDataService;
+		builderToBundleIdMapper = new ExtensionIdToBundleMapper(BUILDERS_EXTENSION_POINT, usageDataService.getSnapshot());
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(resourceListener, IResourceChangeEvent.PRE_BUILD | IResourceChangeEvent.POST_BUILD);
+		reportingJob = new PeriodicReportingJob("Build usage reporter", REPORTING_PERIOD) { //$NON-NLS-1$
+			@Override
+			protected void report() {
+				recordAggregates();
+			}
+		};
+		reportingJob.start();
+	}
+
+	public void stopMonitoring() {
+		ResourcesPlugin.getWorkspace().removeResourceChangeListener(resourceListener);
+		reportingJob.cancel();
+		recordAggregates();
+		builderToBundleIdMapper.dispose();
+		synchronized (this) {
+			buildStarted = -1;
+		}
+	}
+
+	private void buildStarting(IResourceChangeEvent event) {
+		int kind = event.getBuildKind();
+		IResourceDelta delta = event.getDelta();
+		IResourceDelta[] children = delta == null ? new IResourceDelta[0] : delta.getAffectedChildren();
+		buildStarted(kind, children.length, getProjectNames(kind, children), System.currentTimeMillis());
+	}
+
+	/**
+	 * This method answers the names of the projects that take part in the
+	 * build. Full and clean builds involve every project; other builds
+	 * involve the projects in the delta, i.e. its <code>children</code>.
+	 */
+	private Collection<String> getProjectNames(int kind, IResourceDelta[] children) {
+		Set<String> names = new HashSet<String>();
+		if (children.length == 0 || kind == IncrementalProjectBuilder.FULL_BUILD || kind == IncrementalProjectBuilder.CLEAN_BUILD) {
+			for (IProject project : ResourcesPlugin.getWorkspace().getRoot().getProjects()) {
+				names.add(project.getName());
+			}
+		} else {
+			for (IResourceDelta child : children) {
+				IResource resource = child.getResource();
+				if (resource instanceof IProject) names.add(resource.getName());
+			}
+		}
+		return names;
+	}
+
+	/**
+	 * This method answers the ids of the bundles that contribute the
+	 * builders configured on the named projects. It reads the project
+	 * descriptions, so it is called from the reporting job rather than the
+	 * build thread.
+	 */
+	Collection<String> getBuilderBundleIds(Collection<String> projectNames) {
+		IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+		Set<String> bundleIds = new HashSet<String>();
+		for (String name : projectNames) {
+			IProject project = root.getProject(name);
+			if (!project.isAccessible()) continue;
+			try {
+				for (ICommand command : project.getDescription().getBuildSpec()) {
+					String bundleId = builderToBundleIdMapper.getBundleId(command.getBuilderName());
+					if (bundleId != null) bundleIds.add(bundleId);
+				}
+			} catch (CoreException e) {
+				// The project description cannot be read; skip the project.
+			}
+		}
+		return bundleIds;
+	}
+
+	synchronized void buildStarted(int kind, int deltaSize, Collection<String> projectNames, long now) {
+		buildKind = kind;
+		buildDeltaSize = deltaSize;
+		buildProjectNames = projectNames;
+		buildStarted = now;
+	}
+
+	synchronized void buildFinished(long now) {
+		if (buildStarted < 0) return;
+		if (builds.size() < MAXIMUM_PENDING_BUILDS) {
+			builds.add(new Build(buildKind, buildDeltaSize, buildProjectNames, now - buildStarted));
+		}
+		buildStarted = -1;
+		buildProjectNames = null;
+	}
+
+	/**
+	 * This method records an event for each bundle and build kind that has
+	 * been active since the last time it was called, then starts over.
+	 */
+	void recordAggregates() {
+		List<Build> reported;
+		synchronized (this) {
+			if (builds.isEmpty()) return;
+			reported = builds;
+			builds = new ArrayList<Build>();
+		}
+		Map<String, BuildStatistics> statistics = new HashMap<String, BuildStatistics>();
+		for (Build build : reported) {
+			for (String bundleId : getBuilderBundleIds(build.projectNames)) {
+				String key = bundleId + '/' + build.kind;
+				BuildStatistics value = statistics.get(key);
+				if (value == null) {
+					value = new BuildStatistics(bundleId, build.kind);
+					statistics.put(key, value);
+				}
+				value.duration.record(build.duration);
+				value.delta.record(build.deltaSize);
+			}
+		}
+		for (BuildStatistics value : statistics.values()) {
+			StringBuilder builder = new StringBuilder();
+			builder.append(getKindName(value.kind));
+			builder.append(";duration:").append(value.duration.getSummary()); //$NON-NLS-1$
+			builder.append(";delta:").append(value.delta.getSummary()); //$NON-NLS-1$
+			usageDataService.recordEvent(AGGREGATE, BUILD, builder.toString(), value.bundleId);
+		}
+	}
+
+	static String getKindName(int kind) {
+		switch (kind) {
+		case IncrementalProjectBuilder.FULL_BUILD:
+			return "full"; //$NON-NLS-1$
+		case IncrementalProjectBuilder.AUTO_BUILD:
+			return "auto"; //$NON-NLS-1$
+		case IncrementalProjectBuilder.INCREMENTAL_BUILD:
+			return "incremental"; //$NON-NLS-1$
+		case IncrementalProjectBuilder.CLEAN_BUILD:
+			return "clean"; //$NON-NLS-1$
+		default:
+			return String.valueOf(kind);
+		}
+	}
+}
@@ -10,17 +10,52 @@
  *******************************************************************************/
 package org.eclipse.epp.usagedata.internal.gathering.monitors;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+
 import org.eclipse.epp.usagedata.internal.gathering.UsageDataCaptureActivator;
 import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataService;
+import org.eclipse.ui.IWorkbench;
+import org.eclipse.ui.IWorkbenchListener;
+import org.eclipse.ui.PlatformUI;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.BundleEvent;
 import org.osgi.framework.BundleListener;
+import org.osgi.framework.SynchronousBundleListener;
 
 /**
  * Instances of this class hook into the {@link BundleContext} so
  * that they are notified of bundle events. Those events are passed
  * to the {@link UsageDataService}.
+ * <p>
+ * The {@link BundleEvent#STARTING} and {@link BundleEvent#STARTED} events
+ * for a bundle are paired up and recorded as a single &quot;activated&quot;
+ * event that carries the time that the bundle took to activate, e.g.
+ * <code>duration=120;self=45</code> (in milliseconds). The self time
+ * excludes the time spent activating other bundles while the bundle
+ * itself was activating (e.g. prerequisites loaded by its activator). The
+ * listener is synchronous, since the events are otherwise delivered long
+ * after the fact.
+ * </p>
+ * <p>
+ * Most bundles are activated while the workbench starts, well before
+ * monitoring starts. So that those activations are not missed, the bundle
+ * activator creates the monitor and calls {@link #startTracking(BundleContext)}
+ * as soon as it starts; activations are kept (up to
+ * {@link #MAXIMUM_PENDING_ACTIVATIONS} of them) until monitoring starts, and
+ * are recorded then. The bundles that were already active when tracking
+ * started are recorded as &quot;started&quot;.
+ * </p>
+ * <p>
+ * When the workbench is about to shut down (or monitoring stops, if that
+ * comes first), the {@link #TOP_COUNT} bundles with the largest self time in
+ * the session are recorded as &quot;slowest&quot; events, e.g.
+ * <code>rank=1;duration=120;self=45</code>.
+ * </p>
  * 
  * @author Wayne Beaton
  *
@@ -39,25 +74,257 @@ public class BundleUsageMonitor implements UsageMonitor {
 	private static final String LAZY_ACTIVATION = "lazy_activation"; //$NON-NLS-1$
 	private static final String INSTALLED = "installed"; //$NON-NLS-1$
 	private static final String STARTED = "started"; //$NON-NLS-1$
+	private static final String ACTIVATED = "activated"; //$NON-NLS-1$
+	private static final String SLOWEST = "slowest"; //$NON-NLS-1$
 	private static final String BUNDLE = "bundle"; //$NON-NLS-1$
+
+	/**
+	 * How many of the slowest activations are recorded for a session?
+	 */
+	static final int TOP_COUNT = 10;
+
+	/**
+	 * How many activations are kept, at most, until monitoring starts?
+	 */
+	static final int MAXIMUM_PENDING_ACTIVATIONS = 1000;
+
+	/**
+	 * A bundle activation that is in progress, or is one of the slowest
+	 * that have finished.
+	 */
+	static class Activation {
+		final Bundle bundle;
+		final long started;
+		long nested = 0;
+		long duration;
+		long self;
+
+		Activation(Bundle bundle, long started) {
+			this.bundle = bundle;
+			this.started = started;
+		}
+	}
+
 	private BundleListener bundleUsageListener;
 
-	public void startMonitoring(final UsageDataService usageDataService) {
-		// First, create events for all the bundles that have already been registered.
-		recordCurrentlyActiveBundles(usageDataService);
-		
-		// Create an install a listener on the bundle context.
-		bundleUsageListener = new BundleListener() {
+	private BundleContext context;
+
+	/**
+	 * The service that events are recorded with, or <code>null</code> while
+	 * the receiver is not monitoring. Access is synchronized on
+	 * {@link #pending}.
+	 */
+	private UsageDataService usageDataService;
+
+	/**
+	 * The activations that finished while the receiver was not monitoring,
+	 * in the order that they finished.
+	 */
+	private List<Activation> pending = new ArrayList<Activation>();
+
+	/**
+	 * The bundles that were already active when tracking started; they are
+	 * recorded when monitoring first starts.
+	 */
+	private List<Bundle> alreadyActive = new ArrayList<Bundle>();
+
+	private IWorkbenchListener workbenchListener = new IWorkbenchListener() {
+		public boolean preShutdown(IWorkbench workbench, boolean forced) {
+			recordSlowestActivations();
+			return true;
+		}
+
+		public void postShutdown(IWorkbench workbench) {
+		}
+	};
+
+	/**
+	 * The activations in progress on each thread, innermost last. Bundle
+	 * activation is synchronous, so an activation that starts while another
+	 * is in progress on the same thread is nested inside it.
+	 */
+	private ThreadLocal<LinkedList<Activation>> activations = new ThreadLocal<LinkedList<Activation>>() {
+		@Override
+		protected LinkedList<Activation> initialValue() {
+			return new LinkedList<Activation>();
+		}
+	};
+
+	/**
+	 * The slowest finished activations, slowest first. Access is
+	 * synchronized on the list.
+	 */
+	private List<Activation> slowest = new ArrayList<Activation>();
+
+	/**
+	 * This method starts listening to bundle events, and takes note of the
+	 * bundles that are already active. It is called by the bundle activator,
+	 * as early as it can be, and before {@link #startMonitoring(UsageDataService)}.
+	 * Until monitoring starts, activations are kept, and other bundle events
+	 * are ignored.
+	 */
+	public void startTracking(BundleContext context) {
+		this.context = context;
+		for (Bundle bundle : context.getBundles()) {
+			if (bundle.getState() == Bundle.ACTIVE) alreadyActive.add(bundle);
+		}
+		bundleUsageListener = new SynchronousBundleListener() {
 			public void bundleChanged(BundleEvent event) {
-				usageDataService.recordEvent(getWhatHappenedString(event), BUNDLE, event.getBundle().getSymbolicName(), event.getBundle().getSymbolicName(), getBundleVersion(event));
+				UsageDataService service;
+				switch (event.getType()) {
+					case BundleEvent.STARTING:
+						bundleStarting(event.getBundle(), System.currentTimeMillis());
+						return;
+					case BundleEvent.STARTED:
+						if (bundleStarted(event.getBundle(), System.currentTimeMillis())) return;
+						break;
+					case BundleEvent.STOPPED:
+						// Activation failed (or the bundle was stopped).
+						bundleStopped(event.getBundle());
+						break;
+				}
+				synchronized (pending) {
+					service = usageDataService;
+				}
+				if (service == null) return;
+				service.recordEvent(getWhatHappenedString(event), BUNDLE, event.getBundle().getSymbolicName(), event.getBundle().getSymbolicName(), getBundleVersion(event));
 			}			
 		};
-		getBundleContext().addBundleListener(bundleUsageListener);
+		context.addBundleListener(bundleUsageListener);
+	}
+
+	/**
+	 * This method stops listening to bundle events. It is called by the
+	 * bundle activator when it stops.
+	 */
+	public void stopTracking() {
+		if (bundleUsageListener == null) return;
+		context.removeBundleListener(bundleUsageListener);
+		bundleUsageListener = null;
 	}
 
+	public void startMonitoring(final UsageDataService usageDataService) {
+		if (bundleUsageListener == null) startTracking(getBundleContext());
+		List<Activation> activations;
+		List<Bundle> bundles;
+		synchronized (pending) {
+			activations = new ArrayList<Activation>(pending);
+			pending.clear();
+			bundles = alreadyActive;
+			alreadyActive = new ArrayList<Bundle>();
+			this.usageDataService = usageDataService;
+		}
+		
+		// First, create events for the bundles that were activated before monitoring started...
+		for (Activation activation : activations) {
+			recordActivation(usageDataService, activation);
+		}
+		// ... and for those that were already active before that.
+		recordActiveBundles(usageDataService, bundles);
+
+		if (PlatformUI.isWorkbenchRunning()) PlatformUI.getWorkbench().addWorkbenchListener(workbenchListener);
+	}
+
+	void bundleStarting(Bundle bundle, long now) {
+		activations.get().add(new Activation(bundle, now));
+	}
 
-	private void recordCurrentlyActiveBundles(UsageDataService usageDataService) {
-		for (Bundle bundle : getBundleContext().getBundles()) {
+	/**
+	 * This method pairs the end of the activation of <code>bundle</code>
+	 * with its start and records an &quot;activated&quot; event.
+	 * 
+	 * @return <code>true</code> if the event was recorded, or
+	 *         <code>false</code> if the start of the activation was not seen
+	 *         (e.g. it happened before monitoring started).
+	 */
+	boolean bundleStarted(Bundle bundle, long now) {
+		Activation activation = removeActivation(bundle);
+		if (activation == null) return false;
+		activation.duration = now - activation.started;
+		activation.self = Math.max(0, activation.duration - activation.nested);
+		LinkedList<Activation> inProgress = activations.get();
+		if (!inProgress.isEmpty()) inProgress.getLast().nested += activation.duration;
+		rank(activation);
+		
+		UsageDataService service;
+		synchronized (pending) {
+			service = usageDataService;
+			if (service == null) {
+				if (pending.size() < MAXIMUM_PENDING_ACTIVATIONS) pending.add(activation);
+				return true;
+			}
+		}
+		recordActivation(service, activation);
+		return true;
+	}
+
+	private void recordActivation(UsageDataService service, Activation activation) {
+		Bundle bundle = activation.bundle;
+		service.recordEvent(ACTIVATED, BUNDLE, getDurations(activation), bundle.getSymbolicName(), getBundleVersion(bundle));
+	}
+
+	void bundleStopped(Bundle bundle) {
+		removeActivation(bundle);
+	}
+
+	/**
+	 * This method removes the activation of <code>bundle</code> on the
+	 * current thread, along with any activations nested inside it that never
+	 * finished.
+	 */
+	private Activation removeActivation(Bundle bundle) {
+		LinkedList<Activation> inProgress = activations.get();
+		for (int index = inProgress.size() - 1; index >= 0; index--) {
+			if (inProgress.get(index).bundle != bundle) continue;
+			while (inProgress.size() > index + 1) inProgress.removeLast();
+			return inProgress.removeLast();
+		}
+		return null;
+	}
+
+	private String getDurations(Activation activation) {
+		return "duration=" + activation.duration + ";self=" + activation.self; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private void rank(Activation activation) {
+		synchronized (slowest) {
+			if (slowest.size() == TOP_COUNT && slowest.get(TOP_COUNT - 1).self >= activation.self) return;
+			slowest.add(activation);
+			Collections.sort(slowest, new Comparator<Activation>() {
+				public int compare(Activation first, Activation second) {
+					if (first.self == second.self) return 0;
+					return first.self > second.self ? -1 : 1;
+				}
+			});
+			if (slowest.size() > TOP_COUNT) slowest.remove(TOP_COUNT);
+		}
+	}
+
+	/**
+	 * This method records the slowest activations of the session, then
+	 * starts over.
+	 */
+	void recordSlowestActivations() {
+		UsageDataService service;
+		synchronized (pending) {
+			service = usageDataService;
+		}
+		if (service == null) return;
+		List<Activation> reported;
+		synchronized (slowest) {
+			reported = new ArrayList<Activation>(slowest);
+			slowest.clear();
+		}
+		int rank = 1;
+		for (Activation activation : reported) {
+			String bundleId = activation.bundle.getSymbolicName();
+			service.recordEvent(SLOWEST, BUNDLE, "rank=" + rank++ + ';' + getDurations(activation), bundleId, getBundleVersion(activation.bundle)); //$NON-NLS-1$
+		}
+	}
+
+
+	private void recordActiveBundles(UsageDataService usageDataService, List<Bundle> bundles) {
+		for (Bundle bundle : bundles) {
 			if (bundle.getState() != Bundle.ACTIVE) continue;
 			String bundleId = bundle.getSymbolicName();
 			usageDataService.recordEvent(STARTED, BUNDLE, bundleId, bundleId, getBundleVersion(bundle));
@@ -98,7 +365,11 @@ public class BundleUsageMonitor implements UsageMonitor {
 
 
 	public void stopMonitoring() {
-		getBundleContext().removeBundleListener(bundleUsageListener);
+		if (PlatformUI.isWorkbenchRunning()) PlatformUI.getWorkbench().removeWorkbenchListener(workbenchListener);
+		recordSlowestActivations();
+		synchronized (pending) {
+			usageDataService = null;
+		}
 	}	
 
 	private BundleContext getBundleContext() {
@@ -14,18 +14,23 @@ import org.eclipse.core.commands.ExecutionEvent;
 import org.eclipse.core.commands.ExecutionException;
 import org.eclipse.core.commands.IExecutionListener;
 import org.eclipse.core.commands.NotHandledException;
+import org.eclipse.epp.usagedata.internal.gathering.services.MonitorOverheadMeter;
 import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataService;
 import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.commands.ICommandService;
 
 /**
  * Instances of this class monitor invocations of commands in the workbench.
+ * Commands are usually executed on the UI thread, so the time spent recording
+ * each event is charged to a {@link MonitorOverheadMeter}.
  * 
  * @author Wayne Beaton
  */
 public class CommandUsageMonitor implements UsageMonitor {
 	private static final String COMMANDS_EXTENSION_POINT = "org.eclipse.ui.commands"; //$NON-NLS-1$
 
+	private static final String MONITOR_ID = "command"; //$NON-NLS-1$
+
 	private static final String COMMAND = "command"; //$NON-NLS-1$
 	private static final String EXECUTED = "executed"; //$NON-NLS-1$
 	private static final String FAILED = "failed"; //$NON-NLS-1$
@@ -38,8 +43,11 @@ public class CommandUsageMonitor implements UsageMonitor {
 	private IExecutionListener executionListener;
 	
 	private ExtensionIdToBundleMapper commandToBundleIdMapper;
+
+	private MonitorOverheadMeter overheadMeter;
 		
 	public void startMonitoring(final UsageDataService usageDataService) {		
+		overheadMeter = usageDataService.getOverheadMeter(MONITOR_ID);
 		executionListener = new IExecutionListener() {
 			public void notHandled(String commandId, NotHandledException exception) {
 				recordEvent(NO_HANDLER, usageDataService, commandId);				
@@ -58,7 +66,7 @@ public class CommandUsageMonitor implements UsageMonitor {
 			}			
 		};
 		getCommandService().addExecutionListener(executionListener);
-		commandToBundleIdMapper = new ExtensionIdToBundleMapper(COMMANDS_EXTENSION_POINT);
+		commandToBundleIdMapper = new ExtensionIdToBundleMapper(COMMANDS_EXTENSION_POINT, usageDataService.getSnapshot());
 	}
 
 	private ICommandService getCommandService() {
@@ -73,7 +81,12 @@ public class CommandUsageMonitor implements UsageMonitor {
 
 	private void recordEvent(String what,
 			final UsageDataService usageDataService, String commandId) {
-		usageDataService.recordEvent(what, COMMAND, commandId, getBundleId(commandId));
+		long start = System.nanoTime();
+		// Failures are rare and valuable; they are never dropped.
+		if (!EXECUTED.equals(what) || overheadMeter.accept(what, COMMAND, commandId)) {
+			usageDataService.recordEvent(what, COMMAND, commandId, getBundleId(commandId));
+		}
+		overheadMeter.charge(System.nanoTime() - start);
 	}
 	
 	/**
@@ -18,6 +18,7 @@ import org.eclipse.core.runtime.IExtensionDelta;
 import org.eclipse.core.runtime.IRegistryChangeEvent;
 import org.eclipse.core.runtime.IRegistryChangeListener;
 import org.eclipse.core.runtime.Platform;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataSnapshot;
 
 /**
  * Instances of this class perform a mapping between
@@ -25,12 +26,20 @@ import org.eclipse.core.runtime.Platform;
  * The constructor takes the name of an extension point. From that,
  * it builds a mapping of all extensions to that extension point. It
  * is assumed that all extensions have an &quot;id&quot; attribute
- * that is used for the mapping.
+ * that is used for the mapping. Elements without one (e.g. builders, which
+ * are identified by the unique id of the extension itself) are mapped by the
+ * unique id of their declaring extension.
  * <p>
  * The instance will rebuild its cache when the extension registry
  * detects a change to the extension point (i.e. when bundles are
  * added or removed).
  * </p>
+ * <p>
+ * If the instance is given a {@link UsageDataSnapshot}, the mapping is
+ * taken from the snapshot (if it has one) instead of being built from the
+ * registry the first time it is needed, and the snapshot is updated when
+ * the mapping is built.
+ * </p>
  * 
  * @author Wayne Beaton
  *
@@ -38,10 +47,17 @@ import org.eclipse.core.runtime.Platform;
 public class ExtensionIdToBundleMapper {
 	private Map<String, String> map;
 	private final String extensionPointId;
+	private final UsageDataSnapshot snapshot;
+
+	/**
+	 * Set when the registry changes, after which the mapping in the
+	 * snapshot (if any) is out of date.
+	 */
+	private boolean changed = false;
 	private IRegistryChangeListener listener = new IRegistryChangeListener() {
 		public void registryChanged(IRegistryChangeEvent event) {
 			if (extensionsAdded(event)) {
-				clearCache();
+				extensionPointChanged();
 			}
 		}
 
@@ -55,7 +71,12 @@ public class ExtensionIdToBundleMapper {
 	};
 
 	public ExtensionIdToBundleMapper(String extensionPointId) {
+		this(extensionPointId, null);
+	}
+
+	public ExtensionIdToBundleMapper(String extensionPointId, UsageDataSnapshot snapshot) {
 		this.extensionPointId = extensionPointId;
+		this.snapshot = snapshot;
 		hookListeners();
 	}
 	
@@ -85,6 +106,11 @@ public class ExtensionIdToBundleMapper {
 	private synchronized void clearCache() {
 		map = null;		
 	}
+
+	private synchronized void extensionPointChanged() {
+		changed = true;
+		clearCache();
+	}
 	
 	/**
 	 * This method walks through the commands registered via the extension registry
@@ -92,10 +118,22 @@ public class ExtensionIdToBundleMapper {
 	 */
 	private synchronized void updateCommandToBundleMappings() {
 		if (map != null) return;
+		if (snapshot != null && !changed) {
+			map = snapshot.getSection(getSectionName());
+			if (map != null) return;
+		}
 		map = new HashMap<String, String>();
 		IConfigurationElement[] elements = Platform.getExtensionRegistry().getConfigurationElementsFor(extensionPointId);
 		for (IConfigurationElement element : elements) {
-			map.put(element.getAttribute("id"), element.getContributor().getName()); //$NON-NLS-1$
+			String id = element.getAttribute("id"); //$NON-NLS-1$
+			if (id == null) id = element.getDeclaringExtension().getUniqueIdentifier();
+			if (id == null) continue;
+			map.put(id, element.getContributor().getName());
 		}
+		if (snapshot != null) snapshot.putSection(getSectionName(), map);
+	}
+
+	private String getSectionName() {
+		return "extensions:" + extensionPointId; //$NON-NLS-1$
 	}
 }
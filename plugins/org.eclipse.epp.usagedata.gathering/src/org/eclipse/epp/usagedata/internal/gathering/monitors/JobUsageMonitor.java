@@ -0,0 +1,275 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.gathering.monitors;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.IJobChangeListener;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+import org.eclipse.epp.usagedata.internal.gathering.services.DurationHistogram;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataService;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.FrameworkUtil;
+
+/**
+ * Instances of this class monitor the jobs run by the job manager. For each
+ * job class, we measure how long jobs wait between being scheduled and
+ * starting to run, how long they run, and how often they are scheduled while
+ * a job with a conflicting scheduling rule is running. We also measure how
+ * many jobs are running at the same time.
+ * <p>
+ * Measurements are kept in memory as {@link DurationHistogram}s (in
+ * milliseconds) and recorded as aggregate events every
+ * {@link #REPORTING_PERIOD} milliseconds (and when monitoring stops); e.g.
+ * </p>
+ *
+ * <pre>
+ * what=aggregate, kind=job, description=org.eclipse.core.internal.events.AutoBuildJob;wait:count=4;...;run:count=4;...;conflicts=1
+ * what=concurrency, kind=job, description=count=210;mean=1;p50=2;p90=4;p99=8;max=6
+ * </pre>
+ * <p>
+ * Jobs are identified by class. The job manager provides no way to ask a job
+ * which families it belongs to, so families are not reported. Jobs belonging
+ * to {@link UsageDataService#JOB_FAMILY} are ignored.
+ * </p>
+ */
+public class JobUsageMonitor implements UsageMonitor {
+	private static final String JOB = "job"; //$NON-NLS-1$
+	private static final String AGGREGATE = "aggregate"; //$NON-NLS-1$
+	private static final String CONCURRENCY = "concurrency"; //$NON-NLS-1$
+
+	/**
+	 * How often, in milliseconds, are aggregates recorded?
+	 */
+	static final long REPORTING_PERIOD = 5 * 60 * 1000;
+
+	/**
+	 * The statistics gathered for a single job class.
+	 */
+	static class JobStatistics {
+		final String bundleId;
+		final DurationHistogram wait = new DurationHistogram();
+		final DurationHistogram run = new DurationHistogram();
+		int conflicts = 0;
+
+		JobStatistics(String bundleId) {
+			this.bundleId = bundleId;
+		}
+	}
+
+	/**
+	 * The timing of a single job that has been scheduled but is not yet
+	 * done.
+	 */
+	private static class JobTiming {
+		long ready;
+		long started = -1;
+
+		/**
+		 * The scheduling rule that the job was started with, if any.
+		 */
+		ISchedulingRule rule;
+	}
+
+	private UsageDataService usageDataService;
+
+	/**
+	 * Maps job class names to their statistics. Access is synchronized on
+	 * the receiver.
+	 */
+	private Map<String, JobStatistics> statistics = new HashMap<String, JobStatistics>();
+
+	/**
+	 * The jobs that are scheduled or running. Access is synchronized on the
+	 * receiver.
+	 */
+	private Map<Job, JobTiming> jobs = new IdentityHashMap<Job, JobTiming>();
+
+	/**
+	 * The scheduling rules of the jobs that are running, with the number of
+	 * running jobs that hold each, so that a job that is scheduled is only
+	 * compared with those (rather than with every job that we know about).
+	 * Access is synchronized on the receiver.
+	 */
+	private Map<ISchedulingRule, Integer> runningRules = new IdentityHashMap<ISchedulingRule, Integer>();
+
+	private int running = 0;
+
+	private DurationHistogram concurrency = new DurationHistogram();
+
+	private PeriodicReportingJob reportingJob;
+
+	private IJobChangeListener jobListener = new JobChangeAdapter() {
+		@Override
+		public void scheduled(IJobChangeEvent event) {
+			if (isIgnored(event.getJob())) return;
+			jobScheduled(event.getJob(), System.currentTimeMillis() + Math.max(0, event.getDelay()));
+		}
+
+		@Override
+		public void awake(IJobChangeEvent event) {
+			if (isIgnored(event.getJob())) return;
+			jobScheduled(event.getJob(), System.currentTimeMillis());
+		}
+
+		@Override
+		public void running(IJobChangeEvent event) {
+			if (isIgnored(event.getJob())) return;
+			jobRunning(event.getJob(), System.currentTimeMillis());
+		}
+
+		@Override
+		public void done(IJobChangeEvent event) {
+			if (isIgnored(event.getJob())) return;
+			jobDone(event.getJob(), System.currentTimeMillis());
+		}
+	};
+
+	public void startMonitoring(UsageDataService usageDataService) {
+		this.usageDataService = usageDataService;
+		Job.getJobManager().addJobChangeListener(jobListener);
+		reportingJob = new PeriodicReportingJob("Job usage reporter", REPORTING_PERIOD) { //$NON-NLS-1$
+			@Override
+			protected void report() {
+				recordAggregates();
+			}
+		};
+		reportingJob.start();
+	}
+
+	public void stopMonitoring() {
+		Job.getJobManager().removeJobChangeListener(jobListener);
+		reportingJob.cancel();
+		recordAggregates();
+		synchronized (this) {
+			jobs.clear();
+			runningRules.clear();
+			running = 0;
+		}
+	}
+
+	private boolean isIgnored(Job job) {
+		return job.belongsTo(UsageDataService.JOB_FAMILY);
+	}
+
+	synchronized void jobScheduled(Job job, long ready) {
+		JobTiming timing = jobs.get(job);
+		if (timing == null) {
+			timing = new JobTiming();
+			jobs.put(job, timing);
+		}
+		timing.ready = ready;
+		if (isConflicting(job)) getStatistics(job).conflicts++;
+	}
+
+	/**
+	 * This method answers whether or not the scheduling rule of
+	 * <code>job</code> conflicts with that of a job that is running. This is
+	 * called on every job that is scheduled, so only the rules of the jobs
+	 * that are running are looked at; a job that is rescheduled while it
+	 * runs is not compared with itself.
+	 */
+	private boolean isConflicting(Job job) {
+		ISchedulingRule rule = job.getRule();
+		if (rule == null || runningRules.isEmpty()) return false;
+		JobTiming own = jobs.get(job);
+		ISchedulingRule ownRule = own != null && own.started >= 0 ? own.rule : null;
+		Integer holders = runningRules.get(rule);
+		if (holders != null && (rule != ownRule || holders > 1)) return true;
+		for (Map.Entry<ISchedulingRule, Integer> entry : runningRules.entrySet()) {
+			ISchedulingRule other = entry.getKey();
+			if (other == rule) continue;
+			if (other == ownRule && entry.getValue() == 1) continue;
+			if (rule.isConflicting(other)) return true;
+		}
+		return false;
+	}
+
+	synchronized void jobRunning(Job job, long now) {
+		JobTiming timing = jobs.get(job);
+		if (timing == null) {
+			// Scheduled before we started monitoring; we don't know how long it waited.
+			timing = new JobTiming();
+			jobs.put(job, timing);
+		} else {
+			getStatistics(job).wait.record(now - timing.ready);
+		}
+		timing.started = now;
+		timing.rule = job.getRule();
+		if (timing.rule != null) {
+			Integer holders = runningRules.get(timing.rule);
+			runningRules.put(timing.rule, holders == null ? 1 : holders + 1);
+		}
+		running++;
+		concurrency.record(running);
+	}
+
+	synchronized void jobDone(Job job, long now) {
+		JobTiming timing = jobs.remove(job);
+		if (timing == null || timing.started < 0) return;
+		if (timing.rule != null) {
+			Integer holders = runningRules.remove(timing.rule);
+			if (holders != null && holders > 1) runningRules.put(timing.rule, holders - 1);
+		}
+		getStatistics(job).run.record(now - timing.started);
+		if (running > 0) running--;
+	}
+
+	private JobStatistics getStatistics(Job job) {
+		String name = job.getClass().getName();
+		JobStatistics value = statistics.get(name);
+		if (value == null) {
+			value = new JobStatistics(getBundleId(job.getClass()));
+			statistics.put(name, value);
+		}
+		return value;
+	}
+
+	private String getBundleId(Class<?> type) {
+		Bundle bundle = FrameworkUtil.getBundle(type);
+		if (bundle == null) return null;
+		return bundle.getSymbolicName();
+	}
+
+	/**
+	 * This method records an event for each job class that has been active
+	 * since the last time it was called, and one for concurrency, then
+	 * starts over.
+	 */
+	void recordAggregates() {
+		Map<String, JobStatistics> reported;
+		String concurrencySummary = null;
+		synchronized (this) {
+			if (statistics.isEmpty()) return;
+			reported = statistics;
+			statistics = new HashMap<String, JobStatistics>();
+			if (concurrency.getCount() > 0) concurrencySummary = concurrency.getSummary();
+			concurrency.reset();
+		}
+		for (Map.Entry<String, JobStatistics> entry : reported.entrySet()) {
+			JobStatistics value = entry.getValue();
+			StringBuilder builder = new StringBuilder();
+			builder.append(entry.getKey());
+			builder.append(";wait:").append(value.wait.getSummary()); //$NON-NLS-1$
+			builder.append(";run:").append(value.run.getSummary()); //$NON-NLS-1$
+			builder.append(";conflicts=").append(value.conflicts); //$NON-NLS-1$
+			usageDataService.recordEvent(AGGREGATE, JOB, builder.toString(), value.bundleId);
+		}
+		if (concurrencySummary != null) {
+			usageDataService.recordEvent(CONCURRENCY, JOB, concurrencySummary, null);
+		}
+	}
+}
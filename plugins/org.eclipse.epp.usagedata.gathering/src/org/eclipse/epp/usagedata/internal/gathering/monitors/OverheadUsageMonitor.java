@@ -0,0 +1,207 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.gathering.monitors;
+
+import org.eclipse.epp.usagedata.internal.gathering.UsageDataCaptureActivator;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataMetrics;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataService;
+
+/**
+ * The {@link OverheadUsageMonitor} records what usage data collection itself
+ * costs, so that the cost travels to the server with the rest of the data.
+ * Every {@link #REPORTING_PERIOD} milliseconds (and when monitoring stops),
+ * it records the change in the {@link UsageDataMetrics} since the previous
+ * report as <code>kind=udc</code> aggregate events; e.g.
+ *
+ * <pre>
+ * what=aggregate, kind=udc, description=overhead;cpu=420;allocated=8812544;events=1210;allocatedPerEvent=7283
+ * what=aggregate, kind=udc, description=queue-lag;count=1210;mean=2100;p50=5000;p90=5000;p99=10000
+ * what=aggregate, kind=udc, description=write;count=40;mean=850;p50=1000;p90=5000;p99=5000
+ * what=aggregate, kind=udc, description=upload;failed=0;count=1;mean=930;p50=1000;p90=1000;p99=1000
+ * </pre>
+ * <p>
+ * CPU time is in milliseconds and covers the threads that dispatch, record,
+ * and upload events (not the monitors, whose cost is measured by their
+ * overhead meters). Queue lag and upload durations are in milliseconds;
+ * write durations are in microseconds. Percentiles are the upper bound of
+ * the histogram bucket that they fall in.
+ * </p>
+ * <p>
+ * The events that usage data collection records about itself (those of kind
+ * {@link UsageDataService#UDC}, including the ones recorded here) are not
+ * counted as events.
+ * </p>
+ */
+public class OverheadUsageMonitor implements UsageMonitor {
+	private static final String AGGREGATE = "aggregate"; //$NON-NLS-1$
+
+	/**
+	 * How often, in milliseconds, is the overhead recorded?
+	 */
+	static final long REPORTING_PERIOD = 5 * 60 * 1000;
+
+	private static final long NANOSECONDS_PER_MILLISECOND = 1000 * 1000;
+
+	private static final long NANOSECONDS_PER_MICROSECOND = 1000;
+
+	/**
+	 * A reading of a {@link UsageDataMetrics.Histogram} at the time of a
+	 * report.
+	 */
+	static class Reading {
+		final long count;
+		final long sum;
+		final long[] cumulativeCounts;
+
+		Reading(UsageDataMetrics.Histogram histogram) {
+			// Read the buckets first so that they don't get ahead of the count.
+			cumulativeCounts = histogram.getCumulativeCounts();
+			count = histogram.getCount();
+			sum = histogram.getSum();
+		}
+
+		/**
+		 * This method answers a summary of the values recorded between
+		 * <code>previous</code> and the receiver, e.g.
+		 * <code>count=40;mean=850;p50=1000;p90=5000;p99=5000</code>.
+		 *
+		 * @param scale
+		 *            the number of histogram units in a reported unit.
+		 */
+		String getSummary(Reading previous, long[] upperBounds, long scale) {
+			long periodCount = count - previous.count;
+			long mean = periodCount == 0 ? 0 : (sum - previous.sum) / periodCount / scale;
+			StringBuilder builder = new StringBuilder();
+			builder.append("count=").append(periodCount); //$NON-NLS-1$
+			builder.append(";mean=").append(mean); //$NON-NLS-1$
+			builder.append(";p50=").append(getPercentile(previous, upperBounds, periodCount, 50) / scale); //$NON-NLS-1$
+			builder.append(";p90=").append(getPercentile(previous, upperBounds, periodCount, 90) / scale); //$NON-NLS-1$
+			builder.append(";p99=").append(getPercentile(previous, upperBounds, periodCount, 99) / scale); //$NON-NLS-1$
+			return builder.toString();
+		}
+
+		/**
+		 * @return the upper bound of the bucket that the percentile falls in;
+		 *         the last upper bound if it is beyond the last bucket.
+		 */
+		long getPercentile(Reading previous, long[] upperBounds, long periodCount, double percentile) {
+			if (periodCount <= 0) return 0;
+			long rank = Math.max(1, (long) Math.ceil(periodCount * percentile / 100.0));
+			for (int index = 0; index < upperBounds.length; index++) {
+				if (cumulativeCounts[index] - previous.cumulativeCounts[index] >= rank) return upperBounds[index];
+			}
+			return upperBounds[upperBounds.length - 1];
+		}
+	}
+
+	private final UsageDataMetrics metrics;
+
+	private UsageDataService usageDataService;
+
+	/**
+	 * The state of the metrics at the previous report. Access is
+	 * synchronized on the receiver.
+	 */
+	private long cpuTime;
+	private long allocatedBytes;
+	private long capturedCount;
+	private long uploadsFailed;
+	private Reading queueLag;
+	private Reading writeLatency;
+	private Reading uploadLatency;
+
+	private PeriodicReportingJob reportingJob;
+
+	public OverheadUsageMonitor() {
+		this(UsageDataMetrics.getDefault());
+	}
+
+	OverheadUsageMonitor(UsageDataMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	public void startMonitoring(UsageDataService usageDataService) {
+		this.usageDataService = usageDataService;
+		synchronized (this) {
+			takeReadings();
+		}
+		reportingJob = new PeriodicReportingJob("Usage data overhead reporter", REPORTING_PERIOD) { //$NON-NLS-1$
+			@Override
+			protected void report() {
+				recordAggregates();
+			}
+		};
+		reportingJob.start();
+	}
+
+	public void stopMonitoring() {
+		reportingJob.cancel();
+		recordAggregates();
+	}
+
+	private void takeReadings() {
+		cpuTime = metrics.getCpuTime();
+		allocatedBytes = metrics.getAllocatedBytes();
+		capturedCount = getCapturedCount();
+		uploadsFailed = metrics.getUploadsFailed();
+		queueLag = new Reading(metrics.getQueueLag());
+		writeLatency = new Reading(metrics.getWriteLatency());
+		uploadLatency = new Reading(metrics.getUploadLatency());
+	}
+
+	/**
+	 * This method answers the number of events captured so far, other than
+	 * those that usage data collection recorded about itself.
+	 */
+	private long getCapturedCount() {
+		return metrics.getCapturedCount() - metrics.getCapturedCount(UsageDataService.UDC);
+	}
+
+	/**
+	 * This method records the overhead since the last time it was called.
+	 * Nothing is recorded if no events have been captured in the meantime.
+	 */
+	void recordAggregates() {
+		String overhead, lag, write, upload = null;
+		synchronized (this) {
+			long events = getCapturedCount() - capturedCount;
+			if (events == 0) return;
+			long cpu = metrics.getCpuTime() - cpuTime;
+			long allocated = metrics.getAllocatedBytes() - allocatedBytes;
+			long failed = metrics.getUploadsFailed() - uploadsFailed;
+			Reading previousLag = queueLag;
+			Reading previousWrite = writeLatency;
+			Reading previousUpload = uploadLatency;
+			takeReadings();
+
+			StringBuilder builder = new StringBuilder("overhead"); //$NON-NLS-1$
+			builder.append(";cpu=").append(cpu / NANOSECONDS_PER_MILLISECOND); //$NON-NLS-1$
+			builder.append(";allocated=").append(allocated); //$NON-NLS-1$
+			builder.append(";events=").append(events); //$NON-NLS-1$
+			builder.append(";allocatedPerEvent=").append(allocated / events); //$NON-NLS-1$
+			overhead = builder.toString();
+			lag = "queue-lag;" + queueLag.getSummary(previousLag, metrics.getQueueLag().getUpperBounds(), 1); //$NON-NLS-1$
+			write = "write;" + writeLatency.getSummary(previousWrite, metrics.getWriteLatency().getUpperBounds(), NANOSECONDS_PER_MICROSECOND); //$NON-NLS-1$
+			if (uploadLatency.count > previousUpload.count) {
+				upload = "upload;failed=" + failed + ";" //$NON-NLS-1$ //$NON-NLS-2$
+					+ uploadLatency.getSummary(previousUpload, metrics.getUploadLatency().getUpperBounds(), NANOSECONDS_PER_MILLISECOND);
+			}
+		}
+		record(overhead);
+		record(lag);
+		record(write);
+		if (upload != null) record(upload);
+	}
+
+	private void record(String description) {
+		usageDataService.recordEvent(AGGREGATE, UsageDataService.UDC, description, UsageDataCaptureActivator.PLUGIN_ID);
+	}
+}
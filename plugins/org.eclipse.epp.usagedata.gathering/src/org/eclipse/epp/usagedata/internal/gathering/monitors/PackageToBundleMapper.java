@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.gathering.monitors;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.packageadmin.ExportedPackage;
+import org.osgi.service.packageadmin.PackageAdmin;
+
+/**
+ * Instances of this class map the name of a class to the id (symbolic name)
+ * of the bundle that exports its package. Eclipse bundles conventionally
+ * export all of their packages (internal ones with
+ * <code>x-internal</code> or <code>x-friends</code>), so this finds the
+ * owner of most classes; classes in packages that are not exported map to
+ * <code>null</code>.
+ * <p>
+ * Results are cached by package name.
+ * </p>
+ */
+public class PackageToBundleMapper {
+	private final BundleContext context;
+	private final Map<String, String> map = new HashMap<String, String>();
+
+	public PackageToBundleMapper(BundleContext context) {
+		this.context = context;
+	}
+
+	/**
+	 * This method fetches the bundle that exports the package of the class,
+	 * className.
+	 *
+	 * @param className
+	 *            the fully qualified name of a class.
+	 * @return the symbolic name of the exporting bundle, or <code>null</code>
+	 *         if there isn't one.
+	 */
+	public synchronized String getBundleId(String className) {
+		int dot = className.lastIndexOf('.');
+		if (dot < 0) return null;
+		String packageName = className.substring(0, dot);
+		if (map.containsKey(packageName)) return map.get(packageName);
+		String bundleId = findBundleId(packageName);
+		map.put(packageName, bundleId);
+		return bundleId;
+	}
+
+	private String findBundleId(String packageName) {
+		ServiceReference reference = context.getServiceReference(PackageAdmin.class.getName());
+		if (reference == null) return null;
+		try {
+			PackageAdmin packageAdmin = (PackageAdmin) context.getService(reference);
+			if (packageAdmin == null) return null;
+			ExportedPackage[] packages = packageAdmin.getExportedPackages(packageName);
+			if (packages == null || packages.length == 0) return null;
+			return packages[0].getExportingBundle().getSymbolicName();
+		} finally {
+			context.ungetService(reference);
+		}
+	}
+
+	public synchronized void clearCache() {
+		map.clear();
+	}
+}
@@ -10,6 +10,7 @@
  *******************************************************************************/
 package org.eclipse.epp.usagedata.internal.gathering.monitors;
 
+import org.eclipse.epp.usagedata.internal.gathering.services.MonitorOverheadMeter;
 import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataService;
 import org.eclipse.ui.IEditorSite;
 import org.eclipse.ui.IPageListener;
@@ -40,6 +41,11 @@ import org.eclipse.ui.PlatformUI;
  * listeners either record events, or add/remove listeners to windows and pages
  * as they are opened/closed.
  * </p>
+ * <p>
+ * Since the listeners run on the UI thread, the time spent recording each
+ * event is charged to a {@link MonitorOverheadMeter}; when the monitor goes
+ * over its budget, the meter tells us to drop some events.
+ * </p>
  * 
  * @author Wayne Beaton
  * 
@@ -60,7 +66,11 @@ public class PartUsageMonitor implements UsageMonitor {
 	private static final String VIEW = "view"; //$NON-NLS-1$
 	private static final String EDITOR = "editor"; //$NON-NLS-1$
 
+	private static final String MONITOR_ID = "part"; //$NON-NLS-1$
+
 	private UsageDataService usageDataService;
+
+	private MonitorOverheadMeter overheadMeter;
 	
 	private IWindowListener windowListener = new IWindowListener() {
 		public void windowOpened(IWorkbenchWindow window) {
@@ -138,8 +148,9 @@ public class PartUsageMonitor implements UsageMonitor {
 	 */
 	public void startMonitoring(UsageDataService usageDataService) {
 		this.usageDataService = usageDataService;
+		this.overheadMeter = usageDataService.getOverheadMeter(MONITOR_ID);
 		IWorkbench workbench = PlatformUI.getWorkbench();		
-		perspectiveToBundleIdMapper = new ExtensionIdToBundleMapper(PERSPECTIVES_EXTENSION_POINT);
+		perspectiveToBundleIdMapper = new ExtensionIdToBundleMapper(PERSPECTIVES_EXTENSION_POINT, usageDataService.getSnapshot());
 		hookListeners(workbench);
 	}
 
@@ -226,19 +237,32 @@ public class PartUsageMonitor implements UsageMonitor {
 	}
 	
 	protected void recordEvent(String event, IWorkbenchWindow window) {
+		long start = System.nanoTime();
 		// TODO Hardcoding bundle id for now.
 		// TODO Does an IWorkbenchWindow have an id?
-		usageDataService.recordEvent(event, WORKBENCH, EMPTY_STRING, WORKBENCH_BUNDLE_ID);
+		if (overheadMeter.accept(event, WORKBENCH, EMPTY_STRING)) {
+			usageDataService.recordEvent(event, WORKBENCH, EMPTY_STRING, WORKBENCH_BUNDLE_ID);
+		}
+		overheadMeter.charge(System.nanoTime() - start);
 	}
 
 	protected void recordEvent(String event, IPerspectiveDescriptor perspective) {
+		long start = System.nanoTime();
 		String id = perspective.getId();
-		usageDataService.recordEvent(event, PERSPECTIVE, id, perspectiveToBundleIdMapper.getBundleId(id));
+		if (overheadMeter.accept(event, PERSPECTIVE, id)) {
+			usageDataService.recordEvent(event, PERSPECTIVE, id, perspectiveToBundleIdMapper.getBundleId(id));
+		}
+		overheadMeter.charge(System.nanoTime() - start);
 	}
 	
 	private void recordEvent(String event, IWorkbenchPart part) {
+		long start = System.nanoTime();
 		IWorkbenchPartSite site = part.getSite();
-		usageDataService.recordEvent(event, getKind(site), site.getId(), site.getPluginId());
+		String kind = getKind(site);
+		if (overheadMeter.accept(event, kind, site.getId())) {
+			usageDataService.recordEvent(event, kind, site.getId(), site.getPluginId());
+		}
+		overheadMeter.charge(System.nanoTime() - start);
 	}
 
 	/**
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.gathering.monitors;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataService;
+
+/**
+ * A {@link PeriodicReportingJob} calls {@link #report()} every so often,
+ * until it is cancelled, on behalf of a monitor that keeps its measurements
+ * in memory and records them as aggregate events. It is a system job that
+ * belongs to {@link UsageDataService#JOB_FAMILY}, so that the monitors (and
+ * the idle detector) leave it alone.
+ */
+abstract class PeriodicReportingJob extends Job {
+	private final long period;
+
+	/**
+	 * @param period
+	 *            the time, in milliseconds, between calls to
+	 *            {@link #report()}.
+	 */
+	PeriodicReportingJob(String name, long period) {
+		super(name);
+		this.period = period;
+		setSystem(true);
+	}
+
+	/**
+	 * This method schedules the first report, one period from now.
+	 */
+	void start() {
+		schedule(period);
+	}
+
+	/**
+	 * This method is called every period, on the job's thread.
+	 */
+	protected abstract void report();
+
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		report();
+		if (!monitor.isCanceled()) schedule(period);
+		return Status.OK_STATUS;
+	}
+
+	@Override
+	public boolean belongsTo(Object family) {
+		return family == UsageDataService.JOB_FAMILY;
+	}
+}
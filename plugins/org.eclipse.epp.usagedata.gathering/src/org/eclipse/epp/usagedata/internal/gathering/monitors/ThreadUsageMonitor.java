@@ -0,0 +1,309 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.gathering.monitors;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.epp.usagedata.internal.gathering.UsageDataCaptureActivator;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataService;
+
+/**
+ * Instances of this class sample the threads of the virtual machine every
+ * {@link #SAMPLING_PERIOD} milliseconds using the {@link ThreadMXBean}, with
+ * thread contention monitoring and thread CPU time measurement turned on
+ * (where supported). The CPU time, blocked time, and waited time that each
+ * thread accumulated since the previous sample are attributed to the thread
+ * and to the bundle that owns the topmost frame of its stack that is not
+ * part of the Java runtime.
+ * <p>
+ * This is a sampling approximation: all of the time accumulated in an
+ * interval is attributed to the frame seen at the end of it. Digits in
+ * thread names are replaced by <code>#</code> so that pooled threads
+ * (e.g. <code>Worker-12</code>) are aggregated together.
+ * </p>
+ * <p>
+ * Every {@link #REPORTING_PERIOD} milliseconds (and when monitoring stops),
+ * the {@link #TOP_COUNT} threads and bundles with the most CPU and blocked
+ * time are recorded (all times in milliseconds); e.g.
+ * </p>
+ *
+ * <pre>
+ * what=aggregate, kind=thread, description=Worker-#;cpu=5210;blocked=120;waited=290110
+ * what=bundle, kind=thread, description=cpu=4100;blocked=80;waited=12000, bundleId=org.eclipse.jdt.core
+ * </pre>
+ */
+public class ThreadUsageMonitor implements UsageMonitor {
+	private static final String THREAD = "thread"; //$NON-NLS-1$
+	private static final String AGGREGATE = "aggregate"; //$NON-NLS-1$
+	private static final String BUNDLE = "bundle"; //$NON-NLS-1$
+
+	/**
+	 * How often, in milliseconds, are the threads sampled?
+	 */
+	static final long SAMPLING_PERIOD = 10 * 1000;
+
+	/**
+	 * How often, in milliseconds, are aggregates recorded?
+	 */
+	static final long REPORTING_PERIOD = 5 * 60 * 1000;
+
+	/**
+	 * How many threads, and how many bundles, are recorded each period?
+	 */
+	static final int TOP_COUNT = 20;
+
+	/**
+	 * How many frames of each stack do we look at to find one that is not
+	 * part of the Java runtime?
+	 */
+	private static final int MAXIMUM_DEPTH = 16;
+
+	private static final String[] RUNTIME_PACKAGES = {"java.", "javax.", "sun.", "com.sun.", "jdk."}; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+
+	/**
+	 * Instances of this class accumulate times against names. The times are
+	 * kept in parallel primitive arrays, indexed by name, which grow as
+	 * needed.
+	 */
+	static class Totals {
+		private final Map<String, Integer> indices = new HashMap<String, Integer>();
+		String[] names = new String[16];
+		long[] cpu = new long[16];
+		long[] blocked = new long[16];
+		long[] waited = new long[16];
+		int size = 0;
+
+		void add(String name, long cpuTime, long blockedTime, long waitedTime) {
+			Integer index = indices.get(name);
+			if (index == null) {
+				if (size == names.length) grow();
+				index = size++;
+				indices.put(name, index);
+				names[index] = name;
+			}
+			cpu[index] += cpuTime;
+			blocked[index] += blockedTime;
+			waited[index] += waitedTime;
+		}
+
+		private void grow() {
+			int capacity = names.length * 2;
+			String[] newNames = new String[capacity];
+			System.arraycopy(names, 0, newNames, 0, size);
+			names = newNames;
+			cpu = grow(cpu, capacity);
+			blocked = grow(blocked, capacity);
+			waited = grow(waited, capacity);
+		}
+
+		private long[] grow(long[] values, int capacity) {
+			long[] grown = new long[capacity];
+			System.arraycopy(values, 0, grown, 0, size);
+			return grown;
+		}
+
+		/**
+		 * This method answers the indices of (at most) <code>count</code>
+		 * entries with the most CPU plus blocked time, most first. Entries
+		 * with neither are left out; waited time is mostly idle threads
+		 * waiting for work, so it does not count toward the ranking.
+		 */
+		int[] getTop(int count) {
+			int[] top = new int[Math.min(count, size)];
+			int found = 0;
+			for (int index = 0; index < size; index++) {
+				long weight = getWeight(index);
+				if (weight == 0) continue;
+				if (found == top.length && weight <= getWeight(top[found - 1])) continue;
+				int position = found < top.length ? found++ : found - 1;
+				while (position > 0 && getWeight(top[position - 1]) < weight) {
+					top[position] = top[position - 1];
+					position--;
+				}
+				top[position] = index;
+			}
+			int[] result = new int[found];
+			System.arraycopy(top, 0, result, 0, found);
+			return result;
+		}
+
+		private long getWeight(int index) {
+			return cpu[index] + blocked[index];
+		}
+	}
+
+	private UsageDataService usageDataService;
+
+	private ThreadMXBean threads;
+
+	private boolean contentionMonitoringWasEnabled;
+
+	private boolean cpuTimeWasEnabled;
+
+	private PackageToBundleMapper packageToBundleIdMapper;
+
+	/**
+	 * Maps the ids of the threads seen by the previous sample to their CPU
+	 * time (in nanoseconds), blocked time and waited time (in milliseconds)
+	 * at that time. Access is synchronized on the receiver.
+	 */
+	private Map<Long, long[]> previous = new HashMap<Long, long[]>();
+
+	/**
+	 * CPU time is accumulated in nanoseconds; blocked and waited time in
+	 * milliseconds. Access is synchronized on the receiver.
+	 */
+	private Totals threadTotals = new Totals();
+	private Totals bundleTotals = new Totals();
+
+	private long lastReport;
+
+	private PeriodicReportingJob samplingJob;
+
+	public void startMonitoring(UsageDataService usageDataService) {
+		this.usageDataService = usageDataService;
+		threads = ManagementFactory.getThreadMXBean();
+		if (threads.isThreadContentionMonitoringSupported()) {
+			contentionMonitoringWasEnabled = threads.isThreadContentionMonitoringEnabled();
+			threads.setThreadContentionMonitoringEnabled(true);
+		}
+		if (threads.isThreadCpuTimeSupported()) {
+			cpuTimeWasEnabled = threads.isThreadCpuTimeEnabled();
+			threads.setThreadCpuTimeEnabled(true);
+		}
+		packageToBundleIdMapper = new PackageToBundleMapper(UsageDataCaptureActivator.getDefault().getBundle().getBundleContext());
+		lastReport = System.currentTimeMillis();
+
+		samplingJob = new PeriodicReportingJob("Thread usage sampler", SAMPLING_PERIOD) { //$NON-NLS-1$
+			@Override
+			protected void report() {
+				sample();
+				if (System.currentTimeMillis() - lastReport >= REPORTING_PERIOD) {
+					recordAggregates();
+				}
+			}
+		};
+		samplingJob.start();
+	}
+
+	public void stopMonitoring() {
+		samplingJob.cancel();
+		recordAggregates();
+		if (threads.isThreadContentionMonitoringSupported()) {
+			threads.setThreadContentionMonitoringEnabled(contentionMonitoringWasEnabled);
+		}
+		if (threads.isThreadCpuTimeSupported()) {
+			threads.setThreadCpuTimeEnabled(cpuTimeWasEnabled);
+		}
+		packageToBundleIdMapper.clearCache();
+		synchronized (this) {
+			previous.clear();
+		}
+	}
+
+	/**
+	 * This method takes a sample of all threads except the current one, and
+	 * attributes the time that each has accumulated since the previous
+	 * sample. Threads seen for the first time only establish a baseline.
+	 */
+	synchronized void sample() {
+		long[] ids = threads.getAllThreadIds();
+		ThreadInfo[] infos = threads.getThreadInfo(ids, MAXIMUM_DEPTH);
+		boolean cpuTimeEnabled = threads.isThreadCpuTimeSupported() && threads.isThreadCpuTimeEnabled();
+		long self = Thread.currentThread().getId();
+		Map<Long, long[]> current = new HashMap<Long, long[]>(ids.length * 2);
+		for (int index = 0; index < ids.length; index++) {
+			ThreadInfo info = infos[index];
+			if (info == null || ids[index] == self) continue;
+			long[] times = new long[] {
+				cpuTimeEnabled ? threads.getThreadCpuTime(ids[index]) : -1,
+				info.getBlockedTime(),
+				info.getWaitedTime()};
+			current.put(ids[index], times);
+
+			long[] before = previous.get(ids[index]);
+			if (before == null) continue;
+			long cpu = getDelta(before[0], times[0]);
+			long blocked = getDelta(before[1], times[1]);
+			long waited = getDelta(before[2], times[2]);
+			if (cpu == 0 && blocked == 0 && waited == 0) continue;
+
+			threadTotals.add(getThreadName(info), cpu, blocked, waited);
+			String bundleId = getBundleId(info.getStackTrace());
+			if (bundleId != null) bundleTotals.add(bundleId, cpu, blocked, waited);
+		}
+		previous = current;
+	}
+
+	/**
+	 * Times are <code>-1</code> when they are not being measured.
+	 */
+	private long getDelta(long before, long after) {
+		if (before < 0 || after < before) return 0;
+		return after - before;
+	}
+
+	private String getThreadName(ThreadInfo info) {
+		return info.getThreadName().replaceAll("[0-9]+", "#"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private String getBundleId(StackTraceElement[] stack) {
+		for (StackTraceElement frame : stack) {
+			String className = frame.getClassName();
+			if (isRuntimeClass(className)) continue;
+			return packageToBundleIdMapper.getBundleId(className);
+		}
+		return null;
+	}
+
+	private boolean isRuntimeClass(String className) {
+		for (String prefix : RUNTIME_PACKAGES) {
+			if (className.startsWith(prefix)) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * This method records events for the threads and bundles with the most
+	 * time since the last time it was called, then starts over.
+	 */
+	void recordAggregates() {
+		Totals reportedThreads;
+		Totals reportedBundles;
+		synchronized (this) {
+			lastReport = System.currentTimeMillis();
+			if (threadTotals.size == 0) return;
+			reportedThreads = threadTotals;
+			reportedBundles = bundleTotals;
+			threadTotals = new Totals();
+			bundleTotals = new Totals();
+		}
+		for (int index : reportedThreads.getTop(TOP_COUNT)) {
+			String description = reportedThreads.names[index] + ';' + getTimes(reportedThreads, index);
+			usageDataService.recordEvent(AGGREGATE, THREAD, description, null);
+		}
+		for (int index : reportedBundles.getTop(TOP_COUNT)) {
+			usageDataService.recordEvent(BUNDLE, THREAD, getTimes(reportedBundles, index), reportedBundles.names[index]);
+		}
+	}
+
+	private String getTimes(Totals totals, int index) {
+		StringBuilder builder = new StringBuilder();
+		builder.append("cpu=").append(totals.cpu[index] / 1000000); //$NON-NLS-1$
+		builder.append(";blocked=").append(totals.blocked[index]); //$NON-NLS-1$
+		builder.append(";waited=").append(totals.waited[index]); //$NON-NLS-1$
+		return builder.toString();
+	}
+}
@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.gathering.services;
+
+/**
+ * A {@link DurationHistogram} summarises a series of durations in a fixed
+ * amount of memory. Durations are counted in power-of-two buckets (less than
+ * 1, less than 2, less than 4, ... units), so percentiles are approximate: a
+ * percentile is reported as the upper bound of the bucket that it falls in,
+ * and is never more than twice the true value. The count, total, and maximum
+ * are exact.
+ * <p>
+ * The unit is up to the caller (e.g. milliseconds or microseconds).
+ * </p>
+ * <p>
+ * Instances are thread safe.
+ * </p>
+ */
+public class DurationHistogram {
+	static final int BUCKET_COUNT = 32;
+
+	private final long[] buckets = new long[BUCKET_COUNT];
+
+	private long count = 0;
+
+	private long total = 0;
+
+	private long maximum = 0;
+
+	/**
+	 * This method adds a duration to the receiver. Negative durations (e.g.
+	 * caused by a clock adjustment) are counted as zero.
+	 */
+	public synchronized void record(long duration) {
+		if (duration < 0) duration = 0;
+		buckets[getBucket(duration)]++;
+		count++;
+		total += duration;
+		if (duration > maximum) maximum = duration;
+	}
+
+	/**
+	 * Durations less than one go in bucket 0; otherwise, a duration goes in
+	 * the bucket numbered one more than the position of its highest bit.
+	 */
+	static int getBucket(long duration) {
+		int bucket = 64 - Long.numberOfLeadingZeros(duration);
+		return Math.min(bucket, BUCKET_COUNT - 1);
+	}
+
+	/**
+	 * @return the exclusive upper bound of the durations in
+	 *         <code>bucket</code>.
+	 */
+	static long getUpperBound(int bucket) {
+		return 1L << bucket;
+	}
+
+	/**
+	 * This method returns an approximation of the given percentile.
+	 *
+	 * @param percentile
+	 *            a value between 0 and 100.
+	 * @return the upper bound of the bucket containing the percentile (but no
+	 *         more than the maximum), or zero if the receiver is empty.
+	 */
+	public synchronized long getPercentile(double percentile) {
+		if (count == 0) return 0;
+		long rank = (long) Math.ceil(count * percentile / 100.0);
+		if (rank < 1) rank = 1;
+		long seen = 0;
+		for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+			seen += buckets[bucket];
+			if (seen >= rank) return Math.min(getUpperBound(bucket), maximum);
+		}
+		return maximum;
+	}
+
+	public synchronized long getCount() {
+		return count;
+	}
+
+	public synchronized long getTotal() {
+		return total;
+	}
+
+	public synchronized long getMaximum() {
+		return maximum;
+	}
+
+	public synchronized long getMean() {
+		if (count == 0) return 0;
+		return total / count;
+	}
+
+	public synchronized void reset() {
+		for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+			buckets[bucket] = 0;
+		}
+		count = 0;
+		total = 0;
+		maximum = 0;
+	}
+
+	/**
+	 * This method answers a compact summary of the receiver, e.g.
+	 * <code>count=12;mean=3;p50=4;p90=16;p99=32;max=30</code>, suitable for
+	 * use as (part of) an event description.
+	 */
+	public synchronized String getSummary() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("count=").append(count); //$NON-NLS-1$
+		builder.append(";mean=").append(getMean()); //$NON-NLS-1$
+		builder.append(";p50=").append(getPercentile(50)); //$NON-NLS-1$
+		builder.append(";p90=").append(getPercentile(90)); //$NON-NLS-1$
+		builder.append(";p99=").append(getPercentile(99)); //$NON-NLS-1$
+		builder.append(";max=").append(maximum); //$NON-NLS-1$
+		return builder.toString();
+	}
+}
@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.gathering.services;
+
+/**
+ * An {@link IdleDetector} tells the {@link UsageDataService} whether or not
+ * the user is busy. While the user is busy, events are held in the queue
+ * rather than dispatched, so that writing them out does not compete with
+ * interactive work.
+ * 
+ * @see UsageDataServiceConfiguration#setIdleDetector(IdleDetector)
+ */
+public interface IdleDetector {
+
+	/**
+	 * An {@link IdleDetector} that is always idle. Events are dispatched as
+	 * soon as they are available.
+	 */
+	IdleDetector ALWAYS_IDLE = new IdleDetector() {
+		public void start() {
+		}
+
+		public void stop() {
+		}
+
+		public boolean isIdle() {
+			return true;
+		}
+	};
+
+	/**
+	 * This method is invoked when the service starts monitoring.
+	 */
+	void start();
+
+	/**
+	 * This method is invoked when the service stops monitoring.
+	 */
+	void stop();
+
+	/**
+	 * This method answers whether or not the user is currently idle. It is
+	 * called frequently and must be cheap.
+	 */
+	boolean isIdle();
+}
@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.gathering.services;
+
+/**
+ * A {@link MonitorOverheadMeter} keeps track of the time that a single monitor
+ * spends producing events on the thread that notifies it (typically the UI
+ * thread) and keeps that time within a budget expressed as a fraction of
+ * elapsed time.
+ * <p>
+ * Monitors obtain a meter from
+ * {@link UsageDataService#getOverheadMeter(String)} and use it like this:
+ * </p>
+ *
+ * <pre>
+ * long start = System.nanoTime();
+ * ...compute the event details...
+ * if (meter.accept(what, kind, description)) usageDataService.recordEvent(...);
+ * meter.charge(System.nanoTime() - start);
+ * </pre>
+ * <p>
+ * Time is accounted over fixed windows. At the end of each window, a meter
+ * that went over budget moves to the next degradation level: it first
+ * coalesces consecutive identical events, then samples one in
+ * {@link #SAMPLING_RATE} events, and finally suspends the monitor for a
+ * window. A meter that uses less than half of its budget moves back one
+ * level. Every change of level is reported to the {@link UsageDataService}.
+ * </p>
+ * <p>
+ * Instances are thread safe.
+ * </p>
+ */
+public class MonitorOverheadMeter {
+
+	/**
+	 * Every event is recorded.
+	 */
+	public static final int FULL = 0;
+
+	/**
+	 * An event identical to the one immediately before it is dropped.
+	 */
+	public static final int COALESCING = 1;
+
+	/**
+	 * Only one in every {@link #SAMPLING_RATE} events is recorded.
+	 */
+	public static final int SAMPLING = 2;
+
+	/**
+	 * No events are recorded until the end of the current window.
+	 */
+	public static final int SUSPENDED = 3;
+
+	static final int SAMPLING_RATE = 10;
+
+	private static final String[] LEVEL_NAMES = {"full", "coalescing", "sampling", "suspended"}; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+
+	private final String monitorId;
+
+	private final UsageDataService service;
+
+	/**
+	 * The fraction of elapsed time that the monitor may spend producing
+	 * events. A value of zero or less disables the budget.
+	 */
+	private final double budget;
+
+	private final long windowNanos;
+
+	private long windowStart;
+
+	private long spentInWindow = 0;
+
+	private long totalSpent = 0;
+
+	private long accepted = 0;
+
+	private long discarded = 0;
+
+	private int level = FULL;
+
+	private int sampleCounter = 0;
+
+	private String lastWhat;
+	private String lastKind;
+	private String lastDescription;
+
+	MonitorOverheadMeter(String monitorId, UsageDataService service, double budget, long windowMillis) {
+		this.monitorId = monitorId;
+		this.service = service;
+		this.budget = budget;
+		this.windowNanos = Math.max(1, windowMillis) * 1000000L;
+		this.windowStart = System.nanoTime();
+	}
+
+	/**
+	 * This method answers whether or not an event with the given details
+	 * should be recorded, given the receiver's current degradation level.
+	 */
+	public synchronized boolean accept(String what, String kind, String description) {
+		boolean accept = shouldAccept(what, kind, description);
+		lastWhat = what;
+		lastKind = kind;
+		lastDescription = description;
+		if (accept) accepted++;
+		else discarded++;
+		return accept;
+	}
+
+	private boolean shouldAccept(String what, String kind, String description) {
+		switch (level) {
+		case FULL:
+			return true;
+		case COALESCING:
+			return !isRepeat(what, kind, description);
+		case SAMPLING:
+			return sampleCounter++ % SAMPLING_RATE == 0;
+		default:
+			return false;
+		}
+	}
+
+	private boolean isRepeat(String what, String kind, String description) {
+		return equals(what, lastWhat) && equals(kind, lastKind) && equals(description, lastDescription);
+	}
+
+	private static boolean equals(String first, String second) {
+		if (first == null) return second == null;
+		return first.equals(second);
+	}
+
+	/**
+	 * This method adds <code>nanos</code> to the time spent by the monitor.
+	 * If the current window has ended, the degradation level is reassessed.
+	 *
+	 * @param nanos
+	 *            time spent, as measured using {@link System#nanoTime()}.
+	 */
+	public void charge(long nanos) {
+		int oldLevel, newLevel;
+		synchronized (this) {
+			spentInWindow += nanos;
+			totalSpent += nanos;
+			long now = System.nanoTime();
+			long elapsed = now - windowStart;
+			if (elapsed < windowNanos) return;
+			oldLevel = level;
+			level = computeLevel(elapsed);
+			newLevel = level;
+			windowStart = now;
+			spentInWindow = 0;
+		}
+		if (oldLevel != newLevel) service.overheadLevelChanged(this, oldLevel, newLevel);
+	}
+
+	private int computeLevel(long elapsed) {
+		if (budget <= 0) return FULL;
+		double allowed = elapsed * budget;
+		// A suspended monitor spends next to nothing, so it always steps back.
+		if (level == SUSPENDED) return SAMPLING;
+		if (spentInWindow > allowed) return level + 1;
+		if (spentInWindow < allowed / 2 && level > FULL) return level - 1;
+		return level;
+	}
+
+	public String getMonitorId() {
+		return monitorId;
+	}
+
+	public synchronized int getLevel() {
+		return level;
+	}
+
+	/**
+	 * @return the total time, in nanoseconds, that the monitor has spent
+	 *         producing events.
+	 */
+	public synchronized long getTotalTime() {
+		return totalSpent;
+	}
+
+	public synchronized long getAcceptedCount() {
+		return accepted;
+	}
+
+	/**
+	 * @return the number of events that were not recorded because the monitor
+	 *         was degraded.
+	 */
+	public synchronized long getDiscardedCount() {
+		return discarded;
+	}
+
+	public static String getLevelName(int level) {
+		return LEVEL_NAMES[level];
+	}
+}
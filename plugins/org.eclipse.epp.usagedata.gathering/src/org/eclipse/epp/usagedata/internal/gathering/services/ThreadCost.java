@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.gathering.services;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+
+/**
+ * The {@link ThreadCost} class measures the CPU time and the memory that the
+ * current thread has used so far. Taking a measurement before and after a
+ * piece of work gives its cost; see {@link UsageDataMetrics#addCost(long, long)}.
+ * <p>
+ * Allocated bytes are measured with
+ * <code>com.sun.management.ThreadMXBean</code>, which not every virtual
+ * machine provides, so it is looked up reflectively.
+ * </p>
+ */
+public class ThreadCost {
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+	private static final Method GET_ALLOCATED_BYTES = getAllocatedBytesMethod();
+
+	private static Method getAllocatedBytesMethod() {
+		try {
+			Class<?> type = Class.forName("com.sun.management.ThreadMXBean"); //$NON-NLS-1$
+			if (!type.isInstance(THREADS)) return null;
+			Method method = type.getMethod("getThreadAllocatedBytes", long.class); //$NON-NLS-1$
+			method.setAccessible(true);
+			return method;
+		} catch (Throwable e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return the CPU time, in nanoseconds, used by the current thread, or
+	 *         <code>-1</code> if it is not being measured.
+	 */
+	public static long getCpuTime() {
+		try {
+			return THREADS.getCurrentThreadCpuTime();
+		} catch (UnsupportedOperationException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * @return the number of bytes allocated by the current thread, or
+	 *         <code>-1</code> if it is not being measured.
+	 */
+	public static long getAllocatedBytes() {
+		if (GET_ALLOCATED_BYTES == null) return -1;
+		try {
+			return ((Long) GET_ALLOCATED_BYTES.invoke(THREADS, Thread.currentThread().getId())).longValue();
+		} catch (Exception e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * @return the difference between two measurements, or zero if either
+	 *         was not taken.
+	 */
+	public static long getDelta(long before, long after) {
+		if (before < 0 || after < before) return 0;
+		return after - before;
+	}
+}
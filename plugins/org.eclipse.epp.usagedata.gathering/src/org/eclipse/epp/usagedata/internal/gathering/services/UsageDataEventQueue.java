@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.gathering.services;
+
+import java.util.Collection;
+import java.util.LinkedList;
+
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEvent;
+
+/**
+ * The {@link UsageDataEventQueue} holds events between the time that they are
+ * recorded by a monitor and the time that they are dispatched by the
+ * {@link UsageDataService}. Rather than a single FIFO, the queue maintains a
+ * separate lane for each priority class ({@link #CRITICAL}, {@link #NORMAL},
+ * and {@link #BULK}).
+ * <p>
+ * Lanes are drained using weighted round-robin: in each round, the consumer
+ * takes up to {@link #getWeight(int)} events from each lane, starting with the
+ * most important. This keeps rare, valuable events (e.g. log errors) from
+ * getting stuck behind a flood of part activations, while still guaranteeing
+ * that bulk events make progress.
+ * </p>
+ * <p>
+ * The queue is bounded. When it is full, the oldest event in the least
+ * important non-empty lane is shed to make room; an incoming event is only
+ * rejected when every queued event is more important than it is. That is,
+ * bulk traffic is always shed first.
+ * </p>
+ * <p>
+ * Instances are thread safe.
+ * </p>
+ */
+public class UsageDataEventQueue {
+	/**
+	 * Priority class for rare, high-value events (e.g. errors, failures,
+	 * system information).
+	 */
+	public static final int CRITICAL = 0;
+
+	/**
+	 * Priority class for events that do not otherwise specify one.
+	 */
+	public static final int NORMAL = 1;
+
+	/**
+	 * Priority class for high-volume, low-value events (e.g. part activation).
+	 */
+	public static final int BULK = 2;
+
+	static final int LANE_COUNT = 3;
+
+	public static final int DEFAULT_CAPACITY = 10000;
+
+	private static final int[] DEFAULT_WEIGHTS = {8, 4, 1};
+
+	private final LinkedList<UsageDataEvent>[] lanes;
+
+	private final int[] weights;
+
+	/**
+	 * The number of events that each lane may still provide in the current
+	 * round of draining.
+	 */
+	private final int[] credits;
+
+	private final long[] dropped = new long[LANE_COUNT];
+
+	private final int capacity;
+
+	private int size = 0;
+
+	public UsageDataEventQueue() {
+		this(DEFAULT_CAPACITY, DEFAULT_WEIGHTS);
+	}
+
+	/**
+	 * @param capacity
+	 *            the maximum number of events held across all lanes. Must be
+	 *            greater than zero.
+	 * @param weights
+	 *            the number of events drawn from each lane per round, indexed
+	 *            by priority class. Values less than one are treated as one.
+	 */
+	@SuppressWarnings("unchecked")
+	public UsageDataEventQueue(int capacity, int[] weights) {
+		if (capacity <= 0) throw new IllegalArgumentException("Capacity must be greater than zero."); //$NON-NLS-1$
+		this.capacity = capacity;
+		this.weights = new int[LANE_COUNT];
+		this.credits = new int[LANE_COUNT];
+		this.lanes = new LinkedList[LANE_COUNT];
+		for (int lane = 0; lane < LANE_COUNT; lane++) {
+			int weight = (weights != null && lane < weights.length) ? weights[lane] : DEFAULT_WEIGHTS[lane];
+			this.weights[lane] = Math.max(1, weight);
+			this.lanes[lane] = new LinkedList<UsageDataEvent>();
+		}
+		resetCredits();
+	}
+
+	/**
+	 * This method adds an event to the lane for the given priority class. If
+	 * the queue is full, a less (or equally) important event is shed to make
+	 * room. If there is no such event, the new event is rejected.
+	 *
+	 * @param event
+	 *            the {@link UsageDataEvent} to add. Must not be
+	 *            <code>null</code>.
+	 * @param priority
+	 *            one of {@link #CRITICAL}, {@link #NORMAL}, or {@link #BULK}.
+	 * @return <code>true</code> if the event was added, or <code>false</code>
+	 *         if it was rejected.
+	 */
+	public synchronized boolean add(UsageDataEvent event, int priority) {
+		int lane = asLane(priority);
+		if (size >= capacity && !shed(lane)) {
+			dropped[lane]++;
+			return false;
+		}
+		lanes[lane].addLast(event);
+		size++;
+		notifyAll();
+		return true;
+	}
+
+	/**
+	 * Discard the oldest event from the least important non-empty lane that
+	 * is no more important than <code>lane</code>.
+	 *
+	 * @return <code>true</code> if an event was discarded.
+	 */
+	private boolean shed(int lane) {
+		for (int candidate = LANE_COUNT - 1; candidate >= lane; candidate--) {
+			if (lanes[candidate].isEmpty()) continue;
+			lanes[candidate].removeFirst();
+			dropped[candidate]++;
+			size--;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * This method returns the next event to dispatch, waiting until one is
+	 * available.
+	 *
+	 * @return the next {@link UsageDataEvent}; never <code>null</code>.
+	 * @throws InterruptedException
+	 *             if the current thread is interrupted while waiting.
+	 */
+	public synchronized UsageDataEvent take() throws InterruptedException {
+		while (size == 0) wait();
+		return next();
+	}
+
+	/**
+	 * This method returns the next event to dispatch, or <code>null</code>
+	 * if the queue is empty.
+	 *
+	 * @return the next {@link UsageDataEvent} or <code>null</code>.
+	 */
+	public synchronized UsageDataEvent poll() {
+		if (size == 0) return null;
+		return next();
+	}
+
+	private UsageDataEvent next() {
+		while (true) {
+			for (int lane = 0; lane < LANE_COUNT; lane++) {
+				if (credits[lane] == 0) continue;
+				if (lanes[lane].isEmpty()) continue;
+				credits[lane]--;
+				size--;
+				return lanes[lane].removeFirst();
+			}
+			// Every lane with events has used up its share for this round.
+			resetCredits();
+		}
+	}
+
+	private void resetCredits() {
+		System.arraycopy(weights, 0, credits, 0, LANE_COUNT);
+	}
+
+	/**
+	 * This method removes all events from the queue, most important first,
+	 * and adds them to <code>target</code>.
+	 *
+	 * @return the number of events moved.
+	 */
+	public synchronized int drainTo(Collection<UsageDataEvent> target) {
+		int count = size;
+		for (int lane = 0; lane < LANE_COUNT; lane++) {
+			target.addAll(lanes[lane]);
+			lanes[lane].clear();
+		}
+		size = 0;
+		resetCredits();
+		return count;
+	}
+
+	public synchronized int size() {
+		return size;
+	}
+
+	public synchronized boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public int getWeight(int priority) {
+		return weights[asLane(priority)];
+	}
+
+	/**
+	 * This method answers the number of events in the given priority class
+	 * that have been either shed or rejected because the queue was full.
+	 */
+	public synchronized long getDroppedCount(int priority) {
+		return dropped[asLane(priority)];
+	}
+
+	private int asLane(int priority) {
+		if (priority < CRITICAL) return CRITICAL;
+		if (priority > BULK) return BULK;
+		return priority;
+	}
+}
@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.gathering.services;
+
+import org.eclipse.core.runtime.IStatus;
+
+/**
+ * Implementors of this interface receive the messages and exceptions that
+ * the usage data pipeline wants to report. In the workbench, the bundle
+ * activators implement this interface and write to the platform log; when
+ * the pipeline is embedded without OSGi, the {@link #SYSTEM_ERR} instance
+ * (or any other implementation) can be used instead.
+ */
+public interface UsageDataLog {
+	
+	/**
+	 * A log that simply writes to {@link System#err}.
+	 */
+	UsageDataLog SYSTEM_ERR = new UsageDataLog() {
+		public void log(int severity, String message, Throwable exception) {
+			System.err.println(message);
+			if (exception != null) exception.printStackTrace();
+		}
+	};
+
+	/**
+	 * @param severity
+	 *            one of the {@link IStatus} severities (e.g.
+	 *            {@link IStatus#ERROR}).
+	 * @param message
+	 *            a {@link String} message to include in the log.
+	 * @param exception
+	 *            the exception to capture in the log, or <code>null</code>.
+	 */
+	void log(int severity, String message, Throwable exception);
+}
@@ -0,0 +1,581 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.gathering.services;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The {@link UsageDataMetrics} keep running totals of the work done by the
+ * capture pipeline: events captured (by kind), how long events wait in the
+ * queue, how long listeners take, what the recorder writes, compresses and
+ * evicts to stay within its disk quota, how uploads go, and the CPU time and
+ * memory that the pipeline's own threads use. The totals are only ever added
+ * to and are never reset, so they can be scraped by an external agent and
+ * turned into rates.
+ * <p>
+ * Separately, the time that each event spends in each stage on its way from
+ * the service to the disk is kept in a {@link Histogram} per stage (see
+ * {@link #getStageLatency(String)}); these are intended for tuning and can be
+ * reset.
+ * </p>
+ * <p>
+ * The totals are updated on the paths that every event takes, so they are
+ * kept in atomic counters rather than behind a lock; readers may see a
+ * histogram whose count and buckets are momentarily out of step.
+ * </p>
+ * <p>
+ * There is a single instance per virtual machine; see {@link #getDefault()}.
+ * </p>
+ */
+public class UsageDataMetrics {
+	/**
+	 * A {@link Histogram} counts values against a fixed set of (inclusive)
+	 * upper bounds. Values larger than the last bound are only counted in
+	 * the total (and the maximum).
+	 */
+	public static class Histogram {
+		private final long[] upperBounds;
+		private final AtomicLongArray buckets;
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong sum = new AtomicLong();
+		private final AtomicLong maximum = new AtomicLong();
+
+		public Histogram(long[] upperBounds) {
+			this.upperBounds = upperBounds.clone();
+			buckets = new AtomicLongArray(upperBounds.length);
+		}
+
+		/**
+		 * Negative values (e.g. caused by a clock adjustment) are counted as
+		 * zero.
+		 */
+		public void record(long value) {
+			if (value < 0) value = 0;
+			count.incrementAndGet();
+			sum.addAndGet(value);
+			long current = maximum.get();
+			while (value > current && !maximum.compareAndSet(current, value)) {
+				current = maximum.get();
+			}
+			for (int index = 0; index < upperBounds.length; index++) {
+				if (value <= upperBounds[index]) {
+					buckets.incrementAndGet(index);
+					return;
+				}
+			}
+		}
+
+		public long[] getUpperBounds() {
+			return upperBounds.clone();
+		}
+
+		/**
+		 * @return the number of values that are less than or equal to each
+		 *         of the upper bounds.
+		 */
+		public long[] getCumulativeCounts() {
+			long[] counts = new long[upperBounds.length];
+			long total = 0;
+			for (int index = 0; index < counts.length; index++) {
+				total += buckets.get(index);
+				counts[index] = total;
+			}
+			return counts;
+		}
+
+		public long getCount() {
+			return count.get();
+		}
+
+		public long getSum() {
+			return sum.get();
+		}
+
+		public long getMaximum() {
+			return maximum.get();
+		}
+
+		/**
+		 * This method returns an approximation of the given percentile.
+		 *
+		 * @param percentile
+		 *            a value between 0 and 100.
+		 * @return the upper bound of the bucket containing the percentile
+		 *         (but no more than the maximum), or zero if the receiver is
+		 *         empty.
+		 */
+		public long getPercentile(double percentile) {
+			long[] counts = getCumulativeCounts();
+			long total = count.get();
+			if (total == 0) return 0;
+			long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+			long largest = maximum.get();
+			for (int index = 0; index < counts.length; index++) {
+				if (counts[index] >= rank) return Math.min(upperBounds[index], largest);
+			}
+			return largest;
+		}
+	}
+
+	/**
+	 * The time from the service queuing an event to it being taken off the
+	 * queue for dispatch.
+	 */
+	public static final String QUEUE_STAGE = "queue"; //$NON-NLS-1$
+
+	/**
+	 * The time that the service takes to fill in an event's missing
+	 * information (e.g. the bundle version) before dispatching it.
+	 */
+	public static final String ENRICH_STAGE = "enrich"; //$NON-NLS-1$
+
+	/**
+	 * The time that all of the listeners together take with an event.
+	 */
+	public static final String DISPATCH_STAGE = "dispatch"; //$NON-NLS-1$
+
+	/**
+	 * The time from the service handing an event to the recorder to the
+	 * recorder having written it to the event file; this includes the time
+	 * that the recorder holds the event in memory.
+	 */
+	public static final String WRITE_STAGE = "write"; //$NON-NLS-1$
+
+	/**
+	 * The time from the service queuing an event to the recorder having
+	 * written it to the event file.
+	 */
+	public static final String TOTAL_STAGE = "total"; //$NON-NLS-1$
+
+	private static final String[] STAGES = {QUEUE_STAGE, ENRICH_STAGE, DISPATCH_STAGE, WRITE_STAGE, TOTAL_STAGE};
+
+	private static final long NANOSECONDS_PER_MICROSECOND = 1000;
+
+	/**
+	 * The upper bounds, in microseconds, of the stage latency buckets.
+	 */
+	private static final long[] STAGE_BOUNDS = {
+		10, 50, 100, 500, 1000, 5000, 10 * 1000, 50 * 1000, 100 * 1000,
+		500 * 1000, 1000 * 1000, 5000 * 1000, 10000 * 1000, 60000 * 1000};
+
+	private static final long MILLISECOND = 1000 * 1000;
+
+	private static final long SECOND = 1000 * MILLISECOND;
+
+	private static final UsageDataMetrics DEFAULT = new UsageDataMetrics();
+
+	/**
+	 * This method answers the metrics that the capture pipeline updates.
+	 */
+	public static UsageDataMetrics getDefault() {
+		return DEFAULT;
+	}
+
+	private final ConcurrentMap<String, AtomicLong> captured = new ConcurrentHashMap<String, AtomicLong>();
+
+	/**
+	 * Milliseconds from the time that an event is created to the time that
+	 * it is dispatched.
+	 */
+	private final Histogram queueLag = new Histogram(new long[] {
+		10, 50, 100, 500, 1000, 5000, 10000, 30000, 60000, 300000});
+
+	/**
+	 * Nanoseconds that a single listener takes with a single event.
+	 */
+	private final Histogram dispatchLatency = new Histogram(new long[] {
+		10 * 1000, 50 * 1000, 100 * 1000, 500 * 1000, MILLISECOND, 5 * MILLISECOND,
+		10 * MILLISECOND, 50 * MILLISECOND, 100 * MILLISECOND, 500 * MILLISECOND, SECOND});
+
+	/**
+	 * Nanoseconds that the recorder takes to write out the events that it
+	 * is holding.
+	 */
+	private final Histogram writeLatency = new Histogram(new long[] {
+		100 * 1000, 500 * 1000, MILLISECOND, 5 * MILLISECOND, 10 * MILLISECOND,
+		50 * MILLISECOND, 100 * MILLISECOND, 500 * MILLISECOND, SECOND, 5 * SECOND});
+
+	/**
+	 * Nanoseconds that an upload takes, whether it succeeds or not.
+	 */
+	private final Histogram uploadLatency = new Histogram(new long[] {
+		100 * MILLISECOND, 500 * MILLISECOND, SECOND, 5 * SECOND, 10 * SECOND,
+		30 * SECOND, 60 * SECOND, 300 * SECOND});
+
+	private final AtomicLong eventsWritten = new AtomicLong();
+
+	private final AtomicLong bytesWritten = new AtomicLong();
+
+	private final AtomicLong eventsDropped = new AtomicLong();
+
+	private final AtomicLong bytesCompressed = new AtomicLong();
+
+	private final AtomicLong compressedBytes = new AtomicLong();
+
+	private final AtomicLong compressionTime = new AtomicLong();
+
+	private final AtomicLong filesDownsampled = new AtomicLong();
+
+	private final AtomicLong bytesDownsampled = new AtomicLong();
+
+	private final AtomicLong rollupBytes = new AtomicLong();
+
+	private final AtomicLong filesEvicted = new AtomicLong();
+
+	private final AtomicLong bytesEvicted = new AtomicLong();
+
+	private final AtomicLong eventsEvicted = new AtomicLong();
+
+	private final AtomicLong uploadsSucceeded = new AtomicLong();
+
+	private final AtomicLong uploadsFailed = new AtomicLong();
+
+	private final AtomicLong cpuTime = new AtomicLong();
+
+	private final AtomicLong allocatedBytes = new AtomicLong();
+
+	/**
+	 * Microseconds spent by events in each stage, keyed by stage. The map
+	 * is filled in by the constructor; resetting replaces its values.
+	 */
+	private final ConcurrentMap<String, Histogram> stageLatency = new ConcurrentHashMap<String, Histogram>();
+
+	private volatile UsageDataEventQueue queue;
+
+	public UsageDataMetrics() {
+		for (String stage : STAGES) {
+			stageLatency.put(stage, new Histogram(STAGE_BOUNDS));
+		}
+	}
+
+	/**
+	 * An event of the given kind has been captured (i.e. offered to the
+	 * queue, whether or not it fit).
+	 */
+	public void eventCaptured(String kind) {
+		String key = kind == null ? "" : kind; //$NON-NLS-1$
+		AtomicLong counter = captured.get(key);
+		if (counter == null) {
+			AtomicLong added = new AtomicLong();
+			counter = captured.putIfAbsent(key, added);
+			if (counter == null) counter = added;
+		}
+		counter.incrementAndGet();
+	}
+
+	/**
+	 * An event created at <code>when</code> (in milliseconds) is being
+	 * dispatched at <code>now</code>.
+	 */
+	public void eventDequeued(long when, long now) {
+		queueLag.record(now - when);
+	}
+
+	/**
+	 * A listener has taken <code>duration</code> nanoseconds with an event.
+	 */
+	public void eventDispatched(long duration) {
+		dispatchLatency.record(duration);
+	}
+
+	/**
+	 * The recorder has written <code>count</code> events, taking up
+	 * <code>bytes</code> bytes, in <code>duration</code> nanoseconds.
+	 */
+	public void eventsWritten(int count, long bytes, long duration) {
+		eventsWritten.addAndGet(count);
+		bytesWritten.addAndGet(bytes);
+		writeLatency.record(duration);
+	}
+
+	/**
+	 * The recorder has dropped <code>count</code> events without writing
+	 * them, because it was holding too many or had stopped recording.
+	 */
+	public void eventsDropped(int count) {
+		eventsDropped.addAndGet(count);
+	}
+
+	/**
+	 * The recorder has compressed a file of <code>bytes</code> bytes into
+	 * <code>compressed</code> bytes, using <code>cpu</code> nanoseconds of
+	 * CPU time.
+	 */
+	public void fileCompressed(long bytes, long compressed, long cpu) {
+		bytesCompressed.addAndGet(bytes);
+		compressedBytes.addAndGet(compressed);
+		if (cpu > 0) compressionTime.addAndGet(cpu);
+	}
+
+	/**
+	 * To stay within its disk quota, the recorder has replaced a file of
+	 * <code>bytes</code> bytes that was waiting to be uploaded by a rollup
+	 * of <code>rollup</code> bytes.
+	 */
+	public void fileDownsampled(long bytes, long rollup) {
+		filesDownsampled.incrementAndGet();
+		bytesDownsampled.addAndGet(bytes);
+		rollupBytes.addAndGet(rollup);
+	}
+
+	/**
+	 * To stay within its disk quota, the recorder has deleted a file of
+	 * <code>bytes</code> bytes that was waiting to be uploaded, holding
+	 * <code>events</code> events (or <code>-1</code> if that is not known).
+	 */
+	public void fileEvicted(long bytes, int events) {
+		filesEvicted.incrementAndGet();
+		bytesEvicted.addAndGet(bytes);
+		if (events > 0) eventsEvicted.addAndGet(events);
+	}
+
+	/**
+	 * An upload has finished after <code>duration</code> nanoseconds.
+	 */
+	public void uploadFinished(boolean success, long duration) {
+		if (success) {
+			uploadsSucceeded.incrementAndGet();
+		} else {
+			uploadsFailed.incrementAndGet();
+		}
+		uploadLatency.record(duration);
+	}
+
+	/**
+	 * An event has spent <code>duration</code> nanoseconds in the given
+	 * stage.
+	 *
+	 * @param stage
+	 *            one of {@link #QUEUE_STAGE}, {@link #ENRICH_STAGE},
+	 *            {@link #DISPATCH_STAGE}, {@link #WRITE_STAGE}, or
+	 *            {@link #TOTAL_STAGE}.
+	 */
+	public void stageCompleted(String stage, long duration) {
+		Histogram histogram = stageLatency.get(stage);
+		if (histogram == null) return;
+		histogram.record(duration / NANOSECONDS_PER_MICROSECOND);
+	}
+
+	/**
+	 * A thread working on behalf of the pipeline has used
+	 * <code>cpu</code> nanoseconds of CPU time and allocated
+	 * <code>bytes</code> bytes.
+	 *
+	 * @see ThreadCost
+	 */
+	public void addCost(long cpu, long bytes) {
+		if (cpu > 0) cpuTime.addAndGet(cpu);
+		if (bytes > 0) allocatedBytes.addAndGet(bytes);
+	}
+
+	/**
+	 * This method sets the queue whose depth is reported. The service sets
+	 * this when it starts monitoring.
+	 */
+	public void setQueue(UsageDataEventQueue queue) {
+		this.queue = queue;
+	}
+
+	public UsageDataEventQueue getQueue() {
+		return queue;
+	}
+
+	public int getQueueDepth() {
+		UsageDataEventQueue current = queue;
+		return current == null ? 0 : current.size();
+	}
+
+	/**
+	 * @return the number of events captured so far, by kind, in order of
+	 *         kind.
+	 */
+	public Map<String, Long> getCapturedCounts() {
+		Map<String, Long> counts = new TreeMap<String, Long>();
+		for (Map.Entry<String, AtomicLong> entry : captured.entrySet()) {
+			counts.put(entry.getKey(), entry.getValue().get());
+		}
+		return counts;
+	}
+
+	public Histogram getQueueLag() {
+		return queueLag;
+	}
+
+	public Histogram getDispatchLatency() {
+		return dispatchLatency;
+	}
+
+	/**
+	 * @return the number of events captured so far, of all kinds.
+	 */
+	public long getCapturedCount() {
+		long total = 0;
+		for (AtomicLong count : captured.values()) {
+			total += count.get();
+		}
+		return total;
+	}
+
+	/**
+	 * @return the number of events of the given kind captured so far.
+	 */
+	public long getCapturedCount(String kind) {
+		AtomicLong count = captured.get(kind == null ? "" : kind); //$NON-NLS-1$
+		return count == null ? 0 : count.get();
+	}
+
+	/**
+	 * @return the stages that events are timed through, in the order that
+	 *         events pass through them.
+	 */
+	public String[] getStages() {
+		return STAGES.clone();
+	}
+
+	/**
+	 * @return the time, in microseconds, that events have spent in the
+	 *         given stage, or <code>null</code> if there is no such stage.
+	 *         Unlike the other totals, these may be reset.
+	 */
+	public Histogram getStageLatency(String stage) {
+		return stageLatency.get(stage);
+	}
+
+	/**
+	 * This method clears the stage latencies, e.g. to measure the effect of
+	 * a change in settings. The histograms are replaced rather than cleared,
+	 * so that a histogram that has been answered is never partly reset.
+	 */
+	public void resetStageLatency() {
+		for (String stage : STAGES) {
+			stageLatency.put(stage, new Histogram(STAGE_BOUNDS));
+		}
+	}
+
+	public Histogram getWriteLatency() {
+		return writeLatency;
+	}
+
+	public Histogram getUploadLatency() {
+		return uploadLatency;
+	}
+
+	public long getEventsWritten() {
+		return eventsWritten.get();
+	}
+
+	public long getBytesWritten() {
+		return bytesWritten.get();
+	}
+
+	/**
+	 * @return the number of events that the recorder has dropped; see
+	 *         {@link #eventsDropped(int)}.
+	 */
+	public long getEventsDropped() {
+		return eventsDropped.get();
+	}
+
+	/**
+	 * @return the size of the files that have been compressed, before
+	 *         compression; see {@link #fileCompressed(long, long, long)}.
+	 */
+	public long getBytesCompressed() {
+		return bytesCompressed.get();
+	}
+
+	/**
+	 * @return the size of the files that have been compressed, after
+	 *         compression.
+	 */
+	public long getCompressedBytes() {
+		return compressedBytes.get();
+	}
+
+	/**
+	 * @return the CPU time, in nanoseconds, spent compressing files. This is
+	 *         included in {@link #getCpuTime()}.
+	 */
+	public long getCompressionTime() {
+		return compressionTime.get();
+	}
+
+	/**
+	 * @return the number of files that have been replaced by rollups; see
+	 *         {@link #fileDownsampled(long, long)}.
+	 */
+	public long getFilesDownsampled() {
+		return filesDownsampled.get();
+	}
+
+	/**
+	 * @return the size of the files that have been replaced by rollups.
+	 */
+	public long getBytesDownsampled() {
+		return bytesDownsampled.get();
+	}
+
+	/**
+	 * @return the size of the rollups that replaced them.
+	 */
+	public long getRollupBytes() {
+		return rollupBytes.get();
+	}
+
+	/**
+	 * @return the number of files waiting to be uploaded that have been
+	 *         deleted; see {@link #fileEvicted(long, int)}.
+	 */
+	public long getFilesEvicted() {
+		return filesEvicted.get();
+	}
+
+	public long getBytesEvicted() {
+		return bytesEvicted.get();
+	}
+
+	/**
+	 * @return the number of events in the files that have been deleted, as
+	 *         far as it is known.
+	 */
+	public long getEventsEvicted() {
+		return eventsEvicted.get();
+	}
+
+	public long getUploadsSucceeded() {
+		return uploadsSucceeded.get();
+	}
+
+	public long getUploadsFailed() {
+		return uploadsFailed.get();
+	}
+
+	/**
+	 * @return the CPU time, in nanoseconds, reported with
+	 *         {@link #addCost(long, long)}.
+	 */
+	public long getCpuTime() {
+		return cpuTime.get();
+	}
+
+	/**
+	 * @return the allocated bytes reported with
+	 *         {@link #addCost(long, long)}.
+	 */
+	public long getAllocatedBytes() {
+		return allocatedBytes.get();
+	}
+}
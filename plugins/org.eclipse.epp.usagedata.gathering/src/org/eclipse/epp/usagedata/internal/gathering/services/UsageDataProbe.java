@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.gathering.services;
+
+/**
+ * A {@link UsageDataProbe} is told about the work that the capture pipeline
+ * does on its own account: events being queued and dispatched, the recorder
+ * flushing, rolling over and compressing its files, uploads, and filter
+ * evaluations. This
+ * lets the cost of collecting usage data be diagnosed with the tools that are
+ * used for the rest of the application.
+ * <p>
+ * The default probe is the one provided by the
+ * <code>org.eclipse.epp.usagedata.jfr</code> fragment, which emits JDK Flight
+ * Recorder events. The fragment needs a Java 11 runtime, while this bundle
+ * does not, so it is loaded reflectively; if it is not installed or cannot
+ * be loaded, a probe that does nothing is used instead.
+ * </p>
+ * <p>
+ * Callers must check {@link #isEnabled()} before they measure anything, so
+ * that the probe costs no more than that check when nobody is listening.
+ * Durations are in nanoseconds.
+ * </p>
+ */
+public class UsageDataProbe {
+	private static final String JFR_PROBE_CLASS = "org.eclipse.epp.usagedata.internal.gathering.jfr.JfrUsageDataProbe"; //$NON-NLS-1$
+
+	private static UsageDataProbe defaultProbe;
+
+	/**
+	 * This method answers the probe that the capture pipeline reports to.
+	 */
+	public static synchronized UsageDataProbe getDefault() {
+		if (defaultProbe == null) defaultProbe = createDefault();
+		return defaultProbe;
+	}
+
+	/**
+	 * This method replaces the probe that the capture pipeline reports to.
+	 * Passing <code>null</code> goes back to the default.
+	 */
+	public static synchronized void setDefault(UsageDataProbe probe) {
+		defaultProbe = probe;
+	}
+
+	private static UsageDataProbe createDefault() {
+		try {
+			return (UsageDataProbe) Class.forName(JFR_PROBE_CLASS).newInstance();
+		} catch (Throwable e) {
+			// The fragment is not installed, or the runtime has no JFR.
+			return new UsageDataProbe();
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the receiver is interested in any of the
+	 *         events; <code>false</code> otherwise.
+	 */
+	public boolean isEnabled() {
+		return false;
+	}
+
+	/**
+	 * An event has been offered to the queue.
+	 *
+	 * @param accepted
+	 *            <code>false</code> if the queue was full and the event was
+	 *            dropped.
+	 * @param queueSize
+	 *            the number of events in the queue afterwards.
+	 */
+	public void enqueued(String what, String kind, int priority, boolean accepted, int queueSize, long duration) {
+	}
+
+	/**
+	 * An event has been handed to a single listener.
+	 *
+	 * @param failed
+	 *            <code>true</code> if the listener threw an exception.
+	 */
+	public void dispatched(String listener, String what, String kind, boolean failed, long duration) {
+	}
+
+	/**
+	 * The recorder has written out the events that it was holding.
+	 */
+	public void flushed(int eventCount, long bytes, long duration) {
+	}
+
+	/**
+	 * The recorder has moved its event file aside so that it can be uploaded.
+	 *
+	 * @param renamed
+	 *            <code>false</code> if the file could not be moved.
+	 */
+	public void rolledOver(long bytes, boolean renamed, long duration) {
+	}
+
+	/**
+	 * The recorder has compressed a file that is waiting to be uploaded.
+	 *
+	 * @param compression
+	 *            the name of the codec.
+	 * @param cpu
+	 *            the CPU time taken, or <code>0</code> if it could not be
+	 *            measured.
+	 */
+	public void compressed(String compression, long bytes, long compressedBytes, long cpu, long duration) {
+	}
+
+	/**
+	 * The recorder has enforced its disk quota on the files that are waiting
+	 * to be uploaded.
+	 *
+	 * @param eviction
+	 *            the name of the eviction policy.
+	 * @param bytes
+	 *            the size of the files before.
+	 * @param remaining
+	 *            the size of the files after.
+	 * @param downsampled
+	 *            the number of files replaced by rollups.
+	 * @param evicted
+	 *            the number of files deleted before they were uploaded.
+	 */
+	public void quotaEnforced(String eviction, long quota, long bytes, long remaining, int downsampled, int evicted, long duration) {
+	}
+
+	/**
+	 * An upload has finished.
+	 *
+	 * @param returnCode
+	 *            the HTTP return code, or <code>-1</code> if the upload
+	 *            failed before there was one.
+	 */
+	public void uploaded(int fileCount, long bytes, int returnCode, long duration) {
+	}
+
+	/**
+	 * A filter has been evaluated against an event.
+	 */
+	public void filtered(String bundleId, int patternCount, boolean included, long duration) {
+	}
+}
@@ -10,35 +10,39 @@
  *******************************************************************************/
 package org.eclipse.epp.usagedata.internal.gathering.services;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Set;
 
-import org.eclipse.core.runtime.CoreException;
-import org.eclipse.core.runtime.IConfigurationElement;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.ListenerList;
-import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.Status;
-import org.eclipse.core.runtime.adaptor.EclipseStarter;
 import org.eclipse.core.runtime.jobs.Job;
-import org.eclipse.epp.usagedata.internal.gathering.UsageDataCaptureActivator;
 import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEvent;
 import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEventListener;
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEventSubscription;
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataIdleListener;
 import org.eclipse.epp.usagedata.internal.gathering.monitors.UsageMonitor;
 
 /**
- * The {@link UsageDataService} class is registered as an OSGi service by the
- * bundle activator on startup. It is responsible for installing monitors
- * registered via the {@value #MONITORS_EXTENSION_POINT} extension point. These
- * monitors all feed information back into the instance which is responsible for
+ * The {@link UsageDataService} class is responsible for starting the monitors
+ * provided by its {@link UsageDataServiceConfiguration}. These monitors all
+ * feed information back into the instance which is responsible for
  * dispatching those events to event listeners registered via the
- * {@link #addUsageDataEventListener(UsageDataEventListener)} method.
+ * {@link #addUsageDataEventListener(UsageDataEventListener, UsageDataEventSubscription)}
+ * method. Each listener is only given the events that it has subscribed to.
  * <p>
- * The instance starts monitoring activities immediately after it is started,
- * but does not dispatch the resulting events until after the workbench is
- * running (as reported by the {@link EclipseStarter#isRunning()} method.
+ * This class has no dependencies on the workbench, OSGi, or the extension
+ * registry; it can be constructed and run in a plain Java process. In the
+ * workbench, the bundle activator creates and registers an instance of
+ * {@link WorkbenchUsageDataService} as an OSGi service instead; that subclass
+ * adds the monitors registered via the extension point and waits for the
+ * workbench to start before dispatching events.
  * </p>
  * <p>
  * Efforts have been taken to try and keep the impact on the user
@@ -46,14 +50,35 @@ import org.eclipse.epp.usagedata.internal.gathering.monitors.UsageMonitor;
  * balancing absolute correctness of data capture and user experience is made in
  * favour of preserving positive user experience and reducing any negative
  * impact on performance. In that regard, for example, cancel really means
- * cancel to the {@link #eventConsumerJob} and may leave some events
- * undispatched to the listeners.
+ * cancel to the {@link #eventConsumerJob}. When the service is stopped, the
+ * events still in the queue are dispatched for no longer than the configured
+ * shutdown timeout; the rest are written to the spill file (if one is
+ * configured) and replayed the next time the service is started.
  * 
  * @author Wayne Beaton
  */
-@SuppressWarnings("restriction")
 public class UsageDataService {
-	private static final String MONITORS_EXTENSION_POINT = UsageDataCaptureActivator.PLUGIN_ID + ".monitors"; //$NON-NLS-1$
+	/**
+	 * The kind of the events that the service records about itself.
+	 */
+	public static final String UDC = "udc"; //$NON-NLS-1$
+
+	/**
+	 * The family of the jobs run on behalf of usage data collection. Jobs in
+	 * this family are not considered user activity by the
+	 * {@link IdleDetector}.
+	 */
+	public static final Object JOB_FAMILY = new Object();
+
+	private static final String BUNDLE_ID = "org.eclipse.epp.usagedata.gathering"; //$NON-NLS-1$
+
+	/**
+	 * How often, in milliseconds, does the {@link #eventConsumerJob} check
+	 * whether the user has become idle?
+	 */
+	private static final long IDLE_POLL_INTERVAL = 250;
+
+	private final UsageDataServiceConfiguration configuration;
 
 	private boolean monitoring = false;
 
@@ -67,10 +92,19 @@ public class UsageDataService {
 	private ListenerList monitors = new ListenerList();
 
 	/**
-	 * The list of objects of type {@link UsageDataEventListener} listening to events
-	 * generated by this service.
+	 * The registered {@link UsageDataEventListener}s, in the order that they
+	 * were added, along with their subscriptions. Changes to this list are
+	 * reflected in the {@link #dispatchTable}.
 	 */
-	private ListenerList eventListeners = new ListenerList();
+	private List<Subscriber> subscribers = new ArrayList<Subscriber>();
+
+	/**
+	 * The listeners to notify, indexed by event kind. The table is rebuilt
+	 * whenever a listener is added or removed (which is rare) so that
+	 * dispatching an event (which is not) only touches the listeners that
+	 * have subscribed to its kind.
+	 */
+	private volatile DispatchTable dispatchTable = new DispatchTable(new ArrayList<Subscriber>());
 	
 	/**
 	 * The thread that figures out what to do with events provided by the 
@@ -79,14 +113,50 @@ public class UsageDataService {
 	 * for discussion.
 	 */
 	Job eventConsumerJob;	
+
+	/**
+	 * The time by which the events left when the {@link #eventConsumerJob}
+	 * is cancelled must be dispatched; the rest are spilled. See
+	 * {@link #stopEventConsumerJob(long)}.
+	 */
+	private volatile long shutdownDeadline = Long.MAX_VALUE;
 	
 	/**
 	 * A temporary home for events as they are generated. As they are created, 
 	 * events are dropped into the queue by the source thread. Events are consumed
-	 * from the queue by the {@link #eventConsumerJob}.
+	 * from the queue by the {@link #eventConsumerJob}. The queue keeps a separate
+	 * lane for each priority class; see {@link #getPriority(String, String)}.
 	 * @see #startEventConsumerJob()
 	 */
-	protected LinkedBlockingQueue<UsageDataEvent> events = new LinkedBlockingQueue<UsageDataEvent>();
+	protected UsageDataEventQueue events;
+
+	/**
+	 * This field maps event kinds (e.g. "log"), or kind and what pairs (e.g.
+	 * "command/failed") to the priority class that events of that kind are
+	 * queued under. Kinds that are not mapped are queued as
+	 * {@link UsageDataEventQueue#NORMAL}.
+	 * @see #setPriority(String, int)
+	 * @see #setPriority(String, String, int)
+	 */
+	private Map<String, Integer> priorities = new HashMap<String, Integer>();
+
+	/**
+	 * The probe that is told about each event that is queued and dispatched.
+	 */
+	private final UsageDataProbe probe = UsageDataProbe.getDefault();
+
+	/**
+	 * The running totals that each event that is queued and dispatched is
+	 * counted in.
+	 */
+	private final UsageDataMetrics metrics = UsageDataMetrics.getDefault();
+
+	/**
+	 * This field maps monitor ids to the meter that keeps the monitor's
+	 * overhead within budget.
+	 * @see #getOverheadMeter(String)
+	 */
+	private Map<String, MonitorOverheadMeter> overheadMeters = new HashMap<String, MonitorOverheadMeter>();
 
 	/**
 	 * This field maps the symbolic name of bundles to the last loaded version.
@@ -96,6 +166,40 @@ public class UsageDataService {
 	 */
 	private Map<String, String> bundleVersionMap = new HashMap<String, String>();
 
+	/**
+	 * The name of the {@link UsageDataSnapshot} section that holds the
+	 * {@link #bundleVersionMap}.
+	 */
+	private static final String BUNDLE_VERSIONS_SECTION = "bundle-versions"; //$NON-NLS-1$
+
+	public UsageDataService() {
+		this(new UsageDataServiceConfiguration());
+	}
+
+	public UsageDataService(UsageDataServiceConfiguration configuration) {
+		this.configuration = configuration;
+		events = new UsageDataEventQueue(configuration.getQueueCapacity(), configuration.getLaneWeights());
+		initializeDefaultPriorities();
+	}
+
+	/**
+	 * Rare events that tell us that something has gone wrong (or that describe
+	 * the system we're running on) are critical; the high-volume chatter from
+	 * the workbench parts is bulk. Everything else is normal.
+	 */
+	private void initializeDefaultPriorities() {
+		setPriority("sysinfo", UsageDataEventQueue.CRITICAL); //$NON-NLS-1$
+		setPriority("log", UsageDataEventQueue.CRITICAL); //$NON-NLS-1$
+		setPriority(UDC, UsageDataEventQueue.CRITICAL);
+		setPriority("command", "failed", UsageDataEventQueue.CRITICAL); //$NON-NLS-1$ //$NON-NLS-2$
+		setPriority("command", "no handler", UsageDataEventQueue.CRITICAL); //$NON-NLS-1$ //$NON-NLS-2$
+		setPriority("view", UsageDataEventQueue.BULK); //$NON-NLS-1$
+		setPriority("editor", UsageDataEventQueue.BULK); //$NON-NLS-1$
+		setPriority("part", UsageDataEventQueue.BULK); //$NON-NLS-1$
+		setPriority("workbench", UsageDataEventQueue.BULK); //$NON-NLS-1$
+		setPriority("perspective", UsageDataEventQueue.BULK); //$NON-NLS-1$
+	}
+
 	/**
 	 * This method starts the monitoring process. If the service has already been
 	 * "started" when this method is called, nothing happens (i.e. multiple calls
@@ -105,6 +209,10 @@ public class UsageDataService {
 		if (isMonitoring())
 			return;
 		
+		metrics.setQueue(events);
+		replaySpilledEvents();
+		restoreSnapshot();
+		configuration.getIdleDetector().start();
 		startMonitors();
 		startEventConsumerJob();
 
@@ -122,7 +230,11 @@ public class UsageDataService {
 			return;
 
 		stopMonitors();
-		stopEventConsumerJob();
+		configuration.getIdleDetector().stop();
+		long deadline = System.currentTimeMillis() + configuration.getShutdownTimeout();
+		// Otherwise the consumer drains (and spills) the events itself.
+		if (stopEventConsumerJob(deadline)) drainEvents(deadline);
+		saveSnapshot();
 
 		monitoring = false;
 
@@ -143,6 +255,18 @@ public class UsageDataService {
 	 * files, it is anticipated that this architecture will allow the necessary
 	 * activities to happen without significantly impacting the user's
 	 * experience.
+	 * <p>
+	 * To further that goal, the job only dispatches events when the
+	 * configured {@link IdleDetector} reports that the user is idle, or when
+	 * the oldest event has waited for the maximum latency. Events are
+	 * dispatched in batches; {@link UsageDataIdleListener}s are told when each
+	 * batch is complete.
+	 * </p>
+	 * <p>
+	 * When the job is cancelled, it drains (and spills) what is left in the
+	 * queue itself, so that only one thread ever takes events from the queue
+	 * on the way down.
+	 * </p>
 	 */
 	protected void startEventConsumerJob() {
 		// TODO Decide if the job is more trouble than it's worth.
@@ -153,10 +277,30 @@ public class UsageDataService {
 				waitForWorkbenchToFinishStarting();
 				while (!monitor.isCanceled()) {
 					UsageDataEvent event = getQueuedEvent();
+					if (event == null) continue;
+					if (!waitForIdle(event.when + configuration.getMaximumLatency(), monitor)) {
+						// Put it back so that it is drained (or spilled) on shutdown.
+						events.add(event, UsageDataService.this.getPriority(event.what, event.kind));
+						break;
+					}
+					long cpu = ThreadCost.getCpuTime();
+					long allocated = ThreadCost.getAllocatedBytes();
 					dispatchEvent(event);
+					dispatchQueuedEvents(monitor);
+					notifyIdle();
+					metrics.addCost(ThreadCost.getDelta(cpu, ThreadCost.getCpuTime()), ThreadCost.getDelta(allocated, ThreadCost.getAllocatedBytes()));
 				}
+				// Clear the interrupt from stopEventConsumerJob, so that it doesn't
+				// get in the way of writing the spill file.
+				Thread.interrupted();
+				drainEvents(shutdownDeadline);
 				return Status.OK_STATUS;
-			}	
+			}
+
+			@Override
+			public boolean belongsTo(Object family) {
+				return family == JOB_FAMILY;
+			}
 		};
 		eventConsumerJob.setSystem(true);
 		eventConsumerJob.setPriority(Job.LONG);
@@ -164,49 +308,193 @@ public class UsageDataService {
 	}
 	
 	/**
-	 * This method pauses the current thread until the workbench has
-	 * finished starting. This should provide enough time for bundles
-	 * that are installing usage data event listeners to complete before
-	 * events are dispatched.
+	 * This method pauses the current thread until the environment that the
+	 * service runs in is ready for events to be dispatched. There is nothing
+	 * to wait for in a plain Java process, so this implementation returns
+	 * immediately.
+	 * 
+	 * @see WorkbenchUsageDataService#waitForWorkbenchToFinishStarting()
 	 */
 	protected void waitForWorkbenchToFinishStarting() {
-		/*
-		 * We want the job to pause until after all the bundles that are
-		 * loaded at startup have finished loading. This will give
-		 * bundles that listen to usage data events time to load and
-		 * install listeners before events are fired off (which should
-		 * mean that events won't get lost).
-		 * 
-		 * I had originally tried using Display.syncExec(Runnable) (with
-		 * an "do nothing" Runnable, but this caused some weird classloading
-		 * issues similar to those referenced in Bug 88109.
-		 */
-		while (!EclipseStarter.isRunning()) {
+	}
+	
+	/**
+	 * This method pauses the current thread until the user is idle or until
+	 * <code>deadline</code> passes.
+	 * 
+	 * @return <code>false</code> if the wait was cut short because the job
+	 *         was cancelled or the thread interrupted; <code>true</code>
+	 *         otherwise.
+	 */
+	private boolean waitForIdle(long deadline, IProgressMonitor monitor) {
+		IdleDetector detector = configuration.getIdleDetector();
+		while (!detector.isIdle() && System.currentTimeMillis() < deadline) {
+			if (monitor.isCanceled()) return false;
 			try {
-				// It probably doesn't matter too much if we wait too long here.
-				// TODO Is 1 second too long?
-				Thread.sleep(1000);
+				Thread.sleep(IDLE_POLL_INTERVAL);
 			} catch (InterruptedException e) {
-				//  Ignore and loop again!
+				return false;
 			}
 		}
+		return !monitor.isCanceled();
 	}
-	
+
+	/**
+	 * This method dispatches the events that are currently queued.
+	 */
+	private void dispatchQueuedEvents(IProgressMonitor monitor) {
+		UsageDataEvent event;
+		while (!monitor.isCanceled() && (event = events.poll()) != null) {
+			dispatchEvent(event);
+		}
+	}
+
+	/**
+	 * This method tells the {@link UsageDataIdleListener}s that a batch of
+	 * events has been dispatched.
+	 */
+	private void notifyIdle() {
+		Subscriber[] all = dispatchTable.getAll();
+		for (int index = 0; index < all.length; index++) {
+			if (!(all[index].listener instanceof UsageDataIdleListener)) continue;
+			try {
+				((UsageDataIdleListener) all[index].listener).idle();
+			} catch (Throwable e) {
+				logException("The listener (" + all[index].listener.getClass() + ") threw an exception", e); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+	}
+
 	protected void stopEventConsumerJob() {
+		stopEventConsumerJob(Long.MAX_VALUE);
+	}
+
+	/**
+	 * This method cancels the {@link #eventConsumerJob}, waiting for it to
+	 * stop until no later than <code>deadline</code>. A job that was running
+	 * drains the queue itself as it stops (dispatching events until
+	 * <code>deadline</code> and spilling the rest).
+	 * 
+	 * @param deadline
+	 *            time, in milliseconds, as reported by
+	 *            {@link System#currentTimeMillis()}.
+	 * @return <code>true</code> if the job has stopped (or never ran), so
+	 *         that the caller may drain the queue; <code>false</code> if it
+	 *         is still running, and will drain the queue when it stops.
+	 */
+	protected boolean stopEventConsumerJob(long deadline) {
+		if (eventConsumerJob == null) return true;
+		shutdownDeadline = deadline;
 		eventConsumerJob.cancel();
 		// Interrupt the thread to make sure that the
 		// job gets the chance to terminate gracefully. Then join
 		// the thread to make sure that it gets enough time to 
 		// properly shutdown. See Bug 306449.
 		Thread thread = eventConsumerJob.getThread();
-		if (thread != null) 
-			thread.interrupt();
 		try {
-			eventConsumerJob.join();
+			if (thread != null) {
+				thread.interrupt();
+				long remaining = deadline - System.currentTimeMillis();
+				if (remaining > 0) thread.join(remaining);
+			} else {
+				eventConsumerJob.join();
+			}
 		} catch (InterruptedException e) {
 			// Oh well, we tried...
 		}
+		boolean stopped = thread == null || !thread.isAlive();
 		eventConsumerJob = null;
+		return stopped;
+	}
+
+	/**
+	 * This method dispatches the events remaining in the queue until either
+	 * the queue is empty or <code>deadline</code> passes. Whatever is left is
+	 * written to the spill file. If there is no one to dispatch events to
+	 * (e.g. the listeners have already been removed as part of shutting
+	 * down), all remaining events are spilled.
+	 * 
+	 * @param deadline
+	 *            time, in milliseconds, as reported by
+	 *            {@link System#currentTimeMillis()}.
+	 */
+	protected void drainEvents(long deadline) {
+		if (hasListeners()) {
+			while (System.currentTimeMillis() < deadline) {
+				UsageDataEvent event = events.poll();
+				if (event == null) break;
+				dispatchEvent(event);
+			}
+			notifyIdle();
+		}
+		spillEvents();
+	}
+
+	private boolean hasListeners() {
+		synchronized (subscribers) {
+			return !subscribers.isEmpty();
+		}
+	}
+
+	private void spillEvents() {
+		List<UsageDataEvent> remaining = new ArrayList<UsageDataEvent>();
+		events.drainTo(remaining);
+		if (remaining.isEmpty()) return;
+		if (configuration.getSpillFile() == null) return;
+		try {
+			new UsageDataSpillFile(configuration.getSpillFile()).write(remaining);
+		} catch (IOException e) {
+			logException("Cannot write " + remaining.size() + " events to the spill file", e); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	/**
+	 * This method loads the {@link UsageDataSnapshot} (so that it is ready
+	 * before the monitors ask it for their indexes) and restores the bundle
+	 * versions from it.
+	 */
+	private void restoreSnapshot() {
+		try {
+			getSnapshot().load();
+		} catch (IOException e) {
+			logException("Cannot read the snapshot", e); //$NON-NLS-1$
+		}
+		Map<String, String> versions = getSnapshot().getSection(BUNDLE_VERSIONS_SECTION);
+		if (versions == null) return;
+		synchronized (bundleVersionMap) {
+			for (Map.Entry<String, String> entry : versions.entrySet()) {
+				if (!bundleVersionMap.containsKey(entry.getKey())) bundleVersionMap.put(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	private void saveSnapshot() {
+		synchronized (bundleVersionMap) {
+			getSnapshot().putSection(BUNDLE_VERSIONS_SECTION, bundleVersionMap);
+		}
+		try {
+			getSnapshot().save();
+		} catch (IOException e) {
+			logException("Cannot write the snapshot", e); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * This method queues the events that were spilled when the service was
+	 * last stopped and deletes the spill file.
+	 */
+	private void replaySpilledEvents() {
+		if (configuration.getSpillFile() == null) return;
+		UsageDataSpillFile spillFile = new UsageDataSpillFile(configuration.getSpillFile());
+		if (!spillFile.exists()) return;
+		try {
+			for (UsageDataEvent event : spillFile.read()) {
+				events.add(event, getPriority(event.what, event.kind));
+			}
+		} catch (IOException e) {
+			logException("Cannot read the spill file", e); //$NON-NLS-1$
+		}
+		spillFile.delete();
 	}
 	
 	/**
@@ -267,18 +555,94 @@ public class UsageDataService {
 	 */
 	public void recordEvent(String what, String kind, String description,
 			String bundleId, String bundleVersion) {
+		recordEvent(what, kind, description, bundleId, bundleVersion, getPriority(what, kind));
+	}
+
+	/**
+	 * <p>
+	 * This method queues an event containing the given information for
+	 * processing under an explicit priority class. Monitors that want all of
+	 * their events handled in a particular way (regardless of kind) should use
+	 * this method.
+	 * </p>
+	 * 
+	 * @param what
+	 *            what happened? was it an activation, started, clicked, ... ?
+	 * @param kind
+	 *            what kind of thing caused it? view, editor, bundle, ... ?
+	 * @param description
+	 *            information about the event. e.g. name of the command, view,
+	 *            editor, ...
+	 * @param bundleId
+	 *            symbolic name of the bundle that owns the thing that caused
+	 *            the event.
+	 * @param bundleVersion
+	 *            the version of the bundle that owns the thing that caused the
+	 *            event.
+	 * @param priority
+	 *            one of {@link UsageDataEventQueue#CRITICAL},
+	 *            {@link UsageDataEventQueue#NORMAL}, or
+	 *            {@link UsageDataEventQueue#BULK}.
+	 */
+	public void recordEvent(String what, String kind, String description,
+			String bundleId, String bundleVersion, int priority) {
 		UsageDataEvent event = new UsageDataEvent(what, kind, description, bundleId,
 				bundleVersion, System.currentTimeMillis());
-		recordEvent(event);
-
+		recordEvent(event, priority);
 	}
 
-	private void recordEvent(UsageDataEvent event) {
+	private void recordEvent(UsageDataEvent event, int priority) {
 		/*
-		 * Multiple thread access to #events is managed the LinkedBlockingQueue
-		 * implementation.
+		 * Multiple thread access to #events is managed by the UsageDataEventQueue
+		 * implementation. If the queue is full, the event (or a less important
+		 * one) is quietly dropped; the queue keeps count.
 		 */
-		events.add(event);
+		metrics.eventCaptured(event.kind);
+		long start = System.nanoTime();
+		event.enqueued = start;
+		if (!probe.isEnabled()) {
+			events.add(event, priority);
+			return;
+		}
+		boolean accepted = events.add(event, priority);
+		probe.enqueued(event.what, event.kind, priority, accepted, events.size(), System.nanoTime() - start);
+	}
+
+	/**
+	 * This method answers the priority class that an event with the given
+	 * <code>what</code> and <code>kind</code> is queued under. A mapping for
+	 * the kind and what pair takes precedence over a mapping for just the
+	 * kind.
+	 * 
+	 * @return one of {@link UsageDataEventQueue#CRITICAL},
+	 *         {@link UsageDataEventQueue#NORMAL}, or
+	 *         {@link UsageDataEventQueue#BULK}.
+	 */
+	public int getPriority(String what, String kind) {
+		synchronized (priorities) {
+			Integer priority = priorities.get(kind + "/" + what); //$NON-NLS-1$
+			if (priority == null) priority = priorities.get(kind);
+			return priority == null ? UsageDataEventQueue.NORMAL : priority.intValue();
+		}
+	}
+
+	/**
+	 * This method sets the priority class for all events of the given kind.
+	 */
+	public void setPriority(String kind, int priority) {
+		synchronized (priorities) {
+			priorities.put(kind, priority);
+		}
+	}
+
+	/**
+	 * This method sets the priority class for events of the given kind that
+	 * describe the given what.
+	 */
+	public void setPriority(String kind, String what, int priority) {
+		synchronized (priorities) {
+			priorities.put(kind + "/" + what, priority); //$NON-NLS-1$
+		}
 	}
 	
 	/**
@@ -290,13 +654,20 @@ public class UsageDataService {
 	 */
 	private void dispatchEvent(UsageDataEvent event) {
 		if (event == null) return;
+		long dequeued = System.nanoTime();
+		if (event.enqueued != 0) metrics.stageCompleted(UsageDataMetrics.QUEUE_STAGE, dequeued - event.enqueued);
 		registerBundleVersion(event);
 		if (event.bundleVersion == null) event.bundleVersion = getBundleVersion(event.bundleId);
-		Object[] listeners = eventListeners.getListeners();
-		for (int index = 0; index < listeners.length; index++) {
-			UsageDataEventListener listener = (UsageDataEventListener) listeners[index];
-			dispatchEvent(event, listener);
+		metrics.eventDequeued(event.when, System.currentTimeMillis());
+		event.dispatched = System.nanoTime();
+		metrics.stageCompleted(UsageDataMetrics.ENRICH_STAGE, event.dispatched - dequeued);
+		Subscriber[] targets = dispatchTable.getSubscribers(event.kind);
+		for (int index = 0; index < targets.length; index++) {
+			Subscriber subscriber = targets[index];
+			if (subscriber.filtered && !subscriber.subscription.matchesDetails(event)) continue;
+			dispatchEvent(event, subscriber.listener);
 		}
+		metrics.stageCompleted(UsageDataMetrics.DISPATCH_STAGE, System.nanoTime() - event.dispatched);
 	}
 
 	/**
@@ -307,12 +678,18 @@ public class UsageDataService {
 	 * @param listener
 	 */
 	private void dispatchEvent(UsageDataEvent event, UsageDataEventListener listener) {
+		long start = System.nanoTime();
+		boolean failed = false;
 		try {
 			listener.accept(event);
 		} catch (Throwable e) {
+			failed = true;
 			// TODO Add some logic to remove repeat offenders.
-			UsageDataCaptureActivator.getDefault().logException("The listener (" + listener.getClass() + ") threw an exception", e); //$NON-NLS-1$ //$NON-NLS-2$
+			logException("The listener (" + listener.getClass() + ") threw an exception", e); //$NON-NLS-1$ //$NON-NLS-2$
 		}
+		long duration = System.nanoTime() - start;
+		metrics.eventDispatched(duration);
+		if (probe.isEnabled()) probe.dispatched(listener.getClass().getName(), event.what, event.kind, failed, duration);
 	}
 	
 	/**
@@ -334,13 +711,13 @@ public class UsageDataService {
 		 * particular type of event (that we're pretty well decoupled
 		 * from--though this knowledge does constitute a relatively tight
 		 * form of coupling). If the event tells us that a bundle has been
-		 * started, we'll move on; otherwise, we bail out. We're not interested
+		 * started (or activated), we'll move on; otherwise, we bail out. We're not interested
 		 * in other bundle events (like stops, etc.), since these
 		 * events will be relatively rare for the kinds of bundles we actually
 		 * care about. 
 		 */
 		if (!("bundle".equals(event.kind))) return; //$NON-NLS-1$
-		if (!("started".equals(event.what))) return; //$NON-NLS-1$
+		if (!("started".equals(event.what) || "activated".equals(event.what))) return; //$NON-NLS-1$ //$NON-NLS-2$
 		
 		synchronized (bundleVersionMap) {
 			bundleVersionMap.put(event.bundleId, event.bundleVersion);
@@ -367,29 +744,31 @@ public class UsageDataService {
 		}
 	}
 
+	/**
+	 * This method starts the monitors provided by the configuration.
+	 * Subclasses may override to find additional monitors.
+	 */
 	protected void startMonitors() {
-		IConfigurationElement[] elements = Platform.getExtensionRegistry()
-				.getConfigurationElementsFor(
-						MONITORS_EXTENSION_POINT);
-		for (IConfigurationElement element : elements) {
-			if ("monitor".equals(element.getName())) { //$NON-NLS-1$
-
-				try {
-					Object monitor = element.createExecutableExtension("class"); //$NON-NLS-1$
-					if (monitor instanceof UsageMonitor) {
-						startMonitor((UsageMonitor) monitor);
-					}
-				} catch (CoreException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
-				}
-			}
+		for (UsageMonitor monitor : configuration.getMonitors()) {
+			startMonitor(monitor);
 		}
 	}
 
-	private void startMonitor(UsageMonitor monitor) {
-		monitor.startMonitoring(this);
-		monitors.add(monitor);
+	/**
+	 * This method starts the given monitor. Exceptions thrown by the monitor
+	 * are logged; a misbehaving monitor does not prevent the others from
+	 * starting.
+	 * 
+	 * @param monitor
+	 *            the {@link UsageMonitor} to start.
+	 */
+	protected void startMonitor(UsageMonitor monitor) {
+		try {
+			monitor.startMonitoring(this);
+			monitors.add(monitor);
+		} catch (Exception e) {
+			logException("The monitor (" + monitor.getClass() + ") failed to start", e); //$NON-NLS-1$ //$NON-NLS-2$
+		}
 	}
 
 	protected void stopMonitors() {
@@ -403,12 +782,168 @@ public class UsageDataService {
 		monitors.remove(monitor);
 	}
 
+	/**
+	 * This method returns the meter that monitors use to keep the time they
+	 * spend producing events (typically on the UI thread) within the budget
+	 * set by the configuration. Monitors that share an id share a meter.
+	 * 
+	 * @param monitorId
+	 *            an identifier for the monitor (e.g. "part").
+	 * @return a {@link MonitorOverheadMeter}; never <code>null</code>.
+	 */
+	public MonitorOverheadMeter getOverheadMeter(String monitorId) {
+		synchronized (overheadMeters) {
+			MonitorOverheadMeter meter = overheadMeters.get(monitorId);
+			if (meter == null) {
+				meter = new MonitorOverheadMeter(monitorId, this, configuration.getOverheadBudget(), configuration.getOverheadWindow());
+				overheadMeters.put(monitorId, meter);
+			}
+			return meter;
+		}
+	}
+
+	/**
+	 * This method is called by a {@link MonitorOverheadMeter} when the
+	 * monitor it measures is degraded or restored. The change is recorded as
+	 * an event (so that it is visible in the uploaded data) and logged.
+	 */
+	void overheadLevelChanged(MonitorOverheadMeter meter, int oldLevel, int newLevel) {
+		String what = newLevel > oldLevel ? "degraded" : "restored"; //$NON-NLS-1$ //$NON-NLS-2$
+		String description = meter.getMonitorId() + "/" + MonitorOverheadMeter.getLevelName(newLevel); //$NON-NLS-1$
+		recordEvent(what, UDC, description, BUNDLE_ID);
+		configuration.getLog().log(IStatus.INFO, "The " + meter.getMonitorId() + " monitor is now " + MonitorOverheadMeter.getLevelName(newLevel) + ".", null); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	/**
+	 * This method adds a listener that is notified of every event.
+	 * 
+	 * @see #addUsageDataEventListener(UsageDataEventListener, UsageDataEventSubscription)
+	 */
 	public void addUsageDataEventListener(UsageDataEventListener listener) {
-		eventListeners.add(listener);
+		addUsageDataEventListener(listener, UsageDataEventSubscription.ALL);
+	}
+
+	/**
+	 * This method adds a listener that is notified of the events that match
+	 * <code>subscription</code>. If the listener is already registered, its
+	 * subscription is replaced.
+	 * 
+	 * @param listener
+	 *            the {@link UsageDataEventListener} to add.
+	 * @param subscription
+	 *            the {@link UsageDataEventSubscription} describing the events
+	 *            that the listener wants, or <code>null</code> for all events.
+	 */
+	public void addUsageDataEventListener(UsageDataEventListener listener, UsageDataEventSubscription subscription) {
+		if (subscription == null) subscription = UsageDataEventSubscription.ALL;
+		synchronized (subscribers) {
+			removeSubscriber(listener);
+			subscribers.add(new Subscriber(listener, subscription));
+			dispatchTable = new DispatchTable(subscribers);
+		}
 	}
 
 	public void removeUsageDataEventListener(UsageDataEventListener listener) {
-		eventListeners.remove(listener);		
+		synchronized (subscribers) {
+			if (removeSubscriber(listener)) dispatchTable = new DispatchTable(subscribers);
+		}
+	}
+
+	private boolean removeSubscriber(UsageDataEventListener listener) {
+		for (int index = 0; index < subscribers.size(); index++) {
+			if (subscribers.get(index).listener == listener) {
+				subscribers.remove(index);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public UsageDataServiceConfiguration getConfiguration() {
+		return configuration;
+	}
+
+	/**
+	 * @return the {@link UsageDataSnapshot} that monitors and listeners can
+	 *         keep their lookup indexes in across sessions.
+	 */
+	public UsageDataSnapshot getSnapshot() {
+		return configuration.getSnapshot();
 	}
 
+	/**
+	 * <p>
+	 * This is a convenience method for logging an exception.
+	 * </p>
+	 * 
+	 * @param message
+	 *            a {@link String} message to include in the log.
+	 * @param e
+	 *            the exception to capture in the log.
+	 */
+	protected void logException(String message, Throwable e) {
+		configuration.getLog().log(IStatus.ERROR, message, e);
+	}
+
+	/**
+	 * A registered listener along with its subscription.
+	 */
+	private static class Subscriber {
+		final UsageDataEventListener listener;
+		final UsageDataEventSubscription subscription;
+		
+		/**
+		 * Does the subscription need to be checked for each event? If not,
+		 * the dispatch table has already done all of the work.
+		 */
+		final boolean filtered;
+
+		Subscriber(UsageDataEventListener listener, UsageDataEventSubscription subscription) {
+			this.listener = listener;
+			this.subscription = subscription;
+			this.filtered = subscription.hasDetailConstraints();
+		}
+	}
+
+	/**
+	 * An immutable snapshot of the registered listeners, organised by the
+	 * event kind that they subscribe to. Listeners that subscribe to all kinds
+	 * appear in every entry. Within each entry, listeners are ordered as they
+	 * were registered.
+	 */
+	private static class DispatchTable {
+		private final Map<String, Subscriber[]> byKind = new HashMap<String, Subscriber[]>();
+		private final Subscriber[] anyKind;
+		private final Subscriber[] all;
+
+		DispatchTable(List<Subscriber> subscribers) {
+			all = subscribers.toArray(new Subscriber[subscribers.size()]);
+			Set<String> kinds = new HashSet<String>();
+			List<Subscriber> unrestricted = new ArrayList<Subscriber>();
+			for (Subscriber subscriber : subscribers) {
+				Set<String> subscribed = subscriber.subscription.getKinds();
+				if (subscribed == null) unrestricted.add(subscriber);
+				else kinds.addAll(subscribed);
+			}
+			anyKind = unrestricted.toArray(new Subscriber[unrestricted.size()]);
+			for (String kind : kinds) {
+				List<Subscriber> entry = new ArrayList<Subscriber>();
+				for (Subscriber subscriber : subscribers) {
+					Set<String> subscribed = subscriber.subscription.getKinds();
+					if (subscribed == null || subscribed.contains(kind)) entry.add(subscriber);
+				}
+				byKind.put(kind, entry.toArray(new Subscriber[entry.size()]));
+			}
+		}
+
+		Subscriber[] getAll() {
+			return all;
+		}
+
+		Subscriber[] getSubscribers(String kind) {
+			Subscriber[] subscribers = byKind.get(kind);
+			if (subscribers == null) return anyKind;
+			return subscribers;
+		}
+	}
 }
@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.gathering.services;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.epp.usagedata.internal.gathering.monitors.UsageMonitor;
+
+/**
+ * Instances of this class provide the explicit configuration for a
+ * {@link UsageDataService}. Nothing in here depends on the workbench or on
+ * OSGi; a service can be constructed from a configuration and run in a
+ * plain Java process (e.g. a headless build agent or a benchmark harness).
+ * <p>
+ * The monitors in the configuration are started in addition to any that a
+ * subclass of {@link UsageDataService} discovers on its own (see
+ * {@link WorkbenchUsageDataService}).
+ * </p>
+ */
+public class UsageDataServiceConfiguration {
+
+	private List<UsageMonitor> monitors = new ArrayList<UsageMonitor>();
+	private int queueCapacity = UsageDataEventQueue.DEFAULT_CAPACITY;
+	private int[] laneWeights;
+	private UsageDataLog log = UsageDataLog.SYSTEM_ERR;
+	private double overheadBudget = 0.001;
+	private long overheadWindow = 10000;
+	private long shutdownTimeout = 1000;
+	private File spillFile;
+	private IdleDetector idleDetector = IdleDetector.ALWAYS_IDLE;
+	private long maximumLatency = 30000;
+	private UsageDataSnapshot snapshot = new UsageDataSnapshot();
+
+	public List<UsageMonitor> getMonitors() {
+		return monitors;
+	}
+
+	public void addMonitor(UsageMonitor monitor) {
+		monitors.add(monitor);
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	public void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * @return the number of events drawn from each priority lane per round,
+	 *         or <code>null</code> to use the defaults.
+	 * @see UsageDataEventQueue
+	 */
+	public int[] getLaneWeights() {
+		return laneWeights;
+	}
+
+	public void setLaneWeights(int[] laneWeights) {
+		this.laneWeights = laneWeights;
+	}
+
+	public UsageDataLog getLog() {
+		return log;
+	}
+
+	public void setLog(UsageDataLog log) {
+		this.log = log;
+	}
+
+	/**
+	 * @return the fraction of elapsed time (e.g. 0.001 for 0.1%) that each
+	 *         monitor may spend producing events before it is degraded, or
+	 *         zero if monitors are never degraded.
+	 * @see MonitorOverheadMeter
+	 */
+	public double getOverheadBudget() {
+		return overheadBudget;
+	}
+
+	public void setOverheadBudget(double overheadBudget) {
+		this.overheadBudget = overheadBudget;
+	}
+
+	/**
+	 * @return the length, in milliseconds, of the window over which monitor
+	 *         overhead is measured against the budget.
+	 */
+	public long getOverheadWindow() {
+		return overheadWindow;
+	}
+
+	public void setOverheadWindow(long overheadWindow) {
+		this.overheadWindow = overheadWindow;
+	}
+
+	/**
+	 * @return the maximum time, in milliseconds, that stopping the service
+	 *         may spend dispatching the events that are still queued.
+	 */
+	public long getShutdownTimeout() {
+		return shutdownTimeout;
+	}
+
+	public void setShutdownTimeout(long shutdownTimeout) {
+		this.shutdownTimeout = shutdownTimeout;
+	}
+
+	/**
+	 * @return the file that events which could not be dispatched before the
+	 *         service stopped are written to, or <code>null</code> if such
+	 *         events are discarded.
+	 * @see UsageDataSpillFile
+	 */
+	public File getSpillFile() {
+		return spillFile;
+	}
+
+	public void setSpillFile(File spillFile) {
+		this.spillFile = spillFile;
+	}
+
+	/**
+	 * @return the {@link IdleDetector} that decides when queued events may
+	 *         be dispatched.
+	 */
+	public IdleDetector getIdleDetector() {
+		return idleDetector;
+	}
+
+	public void setIdleDetector(IdleDetector idleDetector) {
+		this.idleDetector = idleDetector;
+	}
+
+	/**
+	 * @return the maximum time, in milliseconds, that an event is held in the
+	 *         queue while the user is busy.
+	 */
+	public long getMaximumLatency() {
+		return maximumLatency;
+	}
+
+	public void setMaximumLatency(long maximumLatency) {
+		this.maximumLatency = maximumLatency;
+	}
+
+	/**
+	 * @return the {@link UsageDataSnapshot} that lookup indexes are saved to
+	 *         and restored from. By default, this is kept in memory only.
+	 */
+	public UsageDataSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	public void setSnapshot(UsageDataSnapshot snapshot) {
+		this.snapshot = snapshot;
+	}
+}
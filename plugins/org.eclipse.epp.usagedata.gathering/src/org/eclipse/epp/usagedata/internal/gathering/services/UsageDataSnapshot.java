@@ -0,0 +1,221 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.gathering.services;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link UsageDataSnapshot} holds lookup indexes (e.g. extension ids to
+ * bundle ids, bundle ids to versions) that would otherwise be rebuilt from
+ * scratch on every launch. The indexes are saved when the service stops and
+ * loaded when it next starts, so that the first events of a session can be
+ * resolved without scanning the extension registry.
+ * <p>
+ * Each index is a named section of string keys and values. The file is a
+ * compact binary encoding: a header (magic number, version, fingerprint, and
+ * section count) followed by the sections; strings are a length followed by
+ * UTF-8 bytes. The file is read through a memory-mapped buffer.
+ * </p>
+ * <p>
+ * The fingerprint identifies the installation that the indexes were built
+ * from (see <code>UsageDataCaptureActivator</code>, which derives it from
+ * the installed bundles). A file with a different fingerprint, version, or
+ * that is damaged is ignored, and the indexes are rebuilt. Everything in a
+ * snapshot is derived from the installation, so a file that cannot be
+ * replaced (e.g. because the platform locks files that are mapped) remains
+ * valid until the fingerprint changes.
+ * </p>
+ * <p>
+ * A snapshot without a file is kept in memory only.
+ * </p>
+ */
+public class UsageDataSnapshot {
+	private static final int MAGIC = 0x55444357; // "UDCW"
+	private static final int VERSION = 1;
+	private static final String UTF_8 = "UTF-8"; //$NON-NLS-1$
+
+	private final File file;
+	private final long fingerprint;
+
+	/**
+	 * Maps section names to their contents. Access is synchronized on the
+	 * receiver.
+	 */
+	private Map<String, Map<String, String>> sections = new HashMap<String, Map<String, String>>();
+
+	private boolean loaded = false;
+
+	/**
+	 * This constructor creates a snapshot that is kept in memory only.
+	 */
+	public UsageDataSnapshot() {
+		this(null, 0);
+	}
+
+	public UsageDataSnapshot(File file, long fingerprint) {
+		this.file = file;
+		this.fingerprint = fingerprint;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public long getFingerprint() {
+		return fingerprint;
+	}
+
+	/**
+	 * This method answers the contents of the section with the given name.
+	 * The answer is a copy; use {@link #putSection(String, Map)} to change
+	 * it.
+	 *
+	 * @return the contents of the section, or <code>null</code> if the
+	 *         snapshot has no such section.
+	 */
+	public synchronized Map<String, String> getSection(String name) {
+		Map<String, String> section = sections.get(name);
+		if (section == null) return null;
+		return new HashMap<String, String>(section);
+	}
+
+	/**
+	 * This method replaces the contents of the section with the given name
+	 * with (a copy of) <code>entries</code>.
+	 */
+	public synchronized void putSection(String name, Map<String, String> entries) {
+		sections.put(name, new HashMap<String, String>(entries));
+	}
+
+	public synchronized void removeSection(String name) {
+		sections.remove(name);
+	}
+
+	/**
+	 * This method loads the sections from the file, the first time it is
+	 * called. Sections that have been put since are kept. Nothing is loaded
+	 * if the file does not exist or does not match.
+	 *
+	 * @throws IOException
+	 *             if the file exists but cannot be read.
+	 */
+	public synchronized void load() throws IOException {
+		if (loaded) return;
+		loaded = true;
+		if (file == null || !file.exists()) return;
+		FileInputStream input = new FileInputStream(file);
+		try {
+			FileChannel channel = input.getChannel();
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			Map<String, Map<String, String>> read = read(buffer);
+			if (read == null) return;
+			read.putAll(sections);
+			sections = read;
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * @return the sections in <code>buffer</code>, or <code>null</code> if
+	 *         it is not a snapshot of this installation.
+	 */
+	private Map<String, Map<String, String>> read(ByteBuffer buffer) throws IOException {
+		try {
+			if (buffer.getInt() != MAGIC) return null;
+			if (buffer.getInt() != VERSION) return null;
+			if (buffer.getLong() != fingerprint) return null;
+			Map<String, Map<String, String>> read = new HashMap<String, Map<String, String>>();
+			int sectionCount = buffer.getInt();
+			for (int section = 0; section < sectionCount; section++) {
+				String name = readString(buffer);
+				int entryCount = buffer.getInt();
+				if (entryCount < 0) return null;
+				Map<String, String> entries = new HashMap<String, String>();
+				for (int entry = 0; entry < entryCount; entry++) {
+					String key = readString(buffer);
+					entries.put(key, readString(buffer));
+				}
+				read.put(name, entries);
+			}
+			return read;
+		} catch (BufferUnderflowException e) {
+			// The file is truncated.
+			return null;
+		} catch (IllegalArgumentException e) {
+			// A length is out of range.
+			return null;
+		}
+	}
+
+	private String readString(ByteBuffer buffer) throws IOException {
+		int length = buffer.getInt();
+		if (length == -1) return null;
+		if (length < 0 || length > buffer.remaining()) throw new IllegalArgumentException();
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, UTF_8);
+	}
+
+	/**
+	 * This method writes the sections to the file. The file is first written
+	 * under a temporary name and then renamed, so a crash while saving
+	 * leaves any previous file intact.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be written.
+	 */
+	public synchronized void save() throws IOException {
+		if (file == null) return;
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (parent != null) parent.mkdirs();
+		File temporary = new File(file.getPath() + ".tmp"); //$NON-NLS-1$
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+		try {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeLong(fingerprint);
+			output.writeInt(sections.size());
+			for (Map.Entry<String, Map<String, String>> section : sections.entrySet()) {
+				writeString(output, section.getKey());
+				output.writeInt(section.getValue().size());
+				for (Map.Entry<String, String> entry : section.getValue().entrySet()) {
+					writeString(output, entry.getKey());
+					writeString(output, entry.getValue());
+				}
+			}
+		} finally {
+			output.close();
+		}
+		file.delete();
+		if (!temporary.renameTo(file)) throw new IOException("Cannot rename " + temporary + " to " + file); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private void writeString(DataOutputStream output, String string) throws IOException {
+		if (string == null) {
+			output.writeInt(-1);
+			return;
+		}
+		byte[] bytes = string.getBytes(UTF_8);
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+}
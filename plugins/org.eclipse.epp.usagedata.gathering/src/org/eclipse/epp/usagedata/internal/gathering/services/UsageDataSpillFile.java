@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.gathering.services;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEvent;
+
+/**
+ * The {@link UsageDataSpillFile} holds the events that the
+ * {@link UsageDataService} could not dispatch before it was stopped. The
+ * events are replayed the next time that the service is started.
+ * <p>
+ * The file is a compact binary encoding: a header (magic number, version,
+ * and event count) followed by the events. Each event is a byte of flags
+ * marking its <code>null</code> fields, the non-<code>null</code> strings
+ * (as a length followed by UTF-8 bytes), and the time stamp.
+ * </p>
+ * <p>
+ * The file is first written under a temporary name and then renamed, so a
+ * crash while spilling leaves any previous spill file intact.
+ * </p>
+ */
+public class UsageDataSpillFile {
+	private static final int MAGIC = 0x55444353; // "UDCS"
+	private static final int VERSION = 1;
+	private static final String UTF_8 = "UTF-8"; //$NON-NLS-1$
+
+	private final File file;
+
+	public UsageDataSpillFile(File file) {
+		this.file = file;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public boolean exists() {
+		return file.exists();
+	}
+
+	/**
+	 * This method writes <code>events</code> to the file. Events already in
+	 * the file (i.e. that have not yet been replayed) are kept, ahead of the
+	 * new ones.
+	 *
+	 * @param events
+	 *            the events to write.
+	 * @throws IOException
+	 *             if the file cannot be written; any previous contents are
+	 *             left intact.
+	 */
+	public void write(List<UsageDataEvent> events) throws IOException {
+		List<UsageDataEvent> all = new ArrayList<UsageDataEvent>();
+		if (file.exists()) {
+			try {
+				all.addAll(read());
+			} catch (IOException e) {
+				// The previous file is damaged; replace it.
+			}
+		}
+		all.addAll(events);
+
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (parent != null) parent.mkdirs();
+		File temporary = new File(file.getPath() + ".tmp"); //$NON-NLS-1$
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+		try {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeInt(all.size());
+			for (UsageDataEvent event : all) {
+				writeEvent(output, event);
+			}
+		} finally {
+			output.close();
+		}
+		file.delete();
+		if (!temporary.renameTo(file)) throw new IOException("Cannot rename " + temporary + " to " + file); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private void writeEvent(DataOutputStream output, UsageDataEvent event) throws IOException {
+		String[] strings = {event.what, event.kind, event.description, event.bundleId, event.bundleVersion};
+		int flags = 0;
+		for (int index = 0; index < strings.length; index++) {
+			if (strings[index] == null) flags |= 1 << index;
+		}
+		output.writeByte(flags);
+		for (String string : strings) {
+			if (string != null) writeString(output, string);
+		}
+		output.writeLong(event.when);
+	}
+
+	private void writeString(DataOutputStream output, String string) throws IOException {
+		byte[] bytes = string.getBytes(UTF_8);
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+
+	/**
+	 * This method reads the events from the file.
+	 *
+	 * @return the events in the file, in the order that they were written.
+	 * @throws IOException
+	 *             if the file cannot be read or is damaged.
+	 */
+	public List<UsageDataEvent> read() throws IOException {
+		DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			if (input.readInt() != MAGIC) throw new IOException("Not a usage data spill file: " + file); //$NON-NLS-1$
+			if (input.readInt() != VERSION) throw new IOException("Unsupported spill file version: " + file); //$NON-NLS-1$
+			int count = input.readInt();
+			List<UsageDataEvent> events = new ArrayList<UsageDataEvent>(Math.max(0, Math.min(count, 10000)));
+			for (int index = 0; index < count; index++) {
+				events.add(readEvent(input));
+			}
+			return events;
+		} finally {
+			input.close();
+		}
+	}
+
+	private UsageDataEvent readEvent(DataInputStream input) throws IOException {
+		int flags = input.readUnsignedByte();
+		String[] strings = new String[5];
+		for (int index = 0; index < strings.length; index++) {
+			if ((flags & (1 << index)) == 0) strings[index] = readString(input);
+		}
+		long when = input.readLong();
+		return new UsageDataEvent(strings[0], strings[1], strings[2], strings[3], strings[4], when);
+	}
+
+	private String readString(DataInputStream input) throws IOException {
+		int length = input.readInt();
+		if (length < 0) throw new IOException("Damaged spill file: " + file); //$NON-NLS-1$
+		byte[] bytes = new byte[length];
+		input.readFully(bytes);
+		return new String(bytes, UTF_8);
+	}
+
+	public void delete() {
+		file.delete();
+	}
+}
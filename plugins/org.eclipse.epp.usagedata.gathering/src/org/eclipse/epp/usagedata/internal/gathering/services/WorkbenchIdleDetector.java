@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.gathering.services;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.IJobChangeListener;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Listener;
+import org.eclipse.ui.PlatformUI;
+
+/**
+ * The {@link WorkbenchIdleDetector} considers the workbench idle when the
+ * user has not pressed a key or used the mouse for a while, and when no job
+ * that the user is waiting for is running: that is, no user job, and no job
+ * that is blocking another. System jobs, and those belonging to
+ * {@link UsageDataService#JOB_FAMILY}, don't count; nor do long-lived
+ * background jobs, which would otherwise keep the workbench from ever being
+ * idle.
+ * <p>
+ * Input is observed with a display filter that does nothing more than
+ * remember the time; running jobs are tracked with a job change listener.
+ * </p>
+ */
+public class WorkbenchIdleDetector implements IdleDetector {
+	/**
+	 * How long, in milliseconds, must there be no user input before the
+	 * workbench is considered idle?
+	 */
+	private static final long INPUT_QUIET_PERIOD = 2000;
+
+	private static final int[] INPUT_EVENTS = {SWT.KeyDown, SWT.MouseDown, SWT.MouseWheel};
+
+	private volatile long lastInput = 0;
+
+	/**
+	 * The jobs that are running, other than system jobs and our own. Jobs
+	 * that were already running when the receiver started are not known.
+	 */
+	private final Set<Job> runningJobs = new HashSet<Job>();
+
+	private Display display;
+
+	private Listener inputListener = new Listener() {
+		public void handleEvent(Event event) {
+			lastInput = System.currentTimeMillis();
+		}
+	};
+
+	private IJobChangeListener jobListener = new JobChangeAdapter() {
+		@Override
+		public void running(IJobChangeEvent event) {
+			Job job = event.getJob();
+			if (job.isSystem() || job.belongsTo(UsageDataService.JOB_FAMILY)) return;
+			synchronized (WorkbenchIdleDetector.this) {
+				runningJobs.add(job);
+			}
+		}
+
+		@Override
+		public void done(IJobChangeEvent event) {
+			synchronized (WorkbenchIdleDetector.this) {
+				runningJobs.remove(event.getJob());
+			}
+		}
+	};
+
+	public void start() {
+		Job.getJobManager().addJobChangeListener(jobListener);
+		if (!PlatformUI.isWorkbenchRunning()) return;
+		display = PlatformUI.getWorkbench().getDisplay();
+		display.asyncExec(new Runnable() {
+			public void run() {
+				if (display.isDisposed()) return;
+				for (int type : INPUT_EVENTS) {
+					display.addFilter(type, inputListener);
+				}
+			}
+		});
+	}
+
+	public void stop() {
+		Job.getJobManager().removeJobChangeListener(jobListener);
+		synchronized (this) {
+			runningJobs.clear();
+		}
+		if (display == null || display.isDisposed()) return;
+		display.asyncExec(new Runnable() {
+			public void run() {
+				if (display.isDisposed()) return;
+				for (int type : INPUT_EVENTS) {
+					display.removeFilter(type, inputListener);
+				}
+			}
+		});
+	}
+
+	public boolean isIdle() {
+		if (System.currentTimeMillis() - lastInput < INPUT_QUIET_PERIOD) return false;
+		synchronized (this) {
+			for (Job job : runningJobs) {
+				// Whether a job blocks another can change while it runs.
+				if (job.isUser() || job.isBlocking()) return false;
+			}
+			return true;
+		}
+	}
+}
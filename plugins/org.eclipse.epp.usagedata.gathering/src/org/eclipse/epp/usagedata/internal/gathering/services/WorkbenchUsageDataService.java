@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.gathering.services;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.adaptor.EclipseStarter;
+import org.eclipse.epp.usagedata.internal.gathering.UsageDataCaptureActivator;
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEventListener;
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEventSubscription;
+import org.eclipse.epp.usagedata.internal.gathering.monitors.UsageMonitor;
+
+/**
+ * The {@link WorkbenchUsageDataService} class adapts the {@link UsageDataService}
+ * to the workbench. It is registered as an OSGi service by the bundle
+ * activator on startup. In addition to the monitors provided by its
+ * configuration, it installs monitors registered via the
+ * {@value #MONITORS_EXTENSION_POINT} extension point and listeners (along
+ * with their subscriptions) registered via the
+ * {@value #LISTENERS_EXTENSION_POINT} extension point.
+ * <p>
+ * The instance starts monitoring activities immediately after it is started,
+ * but does not dispatch the resulting events until after the workbench is
+ * running (as reported by the {@link EclipseStarter#isRunning()} method.
+ * </p>
+ */
+@SuppressWarnings("restriction")
+public class WorkbenchUsageDataService extends UsageDataService {
+	private static final String MONITORS_EXTENSION_POINT = UsageDataCaptureActivator.PLUGIN_ID + ".monitors"; //$NON-NLS-1$
+	private static final String LISTENERS_EXTENSION_POINT = "org.eclipse.epp.usagedata.listeners.event"; //$NON-NLS-1$
+
+	private boolean extensionListenersInstalled = false;
+
+	public WorkbenchUsageDataService(UsageDataServiceConfiguration configuration) {
+		super(configuration);
+	}
+
+	/**
+	 * This method pauses the current thread until the workbench has
+	 * finished starting. This should provide enough time for bundles
+	 * that are installing usage data event listeners to complete before
+	 * events are dispatched.
+	 */
+	@Override
+	protected void waitForWorkbenchToFinishStarting() {
+		/*
+		 * We want the job to pause until after all the bundles that are
+		 * loaded at startup have finished loading. This will give
+		 * bundles that listen to usage data events time to load and
+		 * install listeners before events are fired off (which should
+		 * mean that events won't get lost).
+		 * 
+		 * I had originally tried using Display.syncExec(Runnable) (with
+		 * an "do nothing" Runnable, but this caused some weird classloading
+		 * issues similar to those referenced in Bug 88109.
+		 */
+		while (!EclipseStarter.isRunning()) {
+			try {
+				// It probably doesn't matter too much if we wait too long here.
+				// TODO Is 1 second too long?
+				Thread.sleep(1000);
+			} catch (InterruptedException e) {
+				//  Ignore and loop again!
+			}
+		}
+	}
+
+	@Override
+	protected void startMonitors() {
+		installExtensionListeners();
+		super.startMonitors();
+		IConfigurationElement[] elements = Platform.getExtensionRegistry()
+				.getConfigurationElementsFor(
+						MONITORS_EXTENSION_POINT);
+		for (IConfigurationElement element : elements) {
+			if ("monitor".equals(element.getName())) { //$NON-NLS-1$
+
+				try {
+					Object monitor = element.createExecutableExtension("class"); //$NON-NLS-1$
+					if (monitor instanceof UsageMonitor) {
+						startMonitor((UsageMonitor) monitor);
+					}
+				} catch (CoreException e) {
+					logException("Cannot create the monitor " + element.getAttribute("class"), e); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+			}
+		}
+	}
+
+	/**
+	 * This method adds the listeners registered via the
+	 * {@value #LISTENERS_EXTENSION_POINT} extension point. The optional
+	 * <code>kinds</code>, <code>whats</code>, and <code>bundles</code>
+	 * attributes are comma-separated lists that make up the listener's
+	 * subscription. The listeners are only installed once, regardless of how
+	 * many times monitoring is started.
+	 */
+	private synchronized void installExtensionListeners() {
+		if (extensionListenersInstalled) return;
+		extensionListenersInstalled = true;
+		IConfigurationElement[] elements = Platform.getExtensionRegistry()
+				.getConfigurationElementsFor(LISTENERS_EXTENSION_POINT);
+		for (IConfigurationElement element : elements) {
+			if ("listener".equals(element.getName())) { //$NON-NLS-1$
+				try {
+					Object listener = element.createExecutableExtension("class"); //$NON-NLS-1$
+					if (listener instanceof UsageDataEventListener) {
+						addUsageDataEventListener((UsageDataEventListener) listener, getSubscription(element));
+					}
+				} catch (CoreException e) {
+					logException("Cannot create the listener " + element.getAttribute("class"), e); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+			}
+		}
+	}
+
+	private UsageDataEventSubscription getSubscription(IConfigurationElement element) {
+		return new UsageDataEventSubscription(
+				split(element.getAttribute("kinds")), //$NON-NLS-1$
+				split(element.getAttribute("whats")), //$NON-NLS-1$
+				split(element.getAttribute("bundles"))); //$NON-NLS-1$
+	}
+
+	private String[] split(String value) {
+		if (value == null) return null;
+		value = value.trim();
+		if (value.length() == 0) return null;
+		return value.split("\\s*,\\s*"); //$NON-NLS-1$
+	}
+}
@@ -21,6 +21,7 @@ public class UsageDataCapturePreferenceInitializer extends AbstractPreferenceIni
 		IPreferenceStore preferenceStore = UsageDataCaptureActivator.getDefault().getPreferenceStore();
 		preferenceStore.setDefault(UsageDataCaptureSettings.CAPTURE_ENABLED_KEY, true);
 		preferenceStore.setDefault(UsageDataCaptureSettings.USER_ACCEPTED_TERMS_OF_USE_KEY, false);
+		preferenceStore.setDefault(UsageDataCaptureSettings.OVERHEAD_BUDGET_KEY, UsageDataCaptureSettings.OVERHEAD_BUDGET_DEFAULT);
 	}
 
 }
@@ -17,6 +17,9 @@ public class UsageDataCaptureSettings {
 
 	public static final String CAPTURE_ENABLED_KEY = UsageDataCaptureActivator.PLUGIN_ID + ".enabled"; //$NON-NLS-1$
 	public static final String USER_ACCEPTED_TERMS_OF_USE_KEY = UsageDataCaptureActivator.PLUGIN_ID + ".terms_accepted"; //$NON-NLS-1$
+	public static final String OVERHEAD_BUDGET_KEY = UsageDataCaptureActivator.PLUGIN_ID + ".overhead_budget"; //$NON-NLS-1$
+
+	static final double OVERHEAD_BUDGET_DEFAULT = 0.001;
 
 	public boolean isEnabled() {
 		if (System.getProperties().containsKey(CAPTURE_ENABLED_KEY)) {
@@ -52,4 +55,24 @@ public class UsageDataCaptureSettings {
 	public void setUserAcceptedTermsOfUse(boolean value) {
 		getPreferencesStore().setValue(USER_ACCEPTED_TERMS_OF_USE_KEY, value);
 	}
+
+	/**
+	 * This method answers the fraction of UI thread time (e.g. 0.001 for
+	 * 0.1%) that each monitor may spend recording events before it is
+	 * degraded. As with {@link #isEnabled()}, a system property overrides the
+	 * preference. A value of zero disables the budget.
+	 */
+	public double getOverheadBudget() {
+		if (System.getProperties().containsKey(OVERHEAD_BUDGET_KEY)) {
+			try {
+				return Double.parseDouble(System.getProperty(OVERHEAD_BUDGET_KEY));
+			} catch (NumberFormatException e) {
+				// Fall through and use the preference.
+			}
+		}
+		if (getPreferencesStore().contains(OVERHEAD_BUDGET_KEY)) {
+			return getPreferencesStore().getDouble(OVERHEAD_BUDGET_KEY);
+		}
+		return OVERHEAD_BUDGET_DEFAULT;
+	}
 }
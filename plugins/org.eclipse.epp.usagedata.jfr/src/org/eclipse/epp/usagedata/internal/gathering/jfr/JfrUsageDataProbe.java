@@ -0,0 +1,344 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.gathering.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataProbe;
+
+/**
+ * The {@link JfrUsageDataProbe} emits a JDK Flight Recorder event for each
+ * thing that it is told about. The events appear under "Eclipse / Usage Data"
+ * in a recording; they are off unless the recording's settings turn them on,
+ * e.g.
+ *
+ * <pre>
+ * -XX:StartFlightRecording:org.eclipse.epp.usagedata.Dispatch#enabled=true
+ * </pre>
+ * <p>
+ * The pipeline measures the work itself and passes the measurement in, so
+ * each event carries the measured time as its <code>elapsed</code> field;
+ * the event's own duration only covers the time taken to emit it.
+ * </p>
+ * <p>
+ * This class is created reflectively by {@link UsageDataProbe#getDefault()}.
+ * </p>
+ */
+public class JfrUsageDataProbe extends UsageDataProbe {
+	private static final String CATEGORY = "Usage Data"; //$NON-NLS-1$
+
+	@Name("org.eclipse.epp.usagedata.Enqueue") //$NON-NLS-1$
+	@Label("Usage Data Enqueue") //$NON-NLS-1$
+	@Description("An event has been offered to the usage data event queue") //$NON-NLS-1$
+	@Category({"Eclipse", CATEGORY}) //$NON-NLS-1$
+	@StackTrace(false)
+	static class EnqueueEvent extends Event {
+		@Label("What") //$NON-NLS-1$
+		String what;
+
+		@Label("Kind") //$NON-NLS-1$
+		String kind;
+
+		@Label("Priority") //$NON-NLS-1$
+		int priority;
+
+		@Label("Accepted") //$NON-NLS-1$
+		boolean accepted;
+
+		@Label("Queue Size") //$NON-NLS-1$
+		int queueSize;
+
+		@Label("Elapsed") //$NON-NLS-1$
+		@Timespan(Timespan.NANOSECONDS)
+		long elapsed;
+	}
+
+	@Name("org.eclipse.epp.usagedata.Dispatch") //$NON-NLS-1$
+	@Label("Usage Data Dispatch") //$NON-NLS-1$
+	@Description("A usage data event has been handed to a single listener") //$NON-NLS-1$
+	@Category({"Eclipse", CATEGORY}) //$NON-NLS-1$
+	@StackTrace(false)
+	static class DispatchEvent extends Event {
+		@Label("Listener") //$NON-NLS-1$
+		String listener;
+
+		@Label("What") //$NON-NLS-1$
+		String what;
+
+		@Label("Kind") //$NON-NLS-1$
+		String kind;
+
+		@Label("Failed") //$NON-NLS-1$
+		boolean failed;
+
+		@Label("Elapsed") //$NON-NLS-1$
+		@Timespan(Timespan.NANOSECONDS)
+		long elapsed;
+	}
+
+	@Name("org.eclipse.epp.usagedata.Flush") //$NON-NLS-1$
+	@Label("Usage Data Recorder Flush") //$NON-NLS-1$
+	@Description("The recorder has written out the events that it was holding") //$NON-NLS-1$
+	@Category({"Eclipse", CATEGORY}) //$NON-NLS-1$
+	@StackTrace(false)
+	static class FlushEvent extends Event {
+		@Label("Event Count") //$NON-NLS-1$
+		int eventCount;
+
+		@Label("Bytes Written") //$NON-NLS-1$
+		@DataAmount
+		long bytes;
+
+		@Label("Elapsed") //$NON-NLS-1$
+		@Timespan(Timespan.NANOSECONDS)
+		long elapsed;
+	}
+
+	@Name("org.eclipse.epp.usagedata.Rollover") //$NON-NLS-1$
+	@Label("Usage Data Recorder Rollover") //$NON-NLS-1$
+	@Description("The recorder has moved its event file aside for upload") //$NON-NLS-1$
+	@Category({"Eclipse", CATEGORY}) //$NON-NLS-1$
+	@StackTrace(false)
+	static class RolloverEvent extends Event {
+		@Label("File Size") //$NON-NLS-1$
+		@DataAmount
+		long bytes;
+
+		@Label("Renamed") //$NON-NLS-1$
+		boolean renamed;
+
+		@Label("Elapsed") //$NON-NLS-1$
+		@Timespan(Timespan.NANOSECONDS)
+		long elapsed;
+	}
+
+	@Name("org.eclipse.epp.usagedata.Compression") //$NON-NLS-1$
+	@Label("Usage Data Compression") //$NON-NLS-1$
+	@Description("The recorder has compressed a file that is waiting to be uploaded") //$NON-NLS-1$
+	@Category({"Eclipse", CATEGORY}) //$NON-NLS-1$
+	@StackTrace(false)
+	static class CompressionEvent extends Event {
+		@Label("Compression") //$NON-NLS-1$
+		String compression;
+
+		@Label("File Size") //$NON-NLS-1$
+		@DataAmount
+		long bytes;
+
+		@Label("Compressed Size") //$NON-NLS-1$
+		@DataAmount
+		long compressedBytes;
+
+		@Label("CPU Time") //$NON-NLS-1$
+		@Timespan(Timespan.NANOSECONDS)
+		long cpu;
+
+		@Label("Elapsed") //$NON-NLS-1$
+		@Timespan(Timespan.NANOSECONDS)
+		long elapsed;
+	}
+
+	@Name("org.eclipse.epp.usagedata.Quota") //$NON-NLS-1$
+	@Label("Usage Data Quota") //$NON-NLS-1$
+	@Description("The recorder has evicted files waiting to be uploaded to stay within its disk quota") //$NON-NLS-1$
+	@Category({"Eclipse", CATEGORY}) //$NON-NLS-1$
+	@StackTrace(false)
+	static class QuotaEvent extends Event {
+		@Label("Eviction") //$NON-NLS-1$
+		String eviction;
+
+		@Label("Quota") //$NON-NLS-1$
+		@DataAmount
+		long quota;
+
+		@Label("Size Before") //$NON-NLS-1$
+		@DataAmount
+		long bytes;
+
+		@Label("Size After") //$NON-NLS-1$
+		@DataAmount
+		long remaining;
+
+		@Label("Files Downsampled") //$NON-NLS-1$
+		int downsampled;
+
+		@Label("Files Evicted") //$NON-NLS-1$
+		int evicted;
+
+		@Label("Elapsed") //$NON-NLS-1$
+		@Timespan(Timespan.NANOSECONDS)
+		long elapsed;
+	}
+
+	@Name("org.eclipse.epp.usagedata.Upload") //$NON-NLS-1$
+	@Label("Usage Data Upload") //$NON-NLS-1$
+	@Description("An upload of usage data files has finished") //$NON-NLS-1$
+	@Category({"Eclipse", CATEGORY}) //$NON-NLS-1$
+	@StackTrace(false)
+	static class UploadEvent extends Event {
+		@Label("File Count") //$NON-NLS-1$
+		int fileCount;
+
+		@Label("Bytes") //$NON-NLS-1$
+		@DataAmount
+		long bytes;
+
+		@Label("Return Code") //$NON-NLS-1$
+		int returnCode;
+
+		@Label("Elapsed") //$NON-NLS-1$
+		@Timespan(Timespan.NANOSECONDS)
+		long elapsed;
+	}
+
+	@Name("org.eclipse.epp.usagedata.Filter") //$NON-NLS-1$
+	@Label("Usage Data Filter") //$NON-NLS-1$
+	@Description("A usage data filter has been evaluated against an event") //$NON-NLS-1$
+	@Category({"Eclipse", CATEGORY}) //$NON-NLS-1$
+	@StackTrace(false)
+	static class FilterEvent extends Event {
+		@Label("Bundle Id") //$NON-NLS-1$
+		String bundleId;
+
+		@Label("Pattern Count") //$NON-NLS-1$
+		int patternCount;
+
+		@Label("Included") //$NON-NLS-1$
+		boolean included;
+
+		@Label("Elapsed") //$NON-NLS-1$
+		@Timespan(Timespan.NANOSECONDS)
+		long elapsed;
+	}
+
+	private static final EventType[] TYPES = {
+		EventType.getEventType(EnqueueEvent.class),
+		EventType.getEventType(DispatchEvent.class),
+		EventType.getEventType(FlushEvent.class),
+		EventType.getEventType(RolloverEvent.class),
+		EventType.getEventType(CompressionEvent.class),
+		EventType.getEventType(QuotaEvent.class),
+		EventType.getEventType(UploadEvent.class),
+		EventType.getEventType(FilterEvent.class)};
+
+	/**
+	 * The answer only changes when a recording starts or stops, so callers
+	 * on hot paths pay for a few field reads.
+	 */
+	@Override
+	public boolean isEnabled() {
+		for (EventType type : TYPES) {
+			if (type.isEnabled()) return true;
+		}
+		return false;
+	}
+
+	@Override
+	public void enqueued(String what, String kind, int priority, boolean accepted, int queueSize, long duration) {
+		EnqueueEvent event = new EnqueueEvent();
+		if (!event.isEnabled()) return;
+		event.what = what;
+		event.kind = kind;
+		event.priority = priority;
+		event.accepted = accepted;
+		event.queueSize = queueSize;
+		event.elapsed = duration;
+		event.commit();
+	}
+
+	@Override
+	public void dispatched(String listener, String what, String kind, boolean failed, long duration) {
+		DispatchEvent event = new DispatchEvent();
+		if (!event.isEnabled()) return;
+		event.listener = listener;
+		event.what = what;
+		event.kind = kind;
+		event.failed = failed;
+		event.elapsed = duration;
+		event.commit();
+	}
+
+	@Override
+	public void flushed(int eventCount, long bytes, long duration) {
+		FlushEvent event = new FlushEvent();
+		if (!event.isEnabled()) return;
+		event.eventCount = eventCount;
+		event.bytes = bytes;
+		event.elapsed = duration;
+		event.commit();
+	}
+
+	@Override
+	public void rolledOver(long bytes, boolean renamed, long duration) {
+		RolloverEvent event = new RolloverEvent();
+		if (!event.isEnabled()) return;
+		event.bytes = bytes;
+		event.renamed = renamed;
+		event.elapsed = duration;
+		event.commit();
+	}
+
+	@Override
+	public void compressed(String compression, long bytes, long compressedBytes, long cpu, long duration) {
+		CompressionEvent event = new CompressionEvent();
+		if (!event.isEnabled()) return;
+		event.compression = compression;
+		event.bytes = bytes;
+		event.compressedBytes = compressedBytes;
+		event.cpu = cpu;
+		event.elapsed = duration;
+		event.commit();
+	}
+
+	@Override
+	public void quotaEnforced(String eviction, long quota, long bytes, long remaining, int downsampled, int evicted, long duration) {
+		QuotaEvent event = new QuotaEvent();
+		if (!event.isEnabled()) return;
+		event.eviction = eviction;
+		event.quota = quota;
+		event.bytes = bytes;
+		event.remaining = remaining;
+		event.downsampled = downsampled;
+		event.evicted = evicted;
+		event.elapsed = duration;
+		event.commit();
+	}
+
+	@Override
+	public void uploaded(int fileCount, long bytes, int returnCode, long duration) {
+		UploadEvent event = new UploadEvent();
+		if (!event.isEnabled()) return;
+		event.fileCount = fileCount;
+		event.bytes = bytes;
+		event.returnCode = returnCode;
+		event.elapsed = duration;
+		event.commit();
+	}
+
+	@Override
+	public void filtered(String bundleId, int patternCount, boolean included, long duration) {
+		FilterEvent event = new FilterEvent();
+		if (!event.isEnabled()) return;
+		event.bundleId = bundleId;
+		event.patternCount = patternCount;
+		event.included = included;
+		event.elapsed = duration;
+		event.commit();
+	}
+}
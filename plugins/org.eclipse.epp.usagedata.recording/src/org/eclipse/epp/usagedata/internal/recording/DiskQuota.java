@@ -0,0 +1,312 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.recording;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEvent;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataLog;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataMetrics;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataProbe;
+import org.eclipse.epp.usagedata.internal.recording.settings.RecordingSettings;
+import org.eclipse.epp.usagedata.internal.recording.storage.SegmentCatalog;
+import org.eclipse.epp.usagedata.internal.recording.uploading.UsageDataFileReader;
+
+/**
+ * The {@link DiskQuota} keeps the files that are waiting to be uploaded
+ * (as recorded in the {@link SegmentCatalog}) within a number of bytes, so
+ * that uploads failing for a long time (e.g. on a laptop that is offline)
+ * do not fill the disk. The recorder enforces it whenever it adds a file.
+ * <p>
+ * Files that have been uploaded already are always deleted, whatever the
+ * quota, as nothing is lost. With {@link RecordingSettings#EVICTION_NONE}
+ * (the default), that is all: going over the quota is logged, once, but
+ * nothing that is waiting to be uploaded is touched. Otherwise, space is
+ * made oldest first. Then, with
+ * {@link RecordingSettings#EVICTION_DOWNSAMPLE}, files are replaced by
+ * rollups: CSV files with one line for each distinct event on each day,
+ * which carries the time of the first occurrence and a count (see
+ * {@link RecordingSettings#ROLLUP_EXTENSION}). Finally, and straight away
+ * with {@link RecordingSettings#EVICTION_OLDEST}, files are deleted.
+ * Whatever is downsampled or deleted is reported to the
+ * {@link UsageDataMetrics}, the {@link UsageDataProbe} and the log. Files
+ * that are being compressed or uploaded (see
+ * {@link SegmentCatalog#claim(File)}) are left alone.
+ * </p>
+ */
+public class DiskQuota {
+	private static final long DAY = 24 * 60 * 60 * 1000;
+
+	private final SegmentCatalog catalog;
+
+	private final long quota;
+
+	private final String eviction;
+
+	private final UsageDataLog log;
+
+	/**
+	 * Has going over the quota been logged, with
+	 * {@link RecordingSettings#EVICTION_NONE}? Once is enough.
+	 */
+	private boolean warned = false;
+
+	/**
+	 * @param quota
+	 *            the number of bytes that the files may take; <code>0</code>
+	 *            (or less) for no limit.
+	 * @param eviction
+	 *            {@link RecordingSettings#EVICTION_NONE},
+	 *            {@link RecordingSettings#EVICTION_OLDEST} or
+	 *            {@link RecordingSettings#EVICTION_DOWNSAMPLE}.
+	 * @param log
+	 *            the log that evictions and failures are reported to.
+	 */
+	public DiskQuota(SegmentCatalog catalog, long quota, String eviction, UsageDataLog log) {
+		if (!RecordingSettings.EVICTION_NONE.equals(eviction) && !RecordingSettings.EVICTION_OLDEST.equals(eviction) && !RecordingSettings.EVICTION_DOWNSAMPLE.equals(eviction)) throw new IllegalArgumentException(eviction);
+		this.catalog = catalog;
+		this.quota = quota;
+		this.eviction = eviction;
+		this.log = log;
+	}
+
+	/**
+	 * This method answers whether or not the file is a rollup written by a
+	 * {@link DiskQuota} (compressed or not).
+	 */
+	public static boolean isRollup(File file) {
+		return file.getName().contains(RecordingSettings.ROLLUP_EXTENSION);
+	}
+
+	/**
+	 * This method deletes the files that have been uploaded, and makes room,
+	 * if the files that the catalog knows about still take more than the
+	 * quota.
+	 *
+	 * @return the number of bytes that were freed.
+	 */
+	public synchronized long enforce() {
+		List<SegmentCatalog.Entry> entries = catalog.getEntries();
+		long bytes = getLength(entries);
+		long total = bytes;
+		// Nothing is lost, whatever the policy.
+		for (SegmentCatalog.Entry listed : entries) {
+			if (!listed.isUploaded()) continue;
+			SegmentCatalog.Entry entry = catalog.claim(listed.getFile());
+			if (entry == null) continue;
+			try {
+				if (delete(entry)) total -= entry.getLength();
+			} finally {
+				catalog.release(entry.getFile());
+			}
+		}
+		if (quota <= 0 || total <= quota) return bytes - total;
+		if (RecordingSettings.EVICTION_NONE.equals(eviction)) {
+			if (!warned) {
+				log.log(IStatus.WARNING, "The usage data waiting to be uploaded takes " + total + " bytes, more than its quota of " + quota //$NON-NLS-1$ //$NON-NLS-2$
+						+ "; nothing is evicted, as the eviction policy is \"" + eviction + "\".", null); //$NON-NLS-1$ //$NON-NLS-2$
+				warned = true;
+			}
+			return bytes - total;
+		}
+
+		long start = System.nanoTime();
+		int downsampled = 0;
+		if (RecordingSettings.EVICTION_DOWNSAMPLE.equals(eviction)) {
+			for (SegmentCatalog.Entry listed : entries) {
+				if (total <= quota) break;
+				if (listed.isUploaded() || isRollup(listed.getFile())) continue;
+				SegmentCatalog.Entry entry = catalog.claim(listed.getFile());
+				if (entry == null) continue;
+				try {
+					// It may have been uploaded or replaced since it was listed.
+					if (entry.isUploaded() || !entry.getFile().equals(listed.getFile())) continue;
+					File rollup = downsample(entry.getFile());
+					if (rollup == null) continue;
+					catalog.moved(entry.getFile(), rollup);
+					UsageDataMetrics.getDefault().fileDownsampled(entry.getLength(), rollup.length());
+					total -= entry.getLength() - rollup.length();
+					downsampled++;
+				} finally {
+					catalog.release(entry.getFile());
+				}
+			}
+			// The catalog has moved on from the files that were replaced.
+			entries = catalog.getEntries();
+		}
+
+		int evicted = 0;
+		long events = 0;
+		for (SegmentCatalog.Entry listed : entries) {
+			if (total <= quota) break;
+			if (listed.isUploaded()) continue;
+			SegmentCatalog.Entry entry = catalog.claim(listed.getFile());
+			if (entry == null) continue;
+			try {
+				if (entry.isUploaded() || !delete(entry)) continue;
+				UsageDataMetrics.getDefault().fileEvicted(entry.getLength(), entry.getEventCount());
+				total -= entry.getLength();
+				evicted++;
+				if (entry.getEventCount() > 0) events += entry.getEventCount();
+			} finally {
+				catalog.release(entry.getFile());
+			}
+		}
+
+		if (downsampled > 0 || evicted > 0) {
+			log.log(IStatus.WARNING, "The usage data waiting to be uploaded took " + bytes + " bytes, more than its quota of " + quota //$NON-NLS-1$ //$NON-NLS-2$
+					+ "; " + downsampled + " files were rolled up and " + evicted + " files (" + events + " events) were deleted.", null); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		}
+		UsageDataProbe probe = UsageDataProbe.getDefault();
+		if (probe.isEnabled()) probe.quotaEnforced(eviction, quota, bytes, total, downsampled, evicted, System.nanoTime() - start);
+		return bytes - total;
+	}
+
+	private long getLength(List<SegmentCatalog.Entry> entries) {
+		long length = 0;
+		for (SegmentCatalog.Entry entry : entries) {
+			length += entry.getLength();
+		}
+		return length;
+	}
+
+	/**
+	 * This method deletes the file of the entry, and tells the catalog.
+	 *
+	 * @return <code>false</code> if the file is still there.
+	 */
+	private boolean delete(SegmentCatalog.Entry entry) {
+		File file = entry.getFile();
+		if (!file.delete() && file.exists()) {
+			log.log(IStatus.WARNING, "Cannot delete " + file + " to stay within the usage data quota.", null); //$NON-NLS-1$ //$NON-NLS-2$
+			return false;
+		}
+		catalog.removed(file);
+		return true;
+	}
+
+	/**
+	 * This method replaces the file with its rollup, which is named after it
+	 * with {@link RecordingSettings#ROLLUP_EXTENSION}. The rollup is written
+	 * under a temporary name, forced to the disk and then renamed into
+	 * place, so that a crash leaves the original rather than a partly
+	 * written file.
+	 *
+	 * @return the rollup, or <code>null</code> if it could not be written or
+	 *         would be no smaller than the file (which is then left as it
+	 *         is).
+	 */
+	private File downsample(File file) {
+		String name = file.getName();
+		int dot = name.indexOf('.');
+		File destination = new File(file.getParentFile(), (dot < 0 ? name : name.substring(0, dot)) + RecordingSettings.ROLLUP_EXTENSION);
+		// Not named like an upload file, so the uploader doesn't see it.
+		File temporary = new File(file.getParentFile(), "." + destination.getName() + ".tmp"); //$NON-NLS-1$ //$NON-NLS-2$
+		try {
+			Map<String, Rollup> rollups = rollUp(file);
+			FileOutputStream output = new FileOutputStream(temporary);
+			try {
+				Writer writer = new BufferedWriter(new OutputStreamWriter(output));
+				writeRollups(writer, rollups);
+				writer.flush();
+				output.getChannel().force(false);
+			} finally {
+				output.close();
+			}
+		} catch (Exception e) {
+			temporary.delete();
+			log.log(IStatus.WARNING, "Cannot roll up " + file + "; it will be deleted if need be.", e); //$NON-NLS-1$ //$NON-NLS-2$
+			return null;
+		}
+		if (temporary.length() >= file.length()) {
+			temporary.delete();
+			return null;
+		}
+		// The rollup outranks the original, should a crash leave both.
+		if (!temporary.renameTo(destination)) {
+			temporary.delete();
+			log.log(IStatus.WARNING, "Cannot move " + temporary + " to " + destination, null); //$NON-NLS-1$ //$NON-NLS-2$
+			return null;
+		}
+		file.delete();
+		return destination;
+	}
+
+	/**
+	 * A distinct event on a given day: the first occurrence, and how many
+	 * there were.
+	 */
+	private static class Rollup {
+		final UsageDataEvent event;
+		int count = 1;
+
+		Rollup(UsageDataEvent event) {
+			this.event = event;
+		}
+	}
+
+	private Map<String, Rollup> rollUp(File file) throws Exception {
+		final Map<String, Rollup> rollups = new LinkedHashMap<String, Rollup>();
+		UsageDataFileReader reader = new UsageDataFileReader(file);
+		try {
+			reader.iterate(new UsageDataFileReader.Iterator() {
+				public void header(String header) {
+				}
+
+				public void event(String line, UsageDataEvent event) {
+					String key = event.what + '\0' + event.kind + '\0' + event.bundleId + '\0' + event.bundleVersion + '\0' + event.description + '\0' + event.when / DAY;
+					Rollup rollup = rollups.get(key);
+					if (rollup == null) {
+						rollups.put(key, new Rollup(event));
+					} else {
+						rollup.count++;
+					}
+				}
+			});
+		} finally {
+			reader.close();
+		}
+		return rollups;
+	}
+
+	private void writeRollups(Writer writer, Map<String, Rollup> rollups) throws IOException {
+		StringWriter header = new StringWriter();
+		UsageDataRecorderUtils.writeHeader(header);
+		writer.write(trim(header));
+		writer.write(",count\n"); //$NON-NLS-1$
+		for (Rollup rollup : rollups.values()) {
+			StringWriter line = new StringWriter();
+			UsageDataRecorderUtils.writeEvent(line, rollup.event);
+			writer.write(trim(line));
+			writer.write(',');
+			writer.write(String.valueOf(rollup.count));
+			writer.write('\n');
+		}
+	}
+
+	/**
+	 * @return what was written, without the trailing line separator.
+	 */
+	private String trim(StringWriter writer) {
+		StringBuffer buffer = writer.getBuffer();
+		return buffer.substring(0, buffer.length() - 1);
+	}
+}
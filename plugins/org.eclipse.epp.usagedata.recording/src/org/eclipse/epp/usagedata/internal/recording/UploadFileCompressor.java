@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.recording;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedList;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.epp.usagedata.internal.gathering.services.ThreadCost;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataLog;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataMetrics;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataProbe;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataService;
+import org.eclipse.epp.usagedata.internal.recording.settings.RecordingSettings;
+import org.eclipse.epp.usagedata.internal.recording.storage.CompressedFile;
+import org.eclipse.epp.usagedata.internal.recording.storage.SegmentCatalog;
+
+/**
+ * The {@link UploadFileCompressor} compresses the files that the recorder
+ * moves aside for upload, one at a time, with a {@link Job} running in the
+ * background at a low priority (as uploads are). The size of each file
+ * before and after, and the CPU time taken, are reported to the
+ * {@link UsageDataMetrics} and the {@link UsageDataProbe}; the
+ * {@link SegmentCatalog} is told about the compressed file, which replaces
+ * the original.
+ * <p>
+ * A file that cannot be compressed, or that is being uploaded or evicted
+ * (see {@link SegmentCatalog#claim(File)}), is left as it is; it is uploaded
+ * uncompressed.
+ * </p>
+ */
+public class UploadFileCompressor {
+	private final String compression;
+
+	private final SegmentCatalog catalog;
+
+	private final UsageDataLog log;
+
+	/**
+	 * The files waiting to be compressed, oldest first.
+	 */
+	private final LinkedList<File> pending = new LinkedList<File>();
+
+	/**
+	 * The number of files that have been handed to the receiver but not
+	 * finished with yet.
+	 */
+	private int outstanding = 0;
+
+	private final Job job;
+
+	/**
+	 * @param compression
+	 *            {@link RecordingSettings#COMPRESSION_GZIP} or
+	 *            {@link RecordingSettings#COMPRESSION_LZ}.
+	 * @param catalog
+	 *            the catalog that is told when a file is replaced by its
+	 *            compressed form.
+	 * @param log
+	 *            the log that failures are reported to.
+	 */
+	public UploadFileCompressor(String compression, SegmentCatalog catalog, UsageDataLog log) {
+		if (CompressedFile.getExtension(compression) == null) throw new IllegalArgumentException(compression);
+		this.compression = compression;
+		this.catalog = catalog;
+		this.log = log;
+		job = new Job("Compressing usage data...") { //$NON-NLS-1$
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				File file;
+				while ((file = next()) != null) {
+					try {
+						if (!monitor.isCanceled()) doCompress(file);
+					} finally {
+						done();
+					}
+				}
+				return Status.OK_STATUS;
+			}
+
+			@Override
+			public boolean belongsTo(Object family) {
+				return family == UsageDataService.JOB_FAMILY;
+			}
+		};
+		job.setSystem(true);
+		job.setPriority(Job.DECORATE);
+	}
+
+	/**
+	 * This method answers whether or not a file of the given name is one
+	 * that the receiver compresses; these are the CSV and binary event files.
+	 */
+	public static boolean isCompressible(String name) {
+		return name.endsWith(RecordingSettings.CSV_EXTENSION) || name.endsWith(RecordingSettings.BINARY_EXTENSION);
+	}
+
+	/**
+	 * This method queues the file to be compressed.
+	 */
+	public void compress(File file) {
+		synchronized (this) {
+			pending.add(file);
+			outstanding++;
+		}
+		job.schedule();
+	}
+
+	/**
+	 * This method waits until the files handed to the receiver so far have
+	 * been compressed, or until <code>timeout</code> milliseconds have
+	 * passed.
+	 *
+	 * @return <code>true</code> if there is nothing left to compress.
+	 */
+	public synchronized boolean join(long timeout) throws InterruptedException {
+		long end = System.currentTimeMillis() + timeout;
+		while (outstanding > 0) {
+			long remaining = end - System.currentTimeMillis();
+			if (remaining <= 0) return false;
+			wait(remaining);
+		}
+		return true;
+	}
+
+	private synchronized File next() {
+		return pending.isEmpty() ? null : pending.removeFirst();
+	}
+
+	private synchronized void done() {
+		outstanding--;
+		notifyAll();
+	}
+
+	private void doCompress(File file) {
+		// Not while it is being uploaded (or evicted); it is sent as it is.
+		SegmentCatalog.Entry entry = catalog.claim(file);
+		if (entry == null) return;
+		try {
+			// The file may have been compressed (or deleted) already.
+			if (entry.getFile().equals(file) && file.exists()) compressClaimed(file);
+		} finally {
+			catalog.release(file);
+		}
+	}
+
+	private void compressClaimed(File file) {
+		long bytes = file.length();
+		long start = System.nanoTime();
+		long cpu = ThreadCost.getCpuTime();
+		long allocated = ThreadCost.getAllocatedBytes();
+		File compressed;
+		try {
+			compressed = CompressedFile.compress(file, compression);
+		} catch (IOException e) {
+			log.log(IStatus.WARNING, "Cannot compress " + file + "; it will be uploaded uncompressed.", e); //$NON-NLS-1$ //$NON-NLS-2$
+			return;
+		}
+		long duration = System.nanoTime() - start;
+		cpu = ThreadCost.getDelta(cpu, ThreadCost.getCpuTime());
+		catalog.moved(file, compressed);
+		long compressedBytes = compressed.length();
+
+		UsageDataMetrics metrics = UsageDataMetrics.getDefault();
+		metrics.fileCompressed(bytes, compressedBytes, cpu);
+		metrics.addCost(cpu, ThreadCost.getDelta(allocated, ThreadCost.getAllocatedBytes()));
+		UsageDataProbe probe = UsageDataProbe.getDefault();
+		if (probe.isEnabled()) probe.compressed(compression, bytes, compressedBytes, cpu, duration);
+	}
+}
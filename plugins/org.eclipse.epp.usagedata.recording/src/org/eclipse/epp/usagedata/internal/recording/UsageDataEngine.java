@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.recording;
+
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataLog;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataService;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataServiceConfiguration;
+import org.eclipse.epp.usagedata.internal.recording.settings.RecordingSettings;
+import org.eclipse.epp.usagedata.internal.recording.uploading.BasicUploader;
+import org.eclipse.epp.usagedata.internal.recording.uploading.UploadManager;
+import org.eclipse.epp.usagedata.internal.recording.uploading.Uploader;
+
+/**
+ * The {@link UsageDataEngine} wires together the capture and recording
+ * pipeline without OSGi: a {@link UsageDataService} fed by the configured
+ * monitors, a {@link UsageDataRecorder} writing events to the working
+ * directory, and an {@link UploadManager} that uploads them with a
+ * {@link BasicUploader}.
+ * <p>
+ * This is what headless tools, tests, and other hosts use in place of the
+ * bundle activators. Inside the workbench, the activators assemble the same
+ * pieces from the extension registry and preference store.
+ * </p>
+ *
+ * <pre>
+ * UsageDataServiceConfiguration configuration = new UsageDataServiceConfiguration();
+ * configuration.addMonitor(new MyMonitor());
+ * BasicRecordingSettings settings = new BasicRecordingSettings(directory);
+ * UsageDataEngine engine = new UsageDataEngine(configuration, settings);
+ * engine.start();
+ * ...
+ * engine.stop();
+ * </pre>
+ */
+public class UsageDataEngine {
+
+	private final UsageDataService service;
+	private final UsageDataRecorder recorder;
+	private final UploadManager uploadManager;
+	private final RecordingSettings settings;
+
+	public UsageDataEngine(UsageDataServiceConfiguration configuration, RecordingSettings settings) {
+		this.settings = settings;
+		final UsageDataLog log = configuration.getLog();
+		service = new UsageDataService(configuration);
+		uploadManager = new UploadManager(settings, log) {
+			@Override
+			protected Uploader getUploader() {
+				return new BasicUploader(null);
+			}
+
+			@Override
+			protected boolean isWorkbenchClosing() {
+				return false;
+			}
+		};
+		recorder = new UsageDataRecorder(settings, uploadManager, log);
+	}
+
+	/**
+	 * This method starts the recorder and then starts monitoring. Events
+	 * are recorded from this point forward.
+	 */
+	public void start() {
+		recorder.start();
+		service.addUsageDataEventListener(recorder);
+		service.startMonitoring();
+	}
+
+	/**
+	 * This method stops monitoring and then stops the recorder, which writes
+	 * out any events that it is still holding.
+	 */
+	public void stop() {
+		service.stopMonitoring();
+		service.removeUsageDataEventListener(recorder);
+		recorder.stop();
+	}
+
+	public UsageDataService getUsageDataService() {
+		return service;
+	}
+
+	public UsageDataRecorder getRecorder() {
+		return recorder;
+	}
+
+	public UploadManager getUploadManager() {
+		return uploadManager;
+	}
+
+	public RecordingSettings getSettings() {
+		return settings;
+	}
+}
@@ -0,0 +1,266 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.recording;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataEventQueue;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataLog;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataMetrics;
+import org.eclipse.epp.usagedata.internal.recording.settings.RecordingSettings;
+import org.eclipse.epp.usagedata.internal.recording.storage.SegmentCatalog;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * The {@link UsageDataMetricsServer} serves the {@link UsageDataMetrics},
+ * along with the size of the upload backlog, in the Prometheus text
+ * exposition format at <code>http://127.0.0.1:&lt;port&gt;/metrics</code>.
+ * It is intended for a local agent that scrapes endpoints on the machine,
+ * so it only listens on the loopback address.
+ * <p>
+ * The server is off unless the {@link #PORT_KEY} system property is set
+ * (e.g. <code>-Dorg.eclipse.epp.usagedata.recording.metrics-port=9464</code>);
+ * the activator starts it.
+ * </p>
+ */
+public class UsageDataMetricsServer {
+
+	public static final String PORT_KEY = UsageDataRecordingActivator.PLUGIN_ID + ".metrics-port"; //$NON-NLS-1$
+
+	static final String PATH = "/metrics"; //$NON-NLS-1$
+
+	static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8"; //$NON-NLS-1$
+
+	private static final double MILLISECONDS = 1000.0;
+
+	private static final double NANOSECONDS = 1000.0 * 1000.0 * 1000.0;
+
+	private static final String[] PRIORITY_NAMES = {"critical", "normal", "bulk"}; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+	private final UsageDataMetrics metrics;
+
+	private final RecordingSettings settings;
+
+	private final UsageDataLog log;
+
+	private HttpServer server;
+
+	/**
+	 * @param settings
+	 *            the settings that tell the server where to find the files
+	 *            waiting to be uploaded.
+	 */
+	public UsageDataMetricsServer(UsageDataMetrics metrics, RecordingSettings settings, UsageDataLog log) {
+		this.metrics = metrics;
+		this.settings = settings;
+		this.log = log;
+	}
+
+	/**
+	 * This method starts serving on the given port of the loopback address.
+	 * Port <code>0</code> picks a free port; see {@link #getPort()}.
+	 *
+	 * @throws IOException
+	 *             if the port cannot be bound.
+	 */
+	public synchronized void start(int port) throws IOException {
+		if (server != null) return;
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.createContext(PATH, new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					respond(exchange);
+				} catch (RuntimeException e) {
+					log.log(IStatus.WARNING, "Cannot serve usage data metrics", e); //$NON-NLS-1$
+					exchange.sendResponseHeaders(500, -1);
+				} finally {
+					exchange.close();
+				}
+			}
+		});
+		server.start();
+	}
+
+	public synchronized void stop() {
+		if (server == null) return;
+		server.stop(0);
+		server = null;
+	}
+
+	/**
+	 * @return the port that the receiver is listening on, or <code>-1</code>
+	 *         if it is not running.
+	 */
+	public synchronized int getPort() {
+		if (server == null) return -1;
+		return server.getAddress().getPort();
+	}
+
+	private void respond(HttpExchange exchange) throws IOException {
+		String method = exchange.getRequestMethod();
+		if (!"GET".equals(method) && !"HEAD".equals(method)) { //$NON-NLS-1$ //$NON-NLS-2$
+			exchange.getResponseHeaders().set("Allow", "GET, HEAD"); //$NON-NLS-1$ //$NON-NLS-2$
+			exchange.sendResponseHeaders(405, -1);
+			return;
+		}
+		byte[] body = getExposition().getBytes("UTF-8"); //$NON-NLS-1$
+		exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE); //$NON-NLS-1$
+		if ("HEAD".equals(method)) { //$NON-NLS-1$
+			exchange.sendResponseHeaders(200, -1);
+			return;
+		}
+		exchange.sendResponseHeaders(200, body.length);
+		OutputStream output = exchange.getResponseBody();
+		output.write(body);
+		output.close();
+	}
+
+	/**
+	 * This method answers the current metrics in the Prometheus text
+	 * exposition format.
+	 */
+	String getExposition() {
+		StringBuilder builder = new StringBuilder();
+
+		header(builder, "udc_queue_depth", "gauge", "Events waiting in the usage data queue."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		sample(builder, "udc_queue_depth", null, metrics.getQueueDepth()); //$NON-NLS-1$
+
+		UsageDataEventQueue queue = metrics.getQueue();
+		if (queue != null) {
+			header(builder, "udc_events_dropped_total", "counter", "Events dropped because the queue was full, by priority."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			for (int priority = 0; priority < PRIORITY_NAMES.length; priority++) {
+				sample(builder, "udc_events_dropped_total", label("priority", PRIORITY_NAMES[priority]), queue.getDroppedCount(priority)); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+
+		header(builder, "udc_events_captured_total", "counter", "Events captured, by kind."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		for (Map.Entry<String, Long> entry : metrics.getCapturedCounts().entrySet()) {
+			sample(builder, "udc_events_captured_total", label("kind", entry.getKey()), entry.getValue()); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+
+		histogram(builder, "udc_queue_lag_seconds", "Time from the capture of an event to its dispatch.", metrics.getQueueLag(), MILLISECONDS); //$NON-NLS-1$ //$NON-NLS-2$
+		histogram(builder, "udc_dispatch_duration_seconds", "Time taken by a single listener with a single event.", metrics.getDispatchLatency(), NANOSECONDS); //$NON-NLS-1$ //$NON-NLS-2$
+
+		header(builder, "udc_recorder_events_written_total", "counter", "Events written to the event file."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		sample(builder, "udc_recorder_events_written_total", null, metrics.getEventsWritten()); //$NON-NLS-1$
+		header(builder, "udc_recorder_bytes_written_total", "counter", "Bytes written to the event file."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		sample(builder, "udc_recorder_bytes_written_total", null, metrics.getBytesWritten()); //$NON-NLS-1$
+		header(builder, "udc_recorder_events_dropped_total", "counter", "Events dropped by the recorder without being written."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		sample(builder, "udc_recorder_events_dropped_total", null, metrics.getEventsDropped()); //$NON-NLS-1$
+		histogram(builder, "udc_recorder_write_duration_seconds", "Time taken by the recorder to write out the events that it holds.", metrics.getWriteLatency(), NANOSECONDS); //$NON-NLS-1$ //$NON-NLS-2$
+		header(builder, "udc_recorder_compression_input_bytes_total", "counter", "Bytes of files compressed while waiting to be uploaded, before compression."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		sample(builder, "udc_recorder_compression_input_bytes_total", null, metrics.getBytesCompressed()); //$NON-NLS-1$
+		header(builder, "udc_recorder_compression_output_bytes_total", "counter", "Bytes of files compressed while waiting to be uploaded, after compression."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		sample(builder, "udc_recorder_compression_output_bytes_total", null, metrics.getCompressedBytes()); //$NON-NLS-1$
+		header(builder, "udc_recorder_compression_cpu_seconds_total", "counter", "CPU time spent compressing files that are waiting to be uploaded."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		sample(builder, "udc_recorder_compression_cpu_seconds_total", null, metrics.getCompressionTime() / NANOSECONDS); //$NON-NLS-1$
+		header(builder, "udc_recorder_downsampled_files_total", "counter", "Files waiting to be uploaded that were replaced by rollups to stay within the disk quota."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		sample(builder, "udc_recorder_downsampled_files_total", null, metrics.getFilesDownsampled()); //$NON-NLS-1$
+		header(builder, "udc_recorder_downsampled_input_bytes_total", "counter", "Bytes of files replaced by rollups."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		sample(builder, "udc_recorder_downsampled_input_bytes_total", null, metrics.getBytesDownsampled()); //$NON-NLS-1$
+		header(builder, "udc_recorder_downsampled_output_bytes_total", "counter", "Bytes of the rollups that replaced them."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		sample(builder, "udc_recorder_downsampled_output_bytes_total", null, metrics.getRollupBytes()); //$NON-NLS-1$
+		header(builder, "udc_recorder_evicted_files_total", "counter", "Files deleted before they were uploaded to stay within the disk quota."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		sample(builder, "udc_recorder_evicted_files_total", null, metrics.getFilesEvicted()); //$NON-NLS-1$
+		header(builder, "udc_recorder_evicted_bytes_total", "counter", "Bytes of files deleted before they were uploaded."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		sample(builder, "udc_recorder_evicted_bytes_total", null, metrics.getBytesEvicted()); //$NON-NLS-1$
+		header(builder, "udc_recorder_evicted_events_total", "counter", "Events in files deleted before they were uploaded, where known."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		sample(builder, "udc_recorder_evicted_events_total", null, metrics.getEventsEvicted()); //$NON-NLS-1$
+
+		// The catalog knows how long the files are; no need to ask the file system.
+		int files = 0;
+		long bytes = 0;
+		for (SegmentCatalog.Entry entry : settings.getSegmentCatalog().getEntries()) {
+			if (entry.isUploaded()) continue;
+			files++;
+			bytes += entry.getLength();
+		}
+		header(builder, "udc_upload_backlog_files", "gauge", "Files waiting to be uploaded."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		sample(builder, "udc_upload_backlog_files", null, files); //$NON-NLS-1$
+		header(builder, "udc_upload_backlog_bytes", "gauge", "Bytes waiting to be uploaded."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		sample(builder, "udc_upload_backlog_bytes", null, bytes); //$NON-NLS-1$
+
+		header(builder, "udc_uploads_total", "counter", "Uploads attempted, by result."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		sample(builder, "udc_uploads_total", label("result", "success"), metrics.getUploadsSucceeded()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		sample(builder, "udc_uploads_total", label("result", "failure"), metrics.getUploadsFailed()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		histogram(builder, "udc_upload_duration_seconds", "Time taken by an upload.", metrics.getUploadLatency(), NANOSECONDS); //$NON-NLS-1$ //$NON-NLS-2$
+
+		header(builder, "udc_cpu_seconds_total", "counter", "CPU time used by the threads that dispatch, record and upload events."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		sample(builder, "udc_cpu_seconds_total", null, metrics.getCpuTime() / NANOSECONDS); //$NON-NLS-1$
+		header(builder, "udc_allocated_bytes_total", "counter", "Memory allocated by the threads that dispatch, record and upload events."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		sample(builder, "udc_allocated_bytes_total", null, metrics.getAllocatedBytes()); //$NON-NLS-1$
+
+		return builder.toString();
+	}
+
+	private void header(StringBuilder builder, String name, String type, String help) {
+		builder.append("# HELP ").append(name).append(' ').append(help).append('\n'); //$NON-NLS-1$
+		builder.append("# TYPE ").append(name).append(' ').append(type).append('\n'); //$NON-NLS-1$
+	}
+
+	private void sample(StringBuilder builder, String name, String labels, Object value) {
+		builder.append(name);
+		if (labels != null) builder.append('{').append(labels).append('}');
+		builder.append(' ').append(value).append('\n');
+	}
+
+	/**
+	 * @param scale
+	 *            the number of units of the histogram in a second.
+	 */
+	private void histogram(StringBuilder builder, String name, String help, UsageDataMetrics.Histogram histogram, double scale) {
+		header(builder, name, "histogram", help); //$NON-NLS-1$
+		/*
+		 * Read the count first; values recorded while we read the buckets
+		 * may then make a bucket larger than the count, which would look
+		 * like a counter reset, so the buckets are capped.
+		 */
+		long count = histogram.getCount();
+		long[] upperBounds = histogram.getUpperBounds();
+		long[] counts = histogram.getCumulativeCounts();
+		for (int index = 0; index < upperBounds.length; index++) {
+			sample(builder, name + "_bucket", label("le", String.valueOf(upperBounds[index] / scale)), Math.min(counts[index], count)); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		sample(builder, name + "_bucket", label("le", "+Inf"), count); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		sample(builder, name + "_sum", null, histogram.getSum() / scale); //$NON-NLS-1$
+		sample(builder, name + "_count", null, count); //$NON-NLS-1$
+	}
+
+	static String label(String name, String value) {
+		StringBuilder builder = new StringBuilder();
+		builder.append(name).append("=\""); //$NON-NLS-1$
+		for (int index = 0; index < value.length(); index++) {
+			char next = value.charAt(index);
+			switch (next) {
+			case '\\':
+				builder.append("\\\\"); //$NON-NLS-1$
+				break;
+			case '"':
+				builder.append("\\\""); //$NON-NLS-1$
+				break;
+			case '\n':
+				builder.append("\\n"); //$NON-NLS-1$
+				break;
+			default:
+				builder.append(next);
+			}
+		}
+		return builder.append('"').toString();
+	}
+}
@@ -10,27 +10,142 @@
  *******************************************************************************/
 package org.eclipse.epp.usagedata.internal.recording;
 
+import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.Writer;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEvent;
 import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEventListener;
-import org.eclipse.epp.usagedata.internal.recording.settings.UsageDataRecordingSettings;
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataIdleListener;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataLog;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataMetrics;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataProbe;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataService;
+import org.eclipse.epp.usagedata.internal.recording.rollover.RolloverPolicy;
+import org.eclipse.epp.usagedata.internal.recording.settings.RecordingSettings;
+import org.eclipse.epp.usagedata.internal.recording.storage.BinaryEventReader;
+import org.eclipse.epp.usagedata.internal.recording.storage.BinaryEventWriter;
+import org.eclipse.epp.usagedata.internal.recording.storage.SegmentedEventLog;
 import org.eclipse.epp.usagedata.internal.recording.uploading.BasicUploader;
 import org.eclipse.epp.usagedata.internal.recording.uploading.UploadManager;
 
-public class UsageDataRecorder implements UsageDataEventListener {
+/**
+ * The {@link UsageDataRecorder} listens for usage data events and writes
+ * them to the event file. When the {@link RolloverPolicy} configured by
+ * {@link RecordingSettings#getRollover()} says so, the file is moved aside
+ * so that it can be uploaded. The recorder keeps track of the length of the
+ * file, the number of events in it and how long it has been written to, so
+ * asking the policy costs no file system calls.
+ * <p>
+ * Events are formatted into a buffer as they arrive and committed to the
+ * event file in groups: when the service reports that it is idle (see
+ * {@link #idle()}), when the recorder stops, or when the buffer passes a
+ * count, size or age threshold. Each commit is a single write to an output
+ * stream that is kept open on the event file between commits; the stream is
+ * only closed to roll the file over (which happens after a commit) and when
+ * the recorder stops. Uploads are started when the service is idle. This
+ * keeps file I/O from competing with the user's interactive work.
+ * </p>
+ * <p>
+ * The buffer is doubled, so that the thread that dispatches events
+ * never waits for the disk. {@link #accept(UsageDataEvent)} and
+ * {@link #idle()} only touch the active buffer, under a lock of their own;
+ * to commit, the active buffer is handed to a writer {@link Job} and an
+ * empty one takes its place. The writer does all of the file I/O (writing,
+ * forcing, rolling over and starting uploads), holding the receiver's lock.
+ * If the writer still has the previous buffer when it's time to commit
+ * again, the active buffer keeps growing until the writer is done with it,
+ * up to {@link #MAXIMUM_HELD_EVENTS} events (or
+ * {@link #MAXIMUM_HELD_SIZE} characters); events beyond that are dropped,
+ * and counted by the {@link UsageDataMetrics}. Only {@link #stop()} writes
+ * on the calling thread.
+ * </p>
+ * <p>
+ * How hard the recorder works to get committed events onto the disk is
+ * governed by {@link RecordingSettings#getDurability()}. When it starts, the
+ * recorder truncates a partially written last line (left by a crash in the
+ * middle of a commit) from the event file, so that the file only ever holds
+ * complete records.
+ * </p>
+ * <p>
+ * Alternatively, when {@link RecordingSettings#getStorage()} says so, the
+ * events are appended to a {@link SegmentedEventLog} instead of the event
+ * file; each commit is then a copy into a memory-mapped segment, and
+ * segments are sealed (rather than renamed) for upload.
+ * </p>
+ * <p>
+ * The event file holds CSV unless {@link RecordingSettings#getEncoding()}
+ * asks for the compact binary form written by a {@link BinaryEventWriter};
+ * binary events are encoded when they are committed, rather than as they
+ * arrive, since the encoding depends on what the file already holds. The
+ * event file of the encoding that is not in use (i.e. one left over from
+ * before the setting changed) is handed to the uploader when the recorder
+ * starts.
+ * </p>
+ * <p>
+ * When {@link RecordingSettings#getCompression()} asks for it, the event
+ * files that are moved aside for upload are compressed in the background by
+ * an {@link UploadFileCompressor}, as are any that an earlier session left
+ * uncompressed.
+ * </p>
+ * <p>
+ * Each time a file is moved aside (or a segment sealed), and when the
+ * recorder starts, the files waiting to be uploaded are held to
+ * {@link RecordingSettings#getQuota()} by a {@link DiskQuota}, if the
+ * {@link RecordingSettings#getEviction()} allows anything to be evicted.
+ * </p>
+ * <p>
+ * An instance can be configured explicitly with
+ * {@link #UsageDataRecorder(RecordingSettings, UploadManager, UsageDataLog)};
+ * this is how the recorder is used outside of the workbench. An instance
+ * created with the default constructor (e.g. via the extension point) obtains
+ * its settings, upload manager, and log from the bundle activator.
+ * </p>
+ */
+public class UsageDataRecorder implements UsageDataEventListener, UsageDataIdleListener {
 	
 	/**
 	 * How many events do we queue up before we attempt to write them out to
-	 * disk?
+	 * disk? Events are normally written out when the service is idle, well
+	 * before this many accumulate; this and the other commit thresholds are
+	 * a safety net.
 	 */
-	private static final int EVENT_COUNT_THRESHOLD = 1;
+	private static final int EVENT_COUNT_THRESHOLD = 1000;
+
+	/**
+	 * How many characters of formatted events do we hold before we write
+	 * them out to disk?
+	 */
+	private static final int BUFFER_SIZE_THRESHOLD = 64 * 1024;
+
+	/**
+	 * How many events can the active buffer hold while the writer is still
+	 * busy with the last one? A writer that is stuck (e.g. on a disk that
+	 * has stopped responding) must not take the heap down with it.
+	 */
+	private static final int MAXIMUM_HELD_EVENTS = 10 * EVENT_COUNT_THRESHOLD;
+
+	/**
+	 * How many characters of formatted events can the active buffer hold
+	 * while the writer is still busy with the last one?
+	 */
+	private static final int MAXIMUM_HELD_SIZE = 16 * BUFFER_SIZE_THRESHOLD;
+
+	/**
+	 * How long, in nanoseconds, do we hold an event before we write it out
+	 * to disk? This is only checked when another event arrives.
+	 */
+	private static final long COMMIT_INTERVAL = 30L * 1000 * 1000 * 1000;
 
 	/**
 	 * The maximum number of exceptions that the receiver can produce before it
@@ -40,19 +155,219 @@ public class UsageDataRecorder implements UsageDataEventListener {
 	private static final int EXCEPTION_THRESHOLD = 5;
 
 	/**
-	 * When the file holding upload data exceeds this number
-	 * of bytes, it is moved so that it can be uploaded.
+	 * The number of bytes of events that a segment can hold, when the
+	 * {@link RolloverPolicy} cannot tell how large segments will get.
+	 */
+	private static final int SEGMENT_CAPACITY = 128 * 1024;
+
+	/**
+	 * The largest number of bytes of events that a segment is made to hold,
+	 * whatever the {@link RolloverPolicy} expects; each segment is
+	 * preallocated and mapped, so this is what every segment costs. A larger
+	 * rollover threshold is met by sealing segments as they fill up.
 	 */
-	private static final long FILE_SIZE_THRESHOLD = 25000; 
+	private static final int MAXIMUM_SEGMENT_CAPACITY = 4 * 1024 * 1024;
 
 	/**
-	 * This list holds events as they are received. Once the number of events in
-	 * this list exceeds a threshold ({@link #EVENT_COUNT_THRESHOLD}), the
-	 * entire contents of the list is dumped to a file. This is intended to
-	 * reduce the impact of the receiver on the performance of the system by
+	 * An {@link EventBuffer} holds events as they are received. Once the
+	 * number of events in it passes a threshold
+	 * ({@link #EVENT_COUNT_THRESHOLD}), or the other thresholds, the entire
+	 * contents of the buffer is dumped to a file. This is intended to reduce
+	 * the impact of the receiver on the performance of the system by
 	 * minimising access to the file system.
 	 */
-	private List<UsageDataEvent> events;
+	private static class EventBuffer {
+		final List<UsageDataEvent> events = new ArrayList<UsageDataEvent>(EVENT_COUNT_THRESHOLD);
+
+		/**
+		 * The {@link #events} in the form that they are written to the file;
+		 * empty when they are encoded by a {@link BinaryEventWriter}.
+		 */
+		final StringWriter text = new StringWriter(BUFFER_SIZE_THRESHOLD);
+
+		/**
+		 * The value of <code>System.nanoTime()</code> when the oldest of the
+		 * {@link #events} arrived.
+		 */
+		long oldestEventTime;
+
+		void add(UsageDataEvent event, boolean format) {
+			if (events.isEmpty()) oldestEventTime = System.nanoTime();
+			events.add(event);
+			if (!format) return;
+			try {
+				UsageDataRecorderUtils.writeEvent(text, event);
+			} catch (IOException e) {
+				// A StringWriter does not throw IOExceptions.
+			}
+		}
+
+		boolean isEmpty() {
+			return events.isEmpty();
+		}
+
+		/**
+		 * @return <code>true</code> if the buffer can take no more events
+		 *         while another one is waiting to be written out.
+		 */
+		boolean isOverflowing() {
+			return events.size() >= MAXIMUM_HELD_EVENTS || text.getBuffer().length() >= MAXIMUM_HELD_SIZE;
+		}
+
+		boolean isTimeToCommit() {
+			if (events.isEmpty()) return false;
+			if (events.size() >= EVENT_COUNT_THRESHOLD) return true;
+			// The text stays empty with the binary encoding; a full count of
+			// binary events is well within the size threshold anyway.
+			if (text.getBuffer().length() >= BUFFER_SIZE_THRESHOLD) return true;
+			return System.nanoTime() - oldestEventTime >= COMMIT_INTERVAL;
+		}
+
+		void clear() {
+			events.clear();
+			text.getBuffer().setLength(0);
+		}
+	}
+
+	/**
+	 * Guards the buffers and the state that {@link #accept(UsageDataEvent)}
+	 * and {@link #idle()} share with the writer. It is never held while
+	 * waiting for the disk; the writer takes it, briefly, while holding the
+	 * receiver's own lock, never the other way around.
+	 */
+	private final Object bufferLock = new Object();
+
+	/**
+	 * The buffer that arriving events are added to.
+	 */
+	private EventBuffer active;
+
+	/**
+	 * The buffer that has been handed to the {@link #writer}, or
+	 * <code>null</code> if it has none.
+	 */
+	private EventBuffer full;
+
+	/**
+	 * A buffer that the writer is done with, ready to take the place of the
+	 * {@link #active} buffer when it is handed over.
+	 */
+	private EventBuffer spare;
+
+	/**
+	 * Has the service been idle since the writer last synced the event file
+	 * and checked whether it's time to upload?
+	 */
+	private boolean idlePending = false;
+
+	/**
+	 * Is the writer busy?
+	 */
+	private boolean writing = false;
+
+	/**
+	 * Has the receiver stopped recording, because it has caused too many
+	 * exceptions? Events are then dropped until it is stopped.
+	 */
+	private boolean failed = false;
+
+	/**
+	 * Writes out the {@link #full} buffer, and does what is to be done when
+	 * the service is idle.
+	 */
+	private Job writer;
+
+	/**
+	 * The encoder of the events when the encoding is
+	 * {@link RecordingSettings#ENCODING_BINARY}; <code>null</code> when they
+	 * are formatted as they arrive.
+	 */
+	private BinaryEventWriter binary;
+
+	/**
+	 * The stream open on the event file, or <code>null</code> if it is not
+	 * currently open.
+	 */
+	private FileOutputStream output;
+
+	/**
+	 * The log that events are appended to when the storage is
+	 * {@link RecordingSettings#STORAGE_SEGMENTS}; <code>null</code> when the
+	 * event file is used.
+	 */
+	private SegmentedEventLog segments;
+
+	/**
+	 * Compresses the event files that are moved aside for upload;
+	 * <code>null</code> when they are left uncompressed.
+	 */
+	private UploadFileCompressor compressor;
+
+	/**
+	 * Keeps the files that are waiting to be uploaded within the quota;
+	 * <code>null</code> when there are no settings.
+	 */
+	private DiskQuota quota;
+
+	/**
+	 * The durability setting and the sync interval (in nanoseconds), as of
+	 * when the receiver was started. They are consulted on every commit, so
+	 * they are not looked up each time.
+	 */
+	private String durability = RecordingSettings.DURABILITY_NONE;
+
+	private long syncInterval;
+
+	/**
+	 * Has anything been written to {@link #output} since it was last forced
+	 * to the disk?
+	 */
+	private boolean unsynced = false;
+
+	/**
+	 * The value of <code>System.nanoTime()</code> when {@link #output} was
+	 * last forced to the disk.
+	 */
+	private long lastSyncTime;
+
+	/**
+	 * The length of the event file, as of the last time that we wrote to it.
+	 * Tracking it here saves asking the file system after every commit.
+	 */
+	private long fileLength;
+
+	/**
+	 * The number of events written to the event file (or the active
+	 * segment) since we started it or, if it was left by an earlier session,
+	 * since we started appending to it.
+	 */
+	private int fileEventCount;
+
+	/**
+	 * The value of <code>System.currentTimeMillis()</code> when we started
+	 * the event file (or the active segment), or started appending to it.
+	 */
+	private long fileStartTime;
+
+	/**
+	 * The times of the first and last events that we have written to the
+	 * event file, or <code>-1</code> if we haven't written any.
+	 */
+	private long fileFirstEventTime;
+
+	private long fileLastEventTime;
+
+	/**
+	 * Did an earlier session leave events in the event file? If so, we don't
+	 * know how many events the file holds, nor when the first of them was.
+	 */
+	private boolean fileResumed;
+
+	/**
+	 * Decides when the event file is rolled over (or the active segment
+	 * sealed) for upload.
+	 */
+	private RolloverPolicy rolloverPolicy;
 
 	/**
 	 * Is the receiver in a "running" state?
@@ -61,33 +376,211 @@ public class UsageDataRecorder implements UsageDataEventListener {
 
 	/**
 	 * How many exceptions has the receiver generated? Once this value passes
-	 * {@link #EXCEPTION_THRESHOLD}, the receiver stops itself.
+	 * {@link #EXCEPTION_THRESHOLD}, the receiver stops recording.
 	 */
 	private int exceptionCount = 0;
 
-	public void start() {
+	private final RecordingSettings settings;
+
+	private final UploadManager uploadManager;
+
+	private final UsageDataLog log;
+
+	/**
+	 * The probe that is told about each flush and rollover.
+	 */
+	private final UsageDataProbe probe = UsageDataProbe.getDefault();
+
+	public UsageDataRecorder() {
+		this(null, null, null);
+	}
+
+	/**
+	 * @param settings
+	 *            the settings that tell the receiver where to write events.
+	 *            If <code>null</code>, the settings are obtained from the
+	 *            bundle activator.
+	 * @param uploadManager
+	 *            the {@link UploadManager} used to start uploads, or
+	 *            <code>null</code> to obtain it from the bundle activator.
+	 * @param log
+	 *            the {@link UsageDataLog} that errors are reported to, or
+	 *            <code>null</code> to use the bundle activator.
+	 */
+	public UsageDataRecorder(RecordingSettings settings, UploadManager uploadManager, UsageDataLog log) {
+		this.settings = settings;
+		this.uploadManager = uploadManager;
+		this.log = log;
+	}
+
+	public synchronized void start() {
 		if (running) return;
-		events = new ArrayList<UsageDataEvent>(EVENT_COUNT_THRESHOLD);
-		running = true;
+		if (getSettings() != null) {
+			durability = getSettings().getDurability();
+			syncInterval = getSettings().getSyncInterval() * 1000 * 1000;
+			rolloverPolicy = getSettings().getRolloverPolicy();
+			if (RecordingSettings.STORAGE_SEGMENTS.equals(getSettings().getStorage())) {
+				segments = new SegmentedEventLog(getSettings().getSegmentFile(), getSettings(), getSegmentCapacity());
+			} else if (RecordingSettings.ENCODING_BINARY.equals(getSettings().getEncoding())) {
+				binary = new BinaryEventWriter();
+			}
+			rollOverUnusedEventFiles();
+			quota = new DiskQuota(getSettings().getSegmentCatalog(), getSettings().getQuota(), getSettings().getEviction(), getLog());
+			enforceQuota();
+			startCompressor();
+		}
+		recover();
+		startFile();
+		writer = new Job("Recording usage data...") { //$NON-NLS-1$
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				writePending();
+				return Status.OK_STATUS;
+			}
+
+			@Override
+			public boolean belongsTo(Object family) {
+				return family == UsageDataService.JOB_FAMILY;
+			}
+		};
+		writer.setSystem(true);
+		writer.setPriority(Job.SHORT);
+		synchronized (bufferLock) {
+			active = new EventBuffer();
+			spare = new EventBuffer();
+			failed = false;
+			exceptionCount = 0;
+			running = true;
+		}
 	}
 
+	/**
+	 * This method stops the receiver, writing out everything that it holds
+	 * (on the calling thread) first.
+	 */
 	public synchronized void stop() {
-		if (!running) return;
-		running = false;
-		dumpEvents();
-		events = null;
+		EventBuffer pending;
+		EventBuffer rest;
+		synchronized (bufferLock) {
+			if (!running) return;
+			running = false;
+			pending = full;
+			rest = active;
+			full = null;
+			active = null;
+			spare = null;
+			idlePending = false;
+			bufferLock.notifyAll();
+		}
+		if (pending != null) dumpEvents(pending);
+		dumpEvents(rest);
+		closeOutput();
+		segments = null;
+		binary = null;
+		compressor = null;
+		quota = null;
 	}
 	
-	public synchronized void accept(UsageDataEvent event) {
+	/**
+	 * This method adds the event to the active buffer, handing the buffer
+	 * to the writer if it's time to commit. It does not wait for the disk.
+	 */
+	public void accept(UsageDataEvent event) {
 		if (event == null) return;
-		if (!canAcceptEvents()) return;
-		
-		if (!running) return;
-		events.add(event);
-			
-		if (events.size() >= EVENT_COUNT_THRESHOLD) dumpEvents();
-		
-		uploadDataIfNecessary();
+		synchronized (bufferLock) {
+			if (!running) return;
+			if (failed || (full != null && active.isOverflowing())) {
+				UsageDataMetrics.getDefault().eventsDropped(1);
+				return;
+			}
+			active.add(event, binary == null);
+			if (active.isTimeToCommit()) handOver();
+		}
+	}
+
+	/**
+	 * The service is idle: hand the events that we're holding to the
+	 * writer, which writes them out, rolls the file over if it is time to,
+	 * and starts an upload if it's time.
+	 */
+	public void idle() {
+		synchronized (bufferLock) {
+			if (!running || failed) return;
+			handOver();
+			idlePending = true;
+			writer.schedule();
+		}
+	}
+
+	/**
+	 * This method hands the active buffer to the writer, unless it is empty
+	 * or the writer is still busy with the last one. Called holding the
+	 * {@link #bufferLock}.
+	 */
+	private void handOver() {
+		if (full != null || active.isEmpty()) return;
+		full = active;
+		active = spare != null ? spare : new EventBuffer();
+		spare = null;
+		writer.schedule();
+	}
+
+	/**
+	 * This method, which is run by the {@link #writer}, writes out the full
+	 * buffer, forces the event file to the disk if the durability calls for
+	 * it and, if the service has been idle, starts an upload if it's time.
+	 * A buffer that cannot be written out stays with the writer, which tries
+	 * again when the service is next idle. With
+	 * {@link RecordingSettings#DURABILITY_INTERVAL_FSYNC}, events that are
+	 * left unforced have the writer run again once the interval is up.
+	 */
+	private synchronized void writePending() {
+		EventBuffer batch;
+		boolean idle;
+		synchronized (bufferLock) {
+			if (!running || failed) return;
+			batch = full;
+			idle = idlePending;
+			idlePending = false;
+			writing = true;
+		}
+		boolean written = false;
+		try {
+			written = batch == null || dumpEvents(batch);
+			if (unsynced) syncIfNecessary();
+			if (idle && running) uploadDataIfNecessary();
+			scheduleSync();
+		} finally {
+			synchronized (bufferLock) {
+				writing = false;
+				if (running && !failed && batch != null && written) {
+					batch.clear();
+					spare = batch;
+					full = null;
+					if (active.isTimeToCommit()) handOver();
+				}
+				bufferLock.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * This method waits until the writer has written out the buffers handed
+	 * to it so far (and done what was asked of it when the service was last
+	 * idle), or until <code>timeout</code> milliseconds have passed.
+	 * 
+	 * @return <code>true</code> if the writer has nothing left to do.
+	 */
+	boolean join(long timeout) throws InterruptedException {
+		long end = System.currentTimeMillis() + timeout;
+		synchronized (bufferLock) {
+			while (full != null || idlePending || writing) {
+				long remaining = end - System.currentTimeMillis();
+				if (remaining <= 0) return false;
+				bufferLock.wait(remaining);
+			}
+		}
+		return true;
 	}
 	
 	protected void uploadDataIfNecessary() {
@@ -99,7 +592,8 @@ public class UsageDataRecorder implements UsageDataEventListener {
 		manager.startUpload();
 	}
 
-	protected UsageDataRecordingSettings getSettings() {
+	protected RecordingSettings getSettings() {
+		if (settings != null) return settings;
 		if (UsageDataRecordingActivator.getDefault() == null) return null; 
 		return UsageDataRecordingActivator.getDefault().getSettings();
 	}
@@ -110,82 +604,483 @@ public class UsageDataRecorder implements UsageDataEventListener {
 	 * that all the events that we've recorded up to this point are properly
 	 * recorded. Then, the file that we've been writing events to is renamed so
 	 * that it can be found by the {@link BasicUploader}. When the next
-	 * event comes in, a new file will be created.
+	 * events are committed, a new file will be created.
 	 */
 	private synchronized void prepareForUpload() {
 		if (getSettings() == null) return;
-		File file = getSettings().getEventFile();
-		
-		// If the file does not exist, then something bad has happened. Just return.
-		if (!file.exists()) return;
-		
-		if (file.length() < FILE_SIZE_THRESHOLD) return;
+		if (segments != null) {
+			sealSegmentIfNecessary();
+			return;
+		}
+		if (!isTimeToRollOver(fileLength)) return;
+		closeOutput();
+		File file = getEventFile();
+		long length = fileLength;
 		
-		File destination = getSettings().computeDestinationFile();
+		boolean probing = probe.isEnabled();
+		long start = probing ? System.nanoTime() : 0;
+		File destination = getSettings().computeDestinationFile(binary != null ? RecordingSettings.BINARY_EXTENSION : RecordingSettings.CSV_EXTENSION);
 		
 		// TODO What if the rename fails?
-		file.renameTo(destination);
+		boolean renamed = file.renameTo(destination);
+		if (renamed) {
+			getSettings().getSegmentCatalog().add(destination, length, fileResumed ? -1 : fileEventCount, fileResumed ? -1 : fileFirstEventTime, fileLastEventTime);
+			startFile();
+		}
+		if (probing) probe.rolledOver(length, renamed, System.nanoTime() - start);
+		if (!renamed) return;
+		enforceQuota();
+		if (compressor != null) compressor.compress(destination);
+	}
+
+	/**
+	 * This method asks the {@link #rolloverPolicy} whether the event file (or
+	 * the active segment), which is <code>length</code> bytes long, should be
+	 * rolled over now.
+	 */
+	private boolean isTimeToRollOver(long length) {
+		return rolloverPolicy.isTimeToRollOver(length, fileEventCount, System.currentTimeMillis() - fileStartTime);
+	}
+
+	/**
+	 * This method resets what we know about the event file (or the active
+	 * segment) when we start a new one, or start appending to one.
+	 */
+	private void startFile() {
+		fileEventCount = 0;
+		fileStartTime = System.currentTimeMillis();
+		fileFirstEventTime = -1;
+		fileLastEventTime = -1;
+		fileResumed = false;
+	}
+
+	/**
+	 * @return the payload capacity of a segment: the length that the
+	 *         {@link #rolloverPolicy} expects segments to reach, with room
+	 *         for a full commit on top, so that segments are sealed by the
+	 *         policy rather than because they are full; but no more than
+	 *         {@link #MAXIMUM_SEGMENT_CAPACITY}.
+	 */
+	private int getSegmentCapacity() {
+		long expected = rolloverPolicy.getExpectedLength();
+		if (expected <= 0) return SEGMENT_CAPACITY;
+		return (int) Math.min(expected + BUFFER_SIZE_THRESHOLD, MAXIMUM_SEGMENT_CAPACITY);
+	}
+
+	/**
+	 * This method evicts files that are waiting to be uploaded, if they take
+	 * more than the quota; it is called whenever one is added.
+	 */
+	private void enforceQuota() {
+		if (quota != null) quota.enforce();
+	}
+
+	/**
+	 * This method creates the {@link #compressor}, if the settings ask for
+	 * one, and hands it the event files that are waiting to be uploaded but
+	 * have not been compressed (e.g. because the setting has just changed).
+	 */
+	private void startCompressor() {
+		String compression = getSettings().getCompression();
+		if (RecordingSettings.COMPRESSION_NONE.equals(compression)) return;
+		compressor = new UploadFileCompressor(compression, getSettings().getSegmentCatalog(), getLog());
+		for (File file : getSettings().getUsageDataUploadFiles()) {
+			if (UploadFileCompressor.isCompressible(file.getName())) compressor.compress(file);
+		}
+	}
+
+	/**
+	 * @return the {@link UploadFileCompressor}, or <code>null</code> if
+	 *         files are not being compressed.
+	 */
+	UploadFileCompressor getCompressor() {
+		return compressor;
+	}
+
+	/**
+	 * This method hands the event files that the receiver will not write to,
+	 * given the storage and encoding, to the uploader.
+	 */
+	private void rollOverUnusedEventFiles() {
+		if (segments != null || binary != null) rollOver(getSettings().getEventFile(), RecordingSettings.CSV_EXTENSION);
+		if (binary == null) rollOver(getSettings().getBinaryEventFile(), RecordingSettings.BINARY_EXTENSION);
 	}
 
-	private UploadManager getUploadManager() {
+	private void rollOver(File file, String extension) {
+		if (!file.exists()) return;
+		if (file.length() == 0) {
+			file.delete();
+			return;
+		}
+		long length = file.length();
+		File destination = getSettings().computeDestinationFile(extension);
+		if (!file.renameTo(destination)) {
+			getLog().log(IStatus.WARNING, "Cannot move " + file + " aside for upload.", null); //$NON-NLS-1$ //$NON-NLS-2$
+			return;
+		}
+		getSettings().getSegmentCatalog().add(destination, length, -1, -1, -1);
+	}
+
+	/**
+	 * This method seals the active segment, so that it can be found by the
+	 * {@link BasicUploader}, once the {@link #rolloverPolicy} says so.
+	 */
+	private void sealSegmentIfNecessary() {
+		long length = segments.getLength();
+		if (!isTimeToRollOver(length)) return;
+		
+		boolean probing = probe.isEnabled();
+		long start = probing ? System.nanoTime() : 0;
+		boolean sealed = true;
+		try {
+			segments.seal();
+			unsynced = false;
+			startFile();
+			enforceQuota();
+		} catch (IOException e) {
+			sealed = false;
+			handleException(e, "Error sealing the event segment."); //$NON-NLS-1$
+		}
+		if (probing) probe.rolledOver(length, sealed, System.nanoTime() - start);
+	}
+
+	protected UploadManager getUploadManager() {
+		if (uploadManager != null) return uploadManager;
 		if (UsageDataRecordingActivator.getDefault() == null) return null;
 		return UsageDataRecordingActivator.getDefault().getUploadManager();
 	}
 
-	private boolean canAcceptEvents() {
-		if (events == null) return false;
+	/**
+	 * This method commits the events in the buffer to the event file with a
+	 * single write, and then rolls the file over if it is time to. The
+	 * buffer is left as it is.
+	 * 
+	 * @return <code>false</code> if the events could not be written.
+	 */
+	private synchronized boolean dumpEvents(EventBuffer batch) {
+		List<UsageDataEvent> events = batch.events;
+		if (events.isEmpty()) return true;
+		
+		long start = System.nanoTime();
+		int count = events.size();
+		long first = Long.MAX_VALUE;
+		long last = -1;
+		for (UsageDataEvent event : events) {
+			first = Math.min(first, event.when);
+			last = Math.max(last, event.when);
+		}
+		byte[] bytes;
+		try {
+			if (segments != null) {
+				bytes = batch.text.toString().getBytes();
+				long length = segments.getLength();
+				segments.append(bytes, count, first, last);
+				// The log seals a full segment itself, and starts another.
+				if (segments.getLength() < length + bytes.length) {
+					startFile();
+					enforceQuota();
+				}
+			} else {
+				FileOutputStream stream = getOutput();
+				if (stream == null) return true;
+				// Opening the file settles the state of the binary encoder.
+				bytes = binary != null ? binary.encode(events) : batch.text.toString().getBytes();
+				stream.write(bytes);
+				fileLength += bytes.length;
+			}
+			unsynced = true;
+			fileEventCount += count;
+			if (fileFirstEventTime < 0 || first < fileFirstEventTime) fileFirstEventTime = first;
+			fileLastEventTime = Math.max(fileLastEventTime, last);
+		} catch (IOException e) {
+			// The caller keeps the events; they are written again later.
+			closeOutput();
+			handleException(e, "Error writing events to file."); //$NON-NLS-1$
+			return false;
+		}
+		syncIfNecessary();
+		recordStages(System.nanoTime(), events);
+		
+		long duration = System.nanoTime() - start;
+		UsageDataMetrics.getDefault().eventsWritten(count, bytes.length, duration);
+		if (probe.isEnabled()) probe.flushed(count, bytes.length, duration);
+		
+		prepareForUpload();
 		return true;
 	}
 
-	protected synchronized void dumpEvents() {
-		prepareForUpload();
-		
-		Writer writer = null;
+	/**
+	 * This method forces the event file to the disk if the durability
+	 * setting calls for it: always with
+	 * {@link RecordingSettings#DURABILITY_BATCH_FSYNC}, and with
+	 * {@link RecordingSettings#DURABILITY_INTERVAL_FSYNC} if it has not been
+	 * forced for the sync interval. Anything not forced here is forced when
+	 * the file is closed.
+	 */
+	private void syncIfNecessary() {
+		if (output == null && segments == null) return;
+		if (RecordingSettings.DURABILITY_INTERVAL_FSYNC.equals(durability)) {
+			if (System.nanoTime() - lastSyncTime < syncInterval) return;
+		} else if (!RecordingSettings.DURABILITY_BATCH_FSYNC.equals(durability)) {
+			return;
+		}
+		try {
+			sync();
+		} catch (IOException e) {
+			handleException(e, "Error forcing the event file to the disk."); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * This method has the {@link #writer} run again when the sync interval
+	 * is up, if there is anything that is waiting for it to be forced to the
+	 * disk; nothing else might come along to do it.
+	 */
+	private void scheduleSync() {
+		if (!unsynced || !running || !RecordingSettings.DURABILITY_INTERVAL_FSYNC.equals(durability)) return;
+		long remaining = syncInterval - (System.nanoTime() - lastSyncTime);
+		writer.schedule(Math.max(1, remaining / (1000 * 1000) + 1));
+	}
+
+	/**
+	 * @return <code>true</code> if something has been written to the event
+	 *         file (or the active segment) that has not been forced to the
+	 *         disk yet.
+	 */
+	synchronized boolean isUnsynced() {
+		return unsynced;
+	}
+
+	private void sync() throws IOException {
+		if (segments != null) {
+			segments.force();
+		} else {
+			output.getChannel().force(false);
+		}
+		unsynced = false;
+		lastSyncTime = System.nanoTime();
+	}
+
+	/**
+	 * This method truncates the event file after its last complete line.
+	 * Events are written a line at a time, so anything after the last line
+	 * separator is what is left of a commit that was cut short by a crash.
+	 * A file without any complete lines (i.e. a torn header) is emptied, so
+	 * that the header is written again with the next commit.
+	 */
+	void recover() {
+		if (getSettings() == null) return;
+		if (binary != null) {
+			recoverBinary(getEventFile());
+			return;
+		}
+		File file = getSettings().getEventFile();
+		long length = file.length();
+		if (length == 0) return;
+		RandomAccessFile access = null;
 		try {
-			writer = getWriter();
-			if (writer == null) return;
-			for (UsageDataEvent event : events) {
-				UsageDataRecorderUtils.writeEvent(writer, event);
+			access = new RandomAccessFile(file, "rw"); //$NON-NLS-1$
+			long end = findEndOfLastLine(access, length);
+			if (end == length) return;
+			access.setLength(end);
+			getLog().log(IStatus.WARNING, "Removed " + (length - end) + " bytes of an incomplete event from the end of the event file.", null); //$NON-NLS-1$ //$NON-NLS-2$
+		} catch (IOException e) {
+			getLog().log(IStatus.WARNING, "Cannot check the event file for incomplete events.", e); //$NON-NLS-1$
+		} finally {
+			close(access);
+		}
+	}
+
+	/**
+	 * This method truncates the binary event file after its last complete
+	 * record (or, if it holds something other than binary events, empties
+	 * it), and sets the binary encoder up to append to what is left.
+	 */
+	private void recoverBinary(File file) {
+		long length = file.length();
+		if (length == 0) {
+			binary.reset();
+			return;
+		}
+		long end = 0;
+		BinaryEventReader reader = null;
+		try {
+			reader = new BinaryEventReader(new BufferedInputStream(new FileInputStream(file)));
+			while (reader.read() != null) {
+				// Read to the end to pick up the dictionary.
 			}
-			events.clear();
+			end = reader.getPosition();
 		} catch (IOException e) {
-			handleException(e, "Error writing events to file."); //$NON-NLS-1$
+			if (reader != null) end = reader.getPosition();
+			getLog().log(IStatus.WARNING, "The binary event file is damaged.", e); //$NON-NLS-1$
+		} finally {
+			close(reader);
+		}
+		if (reader == null) {
+			binary.reset();
+		} else {
+			binary.resume(reader);
+		}
+		if (end == length) return;
+		RandomAccessFile access = null;
+		try {
+			access = new RandomAccessFile(file, "rw"); //$NON-NLS-1$
+			access.setLength(end);
+			getLog().log(IStatus.WARNING, "Removed " + (length - end) + " bytes of an incomplete event from the end of the event file.", null); //$NON-NLS-1$ //$NON-NLS-2$
+		} catch (IOException e) {
+			getLog().log(IStatus.WARNING, "Cannot remove incomplete events from the binary event file.", e); //$NON-NLS-1$
 		} finally {
-			close(writer);
+			close(access);
+		}
+	}
+
+	/**
+	 * @return the position just after the last line separator in the file,
+	 *         or <code>0</code> if there is none.
+	 */
+	private long findEndOfLastLine(RandomAccessFile access, long length) throws IOException {
+		byte[] chunk = new byte[4096];
+		long position = length;
+		while (position > 0) {
+			int size = (int) Math.min(chunk.length, position);
+			position -= size;
+			access.seek(position);
+			access.readFully(chunk, 0, size);
+			for (int index = size - 1; index >= 0; index--) {
+				if (chunk[index] == '\n') return position + index + 1;
+			}
+		}
+		return 0;
+	}
+
+	private void close(BinaryEventReader reader) {
+		if (reader == null) return;
+		try {
+			reader.close();
+		} catch (IOException e) {
+			// Nothing to do.
+		}
+	}
+
+	private void close(RandomAccessFile access) {
+		if (access == null) return;
+		try {
+			access.close();
+		} catch (IOException e) {
+			// TODO Handle exception
+		}
+	}
+
+	/**
+	 * This method records how long the events took to reach the event file,
+	 * which they did at <code>now</code>.
+	 */
+	private void recordStages(long now, List<UsageDataEvent> events) {
+		UsageDataMetrics metrics = UsageDataMetrics.getDefault();
+		for (UsageDataEvent event : events) {
+			if (event.dispatched != 0) metrics.stageCompleted(UsageDataMetrics.WRITE_STAGE, now - event.dispatched);
+			if (event.enqueued != 0) metrics.stageCompleted(UsageDataMetrics.TOTAL_STAGE, now - event.enqueued);
 		}
 	}
 
 	private void handleException(IOException e, String message) {
 		if (exceptionCount++ > EXCEPTION_THRESHOLD) {
-			UsageDataRecordingActivator.getDefault().log(IStatus.INFO, e, "The UsageDataRecorder has been stopped because it has caused too many exceptions"); //$NON-NLS-1$
-			stop();
+			getLog().log(IStatus.INFO, "The UsageDataRecorder has stopped recording because it has caused too many exceptions", e); //$NON-NLS-1$
+			fail();
 		}
-		UsageDataRecordingActivator.getDefault().log(IStatus.ERROR, e, message);
+		getLog().log(IStatus.ERROR, message, e);
 	}
-	
 
-	private Writer getWriter() throws IOException {
-		if (getSettings() == null) return null;
-		return createEventWriter(getSettings().getEventFile());
+	/**
+	 * This method stops the receiver from recording, dropping the events
+	 * that it holds. Unlike {@link #stop()}, it can be called by the
+	 * {@link #writer}, which must not wait for itself; the receiver is
+	 * stopped (and its files closed) by whoever started it.
+	 */
+	private void fail() {
+		synchronized (bufferLock) {
+			if (failed) return;
+			failed = true;
+			int dropped = 0;
+			if (full != null) dropped += full.events.size();
+			if (active != null) {
+				dropped += active.events.size();
+				active.clear();
+			}
+			full = null;
+			idlePending = false;
+			if (dropped > 0) UsageDataMetrics.getDefault().eventsDropped(dropped);
+			bufferLock.notifyAll();
+		}
 	}
 
-	private Writer createEventWriter(File file) throws IOException {
-		if (file.exists())
-			return new FileWriter(file, true);
+	protected UsageDataLog getLog() {
+		if (log != null) return log;
+		if (UsageDataRecordingActivator.getDefault() == null) return UsageDataLog.SYSTEM_ERR;
+		return UsageDataRecordingActivator.getDefault();
+	}
+	
 
-		file.createNewFile();
-		FileWriter writer = new FileWriter(file);
-		UsageDataRecorderUtils.writeHeader(writer);
-		
-		return writer;
+	/**
+	 * This method answers the event file for the encoding in use.
+	 */
+	private File getEventFile() {
+		if (binary != null) return getSettings().getBinaryEventFile();
+		return getSettings().getEventFile();
+	}
+
+	/**
+	 * This method answers the stream open on the event file, opening it
+	 * (and writing the header if the file is new) if necessary. Whatever is
+	 * left of a commit that failed partway is removed first (see
+	 * {@link #recover()}), so that the next one does not follow a torn line;
+	 * with the binary encoding, this also sets the encoder up to append to
+	 * the file.
+	 * 
+	 * @return a {@link FileOutputStream}, or <code>null</code> if there are
+	 *         no settings to say where the file is.
+	 */
+	private FileOutputStream getOutput() throws IOException {
+		if (output != null) return output;
+		if (getSettings() == null) return null;
+		File file = getEventFile();
+		recover();
+		fileLength = file.length();
+		if (fileLength > 0 && fileEventCount == 0) fileResumed = true;
+		output = new FileOutputStream(file, true);
+		if (fileLength == 0) {
+			byte[] bytes;
+			if (binary != null) {
+				bytes = BinaryEventWriter.getHeader();
+			} else {
+				StringWriter header = new StringWriter();
+				UsageDataRecorderUtils.writeHeader(header);
+				bytes = header.toString().getBytes();
+			}
+			output.write(bytes);
+			fileLength = bytes.length;
+		}
+		return output;
 	}
 	
-	private void close(Writer writer) {
-		if (writer == null) return;
+	/**
+	 * This method closes the event file (or lets go of the active segment),
+	 * first forcing anything written to it to the disk unless the durability
+	 * is {@link RecordingSettings#DURABILITY_NONE}.
+	 */
+	private void closeOutput() {
+		if (output == null && segments == null) return;
 		try {
-			writer.close();
+			if (unsynced && !RecordingSettings.DURABILITY_NONE.equals(durability)) {
+				sync();
+			}
+			if (output != null) output.close();
 		} catch (IOException e) {
 			// TODO Handle exception
+		} finally {
+			output = null;
+			if (segments != null) segments.close();
+			unsynced = false;
 		}
 	}
 }
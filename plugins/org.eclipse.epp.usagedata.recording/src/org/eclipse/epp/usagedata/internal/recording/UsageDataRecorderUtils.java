@@ -125,6 +125,49 @@ public class UsageDataRecorderUtils {
 		return builder.toString();
 	}
 
+	/**
+	 * This method reverses the escapes added by {@link #encode(String)} to a
+	 * description that has already been separated from its line (and its
+	 * surrounding double-quotes) by {@link #splitLine(String)}.
+	 * 
+	 * @param description
+	 *            a {@link String}. Must not be <code>null</code>.
+	 * 
+	 * @return a {@link String}.
+	 */
+	public static String decode(String description) {
+		if (description.indexOf('\\') == -1) return description;
+		StringBuilder builder = new StringBuilder(description.length());
+		for(int index=0;index<description.length();index++) {
+			char next = description.charAt(index);
+			if (next != '\\' || index + 1 == description.length()) {
+				builder.append(next);
+				continue;
+			}
+			char escaped = description.charAt(++index);
+			switch (escaped) {
+			case 'n' :
+				builder.append('\n');
+				break;
+			case 'r' :
+				builder.append('\r');
+				break;
+			case 'b' :
+				builder.append('\b');
+				break;
+			case 't' :
+				builder.append('\t');
+				break;
+			case 'f' :
+				builder.append('\f');
+				break;
+			default :
+				builder.append(escaped);
+			}
+		}
+		return builder.toString();
+	}
+
 	/**
 	 * Split the String parameter into substrings. The parameter is assumed to
 	 * be in CSV format. Comma separators are assumed. An entry that starts and
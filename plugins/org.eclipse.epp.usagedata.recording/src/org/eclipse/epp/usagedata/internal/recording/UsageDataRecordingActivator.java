@@ -10,7 +10,12 @@
  *******************************************************************************/
 package org.eclipse.epp.usagedata.internal.recording;
 
+import java.io.IOException;
+
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataLog;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataMetrics;
 import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataService;
 import org.eclipse.epp.usagedata.internal.recording.settings.UsageDataRecordingSettings;
 import org.eclipse.epp.usagedata.internal.recording.uploading.UploadManager;
@@ -20,9 +25,12 @@ import org.osgi.framework.BundleContext;
 import org.osgi.util.tracker.ServiceTracker;
 
 /**
- * The activator class controls the plug-in life cycle
+ * The activator class controls the plug-in life cycle. It is a thin adapter
+ * that creates the {@link UsageDataRecorder} and {@link UploadManager} with
+ * preference-backed settings and hooks the recorder into the
+ * {@link UsageDataService}.
  */
-public class UsageDataRecordingActivator extends AbstractUIPlugin implements IStartup {
+public class UsageDataRecordingActivator extends AbstractUIPlugin implements IStartup, UsageDataLog {
 
 	// The plug-in ID
 	public static final String PLUGIN_ID = "org.eclipse.epp.usagedata.recording"; //$NON-NLS-1$
@@ -37,6 +45,8 @@ public class UsageDataRecordingActivator extends AbstractUIPlugin implements ISt
 	private UsageDataRecorder usageDataRecorder;
 
 	private ServiceTracker usageDataServiceTracker;
+
+	private UsageDataMetricsServer metricsServer;
 	
 	/*
 	 * (non-Javadoc)
@@ -46,10 +56,10 @@ public class UsageDataRecordingActivator extends AbstractUIPlugin implements ISt
 		super.start(context);
 		plugin = this;
 		
-		uploadManager = new UploadManager();
 		settings = new UsageDataRecordingSettings();
+		uploadManager = new UploadManager(settings, this);
 		
-		usageDataRecorder = new UsageDataRecorder();
+		usageDataRecorder = new UsageDataRecorder(settings, uploadManager, this);
 		usageDataRecorder.start();
 		
 		/*
@@ -65,6 +75,27 @@ public class UsageDataRecordingActivator extends AbstractUIPlugin implements ISt
 		usageDataServiceTracker.open();
 		
 		getUsageDataService().addUsageDataEventListener(usageDataRecorder);
+		
+		startMetricsServer();
+	}
+
+	/**
+	 * This method starts the {@link UsageDataMetricsServer} if a port has
+	 * been provided with the {@link UsageDataMetricsServer#PORT_KEY} system
+	 * property.
+	 */
+	private void startMetricsServer() {
+		String port = System.getProperty(UsageDataMetricsServer.PORT_KEY);
+		if (port == null) return;
+		UsageDataMetricsServer server = new UsageDataMetricsServer(UsageDataMetrics.getDefault(), settings, this);
+		try {
+			server.start(Integer.parseInt(port.trim()));
+			metricsServer = server;
+		} catch (NumberFormatException e) {
+			log(IStatus.WARNING, e, "The usage data metrics port, %1$s, is not a number.", port); //$NON-NLS-1$
+		} catch (IOException e) {
+			log(IStatus.WARNING, e, "Cannot serve usage data metrics on port %1$s.", port); //$NON-NLS-1$
+		}
 	}
 
 	/*
@@ -72,6 +103,7 @@ public class UsageDataRecordingActivator extends AbstractUIPlugin implements ISt
 	 * @see org.eclipse.ui.plugin.AbstractUIPlugin#stop(org.osgi.framework.BundleContext)
 	 */
 	public void stop(BundleContext context) throws Exception {
+		if (metricsServer != null) metricsServer.stop();
 		usageDataRecorder.stop();
 		getUsageDataService().removeUsageDataEventListener(usageDataRecorder);
 		settings.dispose();
@@ -114,6 +146,14 @@ public class UsageDataRecordingActivator extends AbstractUIPlugin implements ISt
 		getLog().log(status);
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.epp.usagedata.internal.gathering.services.UsageDataLog#log(int, java.lang.String, java.lang.Throwable)
+	 */
+	public void log(int severity, String message, Throwable exception) {
+		getLog().log(new Status(severity, PLUGIN_ID, message, exception));
+	}
+
 	public void earlyStartup() {
 		// Don't actually need to do anything, but still need the method.		
 	}
@@ -11,6 +11,7 @@
 package org.eclipse.epp.usagedata.internal.recording.filtering;
 
 import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEvent;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataProbe;
 import org.eclipse.epp.usagedata.internal.recording.UsageDataRecordingActivator;
 import org.eclipse.epp.usagedata.internal.recording.settings.UsageDataRecordingSettings;
 import org.eclipse.jface.preference.IPreferenceStore;
@@ -33,6 +34,11 @@ import org.eclipse.jface.util.PropertyChangeEvent;
  */
 public class PreferencesBasedFilter extends AbstractUsageDataEventFilter {
 
+	/**
+	 * The probe that is told about each evaluation of the filter.
+	 */
+	private final UsageDataProbe probe = UsageDataProbe.getDefault();
+
 	public PreferencesBasedFilter() {
 		hookListeners();
 	}
@@ -66,6 +72,14 @@ public class PreferencesBasedFilter extends AbstractUsageDataEventFilter {
 	}
 
 	public boolean includes(UsageDataEvent event) {
+		if (!probe.isEnabled()) return evaluate(event);
+		long start = System.nanoTime();
+		boolean included = evaluate(event);
+		probe.filtered(event.bundleId, getFilterPatterns().length, included, System.nanoTime() - start);
+		return included;
+	}
+
+	private boolean evaluate(UsageDataEvent event) {
 		if (includeOnlyEclipseDotOrgBundles()) {
 			return event.bundleId.startsWith("org.eclipse."); //$NON-NLS-1$
 		}
@@ -0,0 +1,36 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.recording.rollover;
+
+/**
+ * The {@link AgeRolloverPolicy} rolls the file over once it has been
+ * written to for a given time, however much it holds.
+ */
+public class AgeRolloverPolicy implements RolloverPolicy {
+	/**
+	 * The age, in milliseconds, used when none is configured: one day.
+	 */
+	public static final long DEFAULT_AGE = 24 * 60 * 60 * 1000;
+
+	private final long age;
+
+	public AgeRolloverPolicy(long age) {
+		this.age = age;
+	}
+
+	public boolean isTimeToRollOver(long length, int eventCount, long age) {
+		return age >= this.age;
+	}
+
+	public long getExpectedLength() {
+		return 0;
+	}
+}
@@ -0,0 +1,36 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.recording.rollover;
+
+/**
+ * The {@link EventCountRolloverPolicy} rolls the file over once a given
+ * number of events have been written to it.
+ */
+public class EventCountRolloverPolicy implements RolloverPolicy {
+	/**
+	 * The number of events used when none is configured.
+	 */
+	public static final long DEFAULT_EVENT_COUNT = 500;
+
+	private final long eventCount;
+
+	public EventCountRolloverPolicy(long eventCount) {
+		this.eventCount = eventCount;
+	}
+
+	public boolean isTimeToRollOver(long length, int eventCount, long age) {
+		return eventCount >= this.eventCount;
+	}
+
+	public long getExpectedLength() {
+		return 0;
+	}
+}
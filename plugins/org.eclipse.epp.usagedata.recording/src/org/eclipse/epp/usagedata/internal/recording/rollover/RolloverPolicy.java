@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.recording.rollover;
+
+/**
+ * A {@link RolloverPolicy} decides when the recorder moves the event file
+ * (or seals the active segment) so that it can be uploaded. The recorder
+ * asks after each commit, passing in what it knows about the file; it keeps
+ * track of these itself, so asking costs no calls to the file system.
+ */
+public interface RolloverPolicy {
+
+	/**
+	 * @param length
+	 *            the length of the file, in bytes, including the header.
+	 * @param eventCount
+	 *            the number of events written to the file since the
+	 *            recorder started it (or, for a file left by an earlier
+	 *            session, since it started appending to it).
+	 * @param age
+	 *            the time, in milliseconds, since the recorder started the
+	 *            file (or started appending to it).
+	 * @return <code>true</code> if the file should be rolled over now.
+	 */
+	boolean isTimeToRollOver(long length, int eventCount, long age);
+
+	/**
+	 * @return the length, in bytes, that files are expected to reach before
+	 *         they are rolled over, or <code>0</code> if the policy cannot
+	 *         tell. Segments are preallocated for this length.
+	 */
+	long getExpectedLength();
+}
@@ -0,0 +1,36 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.recording.rollover;
+
+/**
+ * The {@link SizeRolloverPolicy} rolls the file over once it reaches a
+ * given length.
+ */
+public class SizeRolloverPolicy implements RolloverPolicy {
+	/**
+	 * The length, in bytes, used when none is configured.
+	 */
+	public static final long DEFAULT_LENGTH = 25000;
+
+	private final long length;
+
+	public SizeRolloverPolicy(long length) {
+		this.length = length;
+	}
+
+	public boolean isTimeToRollOver(long length, int eventCount, long age) {
+		return length >= this.length;
+	}
+
+	public long getExpectedLength() {
+		return length;
+	}
+}
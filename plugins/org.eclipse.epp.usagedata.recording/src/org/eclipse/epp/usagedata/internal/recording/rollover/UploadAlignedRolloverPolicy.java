@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.recording.rollover;
+
+import org.eclipse.epp.usagedata.internal.recording.settings.RecordingSettings;
+
+/**
+ * The {@link UploadAlignedRolloverPolicy} rolls the file over when it is
+ * time to upload, just before the recorder starts the upload, so that each
+ * upload sends a single file holding everything recorded since the last
+ * one. If the upload does not start (e.g. because uploading is disabled),
+ * the file is not rolled over again until another upload period has passed.
+ * <p>
+ * So that a long upload period (or a run of failed uploads) cannot make
+ * for an unreasonably large file, the file is also rolled over when it
+ * reaches a given length.
+ * </p>
+ */
+public class UploadAlignedRolloverPolicy implements RolloverPolicy {
+	/**
+	 * The largest length, in bytes, used when none is configured.
+	 */
+	public static final long DEFAULT_MAXIMUM_LENGTH = 1024 * 1024;
+
+	private final RecordingSettings settings;
+
+	private final long maximumLength;
+
+	/**
+	 * The value of <code>System.currentTimeMillis()</code> when the receiver
+	 * last answered that it is time to upload.
+	 */
+	private long lastRollover = 0;
+
+	public UploadAlignedRolloverPolicy(RecordingSettings settings, long maximumLength) {
+		this.settings = settings;
+		this.maximumLength = maximumLength;
+	}
+
+	public synchronized boolean isTimeToRollOver(long length, int eventCount, long age) {
+		if (length >= maximumLength) return true;
+		if (!settings.isTimeToUpload()) return false;
+		long now = System.currentTimeMillis();
+		if (now - lastRollover < settings.getPeriodBetweenUploads()) return false;
+		lastRollover = now;
+		return true;
+	}
+
+	public long getExpectedLength() {
+		return 0;
+	}
+}
@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.recording.settings;
+
+import java.io.File;
+
+import org.eclipse.epp.usagedata.internal.recording.rollover.AgeRolloverPolicy;
+import org.eclipse.epp.usagedata.internal.recording.rollover.EventCountRolloverPolicy;
+import org.eclipse.epp.usagedata.internal.recording.rollover.RolloverPolicy;
+import org.eclipse.epp.usagedata.internal.recording.rollover.SizeRolloverPolicy;
+import org.eclipse.epp.usagedata.internal.recording.rollover.UploadAlignedRolloverPolicy;
+import org.eclipse.epp.usagedata.internal.recording.storage.SegmentCatalog;
+
+/**
+ * The {@link AbstractRecordingSettings} class implements the parts of
+ * {@link RecordingSettings} that only depend on the working directory,
+ * i.e. where the event file lives and the {@link SegmentCatalog} that names
+ * and keeps track of the files that are ready for upload, and the
+ * {@link RolloverPolicy} that the other settings describe.
+ */
+public abstract class AbstractRecordingSettings implements RecordingSettings {
+
+	static final String UPLOAD_FILE_PREFIX = "upload"; //$NON-NLS-1$
+
+	static final String DURABILITY_DEFAULT = DURABILITY_NONE;
+
+	static final long SYNC_INTERVAL_DEFAULT = 1000;
+
+	static final String STORAGE_DEFAULT = STORAGE_CSV;
+
+	static final String ENCODING_DEFAULT = ENCODING_CSV;
+
+	static final String COMPRESSION_DEFAULT = COMPRESSION_NONE;
+
+	static final String ROLLOVER_DEFAULT = ROLLOVER_SIZE;
+
+	static final long ROLLOVER_THRESHOLD_DEFAULT = 0;
+
+	static final long QUOTA_DEFAULT = 50 * 1024 * 1024; // 50 MB
+
+	/**
+	 * NOTE: eviction is opt-in, so by default nothing that is waiting to be
+	 * uploaded is ever deleted, and the {@link #QUOTA_DEFAULT} only decides
+	 * when a warning is logged. Files that have been uploaded are deleted
+	 * whatever the policy.
+	 */
+	static final String EVICTION_DEFAULT = EVICTION_NONE;
+
+	static final String[] STORAGES = {STORAGE_CSV, STORAGE_SEGMENTS};
+
+	static final String[] ENCODINGS = {ENCODING_CSV, ENCODING_BINARY};
+
+	static final String[] COMPRESSIONS = {COMPRESSION_NONE, COMPRESSION_GZIP, COMPRESSION_LZ};
+
+	static final String[] ROLLOVERS = {ROLLOVER_SIZE, ROLLOVER_AGE, ROLLOVER_EVENT_COUNT, ROLLOVER_UPLOAD};
+
+	static final String[] EVICTIONS = {EVICTION_NONE, EVICTION_OLDEST, EVICTION_DOWNSAMPLE};
+
+	static final String[] DURABILITIES = {DURABILITY_NONE, DURABILITY_INTERVAL_FSYNC, DURABILITY_BATCH_FSYNC};
+
+	private SegmentCatalog catalog;
+
+	/**
+	 * This method returns the directory that holds the event file and the
+	 * files that are waiting to be uploaded.
+	 * 
+	 * @return a {@link File} representing a directory.
+	 */
+	protected abstract File getWorkingDirectory();
+
+	public File getEventFile() {
+		return new File(getWorkingDirectory(), "usagedata.csv"); //$NON-NLS-1$
+	}
+
+	public File getSegmentFile() {
+		return new File(getWorkingDirectory(), "usagedata.seg"); //$NON-NLS-1$
+	}
+
+	public File getBinaryEventFile() {
+		return new File(getWorkingDirectory(), "usagedata.bin"); //$NON-NLS-1$
+	}
+
+	/**
+	 * When it's time to start uploading the usage data, the file that's used
+	 * to persist the data is moved (renamed) and a new file is created. The
+	 * moved file is then uploaded to the server. This method finds an appropriate
+	 * destination for the moved file. The destination {@link File} will be in the
+	 * working directory, but will not actually exist in the file system.
+	 * 
+	 * @return a destination {@link File} for the move operation. 
+	 */
+	public File computeDestinationFile() {
+		return computeDestinationFile(CSV_EXTENSION);
+	}
+
+	public File computeDestinationFile(String extension) {
+		return getSegmentCatalog().allocate(extension);
+	}
+
+	public File[] getUsageDataUploadFiles() {
+		return getSegmentCatalog().getPendingFiles();
+	}
+
+	public synchronized SegmentCatalog getSegmentCatalog() {
+		if (catalog == null) catalog = new SegmentCatalog(new File(getWorkingDirectory(), "usagedata.manifest"), UPLOAD_FILE_PREFIX); //$NON-NLS-1$
+		return catalog;
+	}
+
+	public RolloverPolicy getRolloverPolicy() {
+		String rollover = getRollover();
+		long threshold = getRolloverThreshold();
+		if (ROLLOVER_AGE.equals(rollover)) {
+			return new AgeRolloverPolicy(threshold > 0 ? threshold : AgeRolloverPolicy.DEFAULT_AGE);
+		}
+		if (ROLLOVER_EVENT_COUNT.equals(rollover)) {
+			return new EventCountRolloverPolicy(threshold > 0 ? threshold : EventCountRolloverPolicy.DEFAULT_EVENT_COUNT);
+		}
+		if (ROLLOVER_UPLOAD.equals(rollover)) {
+			return new UploadAlignedRolloverPolicy(this, threshold > 0 ? threshold : UploadAlignedRolloverPolicy.DEFAULT_MAXIMUM_LENGTH);
+		}
+		return new SizeRolloverPolicy(threshold > 0 ? threshold : SizeRolloverPolicy.DEFAULT_LENGTH);
+	}
+
+	/**
+	 * This method answers whether or not <code>storage</code> is one of the
+	 * values that {@link #getStorage()} may answer.
+	 */
+	public static boolean isValidStorage(String storage) {
+		return isOneOf(storage, STORAGES);
+	}
+
+	/**
+	 * This method answers whether or not <code>encoding</code> is one of the
+	 * values that {@link #getEncoding()} may answer.
+	 */
+	public static boolean isValidEncoding(String encoding) {
+		return isOneOf(encoding, ENCODINGS);
+	}
+
+	/**
+	 * This method answers whether or not <code>compression</code> is one of
+	 * the values that {@link #getCompression()} may answer.
+	 */
+	public static boolean isValidCompression(String compression) {
+		return isOneOf(compression, COMPRESSIONS);
+	}
+
+	/**
+	 * This method answers whether or not <code>rollover</code> is one of the
+	 * values that {@link #getRollover()} may answer.
+	 */
+	public static boolean isValidRollover(String rollover) {
+		return isOneOf(rollover, ROLLOVERS);
+	}
+
+	/**
+	 * This method answers whether or not <code>eviction</code> is one of the
+	 * values that {@link #getEviction()} may answer.
+	 */
+	public static boolean isValidEviction(String eviction) {
+		return isOneOf(eviction, EVICTIONS);
+	}
+
+	/**
+	 * This method answers whether or not <code>durability</code> is one of the
+	 * values that {@link #getDurability()} may answer.
+	 */
+	public static boolean isValidDurability(String durability) {
+		return isOneOf(durability, DURABILITIES);
+	}
+
+	static boolean isOneOf(String value, String[] values) {
+		for (String each : values) {
+			if (each.equals(value)) return true;
+		}
+		return false;
+	}
+}
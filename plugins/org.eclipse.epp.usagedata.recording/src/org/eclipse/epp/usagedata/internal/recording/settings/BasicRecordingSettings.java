@@ -0,0 +1,253 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.recording.settings;
+
+import java.io.File;
+
+import org.eclipse.epp.usagedata.internal.recording.filtering.NullFilter;
+import org.eclipse.epp.usagedata.internal.recording.filtering.UsageDataEventFilter;
+
+/**
+ * The {@link BasicRecordingSettings} class holds recording and upload settings
+ * as plain values. Unlike {@link UsageDataRecordingSettings}, it does not
+ * depend on the preferences store, the workbench, or OSGi, so it can be used
+ * to configure the pipeline in a headless process.
+ * <p>
+ * By default, uploading is disabled and every event is included.
+ * </p>
+ */
+public class BasicRecordingSettings extends AbstractRecordingSettings {
+
+	private final File workingDirectory;
+	private String uploadUrl = UsageDataRecordingSettings.UPLOAD_URL_DEFAULT;
+	private String userId = "unknown"; //$NON-NLS-1$
+	private String workspaceId = "unknown"; //$NON-NLS-1$
+	private String userAgent = "Eclipse UDC"; //$NON-NLS-1$
+	private long periodBetweenUploads = UsageDataRecordingSettings.UPLOAD_PERIOD_DEFAULT;
+	private long lastUploadTime = System.currentTimeMillis();
+	private boolean enabled = false;
+	private boolean userAcceptedTermsOfUse = false;
+	private boolean loggingServerActivity = false;
+	private String durability = DURABILITY_DEFAULT;
+	private long syncInterval = SYNC_INTERVAL_DEFAULT;
+	private String storage = STORAGE_DEFAULT;
+	private String encoding = ENCODING_DEFAULT;
+	private String compression = COMPRESSION_DEFAULT;
+	private String rollover = ROLLOVER_DEFAULT;
+	private long rolloverThreshold = ROLLOVER_THRESHOLD_DEFAULT;
+	private long quota = QUOTA_DEFAULT;
+	private String eviction = EVICTION_DEFAULT;
+	private UsageDataEventFilter filter = new NullFilter();
+
+	/**
+	 * @param workingDirectory
+	 *            the directory that holds the event file and the files that
+	 *            are waiting to be uploaded. The directory is created if it
+	 *            does not already exist.
+	 */
+	public BasicRecordingSettings(File workingDirectory) {
+		this.workingDirectory = workingDirectory;
+		workingDirectory.mkdirs();
+	}
+
+	@Override
+	protected File getWorkingDirectory() {
+		return workingDirectory;
+	}
+
+	public boolean isTimeToUpload() {
+		return System.currentTimeMillis() - lastUploadTime > periodBetweenUploads;
+	}
+
+	public void setLastUploadTime() {
+		lastUploadTime = System.currentTimeMillis();
+	}
+
+	public long getPeriodBetweenUploads() {
+		return periodBetweenUploads;
+	}
+
+	public void setPeriodBetweenUploads(long periodBetweenUploads) {
+		this.periodBetweenUploads = periodBetweenUploads;
+	}
+
+	public UsageDataEventFilter getFilter() {
+		return filter;
+	}
+
+	public void setFilter(UsageDataEventFilter filter) {
+		this.filter = filter;
+	}
+
+	public String getUploadUrl() {
+		return uploadUrl;
+	}
+
+	public void setUploadUrl(String uploadUrl) {
+		this.uploadUrl = uploadUrl;
+	}
+
+	public String getUserAgent() {
+		return userAgent;
+	}
+
+	public void setUserAgent(String userAgent) {
+		this.userAgent = userAgent;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public String getWorkspaceId() {
+		return workspaceId;
+	}
+
+	public void setWorkspaceId(String workspaceId) {
+		this.workspaceId = workspaceId;
+	}
+
+	public boolean hasUserAcceptedTermsOfUse() {
+		return userAcceptedTermsOfUse;
+	}
+
+	public void setUserAcceptedTermsOfUse(boolean userAcceptedTermsOfUse) {
+		this.userAcceptedTermsOfUse = userAcceptedTermsOfUse;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public boolean isLoggingServerActivity() {
+		return loggingServerActivity;
+	}
+
+	public void setLoggingServerActivity(boolean loggingServerActivity) {
+		this.loggingServerActivity = loggingServerActivity;
+	}
+
+	public String getDurability() {
+		return durability;
+	}
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             if <code>durability</code> is not one of the values
+	 *             described by {@link RecordingSettings#getDurability()}.
+	 */
+	public void setDurability(String durability) {
+		if (!isValidDurability(durability)) throw new IllegalArgumentException(durability);
+		this.durability = durability;
+	}
+
+	public long getSyncInterval() {
+		return syncInterval;
+	}
+
+	public void setSyncInterval(long syncInterval) {
+		this.syncInterval = syncInterval;
+	}
+
+	public String getStorage() {
+		return storage;
+	}
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             if <code>storage</code> is not one of the values described
+	 *             by {@link RecordingSettings#getStorage()}.
+	 */
+	public void setStorage(String storage) {
+		if (!isValidStorage(storage)) throw new IllegalArgumentException(storage);
+		this.storage = storage;
+	}
+
+	public String getEncoding() {
+		return encoding;
+	}
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             if <code>encoding</code> is not one of the values described
+	 *             by {@link RecordingSettings#getEncoding()}.
+	 */
+	public void setEncoding(String encoding) {
+		if (!isValidEncoding(encoding)) throw new IllegalArgumentException(encoding);
+		this.encoding = encoding;
+	}
+
+	public String getCompression() {
+		return compression;
+	}
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             if <code>compression</code> is not one of the values
+	 *             described by {@link RecordingSettings#getCompression()}.
+	 */
+	public void setCompression(String compression) {
+		if (!isValidCompression(compression)) throw new IllegalArgumentException(compression);
+		this.compression = compression;
+	}
+
+	public String getRollover() {
+		return rollover;
+	}
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             if <code>rollover</code> is not one of the values
+	 *             described by {@link RecordingSettings#getRollover()}.
+	 */
+	public void setRollover(String rollover) {
+		if (!isValidRollover(rollover)) throw new IllegalArgumentException(rollover);
+		this.rollover = rollover;
+	}
+
+	public long getRolloverThreshold() {
+		return rolloverThreshold;
+	}
+
+	public void setRolloverThreshold(long rolloverThreshold) {
+		this.rolloverThreshold = rolloverThreshold;
+	}
+
+	public long getQuota() {
+		return quota;
+	}
+
+	public void setQuota(long quota) {
+		this.quota = quota;
+	}
+
+	public String getEviction() {
+		return eviction;
+	}
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             if <code>eviction</code> is not one of the values
+	 *             described by {@link RecordingSettings#getEviction()}.
+	 */
+	public void setEviction(String eviction) {
+		if (!isValidEviction(eviction)) throw new IllegalArgumentException(eviction);
+		this.eviction = eviction;
+	}
+}
@@ -0,0 +1,339 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.recording.settings;
+
+import java.io.File;
+
+import org.eclipse.epp.usagedata.internal.recording.UsageDataRecorder;
+import org.eclipse.epp.usagedata.internal.recording.rollover.RolloverPolicy;
+import org.eclipse.epp.usagedata.internal.recording.storage.SegmentCatalog;
+import org.eclipse.epp.usagedata.internal.recording.uploading.UploadManager;
+
+/**
+ * The {@link RecordingSettings} interface describes the settings that the
+ * {@link UsageDataRecorder} and the {@link UploadManager} need in order to
+ * do their work. The workbench implementation,
+ * {@link UsageDataRecordingSettings}, is backed by the preferences store;
+ * {@link BasicRecordingSettings} holds plain values and can be used without
+ * OSGi.
+ */
+public interface RecordingSettings extends UploadSettings {
+
+	/**
+	 * Events written to the event file are left in the operating system's
+	 * page cache; a crash of the machine (but not of the virtual machine) can
+	 * lose the most recent ones.
+	 */
+	public static final String DURABILITY_NONE = "none"; //$NON-NLS-1$
+
+	/**
+	 * The event file is forced to the disk at most once every
+	 * {@link #getSyncInterval()} milliseconds, and no later than that after
+	 * events are written to it.
+	 */
+	public static final String DURABILITY_INTERVAL_FSYNC = "interval-fsync"; //$NON-NLS-1$
+
+	/**
+	 * The event file is forced to the disk after every batch of events is
+	 * written to it.
+	 */
+	public static final String DURABILITY_BATCH_FSYNC = "batch-fsync"; //$NON-NLS-1$
+
+	/**
+	 * Events are appended to a CSV file, {@link #getEventFile()}.
+	 */
+	public static final String STORAGE_CSV = "csv"; //$NON-NLS-1$
+
+	/**
+	 * Events are appended to memory-mapped segment files, starting with
+	 * {@link #getSegmentFile()}.
+	 */
+	public static final String STORAGE_SEGMENTS = "segments"; //$NON-NLS-1$
+
+	/**
+	 * Events are encoded as CSV, one line per event.
+	 */
+	public static final String ENCODING_CSV = "csv"; //$NON-NLS-1$
+
+	/**
+	 * Events are encoded in the compact binary format written by the
+	 * {@link org.eclipse.epp.usagedata.internal.recording.storage.BinaryEventWriter}.
+	 */
+	public static final String ENCODING_BINARY = "binary"; //$NON-NLS-1$
+
+	/**
+	 * Files waiting to be uploaded are left as they are.
+	 */
+	public static final String COMPRESSION_NONE = "none"; //$NON-NLS-1$
+
+	/**
+	 * Files waiting to be uploaded are compressed with gzip.
+	 */
+	public static final String COMPRESSION_GZIP = "gzip"; //$NON-NLS-1$
+
+	/**
+	 * Files waiting to be uploaded are compressed with the
+	 * {@link org.eclipse.epp.usagedata.internal.recording.storage.LzOutputStream},
+	 * which is several times faster than gzip but compresses less.
+	 */
+	public static final String COMPRESSION_LZ = "lz"; //$NON-NLS-1$
+
+	/**
+	 * The event file is rolled over once it reaches
+	 * {@link #getRolloverThreshold()} bytes.
+	 */
+	public static final String ROLLOVER_SIZE = "size"; //$NON-NLS-1$
+
+	/**
+	 * The event file is rolled over once it has been written to for
+	 * {@link #getRolloverThreshold()} milliseconds.
+	 */
+	public static final String ROLLOVER_AGE = "age"; //$NON-NLS-1$
+
+	/**
+	 * The event file is rolled over once {@link #getRolloverThreshold()}
+	 * events have been written to it.
+	 */
+	public static final String ROLLOVER_EVENT_COUNT = "event-count"; //$NON-NLS-1$
+
+	/**
+	 * The event file is rolled over when it is time to upload, or once it
+	 * reaches {@link #getRolloverThreshold()} bytes.
+	 */
+	public static final String ROLLOVER_UPLOAD = "upload"; //$NON-NLS-1$
+
+	/**
+	 * Nothing that is waiting to be uploaded is evicted; the files take as
+	 * much room as they need, and going over the {@link #getQuota()} is only
+	 * logged. This is the default: the quota does not limit anything until
+	 * another policy is chosen.
+	 */
+	public static final String EVICTION_NONE = "none"; //$NON-NLS-1$
+
+	/**
+	 * When the files waiting to be uploaded take more than
+	 * {@link #getQuota()} bytes, the oldest of them are deleted.
+	 */
+	public static final String EVICTION_OLDEST = "oldest"; //$NON-NLS-1$
+
+	/**
+	 * When the files waiting to be uploaded take more than
+	 * {@link #getQuota()} bytes, the oldest of them are replaced by rollups
+	 * (see {@link #ROLLUP_EXTENSION}); they are only deleted if that is not
+	 * enough.
+	 */
+	public static final String EVICTION_DOWNSAMPLE = "downsample"; //$NON-NLS-1$
+
+	/**
+	 * The extension of the CSV files that are waiting to be uploaded.
+	 */
+	public static final String CSV_EXTENSION = ".csv"; //$NON-NLS-1$
+
+	/**
+	 * The extension of the segment files that are waiting to be uploaded.
+	 */
+	public static final String SEGMENT_EXTENSION = ".seg"; //$NON-NLS-1$
+
+	/**
+	 * The extension of the binary event files that are waiting to be
+	 * uploaded.
+	 */
+	public static final String BINARY_EXTENSION = ".bin"; //$NON-NLS-1$
+
+	/**
+	 * The extension of the columnar segment files that are waiting to be
+	 * uploaded; sealed segments are transposed into these.
+	 */
+	public static final String COLUMNAR_EXTENSION = ".col"; //$NON-NLS-1$
+
+	/**
+	 * The extension added to the name of a file waiting to be uploaded when
+	 * it is compressed with {@link #COMPRESSION_GZIP}.
+	 */
+	public static final String GZIP_EXTENSION = ".gz"; //$NON-NLS-1$
+
+	/**
+	 * The extension added to the name of a file waiting to be uploaded when
+	 * it is compressed with {@link #COMPRESSION_LZ}.
+	 */
+	public static final String LZ_EXTENSION = ".lz"; //$NON-NLS-1$
+
+	/**
+	 * The extension of the rollup files that replace old files waiting to be
+	 * uploaded when the {@link #getQuota()} is exceeded; these are CSV, with
+	 * one line for each distinct event on each day, and a count. The server
+	 * takes no count, so each line is uploaded as many times as its count
+	 * says, with the time of the first occurrence.
+	 */
+	public static final String ROLLUP_EXTENSION = ".rollup.csv"; //$NON-NLS-1$
+
+	/** 
+	 * This method returns the {@link File} where usage data events should be persisted.
+	 *  
+	 * @return the {@link File} where usage data events are persisted.
+	 */
+	public abstract File getEventFile();
+
+	/**
+	 * This method returns the {@link File} that holds the active segment when
+	 * the storage is {@link #STORAGE_SEGMENTS}.
+	 */
+	public abstract File getSegmentFile();
+
+	/**
+	 * This method returns the {@link File} where usage data events are
+	 * persisted when the encoding is {@link #ENCODING_BINARY}.
+	 */
+	public abstract File getBinaryEventFile();
+
+	/**
+	 * This method finds an appropriate destination for the event file when
+	 * it is moved so that it can be uploaded. The destination {@link File}
+	 * must not actually exist in the file system.
+	 * 
+	 * @return a destination {@link File} for the move operation. 
+	 */
+	public abstract File computeDestinationFile();
+
+	/**
+	 * This method finds an appropriate destination for a file of the given
+	 * kind when it is moved so that it can be uploaded. The destination is
+	 * named with the next number from the {@link #getSegmentCatalog()}; it
+	 * does not exist in the file system, nor does a file of any other kind
+	 * with the same number (compressed or not). Once the file has been
+	 * moved, it must be added to the catalog to be uploaded.
+	 * 
+	 * @param extension
+	 *            {@link #CSV_EXTENSION}, {@link #SEGMENT_EXTENSION},
+	 *            {@link #BINARY_EXTENSION} or {@link #COLUMNAR_EXTENSION}.
+	 */
+	public abstract File computeDestinationFile(String extension);
+
+	/**
+	 * This method answers an array containing the files that are available
+	 * for uploading, oldest first, as recorded in the
+	 * {@link #getSegmentCatalog()}.
+	 * 
+	 * @return an array of {@link File}s; never <code>null</code>.
+	 */
+	public abstract File[] getUsageDataUploadFiles();
+
+	/**
+	 * This method answers the {@link SegmentCatalog} that keeps track of the
+	 * files that are waiting to be uploaded.
+	 */
+	public abstract SegmentCatalog getSegmentCatalog();
+
+	/**
+	 * This method answers <code>true</code> if enough time has passed since
+	 * the last upload to warrant starting a new one.
+	 * 
+	 * @return <code>true</code> if it is time to upload; <code>false</code>
+	 *         otherwise.
+	 */
+	public abstract boolean isTimeToUpload();
+
+	/**
+	 * This method records the current time as the time of the last upload.
+	 */
+	public abstract void setLastUploadTime();
+
+	/**
+	 * This method answers the time, in milliseconds, between uploads.
+	 */
+	public abstract long getPeriodBetweenUploads();
+
+	/**
+	 * This method answers how hard the recorder works to make sure that
+	 * events written to the event file survive a crash.
+	 * 
+	 * @return one of {@link #DURABILITY_NONE},
+	 *         {@link #DURABILITY_INTERVAL_FSYNC}, or
+	 *         {@link #DURABILITY_BATCH_FSYNC}.
+	 */
+	public abstract String getDurability();
+
+	/**
+	 * This method answers the minimum time, in milliseconds, between forcing
+	 * the event file to the disk when the durability is
+	 * {@link #DURABILITY_INTERVAL_FSYNC}.
+	 */
+	public abstract long getSyncInterval();
+
+	/**
+	 * This method answers how the recorder stores events.
+	 * 
+	 * @return {@link #STORAGE_CSV} or {@link #STORAGE_SEGMENTS}.
+	 */
+	public abstract String getStorage();
+
+	/**
+	 * This method answers how the recorder encodes the events in the event
+	 * file. Segments (see {@link #STORAGE_SEGMENTS}) always hold CSV.
+	 * 
+	 * @return {@link #ENCODING_CSV} or {@link #ENCODING_BINARY}.
+	 */
+	public abstract String getEncoding();
+
+	/**
+	 * This method answers how the CSV and binary event files are compressed
+	 * once they have been moved aside for upload. Columnar segments (see
+	 * {@link #COLUMNAR_EXTENSION}) are compact already and are left as they
+	 * are.
+	 * 
+	 * @return {@link #COMPRESSION_NONE}, {@link #COMPRESSION_GZIP} or
+	 *         {@link #COMPRESSION_LZ}.
+	 */
+	public abstract String getCompression();
+
+	/**
+	 * This method answers which {@link RolloverPolicy} decides when the
+	 * event file is rolled over (or the active segment sealed) for upload.
+	 * 
+	 * @return {@link #ROLLOVER_SIZE}, {@link #ROLLOVER_AGE},
+	 *         {@link #ROLLOVER_EVENT_COUNT} or {@link #ROLLOVER_UPLOAD}.
+	 */
+	public abstract String getRollover();
+
+	/**
+	 * This method answers the threshold of the {@link #getRollover()}
+	 * policy: a length in bytes, an age in milliseconds, or a number of
+	 * events. <code>0</code> stands for the policy's default.
+	 */
+	public abstract long getRolloverThreshold();
+
+	/**
+	 * This method answers the {@link RolloverPolicy} described by
+	 * {@link #getRollover()} and {@link #getRolloverThreshold()}.
+	 */
+	public abstract RolloverPolicy getRolloverPolicy();
+
+	/**
+	 * This method answers how many bytes the files waiting to be uploaded
+	 * may take (e.g. when uploads keep failing) before some are evicted;
+	 * the quota is enforced whenever a file is added. <code>0</code> stands
+	 * for no limit. Nothing is evicted with {@link #EVICTION_NONE}, the
+	 * default {@link #getEviction()}; files that have been uploaded are
+	 * deleted whatever the quota.
+	 */
+	public abstract long getQuota();
+
+	/**
+	 * This method answers what is evicted when the files waiting to be
+	 * uploaded take more than {@link #getQuota()} bytes. Files that have
+	 * been uploaded already are always deleted first.
+	 * 
+	 * @return {@link #EVICTION_NONE}, {@link #EVICTION_OLDEST} or
+	 *         {@link #EVICTION_DOWNSAMPLE}.
+	 */
+	public abstract String getEviction();
+
+}
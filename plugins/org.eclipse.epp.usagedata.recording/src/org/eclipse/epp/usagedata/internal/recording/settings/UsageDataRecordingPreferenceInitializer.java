@@ -21,6 +21,15 @@ public class UsageDataRecordingPreferenceInitializer extends AbstractPreferenceI
 		preferenceStore.setDefault(UsageDataRecordingSettings.UPLOAD_PERIOD_KEY, UsageDataRecordingSettings.UPLOAD_PERIOD_DEFAULT);
 		preferenceStore.setDefault(UsageDataRecordingSettings.ASK_TO_UPLOAD_KEY, UsageDataRecordingSettings.ASK_TO_UPLOAD_DEFAULT);
 		preferenceStore.setDefault(UsageDataRecordingSettings.FILTER_ECLIPSE_BUNDLES_ONLY_KEY, false);
+		preferenceStore.setDefault(UsageDataRecordingSettings.DURABILITY_KEY, AbstractRecordingSettings.DURABILITY_DEFAULT);
+		preferenceStore.setDefault(UsageDataRecordingSettings.SYNC_INTERVAL_KEY, AbstractRecordingSettings.SYNC_INTERVAL_DEFAULT);
+		preferenceStore.setDefault(UsageDataRecordingSettings.STORAGE_KEY, AbstractRecordingSettings.STORAGE_DEFAULT);
+		preferenceStore.setDefault(UsageDataRecordingSettings.ENCODING_KEY, AbstractRecordingSettings.ENCODING_DEFAULT);
+		preferenceStore.setDefault(UsageDataRecordingSettings.COMPRESSION_KEY, AbstractRecordingSettings.COMPRESSION_DEFAULT);
+		preferenceStore.setDefault(UsageDataRecordingSettings.ROLLOVER_KEY, AbstractRecordingSettings.ROLLOVER_DEFAULT);
+		preferenceStore.setDefault(UsageDataRecordingSettings.ROLLOVER_THRESHOLD_KEY, AbstractRecordingSettings.ROLLOVER_THRESHOLD_DEFAULT);
+		preferenceStore.setDefault(UsageDataRecordingSettings.QUOTA_KEY, AbstractRecordingSettings.QUOTA_DEFAULT);
+		preferenceStore.setDefault(UsageDataRecordingSettings.EVICTION_KEY, AbstractRecordingSettings.EVICTION_DEFAULT);
 	}
 
 }
@@ -13,13 +13,16 @@ package org.eclipse.epp.usagedata.internal.recording.settings;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
-import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.epp.usagedata.internal.gathering.UsageDataCaptureActivator;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataSnapshot;
 import org.eclipse.epp.usagedata.internal.gathering.settings.UsageDataCaptureSettings;
 import org.eclipse.epp.usagedata.internal.recording.UsageDataRecordingActivator;
 import org.eclipse.epp.usagedata.internal.recording.filtering.PreferencesBasedFilter;
@@ -36,11 +39,15 @@ import org.eclipse.ui.PlatformUI;
  * @author Wayne Beaton
  *
  */
-public class UsageDataRecordingSettings implements UploadSettings {
+public class UsageDataRecordingSettings extends AbstractRecordingSettings {
 
 	private static final String DEFAULT_ID = "unknown"; //$NON-NLS-1$
 
-	private static final String UPLOAD_FILE_PREFIX = "upload"; //$NON-NLS-1$
+	/**
+	 * The name of the {@link UsageDataSnapshot} section that remembers the
+	 * ids read from (or written to) the id files, keyed by file.
+	 */
+	private static final String IDS_SECTION = "recording-ids"; //$NON-NLS-1$
 
 	public static final String UPLOAD_PERIOD_KEY = UsageDataRecordingActivator.PLUGIN_ID + ".period"; //$NON-NLS-1$
 	public static final String LAST_UPLOAD_KEY = UsageDataRecordingActivator.PLUGIN_ID + ".last-upload"; //$NON-NLS-1$
@@ -48,6 +55,15 @@ public class UsageDataRecordingSettings implements UploadSettings {
 	public static final String LOG_SERVER_ACTIVITY_KEY = UsageDataRecordingActivator.PLUGIN_ID + ".log-server"; //$NON-NLS-1$
 	public static final String FILTER_ECLIPSE_BUNDLES_ONLY_KEY = UsageDataRecordingActivator.PLUGIN_ID + ".filter-eclipse-only"; //$NON-NLS-1$
 	public static final String FILTER_PATTERNS_KEY = UsageDataRecordingActivator.PLUGIN_ID + ".filter-patterns"; //$NON-NLS-1$
+	public static final String DURABILITY_KEY = UsageDataRecordingActivator.PLUGIN_ID + ".durability"; //$NON-NLS-1$
+	public static final String SYNC_INTERVAL_KEY = UsageDataRecordingActivator.PLUGIN_ID + ".sync-interval"; //$NON-NLS-1$
+	public static final String STORAGE_KEY = UsageDataRecordingActivator.PLUGIN_ID + ".storage"; //$NON-NLS-1$
+	public static final String ENCODING_KEY = UsageDataRecordingActivator.PLUGIN_ID + ".encoding"; //$NON-NLS-1$
+	public static final String COMPRESSION_KEY = UsageDataRecordingActivator.PLUGIN_ID + ".compression"; //$NON-NLS-1$
+	public static final String ROLLOVER_KEY = UsageDataRecordingActivator.PLUGIN_ID + ".rollover"; //$NON-NLS-1$
+	public static final String ROLLOVER_THRESHOLD_KEY = UsageDataRecordingActivator.PLUGIN_ID + ".rollover-threshold"; //$NON-NLS-1$
+	public static final String QUOTA_KEY = UsageDataRecordingActivator.PLUGIN_ID + ".quota"; //$NON-NLS-1$
+	public static final String EVICTION_KEY = UsageDataRecordingActivator.PLUGIN_ID + ".eviction"; //$NON-NLS-1$
 	
 	static final String UPLOAD_URL_KEY = UsageDataRecordingActivator.PLUGIN_ID + ".upload-url"; //$NON-NLS-1$
 	
@@ -127,36 +143,6 @@ public class UsageDataRecordingSettings implements UploadSettings {
 		return System.currentTimeMillis() - getLastUploadTime() > getPeriodBetweenUploads();
 	}
 
-	/** 
-	 * This method returns the {@link File} where usage data events should be persisted.
-	 *  
-	 * @return the {@link File} where usage data events are persisted.
-	 */
-	public File getEventFile() {
-		return new File(getWorkingDirectory(), "usagedata.csv"); //$NON-NLS-1$
-	}
-
-	/**
-	 * When it's time to start uploading the usage data, the file that's used
-	 * to persist the data is moved (renamed) and a new file is created. The
-	 * moved file is then uploaded to the server. This method finds an appropriate
-	 * destination for the moved file. The destination {@link File} will be in the
-	 * bundle's state location, but will not actually exist in the file system.
-	 * 
-	 * @return a destination {@link File} for the move operation. 
-	 */
-	public File computeDestinationFile() {
-		int index = 0;
-		File parent = getWorkingDirectory();
-		File file = null;
-		// TODO Unlikely (impossible?), but what if this spins forever.
-		while (true) {
-			file = new File(parent, UPLOAD_FILE_PREFIX + index++ + ".csv"); //$NON-NLS-1$
-			if (!file.exists())
-				return file;
-		}
-	}
-
 	/**
 	 * This method returns an identifier for the workstation. This value
 	 * is common to all workspaces on a single machine. The value
@@ -199,21 +185,6 @@ public class UsageDataRecordingSettings implements UploadSettings {
 		return "true".equals(System.getProperty(LOG_SERVER_ACTIVITY_KEY)); //$NON-NLS-1$
 	}
 
-	/**
-	 * This method answers an array containing the files that are available
-	 * for uploading.
-	 * 
-	 * @return
-	 */
-	public File[] getUsageDataUploadFiles() {
-		return getWorkingDirectory().listFiles(new FilenameFilter() {
-			public boolean accept(File dir, String name) {
-				return name.startsWith(UPLOAD_FILE_PREFIX);
-			}
-
-		});
-	}
-
 	/**
 	 * This method sets the {@value #LAST_UPLOAD_KEY} property to the
 	 * current time.
@@ -232,6 +203,11 @@ public class UsageDataRecordingSettings implements UploadSettings {
 	 * the file. If the file cannot be read or written (i.e. an IOException
 	 * occurs), the operation is aborted and "unknown" is returned.
 	 * </p>
+	 * <p>
+	 * Ids are remembered in the {@link UsageDataSnapshot} along with the
+	 * modification time of their file, so the file is only read again if it
+	 * has changed.
+	 * </p>
 	 * 
 	 * @param directory
 	 *           the directory that will contain the stored id.
@@ -244,6 +220,14 @@ public class UsageDataRecordingSettings implements UploadSettings {
 		if (!directory.isDirectory()) {
 		} // TODO Think of something else
 		File file = new File(directory, fileName);
+		String id = getSnapshotId(file);
+		if (id != null) return id;
+		id = getExistingOrGenerateId(file);
+		if (!DEFAULT_ID.equals(id)) putSnapshotId(file, id);
+		return id;
+	}
+
+	private String getExistingOrGenerateId(File file) {
 		if (file.exists()) {
 			FileReader reader = null;
 			try {
@@ -276,6 +260,41 @@ public class UsageDataRecordingSettings implements UploadSettings {
 		}
 	}
 
+	private String getSnapshotId(File file) {
+		UsageDataSnapshot snapshot = getSnapshot();
+		if (snapshot == null) return null;
+		Map<String, String> ids = snapshot.getSection(IDS_SECTION);
+		if (ids == null) return null;
+		String value = ids.get(file.getAbsolutePath());
+		if (value == null) return null;
+		int separator = value.indexOf(';');
+		if (separator < 0) return null;
+		if (!value.substring(0, separator).equals(String.valueOf(file.lastModified()))) return null;
+		return value.substring(separator + 1);
+	}
+
+	private void putSnapshotId(File file, String id) {
+		UsageDataSnapshot snapshot = getSnapshot();
+		if (snapshot == null) return;
+		synchronized (snapshot) {
+			Map<String, String> ids = snapshot.getSection(IDS_SECTION);
+			if (ids == null) ids = new HashMap<String, String>();
+			ids.put(file.getAbsolutePath(), file.lastModified() + ";" + id); //$NON-NLS-1$
+			snapshot.putSection(IDS_SECTION, ids);
+		}
+	}
+
+	/**
+	 * This method answers the snapshot kept by the gathering bundle, or an
+	 * empty, in-memory one if that bundle is not active (e.g. while it is
+	 * stopping).
+	 */
+	private UsageDataSnapshot getSnapshot() {
+		UsageDataCaptureActivator activator = UsageDataCaptureActivator.getDefault();
+		if (activator == null) return new UsageDataSnapshot();
+		return activator.getSnapshot();
+	}
+
 	private void handleCannotReadFileException(File file, IOException e) {
 		UsageDataRecordingActivator.getDefault().log(IStatus.WARNING,	e, "Cannot read the existing id from %1$s; using the default.", file.toString()); //$NON-NLS-1$
 	}
@@ -284,7 +303,8 @@ public class UsageDataRecordingSettings implements UploadSettings {
 		return UsageDataRecordingActivator.getDefault().getPreferenceStore();
 	}
 	
-	private File getWorkingDirectory() {
+	@Override
+	protected File getWorkingDirectory() {
 		return UsageDataRecordingActivator.getDefault().getStateLocation().toFile();
 	}
 	
@@ -352,7 +372,7 @@ public class UsageDataRecordingSettings implements UploadSettings {
 	}
 	
 	private UsageDataCaptureSettings getCaptureSettings() {
-		return org.eclipse.epp.usagedata.internal.gathering.UsageDataCaptureActivator.getDefault().getSettings();
+		return UsageDataCaptureActivator.getDefault().getSettings();
 	}
 
 	/* (non-Javadoc)
@@ -380,6 +400,131 @@ public class UsageDataRecordingSettings implements UploadSettings {
 		return "Eclipse UDC/" + UsageDataRecordingActivator.getDefault().getBundle().getHeaders().get("Bundle-Version"); //$NON-NLS-1$ //$NON-NLS-2$
 	}
 
+	/**
+	 * First if the system property {@value #DURABILITY_KEY} has been set, use
+	 * that value. Next, check to see if there is a value stored (same key) in
+	 * the preferences store. Finally, use the default value,
+	 * {@value #DURABILITY_NONE}. A value that is not recognised is logged and
+	 * the default used instead.
+	 */
+	public String getDurability() {
+		return getEnumSetting(DURABILITY_KEY, "durability", DURABILITIES, DURABILITY_DEFAULT); //$NON-NLS-1$
+	}
+
+	/**
+	 * The interval is found the same way as the durability (see
+	 * {@link #getDurability()}), using the key {@value #SYNC_INTERVAL_KEY}.
+	 */
+	public long getSyncInterval() {
+		return getLongSetting(SYNC_INTERVAL_KEY, SYNC_INTERVAL_DEFAULT);
+	}
+
+	/**
+	 * The storage is found the same way as the durability (see
+	 * {@link #getDurability()}), using the key {@value #STORAGE_KEY}; the
+	 * default is {@value #STORAGE_CSV}.
+	 */
+	public String getStorage() {
+		return getEnumSetting(STORAGE_KEY, "storage", STORAGES, STORAGE_DEFAULT); //$NON-NLS-1$
+	}
+
+	/**
+	 * The encoding is found the same way as the durability (see
+	 * {@link #getDurability()}), using the key {@value #ENCODING_KEY}; the
+	 * default is {@value #ENCODING_CSV}.
+	 */
+	public String getEncoding() {
+		return getEnumSetting(ENCODING_KEY, "encoding", ENCODINGS, ENCODING_DEFAULT); //$NON-NLS-1$
+	}
+
+	/**
+	 * The compression is found the same way as the durability (see
+	 * {@link #getDurability()}), using the key {@value #COMPRESSION_KEY}; the
+	 * default is {@value #COMPRESSION_NONE}.
+	 */
+	public String getCompression() {
+		return getEnumSetting(COMPRESSION_KEY, "compression", COMPRESSIONS, COMPRESSION_DEFAULT); //$NON-NLS-1$
+	}
+
+	/**
+	 * The rollover policy is found the same way as the durability (see
+	 * {@link #getDurability()}), using the key {@value #ROLLOVER_KEY}; the
+	 * default is {@value #ROLLOVER_SIZE}.
+	 */
+	public String getRollover() {
+		return getEnumSetting(ROLLOVER_KEY, "rollover policy", ROLLOVERS, ROLLOVER_DEFAULT); //$NON-NLS-1$
+	}
+
+	/**
+	 * The threshold is found the same way as the durability (see
+	 * {@link #getDurability()}), using the key
+	 * {@value #ROLLOVER_THRESHOLD_KEY}.
+	 */
+	public long getRolloverThreshold() {
+		return getLongSetting(ROLLOVER_THRESHOLD_KEY, ROLLOVER_THRESHOLD_DEFAULT);
+	}
+
+	/**
+	 * The quota is found the same way as the durability (see
+	 * {@link #getDurability()}), using the key {@value #QUOTA_KEY}.
+	 */
+	public long getQuota() {
+		return getLongSetting(QUOTA_KEY, QUOTA_DEFAULT);
+	}
+
+	/**
+	 * The eviction policy is found the same way as the durability (see
+	 * {@link #getDurability()}), using the key {@value #EVICTION_KEY}; the
+	 * default is {@value #EVICTION_NONE}, which leaves the quota disabled.
+	 */
+	public String getEviction() {
+		return getEnumSetting(EVICTION_KEY, "eviction policy", EVICTIONS, EVICTION_DEFAULT); //$NON-NLS-1$
+	}
+
+	/**
+	 * This method answers the value of the system property <code>key</code>
+	 * if it is set, or else the value stored under the same key in the
+	 * preferences store, or else <code>defaultValue</code>. A value that is
+	 * not one of <code>values</code> is logged and the default used instead.
+	 * 
+	 * @param name
+	 *            what the setting is called in the log.
+	 */
+	private String getEnumSetting(String key, String name, String[] values, String defaultValue) {
+		String value;
+		if (System.getProperties().containsKey(key)) {
+			value = System.getProperty(key);
+		} else if (getPreferencesStore().contains(key)) {
+			value = getPreferencesStore().getString(key);
+		} else {
+			return defaultValue;
+		}
+		if (isOneOf(value, values)) return value;
+		UsageDataRecordingActivator.getDefault().log(IStatus.WARNING,
+				"The UsageDataRecorder does not recognise the %1$s \"%2$s\"; using \"%3$s\".", name, value, defaultValue); //$NON-NLS-1$
+		return defaultValue;
+	}
+
+	/**
+	 * This method answers a number in the same way as
+	 * {@link #getEnumSetting(String, String, String[], String)}. A system
+	 * property that is not a number is logged and the default used instead.
+	 */
+	private long getLongSetting(String key, long defaultValue) {
+		if (System.getProperties().containsKey(key)) {
+			String value = System.getProperty(key);
+			try {
+				return Long.valueOf(value);
+			} catch (NumberFormatException e) {
+				UsageDataRecordingActivator.getDefault().log(IStatus.WARNING,
+						e, "The UsageDataRecorder cannot parse the %1$s system property (\"%2$s\"); using %3$s.", key, value, String.valueOf(defaultValue)); //$NON-NLS-1$
+			}
+		} else if (getPreferencesStore().contains(key)) {
+			return getPreferencesStore().getLong(key);
+		}
+		return defaultValue;
+	}
+
 	public String getUploadUrl() {
 		if (System.getProperties().containsKey(UPLOAD_URL_KEY)) {
 			return System.getProperty(UPLOAD_URL_KEY);
@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.recording.storage;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEvent;
+
+/**
+ * The {@link BinaryEventReader} decodes events written by the
+ * {@link BinaryEventWriter}, one at a time. A record that is cut short by the
+ * end of the stream (i.e. what is left of a write that was interrupted by a
+ * crash) is treated as the end of the stream; {@link #getPosition()} answers
+ * where the complete records end.
+ * <p>
+ * The reader reads a byte at a time, so the stream should be buffered.
+ * </p>
+ */
+public class BinaryEventReader implements EventReader {
+	private final InputStream input;
+
+	private final List<String> strings = new ArrayList<String>();
+
+	private long time;
+
+	/**
+	 * The number of bytes read from the stream.
+	 */
+	private long count;
+
+	/**
+	 * The number of bytes read from the stream up to the end of the last
+	 * complete record.
+	 */
+	private long position;
+
+	/**
+	 * This method answers whether or not the stream starts with the magic
+	 * number of a binary event file. The stream must support
+	 * {@link InputStream#mark(int)}; it is reset to where it was.
+	 */
+	public static boolean isBinary(InputStream input) throws IOException {
+		byte[] magic = BinaryEventWriter.MAGIC;
+		input.mark(magic.length);
+		try {
+			for (int index = 0; index < magic.length; index++) {
+				if (input.read() != magic[index]) return false;
+			}
+			return true;
+		} finally {
+			input.reset();
+		}
+	}
+
+	/**
+	 * @throws IOException
+	 *             if the stream does not start with the header of a binary
+	 *             event file.
+	 */
+	public BinaryEventReader(InputStream input) throws IOException {
+		this.input = input;
+		byte[] magic = BinaryEventWriter.MAGIC;
+		for (int index = 0; index < magic.length; index++) {
+			if (readByte() != magic[index]) throw new IOException("Not a binary event file"); //$NON-NLS-1$
+		}
+		int version = readByte();
+		if (version != BinaryEventWriter.VERSION) throw new IOException("Unsupported binary event file version " + version); //$NON-NLS-1$
+		position = count;
+	}
+
+	/**
+	 * This method answers the next event in the stream, or <code>null</code>
+	 * if there are no more complete events.
+	 *
+	 * @throws IOException
+	 *             if the stream cannot be read, or holds something other
+	 *             than the records written by a {@link BinaryEventWriter}.
+	 */
+	public UsageDataEvent read() throws IOException {
+		try {
+			while (true) {
+				int type = input.read();
+				if (type == -1) return null;
+				count++;
+				if (type == BinaryEventWriter.STRING) {
+					readString();
+				} else if (type == BinaryEventWriter.EVENT) {
+					return readEvent();
+				} else {
+					throw new IOException("Unknown record type " + type + " at " + position); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+			}
+		} catch (EOFException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return the number of bytes, from the start of the stream, up to the
+	 *         end of the last complete record read.
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+	List<String> getStrings() {
+		return strings;
+	}
+
+	long getTime() {
+		return time;
+	}
+
+	public void close() throws IOException {
+		input.close();
+	}
+
+	private void readString() throws IOException {
+		long size = readVarint();
+		if (size < 0 || size > Integer.MAX_VALUE) throw new IOException("Malformed string at " + position); //$NON-NLS-1$
+		int length = (int) size;
+		byte[] bytes = new byte[length];
+		int offset = 0;
+		while (offset < length) {
+			int read = input.read(bytes, offset, length - offset);
+			if (read == -1) throw new EOFException();
+			offset += read;
+		}
+		count += length;
+		strings.add(new String(bytes, "UTF-8")); //$NON-NLS-1$
+		position = count;
+	}
+
+	private UsageDataEvent readEvent() throws IOException {
+		String what = getString(readVarint());
+		String kind = getString(readVarint());
+		String bundleId = getString(readVarint());
+		String bundleVersion = getString(readVarint());
+		String description = getString(readVarint());
+		long zigzag = readVarint();
+		time += (zigzag >>> 1) ^ -(zigzag & 1);
+		position = count;
+		return new UsageDataEvent(what, kind, description, bundleId, bundleVersion, time);
+	}
+
+	private String getString(long index) throws IOException {
+		if (index == 0) return null;
+		if (index < 0 || index > strings.size()) throw new IOException("Undefined string " + index + " at " + position); //$NON-NLS-1$ //$NON-NLS-2$
+		return strings.get((int) index - 1);
+	}
+
+	private long readVarint() throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int next = readByte();
+			value |= (long) (next & 0x7F) << shift;
+			if ((next & 0x80) == 0) return value;
+		}
+		throw new IOException("Malformed number at " + position); //$NON-NLS-1$
+	}
+
+	private int readByte() throws IOException {
+		int next = input.read();
+		if (next == -1) throw new EOFException();
+		count++;
+		return next;
+	}
+}
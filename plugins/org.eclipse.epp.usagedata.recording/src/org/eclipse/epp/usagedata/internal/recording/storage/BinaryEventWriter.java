@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.recording.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEvent;
+
+/**
+ * The {@link BinaryEventWriter} encodes events in a compact binary form; it
+ * is the counterpart of the {@link BinaryEventReader}. A file holds:
+ *
+ * <pre>
+ * file    := magic (&quot;UDCB&quot;) version (1 byte) record*
+ * record  := STRING length string      defines the next string in the dictionary
+ *          | EVENT what kind bundleId bundleVersion description time
+ * string  := the UTF-8 bytes of the string
+ * what, kind, bundleId, bundleVersion, description
+ *         := the index of a string in the dictionary (starting at 1), or 0
+ *            for null
+ * time    := the difference from the time of the previous event (or 0),
+ *            zig-zag encoded
+ * </pre>
+ * <p>
+ * Lengths, indices and times are variable-length integers: seven bits per
+ * byte, least significant first, with the high bit set on all but the last
+ * byte. Each string is defined once per file, just before the first event
+ * that uses it, so a file can be read (and appended to) from start to end
+ * without a separate dictionary.
+ * </p>
+ * <p>
+ * The receiver remembers the dictionary and the time of the last event that
+ * it encoded, so that consecutive calls to {@link #encode(List)} produce
+ * consecutive parts of the same file. Use {@link #reset()} when starting a
+ * new file and {@link #resume(BinaryEventReader)} when appending to an
+ * existing one.
+ * </p>
+ */
+public class BinaryEventWriter {
+	static final byte[] MAGIC = {'U', 'D', 'C', 'B'};
+
+	static final byte VERSION = 1;
+
+	static final int STRING = 1;
+
+	static final int EVENT = 2;
+
+	/**
+	 * Maps each string defined in the file to its index.
+	 */
+	private final Map<String, Integer> strings = new HashMap<String, Integer>();
+
+	private long time;
+
+	/**
+	 * This method answers the bytes that a file starts with.
+	 */
+	public static byte[] getHeader() {
+		byte[] header = new byte[MAGIC.length + 1];
+		System.arraycopy(MAGIC, 0, header, 0, MAGIC.length);
+		header[MAGIC.length] = VERSION;
+		return header;
+	}
+
+	/**
+	 * This method forgets the dictionary and the time of the last event, so
+	 * that the next events are encoded for the start of a new file.
+	 */
+	public void reset() {
+		strings.clear();
+		time = 0;
+	}
+
+	/**
+	 * This method picks up the dictionary and the time of the last event
+	 * from a reader that has read an existing file to the end, so that the
+	 * next events are encoded for appending to that file.
+	 */
+	public void resume(BinaryEventReader reader) {
+		reset();
+		List<String> defined = reader.getStrings();
+		for (int index = 0; index < defined.size(); index++) {
+			strings.put(defined.get(index), index + 1);
+		}
+		time = reader.getTime();
+	}
+
+	/**
+	 * This method answers the encoded form of <code>events</code>, including
+	 * the definitions of any strings that they use for the first time.
+	 */
+	public byte[] encode(List<UsageDataEvent> events) {
+		ByteArrayOutputStream output = new ByteArrayOutputStream(events.size() * 16);
+		for (UsageDataEvent event : events) {
+			int what = define(output, event.what);
+			int kind = define(output, event.kind);
+			int bundleId = define(output, event.bundleId);
+			int bundleVersion = define(output, event.bundleVersion);
+			int description = define(output, event.description);
+			output.write(EVENT);
+			writeVarint(output, what);
+			writeVarint(output, kind);
+			writeVarint(output, bundleId);
+			writeVarint(output, bundleVersion);
+			writeVarint(output, description);
+			long delta = event.when - time;
+			writeVarint(output, (delta << 1) ^ (delta >> 63));
+			time = event.when;
+		}
+		return output.toByteArray();
+	}
+
+	/**
+	 * This method answers the index of <code>value</code> in the dictionary,
+	 * writing its definition first if it is not there yet.
+	 */
+	private int define(ByteArrayOutputStream output, String value) {
+		if (value == null) return 0;
+		Integer index = strings.get(value);
+		if (index != null) return index;
+		byte[] bytes = getBytes(value);
+		output.write(STRING);
+		writeVarint(output, bytes.length);
+		output.write(bytes, 0, bytes.length);
+		index = strings.size() + 1;
+		strings.put(value, index);
+		return index;
+	}
+
+	private static byte[] getBytes(String value) {
+		try {
+			return value.getBytes("UTF-8"); //$NON-NLS-1$
+		} catch (UnsupportedEncodingException e) {
+			// Every Java runtime supports UTF-8.
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void writeVarint(ByteArrayOutputStream output, long value) {
+		while ((value & ~0x7FL) != 0) {
+			output.write((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		output.write((int) value);
+	}
+}
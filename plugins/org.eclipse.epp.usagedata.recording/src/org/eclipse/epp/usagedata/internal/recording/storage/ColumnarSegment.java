@@ -0,0 +1,395 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.recording.storage;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEvent;
+import org.eclipse.epp.usagedata.internal.recording.UsageDataRecorderUtils;
+import org.eclipse.epp.usagedata.internal.recording.settings.RecordingSettings;
+
+/**
+ * The {@link ColumnarSegment} class describes the columnar layout that a
+ * sealed {@link EventSegment} is transposed into, and writes it (see
+ * {@link #transpose(File)}); the {@link ColumnarSegmentReader} reads it. A
+ * columnar segment holds the same events as the segment, but stores each
+ * field of the events together, so that a reader that only needs some of
+ * the fields (e.g. the bundle ids or the times) only decodes those.
+ *
+ * <pre>
+ * file    := magic (&quot;UDCC&quot;) version (1 byte) chunk* footer length (int) magic
+ * chunk   := dictionary width (1 byte) packed     for the string columns
+ *          | width (1 byte) packed                 for the {@link #WHEN} column
+ * dictionary := count string*                      each string is length UTF-8-bytes
+ * footer  := rows column-entry*                    one for each column, in order
+ * column-entry := offset length 0                  for a string column without values
+ *          | offset length 1 minimum maximum       for any other string column
+ *          | offset length minimum maximum         for the {@link #WHEN} column
+ * </pre>
+ * <p>
+ * The rows of a string column are indices into the column's dictionary
+ * (starting at 1, 0 is null); the rows of the {@link #WHEN} column are the
+ * difference from the minimum time. Either way, the values are packed
+ * <i>width</i> bits apiece, least significant bit first, which is just wide
+ * enough for the largest value in the column. The footer holds where each
+ * chunk starts and how long it is, along with the smallest and largest value
+ * in the column (strings compare lexicographically), so that a reader can
+ * decide whether a file is of interest without reading any of the rows.
+ * Counts, lengths, offsets and times are variable-length integers, as in
+ * the {@link BinaryEventWriter}; the times are zig-zag encoded. The footer
+ * length is big-endian.
+ * </p>
+ */
+public class ColumnarSegment {
+	static final byte[] MAGIC = {'U', 'D', 'C', 'C'};
+
+	static final byte VERSION = 1;
+
+	public static final int WHAT = 0;
+
+	public static final int KIND = 1;
+
+	public static final int BUNDLE_ID = 2;
+
+	public static final int BUNDLE_VERSION = 3;
+
+	public static final int DESCRIPTION = 4;
+
+	public static final int WHEN = 5;
+
+	static final int COLUMN_COUNT = 6;
+
+	/**
+	 * The size of the footer length and magic number at the end of a file.
+	 */
+	static final int TRAILER_SIZE = 4 + MAGIC.length;
+
+	/**
+	 * This method answers whether or not the file starts with the magic
+	 * number of a columnar segment.
+	 */
+	public static boolean isColumnar(File file) {
+		if (file.length() < MAGIC.length + 1 + TRAILER_SIZE) return false;
+		DataInputStream input = null;
+		try {
+			input = new DataInputStream(new FileInputStream(file));
+			for (int index = 0; index < MAGIC.length; index++) {
+				if (input.readByte() != MAGIC[index]) return false;
+			}
+			return true;
+		} catch (IOException e) {
+			return false;
+		} finally {
+			close(input);
+		}
+	}
+
+	/**
+	 * This method transposes a sealed event segment into a columnar segment
+	 * with the same name, but with the extension
+	 * {@link RecordingSettings#COLUMNAR_EXTENSION}, and deletes the event
+	 * segment. The columnar segment is written under a temporary name and
+	 * renamed once it is complete, so a crash leaves either the event segment
+	 * or the columnar segment (or both, in which case the event segment is
+	 * deleted the next time). The event segment is read, not mapped, so that
+	 * it can be deleted on every platform.
+	 *
+	 * @return the columnar segment.
+	 * @throws IOException
+	 *             if the event segment cannot be read or the columnar segment
+	 *             cannot be written; the event segment is left as it is.
+	 */
+	public static File transpose(File segment) throws IOException {
+		String name = segment.getName();
+		int dot = name.lastIndexOf('.');
+		if (dot != -1) name = name.substring(0, dot);
+		File destination = new File(segment.getParentFile(), name + RecordingSettings.COLUMNAR_EXTENSION);
+		if (!destination.exists()) {
+			// Not named like an upload file, so the uploader doesn't see it.
+			File temporary = new File(segment.getParentFile(), "." + name + ".tmp"); //$NON-NLS-1$ //$NON-NLS-2$
+			byte[] bytes = encode(readEvents(segment));
+			FileOutputStream output = new FileOutputStream(temporary);
+			try {
+				output.write(bytes);
+				output.getChannel().force(false);
+			} finally {
+				output.close();
+			}
+			if (!temporary.renameTo(destination)) {
+				temporary.delete();
+				throw new IOException("Cannot move " + temporary + " to " + destination); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+		// The event segment may still be open elsewhere (e.g. being uploaded).
+		// The columnar segment outranks it, so the catalog deletes it when it
+		// is next loaded, if it has not gone by then.
+		if (!segment.delete() && segment.exists()) segment.deleteOnExit();
+		return destination;
+	}
+
+	/**
+	 * This method answers the events in the (CSV) payload of the segment.
+	 * Lines that cannot be parsed are skipped, as they are by the
+	 * {@link org.eclipse.epp.usagedata.internal.recording.uploading.UsageDataFileReader}.
+	 */
+	static List<UsageDataEvent> readEvents(File segment) throws IOException {
+		List<UsageDataEvent> events = new ArrayList<UsageDataEvent>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(EventSegment.openPayload(segment)));
+		try {
+			// The first line is the header.
+			reader.readLine();
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] tokens = UsageDataRecorderUtils.splitLine(line);
+				if (tokens.length != 6) continue;
+				long when;
+				try {
+					when = Long.parseLong(tokens[5].trim());
+				} catch (NumberFormatException e) {
+					continue;
+				}
+				events.add(new UsageDataEvent(tokens[0], tokens[1], UsageDataRecorderUtils.decode(tokens[4]), tokens[2], tokens[3], when));
+			}
+		} finally {
+			reader.close();
+		}
+		return events;
+	}
+
+	/**
+	 * This method answers the columnar form of <code>events</code>.
+	 */
+	static byte[] encode(List<UsageDataEvent> events) {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		ByteArrayOutputStream footer = new ByteArrayOutputStream();
+		output.write(MAGIC, 0, MAGIC.length);
+		output.write(VERSION);
+		writeVarint(footer, events.size());
+		for (int column = 0; column < COLUMN_COUNT; column++) {
+			int offset = output.size();
+			byte[] statistics = column == WHEN ? writeWhen(output, events) : writeStrings(output, events, column);
+			writeVarint(footer, offset);
+			writeVarint(footer, output.size() - offset);
+			footer.write(statistics, 0, statistics.length);
+		}
+		byte[] bytes = footer.toByteArray();
+		output.write(bytes, 0, bytes.length);
+		output.write(bytes.length >>> 24);
+		output.write(bytes.length >>> 16);
+		output.write(bytes.length >>> 8);
+		output.write(bytes.length);
+		output.write(MAGIC, 0, MAGIC.length);
+		return output.toByteArray();
+	}
+
+	/**
+	 * This method writes the chunk of a string column.
+	 *
+	 * @return the statistics for the footer.
+	 */
+	private static byte[] writeStrings(ByteArrayOutputStream output, List<UsageDataEvent> events, int column) {
+		Map<String, Integer> indices = new HashMap<String, Integer>();
+		List<String> dictionary = new ArrayList<String>();
+		long[] rows = new long[events.size()];
+		String minimum = null, maximum = null;
+		for (int row = 0; row < rows.length; row++) {
+			String value = getString(events.get(row), column);
+			if (value == null) continue;
+			Integer index = indices.get(value);
+			if (index == null) {
+				dictionary.add(value);
+				index = dictionary.size();
+				indices.put(value, index);
+				if (minimum == null || value.compareTo(minimum) < 0) minimum = value;
+				if (maximum == null || value.compareTo(maximum) > 0) maximum = value;
+			}
+			rows[row] = index;
+		}
+		writeVarint(output, dictionary.size());
+		for (String value : dictionary) {
+			writeString(output, value);
+		}
+		pack(output, rows, getWidth(dictionary.size()));
+
+		ByteArrayOutputStream statistics = new ByteArrayOutputStream();
+		if (minimum == null) {
+			statistics.write(0);
+		} else {
+			statistics.write(1);
+			writeString(statistics, minimum);
+			writeString(statistics, maximum);
+		}
+		return statistics.toByteArray();
+	}
+
+	/**
+	 * This method writes the chunk of the {@link #WHEN} column.
+	 *
+	 * @return the statistics for the footer.
+	 */
+	private static byte[] writeWhen(ByteArrayOutputStream output, List<UsageDataEvent> events) {
+		long minimum = Long.MAX_VALUE, maximum = Long.MIN_VALUE;
+		for (UsageDataEvent event : events) {
+			minimum = Math.min(minimum, event.when);
+			maximum = Math.max(maximum, event.when);
+		}
+		if (events.isEmpty()) minimum = maximum = 0;
+		long[] rows = new long[events.size()];
+		for (int row = 0; row < rows.length; row++) {
+			rows[row] = events.get(row).when - minimum;
+		}
+		pack(output, rows, getWidth(maximum - minimum));
+
+		ByteArrayOutputStream statistics = new ByteArrayOutputStream();
+		writeVarint(statistics, (minimum << 1) ^ (minimum >> 63));
+		writeVarint(statistics, (maximum << 1) ^ (maximum >> 63));
+		return statistics.toByteArray();
+	}
+
+	static String getString(UsageDataEvent event, int column) {
+		switch (column) {
+		case WHAT:
+			return event.what;
+		case KIND:
+			return event.kind;
+		case BUNDLE_ID:
+			return event.bundleId;
+		case BUNDLE_VERSION:
+			return event.bundleVersion;
+		case DESCRIPTION:
+			return event.description;
+		default:
+			throw new IllegalArgumentException(String.valueOf(column));
+		}
+	}
+
+	/**
+	 * @return the number of bits needed for values up to <code>maximum</code>
+	 *         (treated as unsigned).
+	 */
+	static int getWidth(long maximum) {
+		return 64 - Long.numberOfLeadingZeros(maximum);
+	}
+
+	/**
+	 * This method writes the width, followed by the values packed
+	 * <code>width</code> bits apiece.
+	 */
+	static void pack(ByteArrayOutputStream output, long[] values, int width) {
+		output.write(width);
+		int current = 0;
+		int bits = 0;
+		for (long value : values) {
+			int remaining = width;
+			while (remaining > 0) {
+				int take = Math.min(remaining, 8 - bits);
+				current |= (int) (value & ((1 << take) - 1)) << bits;
+				value >>>= take;
+				remaining -= take;
+				bits += take;
+				if (bits == 8) {
+					output.write(current);
+					current = 0;
+					bits = 0;
+				}
+			}
+		}
+		if (bits > 0) output.write(current);
+	}
+
+	/**
+	 * This method reads <code>count</code> values written by
+	 * {@link #pack(ByteArrayOutputStream, long[], int)}.
+	 */
+	static long[] unpack(ByteBuffer input, int count) {
+		int width = input.get() & 0xff;
+		long[] values = new long[count];
+		int current = 0;
+		int bits = 0;
+		for (int index = 0; index < count; index++) {
+			long value = 0;
+			int filled = 0;
+			while (filled < width) {
+				if (bits == 0) {
+					current = input.get() & 0xff;
+					bits = 8;
+				}
+				int take = Math.min(width - filled, bits);
+				value |= (long) (current & ((1 << take) - 1)) << filled;
+				current >>>= take;
+				bits -= take;
+				filled += take;
+			}
+			values[index] = value;
+		}
+		return values;
+	}
+
+	private static void writeString(ByteArrayOutputStream output, String value) {
+		try {
+			byte[] bytes = value.getBytes("UTF-8"); //$NON-NLS-1$
+			writeVarint(output, bytes.length);
+			output.write(bytes, 0, bytes.length);
+		} catch (UnsupportedEncodingException e) {
+			// Every Java runtime supports UTF-8.
+			throw new IllegalStateException(e);
+		}
+	}
+
+	static String readString(ByteBuffer input) throws IOException {
+		long length = readVarint(input);
+		if (length < 0 || length > input.remaining()) throw new IOException("Malformed columnar segment"); //$NON-NLS-1$
+		byte[] bytes = new byte[(int) length];
+		input.get(bytes);
+		return new String(bytes, "UTF-8"); //$NON-NLS-1$
+	}
+
+	static void writeVarint(ByteArrayOutputStream output, long value) {
+		while ((value & ~0x7FL) != 0) {
+			output.write((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		output.write((int) value);
+	}
+
+	static long readVarint(ByteBuffer input) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int next = input.get() & 0xff;
+			value |= (long) (next & 0x7F) << shift;
+			if ((next & 0x80) == 0) return value;
+		}
+		throw new IOException("Malformed columnar segment"); //$NON-NLS-1$
+	}
+
+	private static void close(InputStream input) {
+		if (input == null) return;
+		try {
+			input.close();
+		} catch (IOException e) {
+			// Nothing to do.
+		}
+	}
+}
@@ -0,0 +1,225 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.recording.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEvent;
+
+/**
+ * The {@link ColumnarSegmentReader} reads a {@link ColumnarSegment}. The
+ * file is mapped into memory and only the footer is decoded up front; each
+ * column is decoded when (and only if) it is asked for, so a reader that
+ * needs, say, the bundle ids does not pay for the descriptions. The
+ * statistics in the footer (e.g. {@link #getMinimumTime()}) answer some
+ * questions without decoding any columns at all.
+ * <p>
+ * Columns are identified by the constants in {@link ColumnarSegment}
+ * (e.g. {@link ColumnarSegment#BUNDLE_ID}).
+ * </p>
+ */
+public class ColumnarSegmentReader {
+	private final File file;
+
+	private final ByteBuffer buffer;
+
+	private final int rows;
+
+	private final int[] offsets = new int[ColumnarSegment.COLUMN_COUNT];
+
+	private final int[] lengths = new int[ColumnarSegment.COLUMN_COUNT];
+
+	private final String[] minimums = new String[ColumnarSegment.WHEN];
+
+	private final String[] maximums = new String[ColumnarSegment.WHEN];
+
+	private final long minimumTime;
+
+	private final long maximumTime;
+
+	/**
+	 * @throws IOException
+	 *             if the file cannot be read or is not a columnar segment.
+	 */
+	public ColumnarSegmentReader(File file) throws IOException {
+		this.file = file;
+		RandomAccessFile access = new RandomAccessFile(file, "r"); //$NON-NLS-1$
+		try {
+			FileChannel channel = access.getChannel();
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			access.close();
+		}
+		try {
+			if (buffer.capacity() < ColumnarSegment.MAGIC.length + 1 + ColumnarSegment.TRAILER_SIZE) throw corrupt();
+			checkMagic(0);
+			if (buffer.get(ColumnarSegment.MAGIC.length) != ColumnarSegment.VERSION) throw new IOException(file + " has an unsupported columnar segment version"); //$NON-NLS-1$
+			int trailer = buffer.capacity() - ColumnarSegment.TRAILER_SIZE;
+			checkMagic(trailer + 4);
+			int footerLength = buffer.getInt(trailer);
+			if (footerLength < 0 || footerLength > trailer) throw corrupt();
+			ByteBuffer footer = slice(trailer - footerLength, footerLength);
+			rows = (int) ColumnarSegment.readVarint(footer);
+			if (rows < 0) throw corrupt();
+			for (int column = 0; column < ColumnarSegment.COLUMN_COUNT; column++) {
+				offsets[column] = (int) ColumnarSegment.readVarint(footer);
+				lengths[column] = (int) ColumnarSegment.readVarint(footer);
+				if (offsets[column] < 0 || lengths[column] < 0 || offsets[column] + lengths[column] > trailer - footerLength) throw corrupt();
+				if (column == ColumnarSegment.WHEN) break;
+				if (footer.get() == 0) continue;
+				minimums[column] = ColumnarSegment.readString(footer);
+				maximums[column] = ColumnarSegment.readString(footer);
+			}
+			minimumTime = readZigzag(footer);
+			maximumTime = readZigzag(footer);
+		} catch (BufferUnderflowException e) {
+			throw corrupt();
+		}
+	}
+
+	/**
+	 * @return the number of events in the file.
+	 */
+	public int getRowCount() {
+		return rows;
+	}
+
+	/**
+	 * @return the smallest value in the string column, or <code>null</code>
+	 *         if the column has no values.
+	 */
+	public String getMinimum(int column) {
+		return minimums[column];
+	}
+
+	/**
+	 * @return the largest value in the string column, or <code>null</code>
+	 *         if the column has no values.
+	 */
+	public String getMaximum(int column) {
+		return maximums[column];
+	}
+
+	/**
+	 * @return the time of the earliest event in the file.
+	 */
+	public long getMinimumTime() {
+		return minimumTime;
+	}
+
+	/**
+	 * @return the time of the latest event in the file.
+	 */
+	public long getMaximumTime() {
+		return maximumTime;
+	}
+
+	/**
+	 * This method decodes a string column.
+	 *
+	 * @return the value of the column for each event, in order. Equal values
+	 *         are the same instance.
+	 */
+	public String[] readStrings(int column) throws IOException {
+		if (column < 0 || column >= ColumnarSegment.WHEN) throw new IllegalArgumentException(String.valueOf(column));
+		ByteBuffer chunk = slice(offsets[column], lengths[column]);
+		try {
+			int size = (int) ColumnarSegment.readVarint(chunk);
+			if (size < 0 || size > lengths[column]) throw corrupt();
+			String[] dictionary = new String[size + 1];
+			for (int index = 1; index <= size; index++) {
+				dictionary[index] = ColumnarSegment.readString(chunk);
+			}
+			long[] indices = ColumnarSegment.unpack(chunk, rows);
+			String[] values = new String[rows];
+			for (int row = 0; row < rows; row++) {
+				if (indices[row] > size) throw corrupt();
+				values[row] = dictionary[(int) indices[row]];
+			}
+			return values;
+		} catch (BufferUnderflowException e) {
+			throw corrupt();
+		}
+	}
+
+	/**
+	 * This method decodes the {@link ColumnarSegment#WHEN} column.
+	 *
+	 * @return the time of each event, in order.
+	 */
+	public long[] readTimes() throws IOException {
+		ByteBuffer chunk = slice(offsets[ColumnarSegment.WHEN], lengths[ColumnarSegment.WHEN]);
+		try {
+			long[] times = ColumnarSegment.unpack(chunk, rows);
+			for (int row = 0; row < rows; row++) {
+				times[row] += minimumTime;
+			}
+			return times;
+		} catch (BufferUnderflowException e) {
+			throw corrupt();
+		}
+	}
+
+	/**
+	 * This method answers a reader of the events in the file, which decodes
+	 * all of the columns.
+	 */
+	public EventReader getEvents() throws IOException {
+		final String[] what = readStrings(ColumnarSegment.WHAT);
+		final String[] kind = readStrings(ColumnarSegment.KIND);
+		final String[] bundleId = readStrings(ColumnarSegment.BUNDLE_ID);
+		final String[] bundleVersion = readStrings(ColumnarSegment.BUNDLE_VERSION);
+		final String[] description = readStrings(ColumnarSegment.DESCRIPTION);
+		final long[] when = readTimes();
+		return new EventReader() {
+			private int row = 0;
+
+			public UsageDataEvent read() {
+				if (row == rows) return null;
+				UsageDataEvent event = new UsageDataEvent(what[row], kind[row], description[row], bundleId[row], bundleVersion[row], when[row]);
+				row++;
+				return event;
+			}
+
+			public void close() {
+				// The mapping is released when it is no longer referenced.
+			}
+		};
+	}
+
+	private void checkMagic(int offset) throws IOException {
+		if (offset < 0 || offset + ColumnarSegment.MAGIC.length > buffer.capacity()) throw corrupt();
+		for (int index = 0; index < ColumnarSegment.MAGIC.length; index++) {
+			if (buffer.get(offset + index) != ColumnarSegment.MAGIC[index]) throw corrupt();
+		}
+	}
+
+	private ByteBuffer slice(int offset, int length) {
+		ByteBuffer slice = buffer.duplicate();
+		slice.position(offset);
+		slice.limit(offset + length);
+		return slice.slice();
+	}
+
+	private long readZigzag(ByteBuffer input) throws IOException {
+		long zigzag = ColumnarSegment.readVarint(input);
+		return (zigzag >>> 1) ^ -(zigzag & 1);
+	}
+
+	private IOException corrupt() {
+		return new IOException(file + " is not a columnar segment"); //$NON-NLS-1$
+	}
+}
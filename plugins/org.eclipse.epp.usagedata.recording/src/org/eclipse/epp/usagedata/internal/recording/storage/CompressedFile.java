@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.recording.storage;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.eclipse.epp.usagedata.internal.recording.settings.RecordingSettings;
+
+/**
+ * The {@link CompressedFile} class compresses files that are waiting to be
+ * uploaded (see {@link #compress(File, String)}) and opens them again,
+ * compressed or not (see {@link #open(File)}). A compressed file is named
+ * after the original, with {@link RecordingSettings#GZIP_EXTENSION} or
+ * {@link RecordingSettings#LZ_EXTENSION} added, and replaces it.
+ */
+public class CompressedFile {
+	private static final int GZIP_MAGIC = 0x1F8B;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * This method answers the extension that <code>compression</code> adds
+	 * to the name of a file, or <code>null</code> if it does not compress.
+	 *
+	 * @param compression
+	 *            one of the values described by
+	 *            {@link RecordingSettings#getCompression()}.
+	 */
+	public static String getExtension(String compression) {
+		if (RecordingSettings.COMPRESSION_GZIP.equals(compression)) return RecordingSettings.GZIP_EXTENSION;
+		if (RecordingSettings.COMPRESSION_LZ.equals(compression)) return RecordingSettings.LZ_EXTENSION;
+		return null;
+	}
+
+	/**
+	 * This method answers whether or not the file is compressed, going by
+	 * its contents rather than its name.
+	 */
+	public static boolean isCompressed(File file) throws IOException {
+		InputStream input = new BufferedInputStream(new FileInputStream(file));
+		try {
+			return isGzip(input) || LzInputStream.isLz(input);
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * This method answers a (buffered) stream of the contents of the file,
+	 * which are decompressed as they are read if the file is compressed.
+	 */
+	public static InputStream open(File file) throws IOException {
+		InputStream input = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+		try {
+			if (isGzip(input)) return new BufferedInputStream(new GZIPInputStream(input, BUFFER_SIZE));
+			if (LzInputStream.isLz(input)) return new BufferedInputStream(new LzInputStream(input));
+			return input;
+		} catch (IOException e) {
+			input.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * This method replaces the file with its compressed form. The compressed
+	 * file is written under a temporary name, forced to the disk and then
+	 * renamed into place, so that a crash leaves the original rather than a
+	 * partly written file; if the compressed file is already there, the
+	 * original is simply deleted.
+	 *
+	 * @param compression
+	 *            {@link RecordingSettings#COMPRESSION_GZIP} or
+	 *            {@link RecordingSettings#COMPRESSION_LZ}.
+	 * @return the compressed file.
+	 */
+	public static File compress(File file, String compression) throws IOException {
+		String extension = getExtension(compression);
+		if (extension == null) throw new IllegalArgumentException(compression);
+		File destination = new File(file.getParentFile(), file.getName() + extension);
+		if (!destination.exists()) {
+			// Not named like an upload file, so the uploader doesn't see it.
+			File temporary = new File(file.getParentFile(), "." + destination.getName() + ".tmp"); //$NON-NLS-1$ //$NON-NLS-2$
+			FileOutputStream output = new FileOutputStream(temporary);
+			try {
+				OutputStream compressed = RecordingSettings.COMPRESSION_GZIP.equals(compression)
+						? new GZIPOutputStream(output, BUFFER_SIZE)
+						: new LzOutputStream(output);
+				copy(file, compressed);
+				if (compressed instanceof GZIPOutputStream) {
+					((GZIPOutputStream) compressed).finish();
+				} else {
+					((LzOutputStream) compressed).finish();
+				}
+				output.getChannel().force(false);
+			} finally {
+				output.close();
+			}
+			if (!temporary.renameTo(destination)) {
+				temporary.delete();
+				throw new IOException("Cannot move " + temporary + " to " + destination); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+		file.delete();
+		return destination;
+	}
+
+	private static void copy(File file, OutputStream output) throws IOException {
+		InputStream input = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int read;
+			while ((read = input.read(buffer)) != -1) {
+				output.write(buffer, 0, read);
+			}
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * The stream must support {@link InputStream#mark(int)}; it is reset to
+	 * where it was.
+	 */
+	private static boolean isGzip(InputStream input) throws IOException {
+		input.mark(2);
+		try {
+			return (input.read() << 8 | input.read()) == GZIP_MAGIC;
+		} finally {
+			input.reset();
+		}
+	}
+}
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.recording.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEvent;
+import org.eclipse.epp.usagedata.internal.recording.UsageDataRecorderUtils;
+
+/**
+ * The {@link CsvEventInputStream} converts events read by an
+ * {@link EventReader} (e.g. binary events, see {@link BinaryEventWriter})
+ * into the CSV form that the recorder writes to the event file, header line
+ * included, for a server that only understands CSV. The conversion is done
+ * an event at a time as the stream is read, so the CSV form of the whole
+ * file is never held in memory.
+ */
+public class CsvEventInputStream extends InputStream {
+	private final EventReader reader;
+
+	private final StringWriter writer = new StringWriter();
+
+	/**
+	 * The CSV form of the current event (or the header).
+	 */
+	private byte[] line;
+
+	private int offset;
+
+	public CsvEventInputStream(EventReader reader) throws IOException {
+		this.reader = reader;
+		UsageDataRecorderUtils.writeHeader(writer);
+		setLine();
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!fill()) return -1;
+		return line[offset++] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] bytes, int start, int length) throws IOException {
+		if (length == 0) return 0;
+		if (!fill()) return -1;
+		int count = Math.min(length, line.length - offset);
+		System.arraycopy(line, offset, bytes, start, count);
+		offset += count;
+		return count;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	/**
+	 * This method makes sure that there is something left in the current
+	 * line, converting the next event if necessary.
+	 *
+	 * @return <code>false</code> if there are no more events.
+	 */
+	private boolean fill() throws IOException {
+		while (offset == line.length) {
+			UsageDataEvent event = reader.read();
+			if (event == null) return false;
+			UsageDataRecorderUtils.writeEvent(writer, event);
+			setLine();
+		}
+		return true;
+	}
+
+	private void setLine() {
+		line = writer.toString().getBytes();
+		offset = 0;
+		writer.getBuffer().setLength(0);
+	}
+}
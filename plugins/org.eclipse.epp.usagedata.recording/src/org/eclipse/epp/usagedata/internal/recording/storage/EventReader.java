@@ -0,0 +1,29 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.recording.storage;
+
+import java.io.IOException;
+
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEvent;
+
+/**
+ * An {@link EventReader} answers the events stored in some form other than
+ * CSV, one at a time and in the order that they were recorded.
+ */
+public interface EventReader {
+	/**
+	 * This method answers the next event, or <code>null</code> if there are
+	 * no more events.
+	 */
+	UsageDataEvent read() throws IOException;
+
+	void close() throws IOException;
+}
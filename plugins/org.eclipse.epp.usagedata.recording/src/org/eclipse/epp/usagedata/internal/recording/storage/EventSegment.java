@@ -0,0 +1,230 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.recording.storage;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The {@link EventSegment} class describes the layout of the segment files
+ * written by the {@link SegmentedEventLog}, and reads them back.
+ * <p>
+ * A segment is a fixed-size file that starts with a {@link #HEADER_SIZE}
+ * byte header, followed by the payload: the events, in exactly the form that
+ * they would be written to the CSV event file (header line included). The
+ * rest of the file is unused. The header holds (big-endian):
+ * </p>
+ *
+ * <pre>
+ * offset  0  int   magic number (&quot;UDCS&quot;)
+ * offset  4  short format version
+ * offset  6  byte  state (open or sealed)
+ * offset  8  long  length of the payload, in bytes
+ * offset 16  long  time that the segment was created
+ * </pre>
+ * <p>
+ * Only the first <i>length</i> bytes of the payload are meaningful; the
+ * length is updated after the events are copied in, so anything beyond it
+ * is an incomplete append and is ignored.
+ * </p>
+ */
+public class EventSegment {
+	static final int MAGIC = 0x55444353;
+
+	static final short VERSION = 1;
+
+	static final byte OPEN = 0;
+
+	static final byte SEALED = 1;
+
+	static final int MAGIC_OFFSET = 0;
+
+	static final int VERSION_OFFSET = 4;
+
+	static final int STATE_OFFSET = 6;
+
+	static final int LENGTH_OFFSET = 8;
+
+	static final int CREATED_OFFSET = 16;
+
+	public static final int HEADER_SIZE = 32;
+
+	/**
+	 * This method answers whether or not the file starts with a segment
+	 * header. It answers <code>false</code> for a CSV event file.
+	 */
+	public static boolean isSegment(File file) {
+		if (file.length() < HEADER_SIZE) return false;
+		DataInputStream input = null;
+		try {
+			input = new DataInputStream(new FileInputStream(file));
+			return input.readInt() == MAGIC;
+		} catch (IOException e) {
+			return false;
+		} finally {
+			close(input);
+		}
+	}
+
+	/**
+	 * This method maps the payload of the segment into memory (read-only).
+	 * Nothing is copied; the buffer reads straight from the file.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be read or is not a segment.
+	 */
+	public static ByteBuffer mapPayload(File file) throws IOException {
+		RandomAccessFile access = new RandomAccessFile(file, "r"); //$NON-NLS-1$
+		try {
+			FileChannel channel = access.getChannel();
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			long length = checkHeader(buffer, file);
+			buffer.position(HEADER_SIZE);
+			buffer.limit(HEADER_SIZE + (int) length);
+			return buffer.slice();
+		} finally {
+			access.close();
+		}
+	}
+
+	/**
+	 * This method answers a stream over the payload of the segment, i.e.
+	 * the events in CSV form. Unlike {@link #mapPayload(File)}, it reads the
+	 * payload from the file as it goes rather than mapping it, so that the
+	 * file can be renamed or deleted afterwards on every platform.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be read or is not a segment.
+	 */
+	public static InputStream openPayload(File file) throws IOException {
+		DataInputStream input = new DataInputStream(new FileInputStream(file));
+		try {
+			byte[] header = new byte[HEADER_SIZE];
+			input.readFully(header);
+			long length = checkHeader(ByteBuffer.wrap(header), file.length(), file);
+			return new PayloadInputStream(input, length);
+		} catch (EOFException e) {
+			close(input);
+			throw new IOException(file + " is not an event segment"); //$NON-NLS-1$
+		} catch (IOException e) {
+			close(input);
+			throw e;
+		}
+	}
+
+	/**
+	 * This method reads the header of the segment, without mapping the file.
+	 *
+	 * @return the header, which may be short if the file is.
+	 */
+	static ByteBuffer readHeader(File file) throws IOException {
+		byte[] header = new byte[(int) Math.min(HEADER_SIZE, file.length())];
+		DataInputStream input = new DataInputStream(new FileInputStream(file));
+		try {
+			input.readFully(header);
+		} finally {
+			close(input);
+		}
+		return ByteBuffer.wrap(header);
+	}
+
+	/**
+	 * @return the length of the payload recorded in the header.
+	 * @throws IOException
+	 *             if the header is not valid.
+	 */
+	static long checkHeader(ByteBuffer buffer, File file) throws IOException {
+		return checkHeader(buffer, buffer.capacity(), file);
+	}
+
+	/**
+	 * @param size
+	 *            the size of the segment that the header was read from.
+	 * @return the length of the payload recorded in the header.
+	 * @throws IOException
+	 *             if the header is not valid.
+	 */
+	static long checkHeader(ByteBuffer buffer, long size, File file) throws IOException {
+		if (buffer.capacity() < HEADER_SIZE || buffer.getInt(MAGIC_OFFSET) != MAGIC)
+			throw new IOException(file + " is not an event segment"); //$NON-NLS-1$
+		if (buffer.getShort(VERSION_OFFSET) != VERSION)
+			throw new IOException(file + " has an unsupported segment version"); //$NON-NLS-1$
+		long length = buffer.getLong(LENGTH_OFFSET);
+		if (length < 0 || HEADER_SIZE + length > size)
+			throw new IOException(file + " has a corrupt segment header"); //$NON-NLS-1$
+		return length;
+	}
+
+	private static void close(InputStream input) {
+		if (input == null) return;
+		try {
+			input.close();
+		} catch (IOException e) {
+			// Nothing to do.
+		}
+	}
+
+	/**
+	 * An {@link InputStream} that reads no more than the payload of a
+	 * segment, leaving out the unused rest of the file.
+	 */
+	private static class PayloadInputStream extends FilterInputStream {
+		private long remaining;
+
+		PayloadInputStream(InputStream input, long length) {
+			super(input);
+			remaining = length;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (remaining <= 0) return -1;
+			int next = super.read();
+			if (next != -1) remaining--;
+			return next;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) throws IOException {
+			if (length == 0) return 0;
+			if (remaining <= 0) return -1;
+			int count = super.read(bytes, offset, (int) Math.min(length, remaining));
+			if (count > 0) remaining -= count;
+			return count;
+		}
+
+		@Override
+		public long skip(long count) throws IOException {
+			long skipped = super.skip(Math.min(count, remaining));
+			remaining -= skipped;
+			return skipped;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return (int) Math.min(super.available(), remaining);
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+	}
+}
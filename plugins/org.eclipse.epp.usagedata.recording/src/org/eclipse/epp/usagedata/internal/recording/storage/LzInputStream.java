@@ -0,0 +1,201 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.recording.storage;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The {@link LzInputStream} decompresses what an {@link LzOutputStream}
+ * wrote, a block at a time. A stream that ends before its end marker (e.g.
+ * because it was cut short) is reported with an {@link EOFException}.
+ */
+public class LzInputStream extends InputStream {
+	private final InputStream input;
+
+	private final byte[] block = new byte[LzOutputStream.BLOCK_SIZE];
+
+	private final byte[] compressed = new byte[LzOutputStream.getMaximumCompressedLength(LzOutputStream.BLOCK_SIZE)];
+
+	private int position = 0;
+
+	private int length = 0;
+
+	private boolean ended = false;
+
+	/**
+	 * This method answers whether or not the stream starts with the magic
+	 * number of an LZ stream. The stream must support
+	 * {@link InputStream#mark(int)}; it is reset to where it was.
+	 */
+	public static boolean isLz(InputStream input) throws IOException {
+		byte[] magic = LzOutputStream.MAGIC;
+		input.mark(magic.length);
+		try {
+			for (int index = 0; index < magic.length; index++) {
+				if (input.read() != magic[index]) return false;
+			}
+			return true;
+		} finally {
+			input.reset();
+		}
+	}
+
+	/**
+	 * @throws IOException
+	 *             if the stream does not start with the header written by an
+	 *             {@link LzOutputStream}.
+	 */
+	public LzInputStream(InputStream input) throws IOException {
+		this.input = input;
+		byte[] magic = LzOutputStream.MAGIC;
+		for (int index = 0; index < magic.length; index++) {
+			if (readByte() != magic[index]) throw new IOException("Not an LZ stream"); //$NON-NLS-1$
+		}
+		int version = readByte();
+		if (version != LzOutputStream.VERSION) throw new IOException("Unsupported LZ stream version " + version); //$NON-NLS-1$
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!fill()) return -1;
+		return block[position++] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] bytes, int offset, int count) throws IOException {
+		if (count == 0) return 0;
+		if (!fill()) return -1;
+		int chunk = Math.min(count, length - position);
+		System.arraycopy(block, position, bytes, offset, chunk);
+		position += chunk;
+		return chunk;
+	}
+
+	@Override
+	public int available() {
+		return length - position;
+	}
+
+	@Override
+	public void close() throws IOException {
+		input.close();
+	}
+
+	/**
+	 * This method makes sure that there is something left in the current
+	 * block, reading the next one if necessary.
+	 *
+	 * @return <code>false</code> at the end of the stream.
+	 */
+	private boolean fill() throws IOException {
+		while (position == length) {
+			if (ended) return false;
+			int size = readVarint();
+			if (size == 0) {
+				ended = true;
+				return false;
+			}
+			int compressedSize = readVarint();
+			if (size < 0 || size > block.length || compressedSize <= 0 || compressedSize > size) throw corrupt();
+			if (compressedSize == size) {
+				readFully(block, size);
+			} else {
+				readFully(compressed, compressedSize);
+				decompress(compressed, compressedSize, block, size);
+			}
+			position = 0;
+			length = size;
+		}
+		return true;
+	}
+
+	/**
+	 * This method decompresses a block written by
+	 * {@link LzOutputStream#compress(byte[], int, byte[], int[])}.
+	 *
+	 * @throws IOException
+	 *             if the block does not decompress to exactly
+	 *             <code>length</code> bytes.
+	 */
+	static void decompress(byte[] source, int sourceLength, byte[] target, int length) throws IOException {
+		int input = 0;
+		int output = 0;
+		try {
+			while (true) {
+				int token = source[input++] & 0xFF;
+				int literals = token >>> 4;
+				if (literals == 15) {
+					int next;
+					do {
+						next = source[input++] & 0xFF;
+						literals += next;
+					} while (next == 255);
+				}
+				if (input + literals > sourceLength || output + literals > length) throw corrupt();
+				System.arraycopy(source, input, target, output, literals);
+				input += literals;
+				output += literals;
+				if (input == sourceLength) break;
+
+				int offset = (source[input++] & 0xFF) | (source[input++] & 0xFF) << 8;
+				int match = token & 0x0F;
+				if (match == 15) {
+					int next;
+					do {
+						next = source[input++] & 0xFF;
+						match += next;
+					} while (next == 255);
+				}
+				match += LzOutputStream.MIN_MATCH;
+				if (input > sourceLength || offset == 0 || offset > output || output + match > length) throw corrupt();
+				// The match may overlap what it produces, so copy a byte at a time.
+				for (int index = 0; index < match; index++) {
+					target[output] = target[output - offset];
+					output++;
+				}
+			}
+		} catch (ArrayIndexOutOfBoundsException e) {
+			throw corrupt();
+		}
+		if (output != length) throw corrupt();
+	}
+
+	private static IOException corrupt() {
+		return new IOException("Malformed LZ block"); //$NON-NLS-1$
+	}
+
+	private void readFully(byte[] bytes, int count) throws IOException {
+		int offset = 0;
+		while (offset < count) {
+			int read = input.read(bytes, offset, count - offset);
+			if (read == -1) throw new EOFException();
+			offset += read;
+		}
+	}
+
+	private int readVarint() throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int next = readByte();
+			value |= (next & 0x7F) << shift;
+			if ((next & 0x80) == 0) return value;
+		}
+		throw new IOException("Malformed LZ block length"); //$NON-NLS-1$
+	}
+
+	private int readByte() throws IOException {
+		int next = input.read();
+		if (next == -1) throw new EOFException();
+		return next;
+	}
+}
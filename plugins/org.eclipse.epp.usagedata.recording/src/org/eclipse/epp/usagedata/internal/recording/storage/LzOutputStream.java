@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.recording.storage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * The {@link LzOutputStream} compresses what is written to it with a simple
+ * LZ77 codec in the style of LZ4: repeated runs of four or more bytes are
+ * replaced by a reference to an earlier occurrence within the same block,
+ * found through a small hash table, and nothing is entropy coded. This is
+ * several times cheaper than deflate, at the cost of a lower ratio; the CSV
+ * that the recorder writes (in which the same bundle ids and views turn up
+ * on line after line) still shrinks several times over. The
+ * {@link LzInputStream} reads what it writes.
+ *
+ * <pre>
+ * stream   := magic (&quot;UDCL&quot;) version (1 byte) block* 0
+ * block    := length compressed-length bytes
+ * bytes    := the block as it is, when compressed-length equals length;
+ *             otherwise, sequence+
+ * sequence := token literal-length* literals [offset match-length*]
+ * token    := the number of literals (high four bits) and the length of the
+ *             match less four (low four bits); 15 means that the number
+ *             continues in the following bytes, each of which is added to
+ *             it until one is less than 255
+ * offset   := how far back the match starts (two bytes, least significant
+ *             first); the last sequence of a block has no match
+ * </pre>
+ * <p>
+ * Lengths are variable-length integers: seven bits per byte, least
+ * significant first, with the high bit set on all but the last byte. Blocks
+ * are compressed independently and hold at most {@link #BLOCK_SIZE} bytes,
+ * so that offsets always fit in two bytes.
+ * </p>
+ */
+public class LzOutputStream extends OutputStream {
+	static final byte[] MAGIC = {'U', 'D', 'C', 'L'};
+
+	static final byte VERSION = 1;
+
+	static final int BLOCK_SIZE = 64 * 1024;
+
+	static final int MIN_MATCH = 4;
+
+	private static final int HASH_BITS = 12;
+
+	private final OutputStream output;
+
+	private final byte[] block = new byte[BLOCK_SIZE];
+
+	private final byte[] compressed = new byte[getMaximumCompressedLength(BLOCK_SIZE)];
+
+	private final int[] table = new int[1 << HASH_BITS];
+
+	private int length = 0;
+
+	private boolean finished = false;
+
+	public LzOutputStream(OutputStream output) throws IOException {
+		this.output = output;
+		output.write(MAGIC);
+		output.write(VERSION);
+	}
+
+	@Override
+	public void write(int value) throws IOException {
+		if (length == BLOCK_SIZE) writeBlock();
+		block[length++] = (byte) value;
+	}
+
+	@Override
+	public void write(byte[] bytes, int offset, int count) throws IOException {
+		while (count > 0) {
+			if (length == BLOCK_SIZE) writeBlock();
+			int chunk = Math.min(count, BLOCK_SIZE - length);
+			System.arraycopy(bytes, offset, block, length, chunk);
+			length += chunk;
+			offset += chunk;
+			count -= chunk;
+		}
+	}
+
+	/**
+	 * This method writes out the block in progress, which ends it; this
+	 * costs some compression, so it is best not to flush at all.
+	 */
+	@Override
+	public void flush() throws IOException {
+		writeBlock();
+		output.flush();
+	}
+
+	/**
+	 * This method finishes the compressed stream without closing the
+	 * underlying stream. Nothing more can be written afterwards.
+	 */
+	public void finish() throws IOException {
+		if (finished) return;
+		writeBlock();
+		output.write(0);
+		output.flush();
+		finished = true;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			finish();
+		} finally {
+			output.close();
+		}
+	}
+
+	private void writeBlock() throws IOException {
+		if (length == 0) return;
+		if (finished) throw new IOException("The stream is finished"); //$NON-NLS-1$
+		int size = compress(block, length, compressed, table);
+		writeVarint(length);
+		if (size < length) {
+			writeVarint(size);
+			output.write(compressed, 0, size);
+		} else {
+			writeVarint(length);
+			output.write(block, 0, length);
+		}
+		length = 0;
+	}
+
+	private void writeVarint(int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			output.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		output.write(value);
+	}
+
+	static int getMaximumCompressedLength(int length) {
+		return length + length / 255 + 16;
+	}
+
+	/**
+	 * This method compresses the first <code>length</code> bytes of
+	 * <code>source</code> into <code>target</code>, which must have room for
+	 * {@link #getMaximumCompressedLength(int)} bytes.
+	 *
+	 * @return the number of bytes written to <code>target</code>.
+	 */
+	static int compress(byte[] source, int length, byte[] target, int[] table) {
+		Arrays.fill(table, -1);
+		int anchor = 0;
+		int position = 0;
+		int output = 0;
+		while (position + MIN_MATCH <= length) {
+			int value = readInt(source, position);
+			int hash = (value * -1640531535) >>> (32 - HASH_BITS);
+			int candidate = table[hash];
+			table[hash] = position;
+			if (candidate < 0 || readInt(source, candidate) != value) {
+				position++;
+				continue;
+			}
+			int match = MIN_MATCH;
+			while (position + match < length && source[candidate + match] == source[position + match]) {
+				match++;
+			}
+			output = writeSequence(source, anchor, position - anchor, target, output, position - candidate, match);
+			position += match;
+			anchor = position;
+		}
+		return writeSequence(source, anchor, length - anchor, target, output, 0, 0);
+	}
+
+	/**
+	 * This method writes a sequence. A <code>match</code> of
+	 * <code>0</code> marks the last sequence of the block, which has no
+	 * offset.
+	 */
+	private static int writeSequence(byte[] source, int start, int literals, byte[] target, int output, int offset, int match) {
+		int matchCode = match == 0 ? 0 : match - MIN_MATCH;
+		int token = output++;
+		target[token] = (byte) ((Math.min(literals, 15) << 4) | Math.min(matchCode, 15));
+		if (literals >= 15) output = writeLength(target, output, literals - 15);
+		System.arraycopy(source, start, target, output, literals);
+		output += literals;
+		if (match == 0) return output;
+		target[output++] = (byte) offset;
+		target[output++] = (byte) (offset >>> 8);
+		if (matchCode >= 15) output = writeLength(target, output, matchCode - 15);
+		return output;
+	}
+
+	private static int writeLength(byte[] target, int output, int remainder) {
+		while (remainder >= 255) {
+			target[output++] = (byte) 255;
+			remainder -= 255;
+		}
+		target[output++] = (byte) remainder;
+		return output;
+	}
+
+	private static int readInt(byte[] source, int position) {
+		return (source[position] & 0xFF)
+			| (source[position + 1] & 0xFF) << 8
+			| (source[position + 2] & 0xFF) << 16
+			| (source[position + 3] & 0xFF) << 24;
+	}
+}
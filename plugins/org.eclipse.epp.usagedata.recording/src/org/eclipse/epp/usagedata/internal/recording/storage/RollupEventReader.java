@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.recording.storage;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEvent;
+import org.eclipse.epp.usagedata.internal.recording.UsageDataRecorderUtils;
+
+/**
+ * The {@link RollupEventReader} reads a rollup (see
+ * {@link org.eclipse.epp.usagedata.internal.recording.settings.RecordingSettings#ROLLUP_EXTENSION}),
+ * which has a line for each distinct event on each day with the time of
+ * the first occurrence and a count, and answers each line as many times as
+ * its count says. Read through a {@link CsvEventInputStream}, a rollup
+ * becomes an event file that the server understands; all that is lost is
+ * the time of every occurrence but the first.
+ */
+public class RollupEventReader implements EventReader {
+	private final BufferedReader reader;
+
+	/**
+	 * The event on the current line, or <code>null</code> if there is none.
+	 */
+	private UsageDataEvent event;
+
+	/**
+	 * The number of times that {@link #event} is still to be answered.
+	 */
+	private long remaining;
+
+	/**
+	 * @param input
+	 *            the (uncompressed) rollup, header line included.
+	 */
+	public RollupEventReader(InputStream input) throws IOException {
+		reader = new BufferedReader(new InputStreamReader(input));
+		// The first line is the header.
+		reader.readLine();
+	}
+
+	public UsageDataEvent read() throws IOException {
+		while (remaining == 0) {
+			String line = reader.readLine();
+			if (line == null) return null;
+			parse(line);
+		}
+		remaining--;
+		return event;
+	}
+
+	/**
+	 * This method sets up the event on the line, and its count; lines that
+	 * cannot be parsed are skipped, as they are by the
+	 * {@link org.eclipse.epp.usagedata.internal.recording.uploading.UsageDataFileReader}.
+	 */
+	private void parse(String line) {
+		String[] tokens = UsageDataRecorderUtils.splitLine(line);
+		if (tokens.length != 7) return;
+		long when;
+		long count;
+		try {
+			when = Long.parseLong(tokens[5].trim());
+			count = Long.parseLong(tokens[6].trim());
+		} catch (NumberFormatException e) {
+			return;
+		}
+		event = new UsageDataEvent(tokens[0], tokens[1], UsageDataRecorderUtils.decode(tokens[4]), tokens[2], tokens[3], when);
+		remaining = Math.max(count, 0);
+	}
+
+	public void close() throws IOException {
+		reader.close();
+	}
+}
@@ -0,0 +1,515 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.recording.storage;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.eclipse.epp.usagedata.internal.recording.settings.RecordingSettings;
+
+/**
+ * The {@link SegmentCatalog} keeps track of the files that are waiting to be
+ * uploaded (the event files that have been rolled over and the segments
+ * that have been sealed), so that neither naming a new one nor finding them
+ * for upload involves the file system. Each file is given the next number
+ * in a sequence that only ever increases, and is named after it (e.g.
+ * <code>upload42.csv</code>); the catalog remembers its length, the number
+ * of events in it, the times of the first and last of those events and
+ * whether or not it has been uploaded.
+ * <p>
+ * The catalog is persisted in a manifest, which is only ever appended to,
+ * one record (a line) per change:
+ * </p>
+ *
+ * <pre>
+ * manifest := header record*
+ * header   := &quot;udc-manifest,1,&quot; next-sequence
+ * record   := &quot;A,&quot; sequence &quot;,&quot; name &quot;,&quot; length &quot;,&quot; events &quot;,&quot; first &quot;,&quot; last
+ *                 (a file is waiting to be uploaded)
+ *           | &quot;M,&quot; sequence &quot;,&quot; name &quot;,&quot; length
+ *                 (the file was replaced, e.g. by its compressed form)
+ *           | &quot;U,&quot; sequence   (the file was uploaded)
+ *           | &quot;D,&quot; sequence   (the file is gone)
+ * </pre>
+ * <p>
+ * Unknown counts and times are written as <code>-1</code>. The manifest is
+ * read (and the directory listed, once) the first time that the catalog is
+ * used: files that the manifest does not know about (e.g. because of a
+ * crash between renaming a file and recording it, or because they were left
+ * by an older version) are added, files that have gone are dropped, and
+ * files that have been replaced are followed (and what is left of them
+ * deleted). A record cut short by a crash is ignored. The manifest is
+ * rewritten in full, which drops the records of files that have gone, when
+ * it was found to be out of date or could not be appended to.
+ * </p>
+ * <p>
+ * Files are identified by their sequence number, so a file is still found
+ * by the name that it had when it was handed out after it has been
+ * replaced. Whatever works on a file (compressing, transposing, evicting or
+ * uploading it) {@link #claim(File)}s it first, and {@link #release(File)}s
+ * it when it is done, so that no two of them work on the same file at once;
+ * claims are only kept in memory.
+ * </p>
+ * <p>
+ * Instances are thread safe.
+ * </p>
+ */
+public class SegmentCatalog {
+	private static final String HEADER = "udc-manifest,1,"; //$NON-NLS-1$
+
+	private static final String ADDED = "A"; //$NON-NLS-1$
+
+	private static final String MOVED = "M"; //$NON-NLS-1$
+
+	private static final String UPLOADED = "U"; //$NON-NLS-1$
+
+	private static final String DELETED = "D"; //$NON-NLS-1$
+
+	/**
+	 * The extensions added to the name of a file when it is compressed.
+	 */
+	private static final String[] COMPRESSED_EXTENSIONS = {RecordingSettings.GZIP_EXTENSION, RecordingSettings.LZ_EXTENSION};
+
+	/**
+	 * A file that is waiting to be uploaded (or has been, but is still
+	 * there). Instances are immutable.
+	 */
+	public static class Entry {
+		private final long sequence;
+		private final File file;
+		private final long length;
+		private final int eventCount;
+		private final long firstTime;
+		private final long lastTime;
+		private final boolean uploaded;
+
+		Entry(long sequence, File file, long length, int eventCount, long firstTime, long lastTime, boolean uploaded) {
+			this.sequence = sequence;
+			this.file = file;
+			this.length = length;
+			this.eventCount = eventCount;
+			this.firstTime = firstTime;
+			this.lastTime = lastTime;
+			this.uploaded = uploaded;
+		}
+
+		public long getSequence() {
+			return sequence;
+		}
+
+		public File getFile() {
+			return file;
+		}
+
+		/**
+		 * @return the length of the file, in bytes.
+		 */
+		public long getLength() {
+			return length;
+		}
+
+		/**
+		 * @return the number of events in the file, or <code>-1</code> if
+		 *         it is not known.
+		 */
+		public int getEventCount() {
+			return eventCount;
+		}
+
+		/**
+		 * @return the time of the first event in the file, or
+		 *         <code>-1</code> if it is not known.
+		 */
+		public long getFirstTime() {
+			return firstTime;
+		}
+
+		/**
+		 * @return the time of the last event in the file, or
+		 *         <code>-1</code> if it is not known.
+		 */
+		public long getLastTime() {
+			return lastTime;
+		}
+
+		public boolean isUploaded() {
+			return uploaded;
+		}
+
+		Entry moved(File file, long length) {
+			return new Entry(sequence, file, length, eventCount, firstTime, lastTime, uploaded);
+		}
+
+		Entry uploaded() {
+			return new Entry(sequence, file, length, eventCount, firstTime, lastTime, true);
+		}
+	}
+
+	private final File manifest;
+
+	private final File directory;
+
+	private final String prefix;
+
+	/**
+	 * The files that we know about, by sequence number (so, oldest first).
+	 */
+	private TreeMap<Long, Entry> entries;
+
+	private long next = 0;
+
+	/**
+	 * The sequence numbers of the files that have been claimed.
+	 */
+	private final Set<Long> claimed = new HashSet<Long>();
+
+	/**
+	 * Does the manifest need to be rewritten in full before it can be
+	 * appended to?
+	 */
+	private boolean stale = false;
+
+	/**
+	 * @param manifest
+	 *            the file that the catalog is persisted in; the files that it
+	 *            keeps track of are in the same directory.
+	 * @param prefix
+	 *            the prefix of the names of the files that the catalog keeps
+	 *            track of; the sequence number follows it.
+	 */
+	public SegmentCatalog(File manifest, String prefix) {
+		this.manifest = manifest;
+		this.directory = manifest.getAbsoluteFile().getParentFile();
+		this.prefix = prefix;
+	}
+
+	/**
+	 * This method answers a file, with the given extension, that a file
+	 * waiting to be uploaded can be renamed to. It is named with the next
+	 * sequence number; it does not exist (and is not recorded until it is
+	 * {@link #add(File, long, int, long, long)}ed).
+	 */
+	public synchronized File allocate(String extension) {
+		load();
+		return new File(directory, prefix + next++ + extension);
+	}
+
+	/**
+	 * This method records that <code>file</code>, which was named by
+	 * {@link #allocate(String)}, is waiting to be uploaded.
+	 *
+	 * @param eventCount
+	 *            the number of events in the file, or <code>-1</code> if it
+	 *            is not known.
+	 * @param firstTime
+	 *            the time of the first event in the file, or <code>-1</code>
+	 *            if it is not known.
+	 * @param lastTime
+	 *            the time of the last event in the file, or <code>-1</code>
+	 *            if it is not known.
+	 */
+	public synchronized void add(File file, long length, int eventCount, long firstTime, long lastTime) {
+		load();
+		long sequence = getSequence(file.getName());
+		if (sequence < 0) throw new IllegalArgumentException(file.getName());
+		Entry entry = new Entry(sequence, file, length, eventCount, firstTime, lastTime, false);
+		entries.put(sequence, entry);
+		if (sequence >= next) next = sequence + 1;
+		write(ADDED + ',' + sequence + ',' + file.getName() + ',' + length + ',' + eventCount + ',' + firstTime + ',' + lastTime);
+	}
+
+	/**
+	 * This method claims the file, so that nothing else works on it until it
+	 * is {@link #release(File)}d.
+	 *
+	 * @param file
+	 *            the file, by the name that it has now or had before it was
+	 *            replaced.
+	 * @return the entry for the file, which carries its current name, or
+	 *         <code>null</code> if the catalog does not know about it (e.g.
+	 *         because it is gone) or it has been claimed already.
+	 */
+	public synchronized Entry claim(File file) {
+		Entry entry = find(file);
+		if (entry == null || !claimed.add(entry.getSequence())) return null;
+		return entry;
+	}
+
+	/**
+	 * This method releases a file claimed by {@link #claim(File)}, by any
+	 * name that it has had.
+	 */
+	public synchronized void release(File file) {
+		long sequence = getSequence(file.getName());
+		if (sequence >= 0) claimed.remove(sequence);
+	}
+
+	/**
+	 * This method records that <code>from</code> has been replaced by
+	 * <code>to</code> (e.g. by its compressed form). Nothing happens if the
+	 * catalog does not know about <code>from</code>.
+	 */
+	public synchronized void moved(File from, File to) {
+		Entry entry = find(from);
+		if (entry == null) return;
+		entry = entry.moved(to, to.length());
+		entries.put(entry.getSequence(), entry);
+		write(MOVED + ',' + entry.getSequence() + ',' + to.getName() + ',' + entry.getLength());
+	}
+
+	/**
+	 * This method records that <code>file</code> has been uploaded; it is
+	 * no longer answered by {@link #getPendingFiles()}.
+	 */
+	public synchronized void uploaded(File file) {
+		Entry entry = find(file);
+		if (entry == null || entry.isUploaded()) return;
+		entries.put(entry.getSequence(), entry.uploaded());
+		write(UPLOADED + ',' + entry.getSequence());
+	}
+
+	/**
+	 * This method records that <code>file</code> is gone (e.g. because it
+	 * was deleted). It does not delete the file.
+	 */
+	public synchronized void removed(File file) {
+		Entry entry = find(file);
+		if (entry == null) return;
+		entries.remove(entry.getSequence());
+		write(DELETED + ',' + entry.getSequence());
+	}
+
+	/**
+	 * @return the files that are waiting to be uploaded, oldest first.
+	 */
+	public synchronized File[] getPendingFiles() {
+		load();
+		List<File> files = new ArrayList<File>(entries.size());
+		for (Entry entry : entries.values()) {
+			if (!entry.isUploaded()) files.add(entry.getFile());
+		}
+		return files.toArray(new File[files.size()]);
+	}
+
+	/**
+	 * @return the files that the catalog knows about, uploaded or not,
+	 *         oldest first.
+	 */
+	public synchronized List<Entry> getEntries() {
+		load();
+		return new ArrayList<Entry>(entries.values());
+	}
+
+	/**
+	 * This method answers the entry with the sequence number that the file
+	 * is named with; the file may have been replaced since.
+	 */
+	private Entry find(File file) {
+		load();
+		long sequence = getSequence(file.getName());
+		if (sequence < 0) return null;
+		return entries.get(sequence);
+	}
+
+	/**
+	 * @return the sequence number that <code>name</code> carries, or
+	 *         <code>-1</code> if it is not named like the files that the
+	 *         catalog keeps track of.
+	 */
+	private long getSequence(String name) {
+		if (!name.startsWith(prefix)) return -1;
+		int end = prefix.length();
+		while (end < name.length() && Character.isDigit(name.charAt(end))) end++;
+		if (end == prefix.length() || end - prefix.length() > 18) return -1;
+		return Long.parseLong(name.substring(prefix.length(), end));
+	}
+
+	/**
+	 * This method appends a record to the manifest, or rewrites it in full
+	 * if it is stale. If the manifest cannot be written, it is rewritten the
+	 * next time around; until then, the catalog is only kept in memory.
+	 */
+	private void write(String record) {
+		if (stale || !manifest.exists()) {
+			rewrite();
+			return;
+		}
+		try {
+			FileOutputStream output = new FileOutputStream(manifest, true);
+			try {
+				output.write((record + '\n').getBytes());
+			} finally {
+				output.close();
+			}
+		} catch (IOException e) {
+			stale = true;
+		}
+	}
+
+	/**
+	 * This method writes the manifest afresh, under a temporary name that is
+	 * then renamed into place, so that a crash leaves the old one.
+	 */
+	private void rewrite() {
+		StringBuilder builder = new StringBuilder(HEADER).append(next).append('\n');
+		for (Entry entry : entries.values()) {
+			builder.append(ADDED).append(',').append(entry.getSequence()).append(',').append(entry.getFile().getName()).append(',')
+				.append(entry.getLength()).append(',').append(entry.getEventCount()).append(',')
+				.append(entry.getFirstTime()).append(',').append(entry.getLastTime()).append('\n');
+			if (entry.isUploaded()) builder.append(UPLOADED).append(',').append(entry.getSequence()).append('\n');
+		}
+		File temporary = new File(directory, "." + manifest.getName() + ".tmp"); //$NON-NLS-1$ //$NON-NLS-2$
+		try {
+			FileOutputStream output = new FileOutputStream(temporary);
+			try {
+				output.write(builder.toString().getBytes());
+				output.getChannel().force(false);
+			} finally {
+				output.close();
+			}
+			// Windows won't rename over an existing file.
+			if (!temporary.renameTo(manifest) && !(manifest.delete() && temporary.renameTo(manifest))) {
+				throw new IOException();
+			}
+			stale = false;
+		} catch (IOException e) {
+			temporary.delete();
+			stale = true;
+		}
+	}
+
+	/**
+	 * This method reads the manifest, the first time that the catalog is
+	 * used, and brings it up to date with the directory.
+	 */
+	private void load() {
+		if (entries != null) return;
+		entries = new TreeMap<Long, Entry>();
+		if (manifest.exists()) {
+			try {
+				read();
+			} catch (IOException e) {
+				entries.clear();
+				stale = true;
+			}
+		}
+		reconcile();
+	}
+
+	private void read() throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(manifest)));
+		try {
+			String line = reader.readLine();
+			if (line == null || !line.startsWith(HEADER)) throw new IOException("Not a manifest: " + manifest); //$NON-NLS-1$
+			next = Long.parseLong(line.substring(HEADER.length()));
+			while ((line = reader.readLine()) != null) {
+				try {
+					readRecord(line.split(",")); //$NON-NLS-1$
+				} catch (RuntimeException e) {
+					// A record cut short by a crash; what's left is picked up from the directory.
+					stale = true;
+				}
+			}
+		} catch (NumberFormatException e) {
+			throw new IOException("Not a manifest: " + manifest); //$NON-NLS-1$
+		} finally {
+			reader.close();
+		}
+	}
+
+	private void readRecord(String[] fields) {
+		long sequence = Long.parseLong(fields[1]);
+		if (ADDED.equals(fields[0])) {
+			File file = new File(directory, fields[2]);
+			entries.put(sequence, new Entry(sequence, file, Long.parseLong(fields[3]), Integer.parseInt(fields[4]), Long.parseLong(fields[5]), Long.parseLong(fields[6]), false));
+			if (sequence >= next) next = sequence + 1;
+			return;
+		}
+		Entry entry = entries.get(sequence);
+		if (entry == null) return;
+		if (MOVED.equals(fields[0])) {
+			entries.put(sequence, entry.moved(new File(directory, fields[2]), Long.parseLong(fields[3])));
+		} else if (UPLOADED.equals(fields[0])) {
+			entries.put(sequence, entry.uploaded());
+		} else if (DELETED.equals(fields[0])) {
+			entries.remove(sequence);
+			stale = true;
+		}
+	}
+
+	/**
+	 * This method lists the directory and brings the catalog up to date
+	 * with it. Where there is more than one file with the same number, the
+	 * one that replaced the others (a rollup, a compressed file, or a
+	 * columnar segment) is the one that counts; the others were left behind because
+	 * they could not be deleted (or because of a crash), and are deleted
+	 * now. Replacements are renamed into place once they are complete, so
+	 * this loses nothing.
+	 */
+	private void reconcile() {
+		Map<Long, File> found = new HashMap<Long, File>();
+		String[] names = directory.list();
+		if (names == null) names = new String[0];
+		for (String name : names) {
+			long sequence = getSequence(name);
+			if (sequence < 0) continue;
+			File file = found.get(sequence);
+			if (file == null) {
+				found.put(sequence, new File(directory, name));
+			} else if (getRank(name) > getRank(file.getName())) {
+				file.delete();
+				found.put(sequence, new File(directory, name));
+			} else {
+				new File(directory, name).delete();
+			}
+		}
+
+		for (Long sequence : new ArrayList<Long>(entries.keySet())) {
+			File file = found.get(sequence);
+			Entry entry = entries.get(sequence);
+			if (file == null) {
+				entries.remove(sequence);
+				stale = true;
+			} else if (!file.getName().equals(entry.getFile().getName())) {
+				entries.put(sequence, entry.moved(file, file.length()));
+				stale = true;
+			}
+		}
+		for (Map.Entry<Long, File> file : found.entrySet()) {
+			long sequence = file.getKey();
+			if (sequence >= next) next = sequence + 1;
+			if (entries.containsKey(sequence)) continue;
+			entries.put(sequence, new Entry(sequence, file.getValue(), file.getValue().length(), -1, -1, -1, false));
+			stale = true;
+		}
+	}
+
+	private int getRank(String name) {
+		// A rollup may itself have been compressed.
+		int rank = name.contains(RecordingSettings.ROLLUP_EXTENSION) ? 3 : 0;
+		for (String extension : COMPRESSED_EXTENSIONS) {
+			if (name.endsWith(extension)) return rank + 2;
+		}
+		if (name.endsWith(RecordingSettings.COLUMNAR_EXTENSION)) return rank + 1;
+		return rank;
+	}
+}
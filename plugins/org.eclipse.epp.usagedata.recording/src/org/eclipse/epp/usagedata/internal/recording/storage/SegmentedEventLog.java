@@ -0,0 +1,384 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.recording.storage;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.eclipse.epp.usagedata.internal.recording.UsageDataRecorderUtils;
+import org.eclipse.epp.usagedata.internal.recording.settings.RecordingSettings;
+
+/**
+ * The {@link SegmentedEventLog} is an append-only event log kept in
+ * fixed-size segment files (see {@link EventSegment} for the layout). The
+ * active segment is preallocated and mapped into memory, so an append is a
+ * copy into the mapping followed by an update of the length in the header;
+ * it needs no system calls. Whether, and when, the appended events are forced
+ * to the disk is up to the caller (see {@link #force()}).
+ * <p>
+ * When the active segment is full (or the caller decides that it is large
+ * enough to upload), it is sealed: its header is marked as sealed and forced
+ * to the disk, and what it holds is copied to a file with a name that the
+ * uploader picks up (see
+ * {@link RecordingSettings#computeDestinationFile(String)}). The active
+ * segment is then emptied in place, and the copy added to the
+ * {@link SegmentCatalog}, with the number of events in it and the times of
+ * the first and last of them, as given to
+ * {@link #append(byte[], int, long, long)}. The active segment file is never
+ * renamed or deleted, as some platforms do not allow that while it is
+ * mapped (and Java cannot unmap a file explicitly). A segment that was
+ * sealed but not copied (e.g. because of a crash) is copied when the log is
+ * next opened; an open segment is appended to from the length in its
+ * header, so a partial append is simply overwritten. An append that would
+ * not fit in an empty segment is written straight to a sealed segment of
+ * its own.
+ * </p>
+ * <p>
+ * Once copied, a sealed segment is transposed into a
+ * {@link ColumnarSegment}, which replaces it. If that fails, the sealed
+ * segment is uploaded as it is; segments that were copied but not
+ * transposed (e.g. because of a crash) are transposed the first time that
+ * the log is opened. These are found in the catalog, rather than by
+ * listing the directory.
+ * </p>
+ * <p>
+ * Instances are not thread safe; the recorder only uses them while holding
+ * its own lock.
+ * </p>
+ */
+public class SegmentedEventLog {
+
+	private final File file;
+
+	private final RecordingSettings settings;
+
+	private final int capacity;
+
+	/**
+	 * The mapping of the active segment, or <code>null</code> if there is no
+	 * active segment.
+	 */
+	private MappedByteBuffer buffer;
+
+	/**
+	 * The length of the payload of the active segment; <code>0</code> until
+	 * the CSV header line is written ahead of the first events.
+	 */
+	private long length;
+
+	/**
+	 * The number of events in the active segment, or <code>-1</code> if it
+	 * is not known (because the segment was left by an earlier session).
+	 */
+	private int eventCount;
+
+	/**
+	 * The times of the first and last events in the active segment, or
+	 * <code>-1</code> if they are not known.
+	 */
+	private long firstTime = -1;
+
+	private long lastTime = -1;
+
+	/**
+	 * Have the segments left untransposed by an earlier session been
+	 * transposed?
+	 */
+	private boolean transposed = false;
+
+	/**
+	 * The CSV header line that each segment starts with.
+	 */
+	private byte[] csvHeader;
+
+	/**
+	 * @param file
+	 *            the active segment file.
+	 * @param settings
+	 *            the settings that name sealed segments.
+	 * @param capacity
+	 *            the payload capacity of a segment, in bytes.
+	 */
+	public SegmentedEventLog(File file, RecordingSettings settings, int capacity) {
+		this.file = file;
+		this.settings = settings;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * This method appends <code>bytes</code>, which hold no events (or
+	 * events that need not be counted), to the active segment.
+	 * 
+	 * @see #append(byte[], int, long, long)
+	 */
+	public void append(byte[] bytes) throws IOException {
+		append(bytes, 0, -1, -1);
+	}
+
+	/**
+	 * This method appends <code>bytes</code>, which hold
+	 * <code>events</code> events from <code>first</code> to
+	 * <code>last</code>, to the active segment, sealing it first if there is
+	 * not enough room left.
+	 */
+	public void append(byte[] bytes, int events, long first, long last) throws IOException {
+		if (buffer == null) open();
+		byte[] header = getCsvHeader();
+		if (header.length + bytes.length > getRoom()) {
+			publishOversized(header, bytes, events, first, last);
+			return;
+		}
+		if (length + bytes.length > getRoom()) seal();
+		if (length == 0) put(header, 0, -1, -1);
+		put(bytes, events, first, last);
+	}
+
+	private long getRoom() {
+		return buffer.capacity() - EventSegment.HEADER_SIZE;
+	}
+
+	private void put(byte[] bytes, int events, long first, long last) {
+		buffer.position(EventSegment.HEADER_SIZE + (int) length);
+		buffer.put(bytes);
+		length += bytes.length;
+		buffer.putLong(EventSegment.LENGTH_OFFSET, length);
+		if (eventCount >= 0) eventCount += events;
+		if (first >= 0 && (firstTime < 0 || first < firstTime)) firstTime = first;
+		if (last > lastTime) lastTime = last;
+	}
+
+	/**
+	 * @return the length of the payload of the active segment (including the
+	 *         CSV header line), or <code>0</code> if there is none.
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	/**
+	 * This method forces the active segment to the disk.
+	 */
+	public void force() {
+		if (buffer == null) return;
+		buffer.force();
+	}
+
+	/**
+	 * This method seals the active segment and hands it to the uploader. The
+	 * next append starts a new segment.
+	 *
+	 * @throws IOException
+	 *             if the segment cannot be copied; it is copied the next
+	 *             time that a segment is opened.
+	 */
+	public void seal() throws IOException {
+		if (buffer == null || length == 0) return;
+		buffer.put(EventSegment.STATE_OFFSET, EventSegment.SEALED);
+		buffer.force();
+		publish();
+	}
+
+	/**
+	 * This method lets go of the active segment, which is appended to when
+	 * the log is next used. The caller decides whether to {@link #force()}
+	 * it first.
+	 */
+	public void close() {
+		buffer = null;
+		reset();
+	}
+
+	private void reset() {
+		length = 0;
+		eventCount = 0;
+		firstTime = -1;
+		lastTime = -1;
+	}
+
+	/**
+	 * This method makes an active segment available, either by resuming the
+	 * one on disk or by creating a new one.
+	 */
+	private void open() throws IOException {
+		if (!transposed) transposeSealedSegments();
+		if (file.exists()) resume();
+		if (buffer != null) return;
+
+		buffer = map(file, EventSegment.HEADER_SIZE + capacity);
+		initialize();
+	}
+
+	/**
+	 * This method (re)writes the header of the active segment, so that it is
+	 * open and empty.
+	 */
+	private void initialize() {
+		buffer.putInt(EventSegment.MAGIC_OFFSET, EventSegment.MAGIC);
+		buffer.putShort(EventSegment.VERSION_OFFSET, EventSegment.VERSION);
+		buffer.putLong(EventSegment.LENGTH_OFFSET, 0);
+		buffer.putLong(EventSegment.CREATED_OFFSET, System.currentTimeMillis());
+		buffer.put(EventSegment.STATE_OFFSET, EventSegment.OPEN);
+		reset();
+	}
+
+	/**
+	 * This method picks up the segment left on disk by an earlier session.
+	 * A sealed segment is handed to the uploader; a segment that cannot be
+	 * read is set aside, so that it doesn't get in the way. The header is
+	 * checked before the segment is mapped, so that it can still be set
+	 * aside on platforms that do not rename mapped files.
+	 */
+	private void resume() throws IOException {
+		ByteBuffer header = EventSegment.readHeader(file);
+		long committed;
+		try {
+			committed = EventSegment.checkHeader(header, file.length(), file);
+		} catch (IOException e) {
+			File corrupt = new File(file.getPath() + ".corrupt"); //$NON-NLS-1$
+			corrupt.delete();
+			if (!file.renameTo(corrupt)) throw e;
+			return;
+		}
+		buffer = map(file, file.length());
+		length = committed;
+		// We don't know what an earlier session put in the segment.
+		eventCount = -1;
+		if (buffer.get(EventSegment.STATE_OFFSET) == EventSegment.SEALED) publish();
+	}
+
+	/**
+	 * This method copies the sealed active segment to a file that is picked
+	 * up for upload, empties the active segment, and adds the copy to the
+	 * catalog (in that order, so that a crash in between leaves the copy to
+	 * be found in the directory rather than copied again).
+	 */
+	private void publish() throws IOException {
+		long published = length;
+		int events = eventCount;
+		long first = eventCount < 0 ? -1 : firstTime;
+		long last = lastTime;
+		ByteBuffer contents = buffer.duplicate();
+		contents.position(0);
+		contents.limit(EventSegment.HEADER_SIZE + (int) published);
+		File segment;
+		try {
+			segment = write(contents);
+		} catch (IOException e) {
+			// Left sealed, to be tried again when the log is next opened.
+			close();
+			throw e;
+		}
+		initialize();
+		buffer.force();
+		settings.getSegmentCatalog().add(segment, EventSegment.HEADER_SIZE + published, events, first, last);
+		transpose(segment);
+	}
+
+	/**
+	 * This method writes a sealed segment that holds only the given events,
+	 * which do not fit in the active segment, and hands it to the uploader.
+	 */
+	private void publishOversized(byte[] header, byte[] bytes, int events, long first, long last) throws IOException {
+		long payload = header.length + bytes.length;
+		ByteBuffer contents = ByteBuffer.allocate(EventSegment.HEADER_SIZE + (int) payload);
+		contents.putInt(EventSegment.MAGIC_OFFSET, EventSegment.MAGIC);
+		contents.putShort(EventSegment.VERSION_OFFSET, EventSegment.VERSION);
+		contents.put(EventSegment.STATE_OFFSET, EventSegment.SEALED);
+		contents.putLong(EventSegment.LENGTH_OFFSET, payload);
+		contents.putLong(EventSegment.CREATED_OFFSET, System.currentTimeMillis());
+		contents.position(EventSegment.HEADER_SIZE);
+		contents.put(header);
+		contents.put(bytes);
+		contents.flip();
+		File segment = write(contents);
+		settings.getSegmentCatalog().add(segment, contents.capacity(), events, first, last);
+		transpose(segment);
+	}
+
+	/**
+	 * This method writes <code>contents</code> to a new file that is named
+	 * for upload. The file is written under a temporary name, forced to the
+	 * disk and then renamed into place; it is never mapped, so it can be
+	 * renamed on every platform.
+	 */
+	private File write(ByteBuffer contents) throws IOException {
+		File destination = settings.computeDestinationFile(RecordingSettings.SEGMENT_EXTENSION);
+		// Not named like an upload file, so the uploader doesn't see it.
+		File temporary = new File(destination.getParentFile(), "." + destination.getName() + ".tmp"); //$NON-NLS-1$ //$NON-NLS-2$
+		FileOutputStream output = new FileOutputStream(temporary);
+		try {
+			FileChannel channel = output.getChannel();
+			while (contents.hasRemaining()) channel.write(contents);
+			channel.force(false);
+		} finally {
+			output.close();
+		}
+		if (!temporary.renameTo(destination)) {
+			temporary.delete();
+			throw new IOException("Cannot move " + temporary + " to " + destination); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		return destination;
+	}
+	/**
+	 * This method replaces a sealed segment that is waiting to be uploaded
+	 * with its columnar form.
+	 */
+	private void transpose(File segment) {
+		SegmentCatalog catalog = settings.getSegmentCatalog();
+		// Not while it is being uploaded (or evicted); it is tried again next time.
+		SegmentCatalog.Entry entry = catalog.claim(segment);
+		if (entry == null) return;
+		try {
+			if (entry.getFile().equals(segment)) catalog.moved(segment, ColumnarSegment.transpose(segment));
+		} catch (IOException e) {
+			// The segment is uploaded as it is.
+		} finally {
+			catalog.release(segment);
+		}
+	}
+
+	/**
+	 * This method transposes the segments that have been copied for upload
+	 * but not transposed.
+	 */
+	private void transposeSealedSegments() {
+		transposed = true;
+		for (SegmentCatalog.Entry entry : settings.getSegmentCatalog().getEntries()) {
+			if (entry.isUploaded()) continue;
+			if (entry.getFile().getName().endsWith(RecordingSettings.SEGMENT_EXTENSION)) transpose(entry.getFile());
+		}
+	}
+
+	private MappedByteBuffer map(File target, long size) throws IOException {
+		RandomAccessFile access = new RandomAccessFile(target, "rw"); //$NON-NLS-1$
+		try {
+			if (access.length() < size) access.setLength(size);
+			return access.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+		} finally {
+			access.close();
+		}
+	}
+
+	private byte[] getCsvHeader() throws IOException {
+		if (csvHeader == null) {
+			StringWriter header = new StringWriter();
+			UsageDataRecorderUtils.writeHeader(header);
+			csvHeader = header.toString().getBytes();
+		}
+		return csvHeader;
+	}
+}
@@ -11,6 +11,8 @@
 package org.eclipse.epp.usagedata.internal.recording.uploading;
 
 import org.eclipse.core.runtime.ListenerList;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataLog;
+import org.eclipse.epp.usagedata.internal.recording.UsageDataRecordingActivator;
 
 public abstract class AbstractUploader implements Uploader {
 
@@ -45,4 +47,19 @@ public abstract class AbstractUploader implements Uploader {
 	protected void checkValues() {
 		if (uploadParameters == null) throw new RuntimeException("The UploadParameters must be set."); //$NON-NLS-1$
 	}
+
+	/**
+	 * This method returns the log to report to: the one provided by the
+	 * upload parameters if there is one, otherwise the bundle activator (or
+	 * {@link UsageDataLog#SYSTEM_ERR} if the bundle is not running).
+	 */
+	protected UsageDataLog getLog() {
+		if (uploadParameters != null && uploadParameters.getLog() != null) return uploadParameters.getLog();
+		if (UsageDataRecordingActivator.getDefault() == null) return UsageDataLog.SYSTEM_ERR;
+		return UsageDataRecordingActivator.getDefault();
+	}
+
+	protected void log(int severity, Exception exception, String message, Object ... arguments) {
+		getLog().log(severity, String.format(message, arguments), exception);
+	}
 }
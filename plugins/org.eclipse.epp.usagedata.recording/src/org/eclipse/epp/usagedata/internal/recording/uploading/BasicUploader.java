@@ -10,11 +10,15 @@
  *******************************************************************************/
 package org.eclipse.epp.usagedata.internal.recording.uploading;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InterruptedIOException;
 import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.net.ConnectException;
 import java.net.URI;
 import java.net.UnknownHostException;
@@ -23,6 +27,7 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.net.http.HttpResponse.BodyHandlers;
 import java.time.Duration;
+import java.util.function.Supplier;
 //import org.apache.commons.httpclient.HttpClient;
 //import org.apache.commons.httpclient.methods.PostMethod;
 //import org.apache.commons.httpclient.methods.multipart.FilePart;
@@ -34,8 +39,20 @@ import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.ListenerList;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
-import org.eclipse.epp.usagedata.internal.recording.UsageDataRecordingActivator;
+import org.eclipse.epp.usagedata.internal.gathering.services.ThreadCost;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataMetrics;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataProbe;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataService;
+import org.eclipse.epp.usagedata.internal.recording.DiskQuota;
 import org.eclipse.epp.usagedata.internal.recording.settings.UploadSettings;
+import org.eclipse.epp.usagedata.internal.recording.storage.BinaryEventReader;
+import org.eclipse.epp.usagedata.internal.recording.storage.ColumnarSegment;
+import org.eclipse.epp.usagedata.internal.recording.storage.CompressedFile;
+import org.eclipse.epp.usagedata.internal.recording.storage.ColumnarSegmentReader;
+import org.eclipse.epp.usagedata.internal.recording.storage.CsvEventInputStream;
+import org.eclipse.epp.usagedata.internal.recording.storage.EventSegment;
+import org.eclipse.epp.usagedata.internal.recording.storage.RollupEventReader;
+import org.eclipse.epp.usagedata.internal.recording.storage.SegmentCatalog;
 
 /**
  * Instances of the {@link BasicUploader} class are responsible for
@@ -104,6 +121,11 @@ public class BasicUploader extends AbstractUploader {
 				fireUploadComplete(result);
 				return Status.OK_STATUS;
 			}
+
+			@Override
+			public boolean belongsTo(Object family) {
+				return family == UsageDataService.JOB_FAMILY;
+			}
 		};
 		job.setPriority(Job.LONG);
 		job.schedule();
@@ -120,6 +142,13 @@ public class BasicUploader extends AbstractUploader {
 	 */
 	UploadResult upload(IProgressMonitor monitor) {
 		UploadResult result = null;
+		UsageDataProbe probe = UsageDataProbe.getDefault();
+		boolean probing = probe.isEnabled();
+		// Measure the files up front; a successful upload may remove them.
+		long bytes = probing ? getLength(getUploadParameters().getFiles()) : 0;
+		long uploadStart = System.nanoTime();
+		long cpu = ThreadCost.getCpuTime();
+		long allocated = ThreadCost.getAllocatedBytes();
 		
 		try {
 			long start = System.currentTimeMillis();
@@ -127,25 +156,41 @@ public class BasicUploader extends AbstractUploader {
 			long duration = System.currentTimeMillis() - start;
 			
 			if (result.isSuccess()) {
-				UsageDataRecordingActivator.getDefault().log(IStatus.INFO, "Usage data uploaded to %1$s in %2$s milliseconds.", getUploadUrl(), duration); //$NON-NLS-1$
+				log(IStatus.INFO, null, "Usage data uploaded to %1$s in %2$s milliseconds.", getUploadUrl(), duration); //$NON-NLS-1$
 			} else {
-				UsageDataRecordingActivator.getDefault().log(IStatus.INFO, "Usage data upload to %1$s failed with error code %2$s.", getUploadUrl(), result.getReturnCode()); //$NON-NLS-1$
+				log(IStatus.INFO, null, "Usage data upload to %1$s failed with error code %2$s.", getUploadUrl(), result.getReturnCode()); //$NON-NLS-1$
 			}
 			
 		} catch (IllegalStateException e) {
-			UsageDataRecordingActivator.getDefault().log(IStatus.WARNING, e, "The URL provided for usage data upload, %1$s, is invalid.", getUploadUrl()); //$NON-NLS-1$
+			log(IStatus.WARNING, e, "The URL provided for usage data upload, %1$s, is invalid.", getUploadUrl()); //$NON-NLS-1$
 		} catch (UnknownHostException e) {
-			UsageDataRecordingActivator.getDefault().log(IStatus.WARNING, e, "The usage data upload server at %1$s could not be found.", getUploadUrl()); //$NON-NLS-1$
+			log(IStatus.WARNING, e, "The usage data upload server at %1$s could not be found.", getUploadUrl()); //$NON-NLS-1$
 		} catch (ConnectException e) {
-			UsageDataRecordingActivator.getDefault().log(IStatus.WARNING, e, "Could not connect to the usage data upload server at %1$s.", getUploadUrl()); //$NON-NLS-1$
+			log(IStatus.WARNING, e, "Could not connect to the usage data upload server at %1$s.", getUploadUrl()); //$NON-NLS-1$
 		} catch (InterruptedIOException e) {
-			UsageDataRecordingActivator.getDefault().log(IStatus.WARNING, e, "A socket timeout occurred while trying to upload usage data.");			 //$NON-NLS-1$
+			log(IStatus.WARNING, e, "A socket timeout occurred while trying to upload usage data.");			 //$NON-NLS-1$
 		} catch (Exception e) {
-			UsageDataRecordingActivator.getDefault().log(IStatus.WARNING, e, "An exception occurred while trying to upload usage data."); //$NON-NLS-1$
+			log(IStatus.WARNING, e, "An exception occurred while trying to upload usage data."); //$NON-NLS-1$
 		}
 		
+		long uploadDuration = System.nanoTime() - uploadStart;
+		UsageDataMetrics metrics = UsageDataMetrics.getDefault();
+		metrics.uploadFinished(result != null && result.isSuccess(), uploadDuration);
+		metrics.addCost(ThreadCost.getDelta(cpu, ThreadCost.getCpuTime()), ThreadCost.getDelta(allocated, ThreadCost.getAllocatedBytes()));
+		if (probing) {
+			int returnCode = result == null ? -1 : result.getReturnCode();
+			probe.uploaded(getUploadParameters().getFiles().length, bytes, returnCode, uploadDuration);
+		}
 		return result;
 	}
+
+	private long getLength(File[] files) {
+		long length = 0;
+		for (File file : files) {
+			length += file.length();
+		}
+		return length;
+	}
 	private String getUploadUrl() {
 		return getSettings().getUploadUrl();
 	}
@@ -178,22 +223,45 @@ public class BasicUploader extends AbstractUploader {
 		
 		int retCode = 0;
 		
-		for (File file : getUploadParameters().getFiles()) {
-		
-		HttpRequest request = HttpRequest.newBuilder()
-				  .uri(new URI(getSettings().getUploadUrl()))
-				  .headers("Content-Type", "text/plain;charset=UTF-8", 
-						   HTTP_USERID, getSettings().getUserId(), 
-						   HTTP_WORKSPACEID, getSettings().getWorkspaceId(),
-						   HTTP_TIME, String.valueOf(System.currentTimeMillis()), 
-						   USER_AGENT, getSettings().getUserAgent())
-				  .timeout(Duration.ofSeconds(getSocketTimeout()))
-				  .POST(HttpRequest.BodyPublishers.ofFile(file.toPath()))
-				  .build();
-		
-		HttpClient client = HttpClient.newBuilder().build();
-		
-		HttpResponse<String> response = client.send(request, BodyHandlers.ofString());
+		SegmentCatalog catalog = getUploadParameters().getCatalog();
+		for (File listed : getUploadParameters().getFiles()) {
+			/*
+			 * The file may have been compressed or evicted since it was listed;
+			 * claim it, so that neither happens while it is being sent, and send
+			 * it by its current name. A file that is claimed already is sent
+			 * next time.
+			 */
+			File file = listed;
+			if (catalog != null) {
+				SegmentCatalog.Entry entry = catalog.claim(listed);
+				if (entry == null) continue;
+				if (entry.isUploaded()) {
+					catalog.release(listed);
+					continue;
+				}
+				file = entry.getFile();
+			}
+			
+			try {
+				HttpRequest request = HttpRequest.newBuilder()
+						  .uri(new URI(getSettings().getUploadUrl()))
+						  .headers("Content-Type", "text/plain;charset=UTF-8", 
+								   HTTP_USERID, getSettings().getUserId(), 
+								   HTTP_WORKSPACEID, getSettings().getWorkspaceId(),
+								   HTTP_TIME, String.valueOf(System.currentTimeMillis()), 
+								   USER_AGENT, getSettings().getUserAgent())
+						  .timeout(Duration.ofSeconds(getSocketTimeout()))
+						  .POST(getBodyPublisher(file))
+						  .build();
+				
+				HttpClient client = HttpClient.newBuilder().build();
+				
+				HttpResponse<String> response = client.send(request, BodyHandlers.ofString());
+				
+				if (response.statusCode() == 200 && catalog != null) catalog.uploaded(file);
+			} finally {
+				if (catalog != null) catalog.release(file);
+			}
 		}
 	
 //		/*
@@ -243,6 +311,87 @@ public class BasicUploader extends AbstractUploader {
 		return new UploadResult(retCode);
 	}
 
+	/**
+	 * This method answers the body of the upload of <code>file</code>. A
+	 * sealed event segment is sent by streaming its payload from the file,
+	 * compressed files are decompressed as they are sent, and binary event
+	 * files and columnar segments are converted to CSV as they are sent (the
+	 * server only understands CSV). Rollups are sent with each line repeated
+	 * as many times as its count says, as the server takes no count.
+	 * Anything else is sent as is.
+	 */
+	HttpRequest.BodyPublisher getBodyPublisher(final File file) throws IOException {
+		if (ColumnarSegment.isColumnar(file)) {
+			return HttpRequest.BodyPublishers.ofInputStream(new Supplier<InputStream>() {
+				public InputStream get() {
+					try {
+						return new CsvEventInputStream(new ColumnarSegmentReader(file).getEvents());
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+			});
+		}
+		if (EventSegment.isSegment(file)) {
+			return HttpRequest.BodyPublishers.ofInputStream(new Supplier<InputStream>() {
+				public InputStream get() {
+					try {
+						return EventSegment.openPayload(file);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+			});
+		}
+		if (DiskQuota.isRollup(file)) {
+			return HttpRequest.BodyPublishers.ofInputStream(new Supplier<InputStream>() {
+				public InputStream get() {
+					try {
+						return new CsvEventInputStream(new RollupEventReader(CompressedFile.open(file)));
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+			});
+		}
+		if (CompressedFile.isCompressed(file) || isBinary(file)) {
+			return HttpRequest.BodyPublishers.ofInputStream(new Supplier<InputStream>() {
+				public InputStream get() {
+					try {
+						return openCsv(file);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+			});
+		}
+		return HttpRequest.BodyPublishers.ofFile(file.toPath());
+	}
+
+	private boolean isBinary(File file) throws IOException {
+		InputStream input = new BufferedInputStream(new FileInputStream(file));
+		try {
+			return BinaryEventReader.isBinary(input);
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * This method answers the contents of a CSV or binary event file,
+	 * decompressed if necessary, as CSV.
+	 */
+	private InputStream openCsv(File file) throws IOException {
+		InputStream input = CompressedFile.open(file);
+		try {
+			if (BinaryEventReader.isBinary(input)) return new CsvEventInputStream(new BinaryEventReader(input));
+			return input;
+		} catch (IOException e) {
+			input.close();
+			throw e;
+		}
+	}
+
 	/**
 	 * This method returns a &quot;reasonable&quot; value for 
 	 * socket timeout based on the number of files we're trying
@@ -307,7 +456,7 @@ public class BasicUploader extends AbstractUploader {
 			String line = reader.readLine();
 			if (line == null) return;
 			if (getSettings().isLoggingServerActivity()) {
-				UsageDataRecordingActivator.getDefault().log(IStatus.INFO, line);
+				log(IStatus.INFO, null, "%1$s", line); //$NON-NLS-1$
 			}
 			int colon = line.indexOf(':'); // first occurrence
 			if (colon != -1) {
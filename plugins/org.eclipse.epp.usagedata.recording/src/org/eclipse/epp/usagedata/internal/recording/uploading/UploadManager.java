@@ -14,12 +14,24 @@ import java.io.File;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.ListenerList;
 import org.eclipse.core.runtime.Platform;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataLog;
 import org.eclipse.epp.usagedata.internal.recording.UsageDataRecordingActivator;
-import org.eclipse.epp.usagedata.internal.recording.settings.UsageDataRecordingSettings;
+import org.eclipse.epp.usagedata.internal.recording.settings.RecordingSettings;
 import org.eclipse.ui.PlatformUI;
 
+/**
+ * The {@link UploadManager} decides whether an upload can start and, if so,
+ * hands the files that are ready for upload to an {@link Uploader}.
+ * <p>
+ * In the workbench, the uploader is found via the extension registry and
+ * uploads do not start while the workbench is closing. Subclasses that run
+ * without the workbench override {@link #getUploader()} and
+ * {@link #isWorkbenchClosing()}.
+ * </p>
+ */
 public class UploadManager {
 
 	public static final int UPLOAD_STARTED_OK = 0;
@@ -32,6 +44,25 @@ public class UploadManager {
 	private Object lock = new Object();
 	private Uploader uploader;
 	private ListenerList uploadListeners = new ListenerList();
+	private final RecordingSettings settings;
+	private final UsageDataLog log;
+
+	public UploadManager() {
+		this(null, null);
+	}
+
+	/**
+	 * @param settings
+	 *            the settings to use, or <code>null</code> to obtain them
+	 *            from the bundle activator.
+	 * @param log
+	 *            the {@link UsageDataLog} to report to, or <code>null</code>
+	 *            to use the bundle activator.
+	 */
+	public UploadManager(RecordingSettings settings, UsageDataLog log) {
+		this.settings = settings;
+		this.log = log;
+	}
 
 	/**
 	 * This method starts the upload. The first thing it does is find the files
@@ -58,7 +89,7 @@ public class UploadManager {
 	 */
 	public int startUpload() {
 		if (!getSettings().isEnabled()) return UPLOAD_DISABLED;
-		if (PlatformUI.getWorkbench().isClosing()) return WORKBENCH_IS_CLOSING;
+		if (isWorkbenchClosing()) return WORKBENCH_IS_CLOSING;
 		
 		File[] usageDataUploadFiles;
 		synchronized (lock) {
@@ -76,6 +107,8 @@ public class UploadManager {
 		UploadParameters uploadParameters = new UploadParameters();
 		uploadParameters.setSettings(getSettings());
 		uploadParameters.setFiles(usageDataUploadFiles);
+		uploadParameters.setLog(getLog());
+		uploadParameters.setCatalog(getSettings().getSegmentCatalog());
 		//request.setFilter(getSettings().getFilter());
 		
 		uploader.setUploadParameters(uploadParameters);
@@ -100,9 +133,24 @@ public class UploadManager {
 		return getSettings().getUsageDataUploadFiles();
 	}
 	
-	private UsageDataRecordingSettings getSettings() {
+	protected RecordingSettings getSettings() {
+		if (settings != null) return settings;
 		return UsageDataRecordingActivator.getDefault().getSettings();
 	}
+
+	protected UsageDataLog getLog() {
+		if (log != null) return log;
+		if (UsageDataRecordingActivator.getDefault() == null) return UsageDataLog.SYSTEM_ERR;
+		return UsageDataRecordingActivator.getDefault();
+	}
+
+	/**
+	 * This method answers whether or not the workbench is in the process of
+	 * shutting down; we don't start uploads when it is.
+	 */
+	protected boolean isWorkbenchClosing() {
+		return PlatformUI.getWorkbench().isClosing();
+	}
 	
 	/**
 	 * This method returns the {@link Uploader} to use to upload data to the
@@ -125,7 +173,7 @@ public class UploadManager {
 	 * 
 	 * @return
 	 */
-	private Uploader getUploader() {
+	protected Uploader getUploader() {
 		IConfigurationElement[] elements = Platform.getExtensionRegistry()
 				.getConfigurationElementsFor(UsageDataRecordingActivator.PLUGIN_ID + ".uploader"); //$NON-NLS-1$
 		for (IConfigurationElement element : elements) {
@@ -136,7 +184,7 @@ public class UploadManager {
 						return (Uploader) uploader;
 					}
 				} catch (CoreException e) {
-					UsageDataRecordingActivator.getDefault().getLog().log(e.getStatus());
+					getLog().log(IStatus.ERROR, e.getMessage(), e);
 				}
 			}
 		}
@@ -12,13 +12,17 @@ package org.eclipse.epp.usagedata.internal.recording.uploading;
 
 import java.io.File;
 
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataLog;
 import org.eclipse.epp.usagedata.internal.recording.filtering.UsageDataEventFilter;
 import org.eclipse.epp.usagedata.internal.recording.settings.UploadSettings;
+import org.eclipse.epp.usagedata.internal.recording.storage.SegmentCatalog;
 
 public class UploadParameters {
 
 	private File[] files;
 	private UploadSettings settings;
+	private UsageDataLog log;
+	private SegmentCatalog catalog;
 	
 	public void setSettings(UploadSettings settings) {
 		this.settings = settings;
@@ -39,4 +43,29 @@ public class UploadParameters {
 	public UsageDataEventFilter getFilter() {
 		return settings.getFilter();
 	}
+
+	/**
+	 * @return the {@link UsageDataLog} that the uploader should report to, or
+	 *         <code>null</code> if none has been set.
+	 */
+	public UsageDataLog getLog() {
+		return log;
+	}
+
+	public void setLog(UsageDataLog log) {
+		this.log = log;
+	}
+
+	/**
+	 * @return the {@link SegmentCatalog} that the uploader should tell about
+	 *         the files that it uploads, or <code>null</code> if none has
+	 *         been set.
+	 */
+	public SegmentCatalog getCatalog() {
+		return catalog;
+	}
+
+	public void setCatalog(SegmentCatalog catalog) {
+		this.catalog = catalog;
+	}
 }
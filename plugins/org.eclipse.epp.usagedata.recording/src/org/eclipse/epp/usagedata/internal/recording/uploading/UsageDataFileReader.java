@@ -10,19 +10,26 @@
  *******************************************************************************/
 package org.eclipse.epp.usagedata.internal.recording.uploading;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.StringWriter;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEvent;
 import org.eclipse.epp.usagedata.internal.recording.UsageDataRecorderUtils;
+import org.eclipse.epp.usagedata.internal.recording.storage.BinaryEventReader;
+import org.eclipse.epp.usagedata.internal.recording.storage.ColumnarSegment;
+import org.eclipse.epp.usagedata.internal.recording.storage.ColumnarSegmentReader;
+import org.eclipse.epp.usagedata.internal.recording.storage.CompressedFile;
+import org.eclipse.epp.usagedata.internal.recording.storage.EventReader;
+import org.eclipse.epp.usagedata.internal.recording.storage.EventSegment;
 
 public class UsageDataFileReader {
 	public interface Iterator {
@@ -30,7 +37,13 @@ public class UsageDataFileReader {
 		public void event(String line, UsageDataEvent event) throws Exception;
 	}
 
-	private final BufferedReader reader;
+	private BufferedReader reader;
+
+	/**
+	 * The reader of binary or columnar events, or <code>null</code> if the
+	 * receiver is reading CSV (with {@link #reader}).
+	 */
+	private EventReader events;
  
 	/**
 	 * This constructor creates an instance that will read the data contained in
@@ -45,11 +58,22 @@ public class UsageDataFileReader {
 	 * @throws IOException
 	 */
 	public UsageDataFileReader(File file) throws IOException {
-		this(new FileInputStream(file));
+		if (ColumnarSegment.isColumnar(file)) {
+			events = new ColumnarSegmentReader(file).getEvents();
+		} else if (EventSegment.isSegment(file)) {
+			open(EventSegment.openPayload(file));
+		} else {
+			open(CompressedFile.open(file));
+		}
 	}
 
+	/**
+	 * This constructor creates an instance that will read the data in the
+	 * stream, which may either be CSV or in the binary form written by the
+	 * {@link org.eclipse.epp.usagedata.internal.recording.storage.BinaryEventWriter}.
+	 */
 	public UsageDataFileReader(InputStream inputStream) throws IOException {
-		this(new InputStreamReader(inputStream));
+		open(inputStream);
 	}
 
 	public UsageDataFileReader(Reader reader) throws IOException {
@@ -60,6 +84,15 @@ public class UsageDataFileReader {
 		reader = bufferedReader;
 	}
 
+	private void open(InputStream inputStream) throws IOException {
+		InputStream input = new BufferedInputStream(inputStream);
+		if (BinaryEventReader.isBinary(input)) {
+			events = new BinaryEventReader(input);
+		} else {
+			reader = new BufferedReader(new InputStreamReader(input));
+		}
+	}
+
 	/**
 	 * Curiously enough, this method creates and returns a
 	 * {@link UsageDataEvent} object from the given {@link String}. If an error
@@ -74,7 +107,8 @@ public class UsageDataFileReader {
 	private UsageDataEvent createUsageDataEvent(String line) {
 		String[] tokens = UsageDataRecorderUtils.splitLine(line);
 		if (tokens == null) return null;
-		if (tokens.length != 6) return null;
+		// Rollups (see RecordingSettings.ROLLUP_EXTENSION) add a count.
+		if (tokens.length != 6 && tokens.length != 7) return null;
 		Long when;
 		try {
 			when = Long.valueOf(tokens[5].trim());
@@ -86,7 +120,11 @@ public class UsageDataFileReader {
 	}
 
 	public void close() throws IOException {
-		reader.close();
+		if (events != null) {
+			events.close();
+		} else {
+			reader.close();
+		}
 	}
 
 	/**
@@ -122,6 +160,10 @@ public class UsageDataFileReader {
 	public void iterate(IProgressMonitor monitor, Iterator iterator) throws Exception {
 		monitor.beginTask("Iterate over usage data file", IProgressMonitor.UNKNOWN); //$NON-NLS-1$
 		try {
+			if (events != null) {
+				iterateEvents(monitor, iterator);
+				return;
+			}
 			// The first line is the header.
 			iterator.header(reader.readLine());
 			while (true) {
@@ -136,4 +178,33 @@ public class UsageDataFileReader {
 		}
 	}
 
+	/**
+	 * This method visits binary or columnar events. The events are decoded
+	 * directly; the iterator is given the CSV form of each one (and of the
+	 * header) as the line, so that it can't tell the difference.
+	 */
+	private void iterateEvents(IProgressMonitor monitor, Iterator iterator) throws Exception {
+		StringWriter writer = new StringWriter();
+		UsageDataRecorderUtils.writeHeader(writer);
+		iterator.header(getLine(writer));
+		while (true) {
+			if (monitor.isCanceled()) break;
+			UsageDataEvent event = events.read();
+			if (event == null) break;
+			UsageDataRecorderUtils.writeEvent(writer, event);
+			iterator.event(getLine(writer), event);
+		}
+	}
+
+	/**
+	 * This method answers what has been written to the writer, without the
+	 * trailing line separator, and empties it.
+	 */
+	private String getLine(StringWriter writer) {
+		StringBuffer buffer = writer.getBuffer();
+		String line = buffer.substring(0, buffer.length() - 1);
+		buffer.setLength(0);
+		return line;
+	}
+
 }
@@ -24,6 +24,20 @@ public final class Messages extends NLS {
 
 	public static String UsageDataCapturePreferencesPage_0;
 	public static String UsageDataCapturePreferencesPage_1;
+	public static String UsageDataCapturePreferencesPage_2;
+	public static String UsageDataCapturePreferencesPage_3;
+	public static String UsageDataCapturePreferencesPage_4;
+	public static String UsageDataCapturePreferencesPage_5;
+	public static String UsageDataCapturePreferencesPage_6;
+	public static String UsageDataCapturePreferencesPage_7;
+	public static String UsageDataCapturePreferencesPage_8;
+	public static String UsageDataCapturePreferencesPage_9;
+	public static String UsageDataCapturePreferencesPage_10;
+	public static String UsageDataCapturePreferencesPage_11;
+	public static String UsageDataCapturePreferencesPage_12;
+	public static String UsageDataCapturePreferencesPage_13;
+	public static String UsageDataCapturePreferencesPage_14;
+	public static String UsageDataCapturePreferencesPage_15;
 	public static String UsageDataUploadingPreferencesPage_0;
 	public static String UsageDataUploadingPreferencesPage_1;
 	public static String UsageDataUploadingPreferencesPage_2;
@@ -10,18 +10,24 @@
  *******************************************************************************/
 package org.eclipse.epp.usagedata.internal.ui.preferences;
 
+import java.text.DecimalFormat;
+
 import org.eclipse.epp.usagedata.internal.gathering.UsageDataCaptureActivator;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataMetrics;
 import org.eclipse.epp.usagedata.internal.gathering.settings.UsageDataCaptureSettings;
 import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.jface.preference.PreferencePage;
 import org.eclipse.jface.util.IPropertyChangeListener;
 import org.eclipse.jface.util.PropertyChangeEvent;
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.SelectionAdapter;
+import org.eclipse.swt.events.SelectionEvent;
 import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Group;
 import org.eclipse.swt.widgets.Label;
 import org.eclipse.ui.IWorkbench;
 import org.eclipse.ui.IWorkbenchPreferencePage;
@@ -31,6 +37,12 @@ public class UsageDataCapturePreferencesPage extends PreferencePage
 	
 	Button captureEnabledCheckbox;
 
+	/**
+	 * The labels showing the count and the latencies (in milliseconds) of
+	 * each stage, indexed by stage and then by column.
+	 */
+	Label[][] latencyLabels;
+
 	IPropertyChangeListener propertyChangeListener = new IPropertyChangeListener() {
 		public void propertyChange(final PropertyChangeEvent event) {
 			if (UsageDataCaptureSettings.CAPTURE_ENABLED_KEY.equals(event.getProperty())) {
@@ -69,6 +81,7 @@ public class UsageDataCapturePreferencesPage extends PreferencePage
 		composite.setLayout(new GridLayout());
 		
 		createGeneralInformationArea(composite);
+		createLatencyArea(composite);
 		
 		Label filler = new Label(parent, SWT.NONE);
 		filler.setLayoutData(new GridData(SWT.LEFT, SWT.TOP, true, true));
@@ -106,6 +119,97 @@ public class UsageDataCapturePreferencesPage extends PreferencePage
 		captureEnabledCheckbox.setText(Messages.UsageDataCapturePreferencesPage_1);  
 	}
 
+	/*
+	 * Note that this method expects to be run in the UI Thread.
+	 */
+	private void createLatencyArea(Composite parent) {
+		Group group = new Group(parent, SWT.NONE);
+		group.setText(Messages.UsageDataCapturePreferencesPage_2);
+		group.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, false));
+
+		String[] headings = new String[] {
+				Messages.UsageDataCapturePreferencesPage_3,
+				Messages.UsageDataCapturePreferencesPage_4,
+				Messages.UsageDataCapturePreferencesPage_5,
+				Messages.UsageDataCapturePreferencesPage_6,
+				Messages.UsageDataCapturePreferencesPage_7,
+				Messages.UsageDataCapturePreferencesPage_8};
+		group.setLayout(new GridLayout(headings.length, false));
+		for (String heading : headings) {
+			new Label(group, SWT.NONE).setText(heading);
+		}
+
+		String[] stages = getMetrics().getStages();
+		latencyLabels = new Label[stages.length][];
+		for (int stage = 0; stage < stages.length; stage++) {
+			new Label(group, SWT.NONE).setText(getStageLabel(stages[stage]));
+			latencyLabels[stage] = new Label[headings.length - 1];
+			for (int column = 0; column < latencyLabels[stage].length; column++) {
+				latencyLabels[stage][column] = new Label(group, SWT.RIGHT);
+				latencyLabels[stage][column].setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
+			}
+		}
+
+		Composite buttons = new Composite(group, SWT.NONE);
+		GridData buttonsLayoutData = new GridData(SWT.RIGHT, SWT.TOP, true, false);
+		buttonsLayoutData.horizontalSpan = headings.length;
+		buttons.setLayoutData(buttonsLayoutData);
+		buttons.setLayout(new GridLayout(2, true));
+
+		Button refreshButton = new Button(buttons, SWT.PUSH);
+		refreshButton.setText(Messages.UsageDataCapturePreferencesPage_9);
+		refreshButton.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
+		refreshButton.addSelectionListener(new SelectionAdapter() {
+			@Override
+			public void widgetSelected(SelectionEvent e) {
+				updateLatencyLabels();
+			}
+		});
+
+		Button resetButton = new Button(buttons, SWT.PUSH);
+		resetButton.setText(Messages.UsageDataCapturePreferencesPage_10);
+		resetButton.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
+		resetButton.addSelectionListener(new SelectionAdapter() {
+			@Override
+			public void widgetSelected(SelectionEvent e) {
+				getMetrics().resetStageLatency();
+				updateLatencyLabels();
+			}
+		});
+
+		updateLatencyLabels();
+	}
+
+	private String getStageLabel(String stage) {
+		if (UsageDataMetrics.QUEUE_STAGE.equals(stage)) return Messages.UsageDataCapturePreferencesPage_11;
+		if (UsageDataMetrics.ENRICH_STAGE.equals(stage)) return Messages.UsageDataCapturePreferencesPage_12;
+		if (UsageDataMetrics.DISPATCH_STAGE.equals(stage)) return Messages.UsageDataCapturePreferencesPage_13;
+		if (UsageDataMetrics.WRITE_STAGE.equals(stage)) return Messages.UsageDataCapturePreferencesPage_14;
+		if (UsageDataMetrics.TOTAL_STAGE.equals(stage)) return Messages.UsageDataCapturePreferencesPage_15;
+		return stage;
+	}
+
+	/*
+	 * Note that this method expects to be run in the UI Thread.
+	 */
+	private void updateLatencyLabels() {
+		DecimalFormat milliseconds = new DecimalFormat("0.0"); //$NON-NLS-1$
+		String[] stages = getMetrics().getStages();
+		for (int stage = 0; stage < stages.length; stage++) {
+			UsageDataMetrics.Histogram histogram = getMetrics().getStageLatency(stages[stage]);
+			Label[] labels = latencyLabels[stage];
+			labels[0].setText(String.valueOf(histogram.getCount()));
+			labels[1].setText(milliseconds.format(histogram.getPercentile(50) / 1000.0));
+			labels[2].setText(milliseconds.format(histogram.getPercentile(90) / 1000.0));
+			labels[3].setText(milliseconds.format(histogram.getPercentile(99) / 1000.0));
+			labels[4].setText(milliseconds.format(histogram.getMaximum() / 1000.0));
+		}
+		latencyLabels[0][0].getParent().layout();
+	}
+
+	private UsageDataMetrics getMetrics() {
+		return UsageDataMetrics.getDefault();
+	}
 
 	private IPreferenceStore getCapturePreferences() {
 		return org.eclipse.epp.usagedata.internal.gathering.UsageDataCaptureActivator.getDefault().getPreferenceStore();
@@ -10,8 +10,22 @@
  *******************************************************************************/
 package org.eclipse.epp.usagedata.internal.gathering;
 
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEventSubscriptionTests;
+import org.eclipse.epp.usagedata.internal.gathering.monitors.BuildUsageMonitorTests;
+import org.eclipse.epp.usagedata.internal.gathering.monitors.BundleUsageMonitorTests;
+import org.eclipse.epp.usagedata.internal.gathering.monitors.JobUsageMonitorTests;
+import org.eclipse.epp.usagedata.internal.gathering.monitors.OverheadUsageMonitorTests;
+import org.eclipse.epp.usagedata.internal.gathering.monitors.ThreadUsageMonitorTests;
+import org.eclipse.epp.usagedata.internal.gathering.services.DurationHistogramTests;
+import org.eclipse.epp.usagedata.internal.gathering.services.MonitorOverheadMeterTests;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataEventQueueTests;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataMetricsTests;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataProbeTests;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataServiceIdleTests;
 import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataServiceLifecycleTests;
 import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataServiceTests;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataSpillFileTests;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataSnapshotTests;
 import org.eclipse.epp.usagedata.internal.gathering.settings.UsageDataCaptureSettingsTests;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
@@ -25,7 +39,21 @@ import org.junit.runners.Suite;
 @Suite.SuiteClasses({
 	UsageDataServiceLifecycleTests.class,
 	UsageDataServiceTests.class,
-	UsageDataCaptureSettingsTests.class
+	UsageDataServiceIdleTests.class,
+	UsageDataEventQueueTests.class,
+	UsageDataEventSubscriptionTests.class,
+	MonitorOverheadMeterTests.class,
+	UsageDataSpillFileTests.class,
+	UsageDataCaptureSettingsTests.class,
+	DurationHistogramTests.class,
+	JobUsageMonitorTests.class,
+	BuildUsageMonitorTests.class,
+	BundleUsageMonitorTests.class,
+	ThreadUsageMonitorTests.class,
+	UsageDataSnapshotTests.class,
+	UsageDataProbeTests.class,
+	UsageDataMetricsTests.class,
+	OverheadUsageMonitorTests.class
 })
 public class AllTests {
 
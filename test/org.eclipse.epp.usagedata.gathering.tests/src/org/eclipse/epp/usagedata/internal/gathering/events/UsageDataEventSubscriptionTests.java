@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.gathering.events;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * This test case does not need to run inside the workbench.
+ */
+public class UsageDataEventSubscriptionTests {
+
+	private UsageDataEvent createEvent(String what, String kind, String bundleId) {
+		return new UsageDataEvent(what, kind, "description", bundleId, "1.0", 0);
+	}
+
+	@Test
+	public void testAllMatchesEverything() {
+		assertNull(UsageDataEventSubscription.ALL.getKinds());
+		assertFalse(UsageDataEventSubscription.ALL.hasDetailConstraints());
+		assertTrue(UsageDataEventSubscription.ALL.matches(createEvent("activated", "view", "org.eclipse.ui")));
+		assertTrue(UsageDataEventSubscription.ALL.matches(createEvent("activated", "view", null)));
+	}
+
+	@Test
+	public void testKinds() {
+		UsageDataEventSubscription subscription = UsageDataEventSubscription.forKinds("view", "editor");
+		assertFalse(subscription.hasDetailConstraints());
+		assertTrue(subscription.matches(createEvent("activated", "view", "x")));
+		assertTrue(subscription.matches(createEvent("opened", "editor", "x")));
+		assertFalse(subscription.matches(createEvent("executed", "command", "x")));
+	}
+
+	@Test
+	public void testWhats() {
+		UsageDataEventSubscription subscription = new UsageDataEventSubscription(null, new String[] {"failed"}, null);
+		assertTrue(subscription.hasDetailConstraints());
+		assertTrue(subscription.matches(createEvent("failed", "command", "x")));
+		assertFalse(subscription.matches(createEvent("executed", "command", "x")));
+	}
+
+	@Test
+	public void testBundlePatterns() {
+		UsageDataEventSubscription subscription = new UsageDataEventSubscription(null, null, new String[] {"org.eclipse.*", "com.example"});
+		assertTrue(subscription.matches(createEvent("activated", "view", "org.eclipse.jdt.ui")));
+		assertTrue(subscription.matches(createEvent("activated", "view", "com.example")));
+		assertFalse(subscription.matches(createEvent("activated", "view", "com.example.ui")));
+		assertFalse(subscription.matches(createEvent("activated", "view", "orgXeclipse.ui")));
+		assertFalse(subscription.matches(createEvent("activated", "view", null)));
+	}
+}
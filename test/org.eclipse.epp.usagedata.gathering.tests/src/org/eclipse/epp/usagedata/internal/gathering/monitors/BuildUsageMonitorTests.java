@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.gathering.monitors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IncrementalProjectBuilder;
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEvent;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * These tests drive the monitor directly rather than through the
+ * workspace, so that the timings are predictable. Projects are configured
+ * with the bundles that contribute their builders in {@link #builders}.
+ */
+public class BuildUsageMonitorTests {
+	private BuildUsageMonitor monitor;
+	private List<UsageDataEvent> recorded = new ArrayList<UsageDataEvent>();
+	private Map<String, Collection<String>> builders = new HashMap<String, Collection<String>>();
+
+	@Before
+	public void setUp() {
+		UsageDataService service = new UsageDataService() {
+			@Override
+			public void recordEvent(String what, String kind, String description, String bundleId) {
+				recorded.add(new UsageDataEvent(what, kind, description, bundleId, null, 0));
+			}
+		};
+		monitor = new BuildUsageMonitor() {
+			@Override
+			Collection<String> getBuilderBundleIds(Collection<String> projectNames) {
+				Set<String> bundleIds = new HashSet<String>();
+				for (String name : projectNames) {
+					if (builders.containsKey(name)) bundleIds.addAll(builders.get(name));
+				}
+				return bundleIds;
+			}
+		};
+		monitor.startMonitoring(service);
+	}
+
+	@After
+	public void tearDown() {
+		monitor.stopMonitoring();
+	}
+
+	@Test
+	public void testBuildAttributedToEachBuilderBundle() {
+		builders.put("project", Arrays.asList("first", "second"));
+		monitor.buildStarted(IncrementalProjectBuilder.INCREMENTAL_BUILD, 3, Collections.singleton("project"), 1000);
+		monitor.buildFinished(1200);
+		monitor.recordAggregates();
+
+		assertEquals(2, recorded.size());
+		for (UsageDataEvent event : recorded) {
+			assertEquals("aggregate", event.what);
+			assertEquals("build", event.kind);
+			assertEquals("incremental"
+					+ ";duration:count=1;mean=200;p50=200;p90=200;p99=200;max=200"
+					+ ";delta:count=1;mean=3;p50=3;p90=3;p99=3;max=3", event.description);
+		}
+	}
+
+	@Test
+	public void testKindsAggregatedSeparately() {
+		builders.put("project", Collections.singleton("bundle"));
+		monitor.buildStarted(IncrementalProjectBuilder.FULL_BUILD, 0, Collections.singleton("project"), 0);
+		monitor.buildFinished(1000);
+		monitor.buildStarted(IncrementalProjectBuilder.AUTO_BUILD, 1, Collections.singleton("project"), 2000);
+		monitor.buildFinished(2010);
+		monitor.buildStarted(IncrementalProjectBuilder.AUTO_BUILD, 1, Collections.singleton("project"), 3000);
+		monitor.buildFinished(3010);
+		monitor.recordAggregates();
+
+		assertEquals(2, recorded.size());
+		int auto = recorded.get(0).description.startsWith("auto;") ? 0 : 1;
+		assertEquals("bundle", recorded.get(auto).bundleId);
+		assertTrue(recorded.get(auto).description.startsWith("auto;duration:count=2;"));
+		assertTrue(recorded.get(1 - auto).description.startsWith("full;duration:count=1;mean=1000;"));
+	}
+
+	@Test
+	public void testFinishWithoutStartIgnored() {
+		monitor.buildFinished(1000);
+		monitor.recordAggregates();
+		assertEquals(0, recorded.size());
+	}
+
+	@Test
+	public void testBuildersLookedUpWhenReported() {
+		monitor.buildStarted(IncrementalProjectBuilder.INCREMENTAL_BUILD, 2, Arrays.asList("first", "second"), 0);
+		monitor.buildFinished(100);
+		// Both projects use the bundle's builder; the build is counted once.
+		builders.put("first", Collections.singleton("bundle"));
+		builders.put("second", Collections.singleton("bundle"));
+		monitor.recordAggregates();
+
+		assertEquals(1, recorded.size());
+		assertEquals("bundle", recorded.get(0).bundleId);
+		assertTrue(recorded.get(0).description.startsWith("incremental;duration:count=1;mean=100;"));
+	}
+
+	@Test
+	public void testPendingBuildsBounded() {
+		builders.put("project", Collections.singleton("bundle"));
+		for (int index = 0; index < BuildUsageMonitor.MAXIMUM_PENDING_BUILDS + 10; index++) {
+			monitor.buildStarted(IncrementalProjectBuilder.AUTO_BUILD, 1, Collections.singleton("project"), index);
+			monitor.buildFinished(index + 1);
+		}
+		monitor.recordAggregates();
+
+		assertEquals(1, recorded.size());
+		assertTrue(recorded.get(0).description.startsWith("auto;duration:count=" + BuildUsageMonitor.MAXIMUM_PENDING_BUILDS + ";"));
+	}
+}
@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.gathering.monitors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEvent;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+
+/**
+ * These tests drive the monitor directly rather than by starting bundles,
+ * so that the timings are predictable. This test case must be run in the
+ * workbench.
+ */
+public class BundleUsageMonitorTests {
+	private UsageDataService service;
+	private BundleUsageMonitor monitor;
+	private List<UsageDataEvent> recorded = new ArrayList<UsageDataEvent>();
+	private Bundle outer;
+	private Bundle inner;
+
+	@Before
+	public void setUp() {
+		service = new UsageDataService() {
+			@Override
+			public void recordEvent(String what, String kind, String description, String bundleId, String bundleVersion) {
+				recorded.add(new UsageDataEvent(what, kind, description, bundleId, bundleVersion, 0));
+			}
+		};
+		monitor = new BundleUsageMonitor();
+		monitor.startMonitoring(service);
+		recorded.clear();
+		outer = Platform.getBundle("org.eclipse.core.runtime");
+		inner = Platform.getBundle("org.junit");
+	}
+
+	@After
+	public void tearDown() {
+		monitor.stopMonitoring();
+		monitor.stopTracking();
+	}
+
+	@Test
+	public void testActivationsPaired() {
+		monitor.bundleStarting(outer, 1000);
+		monitor.bundleStarting(inner, 1010);
+		assertTrue(monitor.bundleStarted(inner, 1050));
+		assertTrue(monitor.bundleStarted(outer, 1100));
+
+		assertEquals(2, recorded.size());
+		assertEquals("activated", recorded.get(0).what);
+		assertEquals("org.junit", recorded.get(0).bundleId);
+		assertEquals("duration=40;self=40", recorded.get(0).description);
+		assertEquals("org.eclipse.core.runtime", recorded.get(1).bundleId);
+		assertEquals("duration=100;self=60", recorded.get(1).description);
+	}
+
+	@Test
+	public void testUnpairedStartNotRecorded() {
+		assertFalse(monitor.bundleStarted(outer, 1000));
+		assertEquals(0, recorded.size());
+	}
+
+	@Test
+	public void testFailedActivationDiscarded() {
+		monitor.bundleStarting(outer, 1000);
+		monitor.bundleStopped(outer);
+		assertFalse(monitor.bundleStarted(outer, 1100));
+	}
+
+	@Test
+	public void testSlowestRecorded() {
+		monitor.bundleStarting(outer, 0);
+		monitor.bundleStarted(outer, 10);
+		monitor.bundleStarting(inner, 0);
+		monitor.bundleStarted(inner, 30);
+		recorded.clear();
+		monitor.recordSlowestActivations();
+
+		assertEquals(2, recorded.size());
+		assertEquals("slowest", recorded.get(0).what);
+		assertEquals("org.junit", recorded.get(0).bundleId);
+		assertEquals("rank=1;duration=30;self=30", recorded.get(0).description);
+		assertEquals("rank=2;duration=10;self=10", recorded.get(1).description);
+	}
+
+	@Test
+	public void testSlowestLimited() {
+		for (int index = 0; index < BundleUsageMonitor.TOP_COUNT + 5; index++) {
+			monitor.bundleStarting(outer, 0);
+			monitor.bundleStarted(outer, index);
+		}
+		recorded.clear();
+		monitor.recordSlowestActivations();
+
+		assertEquals(BundleUsageMonitor.TOP_COUNT, recorded.size());
+		assertEquals("rank=1;duration=14;self=14", recorded.get(0).description);
+	}
+
+	@Test
+	public void testActivationsKeptUntilMonitoringStarts() {
+		BundleUsageMonitor early = new BundleUsageMonitor();
+		early.bundleStarting(outer, 0);
+		assertTrue(early.bundleStarted(outer, 20));
+		assertEquals(0, recorded.size());
+
+		early.startMonitoring(service);
+		try {
+			List<UsageDataEvent> activated = new ArrayList<UsageDataEvent>();
+			for (UsageDataEvent event : recorded) {
+				if ("activated".equals(event.what)) activated.add(event);
+			}
+			assertEquals(1, activated.size());
+			assertEquals("org.eclipse.core.runtime", activated.get(0).bundleId);
+			assertEquals("duration=20;self=20", activated.get(0).description);
+		} finally {
+			early.stopMonitoring();
+			early.stopTracking();
+		}
+	}
+}
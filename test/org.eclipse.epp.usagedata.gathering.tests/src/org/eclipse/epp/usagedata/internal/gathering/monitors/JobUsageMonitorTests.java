@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.gathering.monitors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEvent;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * These tests drive the monitor directly rather than through the job
+ * manager, so that the timings are predictable.
+ */
+public class JobUsageMonitorTests {
+	private JobUsageMonitor monitor;
+	private List<UsageDataEvent> recorded = new ArrayList<UsageDataEvent>();
+
+	static class TestJob extends Job {
+		TestJob(ISchedulingRule rule) {
+			super("test"); //$NON-NLS-1$
+			setRule(rule);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			return Status.OK_STATUS;
+		}
+	}
+
+	static ISchedulingRule RULE = new ISchedulingRule() {
+		public boolean contains(ISchedulingRule rule) {
+			return rule == this;
+		}
+
+		public boolean isConflicting(ISchedulingRule rule) {
+			return rule == this;
+		}
+	};
+
+	@Before
+	public void setUp() {
+		UsageDataService service = new UsageDataService() {
+			@Override
+			public void recordEvent(String what, String kind, String description, String bundleId) {
+				recorded.add(new UsageDataEvent(what, kind, description, bundleId, null, 0));
+			}
+		};
+		monitor = new JobUsageMonitor();
+		monitor.startMonitoring(service);
+	}
+
+	@After
+	public void tearDown() {
+		monitor.stopMonitoring();
+	}
+
+	@Test
+	public void testWaitAndRunTimes() {
+		Job job = new TestJob(null);
+		monitor.jobScheduled(job, 1000);
+		monitor.jobRunning(job, 1010);
+		monitor.jobDone(job, 1110);
+		monitor.recordAggregates();
+
+		assertEquals(2, recorded.size());
+		UsageDataEvent aggregate = recorded.get(0);
+		assertEquals("aggregate", aggregate.what);
+		assertEquals("job", aggregate.kind);
+		assertEquals(TestJob.class.getName()
+				+ ";wait:count=1;mean=10;p50=10;p90=10;p99=10;max=10"
+				+ ";run:count=1;mean=100;p50=100;p90=100;p99=100;max=100"
+				+ ";conflicts=0", aggregate.description);
+		assertEquals("concurrency", recorded.get(1).what);
+		assertEquals("count=1;mean=1;p50=1;p90=1;p99=1;max=1", recorded.get(1).description);
+	}
+
+	@Test
+	public void testRuleConflicts() {
+		Job first = new TestJob(RULE);
+		Job second = new TestJob(RULE);
+		monitor.jobScheduled(first, 0);
+		monitor.jobRunning(first, 0);
+		monitor.jobScheduled(second, 0);
+		monitor.jobRunning(second, 10);
+		monitor.recordAggregates();
+
+		UsageDataEvent aggregate = recorded.get(0);
+		assertTrue(aggregate.description.endsWith(";conflicts=1"));
+		assertTrue(aggregate.description.contains(";run:count=0;"));
+	}
+
+	@Test
+	public void testRulesReleasedWhenDone() {
+		Job first = new TestJob(RULE);
+		Job second = new TestJob(RULE);
+		monitor.jobScheduled(first, 0);
+		monitor.jobRunning(first, 0);
+		// A job that reschedules itself while it runs doesn't conflict with itself.
+		monitor.jobScheduled(first, 0);
+		monitor.jobDone(first, 10);
+		monitor.jobScheduled(second, 20);
+		monitor.jobRunning(second, 20);
+		monitor.recordAggregates();
+
+		assertTrue(recorded.get(0).description.endsWith(";conflicts=0"));
+	}
+
+	@Test
+	public void testNothingRecordedWhenIdle() {
+		monitor.recordAggregates();
+		assertEquals(0, recorded.size());
+	}
+}
@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.gathering.monitors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEvent;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataMetrics;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * These tests report directly rather than waiting for the reporting job.
+ * This test case must be run in the workbench.
+ */
+public class OverheadUsageMonitorTests {
+	private UsageDataMetrics metrics;
+	private OverheadUsageMonitor monitor;
+	private List<UsageDataEvent> recorded = new ArrayList<UsageDataEvent>();
+
+	@Before
+	public void setUp() {
+		metrics = new UsageDataMetrics();
+		UsageDataService service = new UsageDataService() {
+			@Override
+			public void recordEvent(String what, String kind, String description, String bundleId) {
+				metrics.eventCaptured(kind);
+				recorded.add(new UsageDataEvent(what, kind, description, bundleId, null, 0));
+			}
+		};
+		monitor = new OverheadUsageMonitor(metrics);
+		monitor.startMonitoring(service);
+	}
+
+	@After
+	public void tearDown() {
+		monitor.stopMonitoring();
+	}
+
+	private String getDescription(String name) {
+		for (UsageDataEvent event : recorded) {
+			if (event.description.startsWith(name + ";")) return event.description;
+		}
+		return null;
+	}
+
+	@Test
+	public void testOverheadReported() {
+		for (int index = 0; index < 10; index++) {
+			metrics.eventCaptured("view");
+			metrics.eventDequeued(1000, 1000 + index * 10);
+		}
+		metrics.addCost(25 * 1000 * 1000, 5000);
+		metrics.eventsWritten(10, 800, 300 * 1000);
+		monitor.recordAggregates();
+
+		assertEquals(3, recorded.size());
+		for (UsageDataEvent event : recorded) {
+			assertEquals("aggregate", event.what);
+			assertEquals(UsageDataService.UDC, event.kind);
+		}
+		assertEquals("overhead;cpu=25;allocated=5000;events=10;allocatedPerEvent=500", getDescription("overhead"));
+		assertEquals("queue-lag;count=10;mean=45;p50=50;p90=100;p99=100", getDescription("queue-lag"));
+		assertEquals("write;count=1;mean=300;p50=500;p90=500;p99=500", getDescription("write"));
+	}
+
+	@Test
+	public void testReportsArePerPeriod() {
+		metrics.eventCaptured("view");
+		metrics.uploadFinished(false, 2L * 1000 * 1000 * 1000);
+		monitor.recordAggregates();
+		assertEquals("upload;failed=1;count=1;mean=2000;p50=5000;p90=5000;p99=5000", getDescription("upload"));
+
+		recorded.clear();
+		metrics.eventCaptured("view");
+		monitor.recordAggregates();
+		assertEquals("overhead;cpu=0;allocated=0;events=1;allocatedPerEvent=0", getDescription("overhead"));
+		assertEquals(null, getDescription("upload"));
+	}
+
+	@Test
+	public void testOwnEventsNotReported() {
+		metrics.eventCaptured("view");
+		monitor.recordAggregates();
+		assertTrue(!recorded.isEmpty());
+
+		recorded.clear();
+		monitor.recordAggregates();
+		assertTrue(recorded.isEmpty());
+	}
+
+	@Test
+	public void testSelfEventsNotCounted() {
+		metrics.eventCaptured("view");
+		metrics.eventCaptured(UsageDataService.UDC);
+		metrics.uploadFinished(true, 1000);
+		monitor.recordAggregates();
+		assertEquals("overhead;cpu=0;allocated=0;events=1;allocatedPerEvent=0", getDescription("overhead"));
+
+		// Neither the four events recorded above nor others of the kind count.
+		recorded.clear();
+		metrics.eventCaptured(UsageDataService.UDC);
+		monitor.recordAggregates();
+		assertTrue(recorded.isEmpty());
+	}
+}
@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.gathering.monitors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEvent;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * These tests take samples directly rather than waiting for the sampling
+ * job. This test case must be run in the workbench.
+ */
+public class ThreadUsageMonitorTests {
+	private ThreadUsageMonitor monitor;
+	private List<UsageDataEvent> recorded = new ArrayList<UsageDataEvent>();
+
+	@Before
+	public void setUp() {
+		UsageDataService service = new UsageDataService() {
+			@Override
+			public void recordEvent(String what, String kind, String description, String bundleId) {
+				synchronized (recorded) {
+					recorded.add(new UsageDataEvent(what, kind, description, bundleId, null, 0));
+				}
+			}
+		};
+		monitor = new ThreadUsageMonitor();
+		monitor.startMonitoring(service);
+	}
+
+	@After
+	public void tearDown() {
+		monitor.stopMonitoring();
+	}
+
+	private UsageDataEvent getThreadEvent(String name) {
+		for (UsageDataEvent event : recorded) {
+			if (event.description.startsWith(name + ";")) return event;
+		}
+		return null;
+	}
+
+	private long getTime(UsageDataEvent event, String name) {
+		for (String part : event.description.split(";")) {
+			if (part.startsWith(name + "=")) return Long.parseLong(part.substring(name.length() + 1));
+		}
+		return -1;
+	}
+
+	@Test (timeout=10000)
+	public void testCpuTimeAttributed() throws Exception {
+		final CountDownLatch burned = new CountDownLatch(1);
+		final CountDownLatch sampled = new CountDownLatch(1);
+		Thread busy = new Thread("busy test thread") {
+			@Override
+			public void run() {
+				long end = System.currentTimeMillis() + 500;
+				long sum = 0;
+				while (System.currentTimeMillis() < end) sum += System.nanoTime() % 7;
+				if (sum == 42) System.out.println();
+				burned.countDown();
+				try {
+					sampled.await();
+				} catch (InterruptedException e) {
+				}
+			}
+		};
+		busy.start();
+		monitor.sample();
+		burned.await();
+		monitor.sample();
+		sampled.countDown();
+		busy.join();
+		monitor.recordAggregates();
+
+		if (!ManagementFactory.getThreadMXBean().isThreadCpuTimeSupported()) return;
+		UsageDataEvent event = getThreadEvent("busy test thread");
+		assertNotNull(event);
+		assertEquals("aggregate", event.what);
+		assertEquals("thread", event.kind);
+		assertTrue(getTime(event, "cpu") > 0);
+	}
+
+	@Test (timeout=10000)
+	public void testBlockedTimeAttributed() throws Exception {
+		if (!ManagementFactory.getThreadMXBean().isThreadContentionMonitoringSupported()) return;
+		final Object lock = new Object();
+		Thread blocked = new Thread("blocked test thread") {
+			@Override
+			public void run() {
+				synchronized (lock) {
+					lock.hashCode();
+				}
+			}
+		};
+		synchronized (lock) {
+			blocked.start();
+			while (blocked.getState() != Thread.State.BLOCKED) Thread.sleep(10);
+			monitor.sample();
+			Thread.sleep(200);
+			monitor.sample();
+		}
+		blocked.join();
+		monitor.recordAggregates();
+
+		UsageDataEvent event = getThreadEvent("blocked test thread");
+		assertNotNull(event);
+		assertTrue(getTime(event, "blocked") >= 100);
+	}
+
+	@Test
+	public void testTopAfterGrowing() throws Exception {
+		ThreadUsageMonitor.Totals totals = new ThreadUsageMonitor.Totals();
+		for (int index = 0; index < 40; index++) {
+			totals.add("name" + index, index, 0, 0);
+		}
+		assertEquals(40, totals.size);
+		assertArrayEquals(new int[] {39, 38, 37}, totals.getTop(3));
+	}
+
+	@Test
+	public void testTopLeavesOutIdleEntries() throws Exception {
+		ThreadUsageMonitor.Totals totals = new ThreadUsageMonitor.Totals();
+		totals.add("idle", 0, 0, 1000);
+		totals.add("blocked", 0, 20, 0);
+		totals.add("busy", 10, 0, 0);
+		totals.add("blocked", 0, 20, 0);
+		assertArrayEquals(new int[] {1, 2}, totals.getTop(5));
+	}
+}
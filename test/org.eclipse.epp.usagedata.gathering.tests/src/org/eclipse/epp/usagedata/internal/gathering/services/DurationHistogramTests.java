@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.gathering.services;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * This test case does not need to run inside the workbench.
+ */
+public class DurationHistogramTests {
+
+	@Test
+	public void testBuckets() {
+		assertEquals(0, DurationHistogram.getBucket(0));
+		assertEquals(1, DurationHistogram.getBucket(1));
+		assertEquals(2, DurationHistogram.getBucket(2));
+		assertEquals(2, DurationHistogram.getBucket(3));
+		assertEquals(3, DurationHistogram.getBucket(4));
+		assertEquals(DurationHistogram.BUCKET_COUNT - 1, DurationHistogram.getBucket(Long.MAX_VALUE));
+	}
+
+	@Test
+	public void testEmpty() {
+		DurationHistogram histogram = new DurationHistogram();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getPercentile(50));
+		assertEquals(0, histogram.getMean());
+	}
+
+	@Test
+	public void testPercentiles() {
+		DurationHistogram histogram = new DurationHistogram();
+		for (int index = 0; index < 90; index++) {
+			histogram.record(3);
+		}
+		for (int index = 0; index < 10; index++) {
+			histogram.record(100);
+		}
+		assertEquals(100, histogram.getCount());
+		assertEquals(1270, histogram.getTotal());
+		assertEquals(100, histogram.getMaximum());
+		// Percentiles are reported as the upper bound of their bucket.
+		assertEquals(4, histogram.getPercentile(50));
+		assertEquals(4, histogram.getPercentile(90));
+		// ...but never more than the maximum.
+		assertEquals(100, histogram.getPercentile(99));
+	}
+
+	@Test
+	public void testNegativeDurationCountedAsZero() {
+		DurationHistogram histogram = new DurationHistogram();
+		histogram.record(-5);
+		assertEquals(1, histogram.getCount());
+		assertEquals(0, histogram.getMaximum());
+	}
+
+	@Test
+	public void testSummaryAndReset() {
+		DurationHistogram histogram = new DurationHistogram();
+		histogram.record(10);
+		assertEquals("count=1;mean=10;p50=10;p90=10;p99=10;max=10", histogram.getSummary());
+		histogram.reset();
+		assertEquals("count=0;mean=0;p50=0;p90=0;p99=0;max=0", histogram.getSummary());
+	}
+}
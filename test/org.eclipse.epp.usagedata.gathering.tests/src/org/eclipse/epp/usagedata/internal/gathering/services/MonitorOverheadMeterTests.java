@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.gathering.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEvent;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This test case does not need to run inside the workbench.
+ */
+public class MonitorOverheadMeterTests {
+	private UsageDataService service;
+
+	@Before
+	public void setUp() {
+		UsageDataServiceConfiguration configuration = new UsageDataServiceConfiguration();
+		configuration.setOverheadBudget(0.001);
+		configuration.setOverheadWindow(1);
+		service = new UsageDataService(configuration);
+	}
+
+	/**
+	 * Spend a full window's worth of time in the monitor so that the meter
+	 * is over budget when the window closes.
+	 */
+	private void overspend(MonitorOverheadMeter meter) throws Exception {
+		Thread.sleep(2);
+		meter.charge(10000000L);
+	}
+
+	/**
+	 * Spend nothing for a window so that the meter is well under budget when
+	 * the window closes.
+	 */
+	private void underspend(MonitorOverheadMeter meter) throws Exception {
+		Thread.sleep(2);
+		meter.charge(0);
+	}
+
+	@Test
+	public void testSameMeterForSameId() {
+		assertTrue(service.getOverheadMeter("part") == service.getOverheadMeter("part"));
+		assertFalse(service.getOverheadMeter("part") == service.getOverheadMeter("command"));
+	}
+
+	@Test
+	public void testFullAcceptsEverything() {
+		MonitorOverheadMeter meter = service.getOverheadMeter("part");
+		assertEquals(MonitorOverheadMeter.FULL, meter.getLevel());
+		assertTrue(meter.accept("activated", "view", "x"));
+		assertTrue(meter.accept("activated", "view", "x"));
+		assertEquals(2, meter.getAcceptedCount());
+	}
+
+	@Test
+	public void testDegradesOneLevelPerWindow() throws Exception {
+		MonitorOverheadMeter meter = service.getOverheadMeter("part");
+
+		overspend(meter);
+		assertEquals(MonitorOverheadMeter.COALESCING, meter.getLevel());
+		assertTrue(meter.accept("activated", "view", "x"));
+		assertFalse(meter.accept("activated", "view", "x"));
+		assertTrue(meter.accept("activated", "view", "y"));
+
+		overspend(meter);
+		assertEquals(MonitorOverheadMeter.SAMPLING, meter.getLevel());
+		int accepted = 0;
+		for (int index = 0; index < MonitorOverheadMeter.SAMPLING_RATE * 3; index++) {
+			if (meter.accept("activated", "view", "x" + index)) accepted++;
+		}
+		assertEquals(3, accepted);
+
+		overspend(meter);
+		assertEquals(MonitorOverheadMeter.SUSPENDED, meter.getLevel());
+		assertFalse(meter.accept("activated", "view", "z"));
+	}
+
+	@Test
+	public void testRecoversWhenUnderBudget() throws Exception {
+		MonitorOverheadMeter meter = service.getOverheadMeter("part");
+		overspend(meter);
+		overspend(meter);
+		overspend(meter);
+		assertEquals(MonitorOverheadMeter.SUSPENDED, meter.getLevel());
+
+		underspend(meter);
+		assertEquals(MonitorOverheadMeter.SAMPLING, meter.getLevel());
+		underspend(meter);
+		assertEquals(MonitorOverheadMeter.COALESCING, meter.getLevel());
+		underspend(meter);
+		assertEquals(MonitorOverheadMeter.FULL, meter.getLevel());
+	}
+
+	@Test
+	public void testZeroBudgetNeverDegrades() throws Exception {
+		UsageDataServiceConfiguration configuration = new UsageDataServiceConfiguration();
+		configuration.setOverheadBudget(0);
+		configuration.setOverheadWindow(1);
+		MonitorOverheadMeter meter = new UsageDataService(configuration).getOverheadMeter("part");
+		overspend(meter);
+		assertEquals(MonitorOverheadMeter.FULL, meter.getLevel());
+	}
+
+	@Test
+	public void testLevelChangeIsRecorded() throws Exception {
+		MonitorOverheadMeter meter = service.getOverheadMeter("part");
+		overspend(meter);
+
+		List<UsageDataEvent> events = new ArrayList<UsageDataEvent>();
+		service.events.drainTo(events);
+		assertEquals(1, events.size());
+		assertEquals("degraded", events.get(0).what);
+		assertEquals(UsageDataService.UDC, events.get(0).kind);
+		assertEquals("part/coalescing", events.get(0).description);
+	}
+}
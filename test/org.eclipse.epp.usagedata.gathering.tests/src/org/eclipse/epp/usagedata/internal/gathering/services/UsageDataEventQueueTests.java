@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.gathering.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEvent;
+import org.junit.Test;
+
+/**
+ * This test case does not need to run inside the workbench.
+ */
+public class UsageDataEventQueueTests {
+
+	private UsageDataEvent createEvent(String what) {
+		return new UsageDataEvent(what, "kind", "description", "bundle", "1.0", 0);
+	}
+
+	@Test
+	public void testEmptyQueuePollsNull() {
+		UsageDataEventQueue queue = new UsageDataEventQueue();
+		assertNull(queue.poll());
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void testFifoWithinLane() {
+		UsageDataEventQueue queue = new UsageDataEventQueue();
+		UsageDataEvent first = createEvent("first");
+		UsageDataEvent second = createEvent("second");
+		queue.add(first, UsageDataEventQueue.NORMAL);
+		queue.add(second, UsageDataEventQueue.NORMAL);
+		assertSame(first, queue.poll());
+		assertSame(second, queue.poll());
+	}
+
+	@Test
+	public void testWeightedDraining() {
+		UsageDataEventQueue queue = new UsageDataEventQueue(100, new int[] {2, 1, 1});
+		for (int index = 0; index < 4; index++) {
+			queue.add(createEvent("bulk"), UsageDataEventQueue.BULK);
+		}
+		for (int index = 0; index < 4; index++) {
+			queue.add(createEvent("critical"), UsageDataEventQueue.CRITICAL);
+		}
+		// Two critical for every bulk event.
+		assertEquals("critical", queue.poll().what);
+		assertEquals("critical", queue.poll().what);
+		assertEquals("bulk", queue.poll().what);
+		assertEquals("critical", queue.poll().what);
+		assertEquals("critical", queue.poll().what);
+		assertEquals("bulk", queue.poll().what);
+		assertEquals("bulk", queue.poll().what);
+		assertEquals("bulk", queue.poll().what);
+		assertNull(queue.poll());
+	}
+
+	@Test
+	public void testOverflowShedsBulkFirst() {
+		UsageDataEventQueue queue = new UsageDataEventQueue(2, null);
+		queue.add(createEvent("bulk"), UsageDataEventQueue.BULK);
+		queue.add(createEvent("normal"), UsageDataEventQueue.NORMAL);
+		assertTrue(queue.add(createEvent("critical"), UsageDataEventQueue.CRITICAL));
+
+		assertEquals(2, queue.size());
+		assertEquals(1, queue.getDroppedCount(UsageDataEventQueue.BULK));
+		assertEquals(0, queue.getDroppedCount(UsageDataEventQueue.NORMAL));
+
+		List<UsageDataEvent> remaining = new ArrayList<UsageDataEvent>();
+		queue.drainTo(remaining);
+		assertEquals("critical", remaining.get(0).what);
+		assertEquals("normal", remaining.get(1).what);
+	}
+
+	@Test
+	public void testOverflowRejectsLessImportantEvent() {
+		UsageDataEventQueue queue = new UsageDataEventQueue(1, null);
+		queue.add(createEvent("critical"), UsageDataEventQueue.CRITICAL);
+		assertFalse(queue.add(createEvent("bulk"), UsageDataEventQueue.BULK));
+		assertEquals(1, queue.getDroppedCount(UsageDataEventQueue.BULK));
+		assertEquals("critical", queue.poll().what);
+	}
+
+	@Test (timeout=2000)
+	public void testTakeWaitsForEvent() throws Exception {
+		final UsageDataEventQueue queue = new UsageDataEventQueue();
+		new Thread() {
+			public void run() {
+				try {
+					Thread.sleep(100);
+				} catch (InterruptedException e) {
+				}
+				queue.add(createEvent("late"), UsageDataEventQueue.BULK);
+			}
+		}.start();
+		assertEquals("late", queue.take().what);
+	}
+}
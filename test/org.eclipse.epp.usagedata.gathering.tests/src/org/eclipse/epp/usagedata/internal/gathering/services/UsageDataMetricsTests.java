@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.gathering.services;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEvent;
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEventListener;
+import org.junit.Test;
+
+/**
+ * This test case does not need to run inside the workbench.
+ */
+public class UsageDataMetricsTests {
+
+	@Test
+	public void testHistogramBuckets() {
+		UsageDataMetrics.Histogram histogram = new UsageDataMetrics.Histogram(new long[] {10, 100});
+		histogram.record(-5);
+		histogram.record(10);
+		histogram.record(50);
+		histogram.record(1000);
+		assertArrayEquals(new long[] {2, 3}, histogram.getCumulativeCounts());
+		assertEquals(4, histogram.getCount());
+		assertEquals(1060, histogram.getSum());
+	}
+
+	@Test
+	public void testConcurrentCapture() throws Exception {
+		final UsageDataMetrics metrics = new UsageDataMetrics();
+		Thread[] threads = new Thread[4];
+		for (int index = 0; index < threads.length; index++) {
+			threads[index] = new Thread() {
+				@Override
+				public void run() {
+					for (int count = 0; count < 10000; count++) {
+						metrics.eventCaptured("kind" + (count % 3));
+					}
+				}
+			};
+			threads[index].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		long total = 0;
+		for (long count : metrics.getCapturedCounts().values()) {
+			total += count;
+		}
+		assertEquals(3, metrics.getCapturedCounts().size());
+		assertEquals(40000, total);
+	}
+
+	@Test
+	public void testStageLatency() {
+		UsageDataMetrics metrics = new UsageDataMetrics();
+		metrics.stageCompleted(UsageDataMetrics.QUEUE_STAGE, 3 * 1000 * 1000);
+		metrics.stageCompleted("unknown", 1000);
+		UsageDataMetrics.Histogram queue = metrics.getStageLatency(UsageDataMetrics.QUEUE_STAGE);
+		assertEquals(1, queue.getCount());
+		assertEquals(3000, queue.getMaximum());
+		assertEquals(3000, queue.getPercentile(50));
+		assertEquals(null, metrics.getStageLatency("unknown"));
+		assertEquals(UsageDataMetrics.QUEUE_STAGE, metrics.getStages()[0]);
+
+		metrics.resetStageLatency();
+		assertEquals(0, metrics.getStageLatency(UsageDataMetrics.QUEUE_STAGE).getCount());
+		assertEquals(1, queue.getCount());
+	}
+
+	@Test (timeout=5000)
+	public void testServiceTimesStages() throws Exception {
+		UsageDataMetrics metrics = UsageDataMetrics.getDefault();
+		long queued = metrics.getStageLatency(UsageDataMetrics.QUEUE_STAGE).getCount();
+		long dispatched = metrics.getStageLatency(UsageDataMetrics.DISPATCH_STAGE).getCount();
+		final List<UsageDataEvent> accepted = new ArrayList<UsageDataEvent>();
+
+		UsageDataService service = new UsageDataService();
+		service.addUsageDataEventListener(new UsageDataEventListener() {
+			public void accept(UsageDataEvent event) {
+				accepted.add(event);
+			}
+		});
+		service.startMonitoring();
+		service.recordEvent("clicked", "stage test", "", "bundle");
+		service.stopMonitoring();
+
+		assertEquals(1, accepted.size());
+		UsageDataEvent event = accepted.get(0);
+		assertTrue(event.enqueued != 0);
+		assertTrue(event.dispatched - event.enqueued >= 0);
+		assertTrue(metrics.getStageLatency(UsageDataMetrics.QUEUE_STAGE).getCount() > queued);
+		assertTrue(metrics.getStageLatency(UsageDataMetrics.DISPATCH_STAGE).getCount() > dispatched);
+	}
+
+	@Test (timeout=5000)
+	public void testServiceUpdatesDefaultMetrics() throws Exception {
+		UsageDataMetrics metrics = UsageDataMetrics.getDefault();
+		Long before = metrics.getCapturedCounts().get("metrics test");
+		long dispatched = metrics.getDispatchLatency().getCount();
+
+		UsageDataService service = new UsageDataService();
+		service.addUsageDataEventListener(new UsageDataEventListener() {
+			public void accept(UsageDataEvent event) {
+			}
+		});
+		service.startMonitoring();
+		assertTrue(metrics.getQueue() != null);
+		service.recordEvent("clicked", "metrics test", "", "bundle");
+		service.stopMonitoring();
+
+		assertEquals((before == null ? 0 : before) + 1, metrics.getCapturedCounts().get("metrics test").longValue());
+		assertTrue(metrics.getDispatchLatency().getCount() > dispatched);
+		assertEquals(0, metrics.getQueueDepth());
+	}
+}
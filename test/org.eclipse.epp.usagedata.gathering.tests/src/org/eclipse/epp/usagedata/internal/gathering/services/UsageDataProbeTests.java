@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.gathering.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEvent;
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEventListener;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * This test case does not need to run inside the workbench.
+ */
+public class UsageDataProbeTests {
+	private List<String> probed = new ArrayList<String>();
+
+	private UsageDataProbe probe = new UsageDataProbe() {
+		@Override
+		public boolean isEnabled() {
+			return true;
+		}
+
+		@Override
+		public void enqueued(String what, String kind, int priority, boolean accepted, int queueSize, long duration) {
+			synchronized (probed) {
+				probed.add("enqueued " + what + " " + accepted);
+			}
+		}
+
+		@Override
+		public void dispatched(String listener, String what, String kind, boolean failed, long duration) {
+			synchronized (probed) {
+				probed.add("dispatched " + what + " " + failed);
+			}
+		}
+	};
+
+	@After
+	public void tearDown() {
+		UsageDataProbe.setDefault(null);
+	}
+
+	@Test (timeout=5000)
+	public void testEnqueueAndDispatchProbed() throws Exception {
+		UsageDataProbe.setDefault(probe);
+		UsageDataService service = new UsageDataService();
+		service.addUsageDataEventListener(new UsageDataEventListener() {
+			public void accept(UsageDataEvent event) {
+				if ("broken".equals(event.what)) throw new RuntimeException();
+			}
+		});
+		service.startMonitoring();
+		service.recordEvent("clicked", "thing", "", "bundle");
+		service.recordEvent("broken", "thing", "", "bundle");
+		service.stopMonitoring();
+
+		assertTrue(probed.contains("enqueued clicked true"));
+		assertTrue(probed.contains("enqueued broken true"));
+		assertTrue(probed.contains("dispatched clicked false"));
+		assertTrue(probed.contains("dispatched broken true"));
+	}
+
+	@Test (timeout=5000)
+	public void testDisabledProbeNotCalled() throws Exception {
+		UsageDataProbe.setDefault(new UsageDataProbe() {
+			@Override
+			public void enqueued(String what, String kind, int priority, boolean accepted, int queueSize, long duration) {
+				probed.add(what);
+			}
+		});
+		UsageDataService service = new UsageDataService();
+		service.startMonitoring();
+		service.recordEvent("clicked", "thing", "", "bundle");
+		service.stopMonitoring();
+
+		assertEquals(0, probed.size());
+	}
+}
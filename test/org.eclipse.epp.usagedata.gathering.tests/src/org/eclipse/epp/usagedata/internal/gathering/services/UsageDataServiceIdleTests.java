@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.gathering.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEvent;
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEventListener;
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataIdleListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This test case does not need to run inside the workbench.
+ */
+public class UsageDataServiceIdleTests {
+	private UsageDataService service;
+	private UsageDataServiceConfiguration configuration;
+	private volatile boolean idle = false;
+	private final List<UsageDataEvent> events = new ArrayList<UsageDataEvent>();
+	private int idleCount = 0;
+
+	class Listener implements UsageDataEventListener, UsageDataIdleListener {
+		public void accept(UsageDataEvent event) {
+			synchronized (events) {
+				events.add(event);
+			}
+		}
+
+		public void idle() {
+			synchronized (events) {
+				idleCount++;
+			}
+		}
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		configuration = new UsageDataServiceConfiguration();
+		configuration.setIdleDetector(new IdleDetector() {
+			public void start() {
+			}
+
+			public void stop() {
+			}
+
+			public boolean isIdle() {
+				return idle;
+			}
+		});
+		service = new UsageDataService(configuration);
+		service.addUsageDataEventListener(new Listener());
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		service.stopMonitoring();
+	}
+
+	private int getEventCount() {
+		synchronized (events) {
+			return events.size();
+		}
+	}
+
+	@Test (timeout=5000)
+	public void testEventsHeldUntilIdle() throws Exception {
+		service.startMonitoring();
+		service.recordEvent("first", "kind", "", "bundle", "1.0");
+		service.recordEvent("second", "kind", "", "bundle", "1.0");
+
+		// The consumer job starts after one second.
+		Thread.sleep(1500);
+		assertEquals(0, getEventCount());
+
+		idle = true;
+		while (getEventCount() < 2) Thread.sleep(50);
+		Thread.sleep(100);
+		synchronized (events) {
+			assertEquals(1, idleCount);
+		}
+	}
+
+	@Test (timeout=5000)
+	public void testMaximumLatency() throws Exception {
+		configuration.setMaximumLatency(1500);
+		service.startMonitoring();
+		long start = System.currentTimeMillis();
+		service.recordEvent("first", "kind", "", "bundle", "1.0");
+
+		while (getEventCount() < 1) Thread.sleep(50);
+		assertTrue(System.currentTimeMillis() - start >= 1400);
+	}
+
+	@Test (timeout=5000)
+	public void testEventHeldAtShutdownIsDrained() throws Exception {
+		service.startMonitoring();
+		service.recordEvent("first", "kind", "", "bundle", "1.0");
+		Thread.sleep(1500);
+		service.stopMonitoring();
+		assertEquals(1, getEventCount());
+	}
+
+	@Test (timeout=5000)
+	public void testConsumerSpillsWhatItCannotDispatchInTime() throws Exception {
+		File spill = File.createTempFile("udc", ".spill");
+		spill.delete();
+		configuration.setSpillFile(spill);
+		configuration.setShutdownTimeout(200);
+		final CountDownLatch entered = new CountDownLatch(1);
+		final CountDownLatch released = new CountDownLatch(1);
+		// Stands in for a listener that is stuck, e.g. on a slow disk.
+		service.addUsageDataEventListener(new UsageDataEventListener() {
+			public void accept(UsageDataEvent event) {
+				if (!"first".equals(event.what)) return;
+				entered.countDown();
+				try {
+					released.await();
+				} catch (InterruptedException e) {
+					// The service interrupts the consumer when it stops; carry on.
+					try {
+						released.await();
+					} catch (InterruptedException again) {
+						// Let go.
+					}
+				}
+			}
+		});
+		idle = true;
+		service.startMonitoring();
+		service.recordEvent("first", "kind", "", "bundle", "1.0");
+		entered.await();
+		service.recordEvent("second", "kind", "", "bundle", "1.0");
+		service.recordEvent("third", "kind", "", "bundle", "1.0");
+
+		// The consumer is still dispatching when the timeout runs out; it
+		// is left to finish up, and nobody else touches the queue.
+		service.stopMonitoring();
+		assertFalse(spill.exists());
+		released.countDown();
+		while (!spill.exists()) Thread.sleep(50);
+		Thread.sleep(100);
+
+		List<UsageDataEvent> spilled = new UsageDataSpillFile(spill).read();
+		spill.delete();
+		assertEquals(1, getEventCount());
+		assertEquals(2, spilled.size());
+		assertEquals("second", spilled.get(0).what);
+		assertEquals("third", spilled.get(1).what);
+	}
+}
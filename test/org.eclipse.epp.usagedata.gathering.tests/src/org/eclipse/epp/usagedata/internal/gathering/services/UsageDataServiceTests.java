@@ -9,6 +9,7 @@ import java.util.List;
 
 import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEvent;
 import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEventListener;
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEventSubscription;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -94,4 +95,27 @@ public class UsageDataServiceTests {
 		assertEquals("bogus_bundle", event.bundleId);
 		assertEquals("bogus_version", event.bundleVersion);
 	}
+
+	@Test (timeout=2000)
+	public void testRecordEventOnlyDeliveredToSubscribers() throws Exception {
+		final List<UsageDataEvent> views = new ArrayList<UsageDataEvent>();
+		final List<UsageDataEvent> all = new ArrayList<UsageDataEvent>();
+		service.addUsageDataEventListener(new UsageDataEventListener() {
+			public void accept(UsageDataEvent event) {
+				views.add(event);
+			}			
+		}, UsageDataEventSubscription.forKinds("view"));
+		service.addUsageDataEventListener(new UsageDataEventListener() {
+			public void accept(UsageDataEvent event) {
+				all.add(event);
+			}			
+		});
+		service.recordEvent("executed", "command", "bogus", "bogus");
+		service.recordEvent("activated", "view", "bogus", "bogus");
+		
+		while (all.size() < 2) Thread.sleep(100);
+		
+		assertEquals(1, views.size());
+		assertEquals("view", views.get(0).kind);
+	}
 }
@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.gathering.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEvent;
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEventListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This test case does not need to run inside the workbench.
+ */
+public class UsageDataSnapshotTests {
+	private File file;
+
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("udc", ".snapshot");
+		file.delete();
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	private Map<String, String> getEntries() {
+		Map<String, String> entries = new HashMap<String, String>();
+		entries.put("org.eclipse.ui.edit.copy", "org.eclipse.ui");
+		entries.put("caf\u00e9", null);
+		return entries;
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		UsageDataSnapshot snapshot = new UsageDataSnapshot(file, 42);
+		snapshot.putSection("commands", getEntries());
+		snapshot.save();
+
+		UsageDataSnapshot loaded = new UsageDataSnapshot(file, 42);
+		loaded.load();
+		assertEquals(getEntries(), loaded.getSection("commands"));
+		assertNull(loaded.getSection("perspectives"));
+	}
+
+	@Test
+	public void testDifferentFingerprintIgnored() throws Exception {
+		UsageDataSnapshot snapshot = new UsageDataSnapshot(file, 42);
+		snapshot.putSection("commands", getEntries());
+		snapshot.save();
+
+		UsageDataSnapshot loaded = new UsageDataSnapshot(file, 43);
+		loaded.load();
+		assertNull(loaded.getSection("commands"));
+	}
+
+	@Test
+	public void testTruncatedFileIgnored() throws Exception {
+		UsageDataSnapshot snapshot = new UsageDataSnapshot(file, 42);
+		snapshot.putSection("commands", getEntries());
+		snapshot.save();
+		RandomAccessFile access = new RandomAccessFile(file, "rw");
+		access.setLength(access.length() - 3);
+		access.close();
+
+		UsageDataSnapshot loaded = new UsageDataSnapshot(file, 42);
+		loaded.load();
+		assertNull(loaded.getSection("commands"));
+	}
+
+	@Test
+	public void testSectionsPutBeforeLoadKept() throws Exception {
+		UsageDataSnapshot snapshot = new UsageDataSnapshot(file, 42);
+		snapshot.putSection("commands", getEntries());
+		snapshot.putSection("perspectives", getEntries());
+		snapshot.save();
+
+		UsageDataSnapshot loaded = new UsageDataSnapshot(file, 42);
+		Map<String, String> fresh = new HashMap<String, String>();
+		fresh.put("org.eclipse.ui.resourcePerspective", "org.eclipse.ui.ide");
+		loaded.putSection("perspectives", fresh);
+		loaded.load();
+		assertEquals(getEntries(), loaded.getSection("commands"));
+		assertEquals(fresh, loaded.getSection("perspectives"));
+	}
+
+	@Test (timeout=5000)
+	public void testBundleVersionsRestored() throws Exception {
+		final List<UsageDataEvent> events = new ArrayList<UsageDataEvent>();
+		UsageDataEventListener listener = new UsageDataEventListener() {
+			public void accept(UsageDataEvent event) {
+				synchronized (events) {
+					events.add(event);
+				}
+			}
+		};
+
+		UsageDataServiceConfiguration configuration = new UsageDataServiceConfiguration();
+		configuration.setSnapshot(new UsageDataSnapshot(file, 42));
+		UsageDataService service = new UsageDataService(configuration);
+		service.addUsageDataEventListener(listener);
+		service.startMonitoring();
+		service.recordEvent("started", "bundle", "bundle", "bundle", "1.2.3");
+		service.stopMonitoring();
+		assertTrue(file.exists());
+
+		configuration = new UsageDataServiceConfiguration();
+		configuration.setSnapshot(new UsageDataSnapshot(file, 42));
+		service = new UsageDataService(configuration);
+		service.addUsageDataEventListener(listener);
+		service.startMonitoring();
+		service.recordEvent("clicked", "thing", "", "bundle");
+		service.stopMonitoring();
+
+		assertEquals(2, events.size());
+		assertEquals("1.2.3", events.get(1).bundleVersion);
+	}
+}
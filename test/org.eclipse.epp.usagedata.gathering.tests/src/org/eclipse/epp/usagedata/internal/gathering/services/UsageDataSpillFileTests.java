@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.gathering.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEvent;
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEventListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This test case does not need to run inside the workbench.
+ */
+public class UsageDataSpillFileTests {
+	private File file;
+
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("udc", ".spill");
+		file.delete();
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		UsageDataSpillFile spillFile = new UsageDataSpillFile(file);
+		spillFile.write(Arrays.asList(
+				new UsageDataEvent("activated", "view", "caf\u00e9, \"quoted\"", "bundle", "1.0", 1000),
+				new UsageDataEvent("started", "bundle", null, "other", null, 2000)));
+
+		List<UsageDataEvent> events = spillFile.read();
+		assertEquals(2, events.size());
+		assertEquals("activated", events.get(0).what);
+		assertEquals("caf\u00e9, \"quoted\"", events.get(0).description);
+		assertEquals("1.0", events.get(0).bundleVersion);
+		assertEquals(1000, events.get(0).when);
+		assertNull(events.get(1).description);
+		assertNull(events.get(1).bundleVersion);
+		assertEquals(2000, events.get(1).when);
+	}
+
+	@Test
+	public void testWriteKeepsUnreplayedEvents() throws Exception {
+		UsageDataSpillFile spillFile = new UsageDataSpillFile(file);
+		spillFile.write(Arrays.asList(new UsageDataEvent("first", "kind", "", "bundle", "1.0", 1)));
+		spillFile.write(Arrays.asList(new UsageDataEvent("second", "kind", "", "bundle", "1.0", 2)));
+
+		List<UsageDataEvent> events = spillFile.read();
+		assertEquals(2, events.size());
+		assertEquals("first", events.get(0).what);
+		assertEquals("second", events.get(1).what);
+	}
+
+	@Test (timeout=5000)
+	public void testUndispatchedEventsReplayedOnRestart() throws Exception {
+		UsageDataServiceConfiguration configuration = new UsageDataServiceConfiguration();
+		configuration.setSpillFile(file);
+		UsageDataService service = new UsageDataService(configuration);
+
+		// The consumer job waits a second before it starts, and there are
+		// no listeners, so both of these events are spilled.
+		service.startMonitoring();
+		service.recordEvent("first", "kind", "", "bundle", "1.0");
+		service.recordEvent("second", "kind", "", "bundle", "1.0");
+		service.stopMonitoring();
+
+		assertTrue(file.exists());
+		assertEquals(0, service.events.size());
+
+		final List<UsageDataEvent> events = new ArrayList<UsageDataEvent>();
+		service.addUsageDataEventListener(new UsageDataEventListener() {
+			public void accept(UsageDataEvent event) {
+				synchronized (events) {
+					events.add(event);
+				}
+			}
+		});
+		service.startMonitoring();
+		assertFalse(file.exists());
+		service.stopMonitoring();
+
+		assertEquals(2, events.size());
+		assertEquals("first", events.get(0).what);
+		assertEquals("second", events.get(1).what);
+		assertFalse(file.exists());
+	}
+}
@@ -13,7 +13,13 @@ package org.eclipse.epp.usagedata.internal.recording;
 import org.eclipse.epp.usagedata.internal.recording.filtering.AbstractUsageDataEventFilterTests;
 import org.eclipse.epp.usagedata.internal.recording.filtering.FilterUtilsTests;
 import org.eclipse.epp.usagedata.internal.recording.filtering.PreferencesBasedFilterTests;
+import org.eclipse.epp.usagedata.internal.recording.rollover.RolloverPolicyTests;
 import org.eclipse.epp.usagedata.internal.recording.settings.UsageDataRecordingSettingsTests;
+import org.eclipse.epp.usagedata.internal.recording.storage.BinaryEventWriterTests;
+import org.eclipse.epp.usagedata.internal.recording.storage.ColumnarSegmentTests;
+import org.eclipse.epp.usagedata.internal.recording.storage.CompressedFileTests;
+import org.eclipse.epp.usagedata.internal.recording.storage.SegmentCatalogTests;
+import org.eclipse.epp.usagedata.internal.recording.storage.SegmentedEventLogTests;
 import org.eclipse.epp.usagedata.internal.recording.uploading.BasicUploaderTests;
 import org.eclipse.epp.usagedata.internal.recording.uploading.UsageDataFileReaderTests;
 import org.junit.runner.RunWith;
@@ -24,7 +30,16 @@ import org.junit.runners.Suite.SuiteClasses;
 @RunWith(Suite.class)
 @SuiteClasses( { 
 	UsageDataRecorderUtilsTests.class,
+	UsageDataRecorderTests.class,
+	DiskQuotaTests.class,
+	UsageDataMetricsServerTests.class,
 	UsageDataRecordingSettingsTests.class,
+	SegmentedEventLogTests.class,
+	BinaryEventWriterTests.class,
+	ColumnarSegmentTests.class,
+	CompressedFileTests.class,
+	SegmentCatalogTests.class,
+	RolloverPolicyTests.class,
 	AbstractUsageDataEventFilterTests.class,
 	FilterUtilsTests.class,
 	PreferencesBasedFilterTests.class,
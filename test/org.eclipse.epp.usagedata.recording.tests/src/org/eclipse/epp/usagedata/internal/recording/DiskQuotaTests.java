@@ -0,0 +1,278 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.recording;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEvent;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataLog;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataMetrics;
+import org.eclipse.epp.usagedata.internal.recording.settings.BasicRecordingSettings;
+import org.eclipse.epp.usagedata.internal.recording.settings.RecordingSettings;
+import org.eclipse.epp.usagedata.internal.recording.storage.CsvEventInputStream;
+import org.eclipse.epp.usagedata.internal.recording.storage.RollupEventReader;
+import org.eclipse.epp.usagedata.internal.recording.storage.SegmentCatalog;
+import org.eclipse.epp.usagedata.internal.recording.uploading.UsageDataFileReader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DiskQuotaTests {
+	private static final long DAY = 24 * 60 * 60 * 1000;
+
+	private File directory;
+	private BasicRecordingSettings settings;
+	private SegmentCatalog catalog;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = File.createTempFile("udc", "");
+		directory.delete();
+		settings = new BasicRecordingSettings(directory);
+		catalog = settings.getSegmentCatalog();
+	}
+
+	@After
+	public void tearDown() {
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	/**
+	 * This method adds a file to the catalog with <code>count</code> events,
+	 * spread over two views and (if <code>days</code> is 2) two days,
+	 * starting at <code>time</code>.
+	 */
+	private File addFile(long time, int count, int days) throws Exception {
+		File file = settings.computeDestinationFile();
+		FileWriter writer = new FileWriter(file);
+		UsageDataRecorderUtils.writeHeader(writer);
+		long last = time;
+		for (int index = 0; index < count; index++) {
+			last = time + (index / 2 % days) * DAY + index;
+			UsageDataRecorderUtils.writeEvent(writer, new UsageDataEvent("activated", "view", "org.eclipse.ui.view" + index % 2, "org.eclipse.ui", "3.4.0", last));
+		}
+		writer.close();
+		catalog.add(file, file.length(), count, time, last);
+		return file;
+	}
+
+	private long getTotalLength() {
+		long length = 0;
+		for (SegmentCatalog.Entry entry : catalog.getEntries()) {
+			length += entry.getLength();
+		}
+		return length;
+	}
+
+	private List<String> read(File file) throws Exception {
+		final List<String> events = new ArrayList<String>();
+		UsageDataFileReader reader = new UsageDataFileReader(file);
+		try {
+			reader.iterate(new UsageDataFileReader.Iterator() {
+				public void header(String header) {
+					events.add(header);
+				}
+
+				public void event(String line, UsageDataEvent event) {
+					events.add(line);
+				}
+			});
+		} finally {
+			reader.close();
+		}
+		return events;
+	}
+
+	/**
+	 * This method answers the lines of the file as they are uploaded: the
+	 * header, then one line for each event.
+	 */
+	private List<String> readUploaded(File rollup) throws Exception {
+		List<String> lines = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new CsvEventInputStream(new RollupEventReader(new FileInputStream(rollup)))));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lines.add(line);
+			}
+		} finally {
+			reader.close();
+		}
+		return lines;
+	}
+
+	@Test
+	public void testNothingEvictedWithinQuota() throws Exception {
+		File file = addFile(0, 100, 1);
+		assertEquals(0, new DiskQuota(catalog, file.length(), RecordingSettings.EVICTION_OLDEST, UsageDataLog.SYSTEM_ERR).enforce());
+		assertEquals(0, new DiskQuota(catalog, 0, RecordingSettings.EVICTION_OLDEST, UsageDataLog.SYSTEM_ERR).enforce());
+		// Eviction is opt-in.
+		assertEquals(RecordingSettings.EVICTION_NONE, settings.getEviction());
+		assertEquals(0, new DiskQuota(catalog, 1, settings.getEviction(), UsageDataLog.SYSTEM_ERR).enforce());
+		assertTrue(file.exists());
+		assertEquals(1, catalog.getPendingFiles().length);
+	}
+
+	@Test
+	public void testUploadedFilesAlwaysDeleted() throws Exception {
+		File pending = addFile(0, 100, 1);
+		File uploaded = addFile(1000, 100, 1);
+		catalog.uploaded(uploaded);
+		long length = uploaded.length();
+
+		// Nothing is lost, so neither the policy nor the quota matters.
+		assertEquals(length, new DiskQuota(catalog, 0, RecordingSettings.EVICTION_NONE, UsageDataLog.SYSTEM_ERR).enforce());
+		assertFalse(uploaded.exists());
+		assertTrue(pending.exists());
+		assertEquals(1, catalog.getEntries().size());
+
+		// Going over the quota is only logged.
+		assertEquals(0, new DiskQuota(catalog, 1, RecordingSettings.EVICTION_NONE, UsageDataLog.SYSTEM_ERR).enforce());
+		assertTrue(pending.exists());
+	}
+
+	@Test
+	public void testUploadedFilesDeletedFirst() throws Exception {
+		File oldest = addFile(0, 100, 1);
+		File uploaded = addFile(1000, 100, 1);
+		catalog.uploaded(uploaded);
+		File newest = addFile(2000, 100, 1);
+		long length = uploaded.length();
+		long filesEvicted = UsageDataMetrics.getDefault().getFilesEvicted();
+
+		assertEquals(length, new DiskQuota(catalog, getTotalLength() - 1, RecordingSettings.EVICTION_OLDEST, UsageDataLog.SYSTEM_ERR).enforce());
+		assertFalse(uploaded.exists());
+		assertTrue(oldest.exists());
+		assertTrue(newest.exists());
+		assertEquals(2, catalog.getEntries().size());
+		// Nothing that was waiting to be uploaded was lost.
+		assertEquals(filesEvicted, UsageDataMetrics.getDefault().getFilesEvicted());
+	}
+
+	@Test
+	public void testOldestFilesEvicted() throws Exception {
+		File oldest = addFile(0, 100, 1);
+		File middle = addFile(1000, 100, 1);
+		File newest = addFile(2000, 100, 1);
+		long length = oldest.length();
+		UsageDataMetrics metrics = UsageDataMetrics.getDefault();
+		long filesEvicted = metrics.getFilesEvicted();
+		long eventsEvicted = metrics.getEventsEvicted();
+		long bytesEvicted = metrics.getBytesEvicted();
+
+		assertEquals(length, new DiskQuota(catalog, getTotalLength() - 1, RecordingSettings.EVICTION_OLDEST, UsageDataLog.SYSTEM_ERR).enforce());
+		assertFalse(oldest.exists());
+		assertTrue(middle.exists());
+		assertTrue(newest.exists());
+		File[] files = catalog.getPendingFiles();
+		assertEquals(2, files.length);
+		assertEquals(middle, files[0]);
+
+		assertEquals(filesEvicted + 1, metrics.getFilesEvicted());
+		assertEquals(eventsEvicted + 100, metrics.getEventsEvicted());
+		assertEquals(bytesEvicted + length, metrics.getBytesEvicted());
+
+		// The catalog remembers, for the next session.
+		assertEquals(2, new BasicRecordingSettings(directory).getUsageDataUploadFiles().length);
+	}
+
+	@Test
+	public void testClaimedFilesLeftAlone() throws Exception {
+		File oldest = addFile(0, 100, 1);
+		File newest = addFile(1000, 100, 1);
+		// As if it were being uploaded.
+		assertTrue(catalog.claim(oldest) != null);
+
+		new DiskQuota(catalog, getTotalLength() - 1, RecordingSettings.EVICTION_OLDEST, UsageDataLog.SYSTEM_ERR).enforce();
+		assertTrue(oldest.exists());
+		assertFalse(newest.exists());
+		catalog.release(oldest);
+	}
+
+	@Test
+	public void testOldFilesDownsampled() throws Exception {
+		File oldest = addFile(0, 1000, 2);
+		File newest = addFile(10 * DAY, 1000, 2);
+		long length = newest.length();
+		UsageDataMetrics metrics = UsageDataMetrics.getDefault();
+		long filesDownsampled = metrics.getFilesDownsampled();
+		long filesEvicted = metrics.getFilesEvicted();
+
+		new DiskQuota(catalog, length * 3 / 2, RecordingSettings.EVICTION_DOWNSAMPLE, UsageDataLog.SYSTEM_ERR).enforce();
+		assertFalse(oldest.exists());
+		assertTrue(newest.exists());
+		File[] files = catalog.getPendingFiles();
+		assertEquals(2, files.length);
+		File rollup = files[0];
+		assertTrue(DiskQuota.isRollup(rollup));
+		assertEquals("upload0" + RecordingSettings.ROLLUP_EXTENSION, rollup.getName());
+		assertTrue(getTotalLength() <= length * 3 / 2);
+
+		// One line for each view on each day, with the first time and a count.
+		List<String> lines = read(rollup);
+		assertEquals(5, lines.size());
+		assertEquals("what,kind,bundleId,bundleVersion,description,time,count", lines.get(0));
+		assertEquals("activated,view,org.eclipse.ui,3.4.0,\"org.eclipse.ui.view0\",0,250", lines.get(1));
+		assertEquals("activated,view,org.eclipse.ui,3.4.0,\"org.eclipse.ui.view1\",1,250", lines.get(2));
+		assertEquals("activated,view,org.eclipse.ui,3.4.0,\"org.eclipse.ui.view0\"," + (DAY + 2) + ",250", lines.get(3));
+
+		SegmentCatalog.Entry entry = catalog.getEntries().get(0);
+		assertEquals(rollup.length(), entry.getLength());
+		assertEquals(1000, entry.getEventCount());
+		assertEquals(filesDownsampled + 1, metrics.getFilesDownsampled());
+		// Rollups are uploaded, as events repeated count times.
+		assertEquals(2, settings.getUsageDataUploadFiles().length);
+		List<String> rows = readUploaded(rollup);
+		assertEquals(1001, rows.size());
+		assertEquals(lines.get(0).substring(0, lines.get(0).lastIndexOf(',')), rows.get(0));
+		assertEquals("activated,view,org.eclipse.ui,3.4.0,\"org.eclipse.ui.view0\",0", rows.get(1));
+		assertEquals(rows.get(1), rows.get(250));
+		assertEquals("activated,view,org.eclipse.ui,3.4.0,\"org.eclipse.ui.view1\",1", rows.get(251));
+		assertEquals(filesEvicted, metrics.getFilesEvicted());
+
+		// Rollups are not rolled up again, but deleted when it comes to that.
+		new DiskQuota(catalog, 1, RecordingSettings.EVICTION_DOWNSAMPLE, UsageDataLog.SYSTEM_ERR).enforce();
+		assertFalse(rollup.exists());
+		assertEquals(0, catalog.getPendingFiles().length);
+		assertEquals(filesDownsampled + 2, metrics.getFilesDownsampled());
+		assertEquals(filesEvicted + 2, metrics.getFilesEvicted());
+	}
+
+	@Test
+	public void testRollupOutranksOriginal() throws Exception {
+		File original = addFile(0, 1000, 1);
+		addFile(DAY, 1000, 1);
+		new DiskQuota(catalog, getTotalLength() - 1, RecordingSettings.EVICTION_DOWNSAMPLE, UsageDataLog.SYSTEM_ERR).enforce();
+		assertFalse(original.exists());
+
+		// As if a crash had left the original behind.
+		FileWriter writer = new FileWriter(original);
+		UsageDataRecorderUtils.writeHeader(writer);
+		writer.close();
+		File[] files = new BasicRecordingSettings(directory).getSegmentCatalog().getPendingFiles();
+		assertEquals(2, files.length);
+		assertEquals("upload0" + RecordingSettings.ROLLUP_EXTENSION, files[0].getName());
+		assertFalse(original.exists());
+	}
+}
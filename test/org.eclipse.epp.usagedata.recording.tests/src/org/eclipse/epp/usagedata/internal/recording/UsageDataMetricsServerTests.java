@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.recording;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataLog;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataMetrics;
+import org.eclipse.epp.usagedata.internal.recording.settings.BasicRecordingSettings;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * These tests do not depend on the bundle activator or the workbench.
+ */
+public class UsageDataMetricsServerTests {
+
+	private File directory;
+	private UsageDataMetrics metrics;
+	private UsageDataMetricsServer server;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = File.createTempFile("udc", "");
+		directory.delete();
+		directory.mkdirs();
+		metrics = new UsageDataMetrics();
+		server = new UsageDataMetricsServer(metrics, new BasicRecordingSettings(directory), UsageDataLog.SYSTEM_ERR);
+		server.start(0);
+	}
+
+	@After
+	public void tearDown() {
+		server.stop();
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	private HttpURLConnection open() throws Exception {
+		return (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort() + "/metrics").openConnection();
+	}
+
+	private String read(InputStream input) throws Exception {
+		Reader reader = new InputStreamReader(input, "UTF-8");
+		StringBuilder builder = new StringBuilder();
+		char[] buffer = new char[4096];
+		int count;
+		while ((count = reader.read(buffer)) != -1) builder.append(buffer, 0, count);
+		reader.close();
+		return builder.toString();
+	}
+
+	@Test
+	public void testMetricsServed() throws Exception {
+		metrics.eventCaptured("command");
+		metrics.eventCaptured("command");
+		metrics.eventCaptured("view");
+		metrics.eventDispatched(2000);
+		metrics.eventsWritten(3, 120, 2000000);
+		metrics.uploadFinished(false, 1000);
+		FileWriter writer = new FileWriter(new File(directory, "upload0.csv"));
+		writer.write("12345");
+		writer.close();
+
+		HttpURLConnection connection = open();
+		assertEquals(200, connection.getResponseCode());
+		assertEquals(UsageDataMetricsServer.CONTENT_TYPE, connection.getContentType());
+		String body = read(connection.getInputStream());
+
+		assertTrue(body.contains("udc_events_captured_total{kind=\"command\"} 2\n"));
+		assertTrue(body.contains("udc_events_captured_total{kind=\"view\"} 1\n"));
+		assertTrue(body.contains("udc_dispatch_duration_seconds_bucket{le=\"1.0E-5\"} 1\n"));
+		assertTrue(body.contains("udc_dispatch_duration_seconds_count 1\n"));
+		assertTrue(body.contains("udc_recorder_bytes_written_total 120\n"));
+		assertTrue(body.contains("udc_upload_backlog_files 1\n"));
+		assertTrue(body.contains("udc_upload_backlog_bytes 5\n"));
+		assertTrue(body.contains("udc_uploads_total{result=\"failure\"} 1\n"));
+		assertTrue(body.contains("# TYPE udc_upload_duration_seconds histogram\n"));
+	}
+
+	@Test
+	public void testOnlyGetAllowed() throws Exception {
+		HttpURLConnection connection = open();
+		connection.setRequestMethod("DELETE");
+		assertEquals(405, connection.getResponseCode());
+	}
+
+	@Test
+	public void testLabelValuesEscaped() {
+		assertEquals("kind=\"a\\\"b\\\\c\\nd\"", UsageDataMetricsServer.label("kind", "a\"b\\c\nd"));
+	}
+}
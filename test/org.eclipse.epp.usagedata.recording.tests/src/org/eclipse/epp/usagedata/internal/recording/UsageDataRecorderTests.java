@@ -0,0 +1,589 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.recording;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEvent;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataLog;
+import org.eclipse.epp.usagedata.internal.gathering.services.UsageDataMetrics;
+import org.eclipse.epp.usagedata.internal.recording.settings.BasicRecordingSettings;
+import org.eclipse.epp.usagedata.internal.recording.settings.RecordingSettings;
+import org.eclipse.epp.usagedata.internal.recording.storage.SegmentCatalog;
+import org.eclipse.epp.usagedata.internal.recording.uploading.UsageDataFileReader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * These tests configure the {@link UsageDataRecorder} explicitly; they do not
+ * depend on the bundle activator or the workbench.
+ */
+public class UsageDataRecorderTests {
+
+	private File directory;
+	private BasicRecordingSettings settings;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = File.createTempFile("udc", "");
+		directory.delete();
+		settings = new BasicRecordingSettings(directory);
+	}
+
+	@After
+	public void tearDown() {
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	@Test
+	public void testEventsWrittenToWorkingDirectory() throws Exception {
+		UsageDataRecorder recorder = new UsageDataRecorder(settings, null, UsageDataLog.SYSTEM_ERR);
+		recorder.start();
+		recorder.accept(new UsageDataEvent("activated", "view", "myview", "mybundle", "1.0", 1000));
+		recorder.stop();
+
+		File file = settings.getEventFile();
+		assertTrue(file.exists());
+		assertEquals(directory, file.getParentFile());
+
+		List<String> lines = readLines(file);
+		assertEquals(2, lines.size());
+		assertEquals("what,kind,bundleId,bundleVersion,description,time", lines.get(0));
+		assertEquals("activated,view,mybundle,1.0,\"myview\",1000", lines.get(1));
+	}
+
+	@Test
+	public void testEventsCommittedWhenIdle() throws Exception {
+		UsageDataRecorder recorder = new UsageDataRecorder(settings, null, UsageDataLog.SYSTEM_ERR);
+		recorder.start();
+		recorder.accept(new UsageDataEvent("activated", "view", "myview", "mybundle", "1.0", 1000));
+		recorder.accept(new UsageDataEvent("activated", "view", "myview", "mybundle", "1.0", 2000));
+		assertFalse(settings.getEventFile().exists());
+
+		idle(recorder);
+		assertEquals(3, readLines(settings.getEventFile()).size());
+
+		recorder.accept(new UsageDataEvent("activated", "view", "myview", "mybundle", "1.0", 3000));
+		recorder.stop();
+		List<String> lines = readLines(settings.getEventFile());
+		assertEquals(4, lines.size());
+		assertEquals("activated,view,mybundle,1.0,\"myview\",3000", lines.get(3));
+	}
+
+	@Test (timeout=10000)
+	public void testDispatchDoesNotWaitForWriter() throws Exception {
+		settings.setRolloverThreshold(10 * 1024 * 1024);
+		final UsageDataRecorder recorder = new UsageDataRecorder(settings, null, UsageDataLog.SYSTEM_ERR);
+		recorder.start();
+		final CountDownLatch held = new CountDownLatch(1);
+		final CountDownLatch released = new CountDownLatch(1);
+		// Stands in for a writer that is stuck on a slow disk.
+		Thread writer = new Thread() {
+			@Override
+			public void run() {
+				synchronized (recorder) {
+					held.countDown();
+					try {
+						released.await();
+					} catch (InterruptedException e) {
+						// Let go.
+					}
+				}
+			}
+		};
+		writer.start();
+		held.await();
+
+		// More than one buffer's worth; none of this waits for the writer.
+		for (int index = 0; index < 2500; index++) {
+			recorder.accept(new UsageDataEvent("activated", "view", "myview", "mybundle", "1.0", index));
+		}
+		recorder.idle();
+		assertFalse(recorder.join(100));
+		assertFalse(settings.getEventFile().exists());
+
+		released.countDown();
+		assertTrue(recorder.join(10000));
+		List<String> lines = readLines(settings.getEventFile());
+		assertEquals(2501, lines.size());
+		assertEquals("activated,view,mybundle,1.0,\"myview\",0", lines.get(1));
+		assertEquals("activated,view,mybundle,1.0,\"myview\",2499", lines.get(2500));
+		recorder.stop();
+	}
+
+	@Test (timeout=10000)
+	public void testHeldEventsBounded() throws Exception {
+		settings.setRolloverThreshold(10 * 1024 * 1024);
+		final UsageDataRecorder recorder = new UsageDataRecorder(settings, null, UsageDataLog.SYSTEM_ERR);
+		recorder.start();
+		final CountDownLatch held = new CountDownLatch(1);
+		final CountDownLatch released = new CountDownLatch(1);
+		Thread writer = new Thread() {
+			@Override
+			public void run() {
+				synchronized (recorder) {
+					held.countDown();
+					try {
+						released.await();
+					} catch (InterruptedException e) {
+						// Let go.
+					}
+				}
+			}
+		};
+		writer.start();
+		held.await();
+
+		UsageDataMetrics metrics = UsageDataMetrics.getDefault();
+		long dropped = metrics.getEventsDropped();
+		// One buffer for the writer, ten more held, and the rest dropped.
+		for (int index = 0; index < 11500; index++) {
+			recorder.accept(new UsageDataEvent("activated", "view", "myview", "mybundle", "1.0", index));
+		}
+		assertEquals(dropped + 500, metrics.getEventsDropped());
+
+		released.countDown();
+		recorder.stop();
+		assertEquals(11001, readLines(settings.getEventFile()).size());
+	}
+
+	@Test (timeout=10000)
+	public void testRecordingStoppedAfterTooManyExceptions() throws Exception {
+		UsageDataRecorder recorder = new UsageDataRecorder(settings, null, UsageDataLog.SYSTEM_ERR);
+		recorder.start();
+		// The event file cannot be opened, so every commit fails.
+		settings.getEventFile().mkdirs();
+		for (int index = 0; index < 10; index++) {
+			recorder.accept(new UsageDataEvent("activated", "view", "myview", "mybundle", "1.0", index));
+			// The buffer stays with the writer while it cannot be written out.
+			recorder.idle();
+			recorder.join(1000);
+		}
+		// Once it has given up, the writer has nothing left to do.
+		assertTrue(recorder.join(1000));
+
+		long dropped = UsageDataMetrics.getDefault().getEventsDropped();
+		recorder.accept(new UsageDataEvent("activated", "view", "myview", "mybundle", "1.0", 1000));
+		assertEquals(dropped + 1, UsageDataMetrics.getDefault().getEventsDropped());
+		recorder.stop();
+		settings.getEventFile().delete();
+	}
+
+	@Test
+	public void testFileRolledOverAfterCommit() throws Exception {
+		UsageDataRecorder recorder = new UsageDataRecorder(settings, null, UsageDataLog.SYSTEM_ERR);
+		recorder.start();
+		StringBuilder description = new StringBuilder();
+		for (int index = 0; index < 1000; index++) description.append('x');
+		for (int index = 0; index < 30; index++) {
+			recorder.accept(new UsageDataEvent("activated", "view", description.toString(), "mybundle", "1.0", index));
+		}
+		idle(recorder);
+		assertFalse(settings.getEventFile().exists());
+		assertEquals(1, settings.getUsageDataUploadFiles().length);
+		assertEquals(31, readLines(settings.getUsageDataUploadFiles()[0]).size());
+
+		recorder.accept(new UsageDataEvent("activated", "view", "myview", "mybundle", "1.0", 1000));
+		recorder.stop();
+		List<String> lines = readLines(settings.getEventFile());
+		assertEquals(2, lines.size());
+		assertEquals("what,kind,bundleId,bundleVersion,description,time", lines.get(0));
+	}
+
+	@Test
+	public void testFileRolledOverByEventCount() throws Exception {
+		settings.setRollover(RecordingSettings.ROLLOVER_EVENT_COUNT);
+		settings.setRolloverThreshold(5);
+		UsageDataRecorder recorder = new UsageDataRecorder(settings, null, UsageDataLog.SYSTEM_ERR);
+		recorder.start();
+		for (int index = 0; index < 4; index++) {
+			recorder.accept(new UsageDataEvent("activated", "view", "myview", "mybundle", "1.0", index));
+		}
+		idle(recorder);
+		assertEquals(0, settings.getUsageDataUploadFiles().length);
+
+		recorder.accept(new UsageDataEvent("activated", "view", "myview", "mybundle", "1.0", 4));
+		idle(recorder);
+		assertFalse(settings.getEventFile().exists());
+		assertEquals(1, settings.getUsageDataUploadFiles().length);
+		assertEquals(6, readLines(settings.getUsageDataUploadFiles()[0]).size());
+		SegmentCatalog.Entry entry = settings.getSegmentCatalog().getEntries().get(0);
+		assertEquals(5, entry.getEventCount());
+		assertEquals(0, entry.getFirstTime());
+		assertEquals(4, entry.getLastTime());
+		assertEquals(settings.getUsageDataUploadFiles()[0].length(), entry.getLength());
+
+		// The count starts again with the next file.
+		recorder.accept(new UsageDataEvent("activated", "view", "myview", "mybundle", "1.0", 5));
+		recorder.stop();
+		assertEquals(1, settings.getUsageDataUploadFiles().length);
+		assertEquals(2, readLines(settings.getEventFile()).size());
+	}
+
+	@Test
+	public void testQuotaEnforcedOnRollover() throws Exception {
+		settings.setRollover(RecordingSettings.ROLLOVER_EVENT_COUNT);
+		settings.setRolloverThreshold(5);
+		settings.setEviction(RecordingSettings.EVICTION_OLDEST);
+		settings.setQuota(1000);
+		UsageDataRecorder recorder = new UsageDataRecorder(settings, null, UsageDataLog.SYSTEM_ERR);
+		recorder.start();
+		for (int index = 0; index < 50; index++) {
+			recorder.accept(new UsageDataEvent("activated", "view", "myview", "mybundle", "1.0", index));
+			if (index % 5 == 4) idle(recorder);
+		}
+		recorder.stop();
+
+		File[] files = settings.getUsageDataUploadFiles();
+		long length = 0;
+		for (File file : files) {
+			length += file.length();
+		}
+		assertTrue(length <= 1000);
+		assertTrue(files.length < 10);
+		// The newest files are the ones that are kept.
+		List<String> lines = readLines(files[files.length - 1]);
+		assertEquals("activated,view,mybundle,1.0,\"myview\",49", lines.get(lines.size() - 1));
+	}
+
+	@Test
+	public void testSegmentPreallocationCapped() throws Exception {
+		settings.setStorage(RecordingSettings.STORAGE_SEGMENTS);
+		settings.setRolloverThreshold(1024L * 1024 * 1024);
+		UsageDataRecorder recorder = new UsageDataRecorder(settings, null, UsageDataLog.SYSTEM_ERR);
+		recorder.start();
+		recorder.accept(new UsageDataEvent("activated", "view", "myview", "mybundle", "1.0", 1000));
+		recorder.stop();
+		// A few MB, not the gigabyte that the threshold would suggest.
+		assertTrue(settings.getSegmentFile().length() <= 8 * 1024 * 1024);
+	}
+
+	@Test
+	public void testSegmentsSealedByAge() throws Exception {
+		settings.setStorage(RecordingSettings.STORAGE_SEGMENTS);
+		settings.setRollover(RecordingSettings.ROLLOVER_AGE);
+		settings.setRolloverThreshold(50);
+		UsageDataRecorder recorder = new UsageDataRecorder(settings, null, UsageDataLog.SYSTEM_ERR);
+		recorder.start();
+		recorder.accept(new UsageDataEvent("activated", "view", "myview", "mybundle", "1.0", 1000));
+		idle(recorder);
+		assertEquals(0, settings.getUsageDataUploadFiles().length);
+
+		Thread.sleep(100);
+		recorder.accept(new UsageDataEvent("activated", "view", "myview", "mybundle", "1.0", 2000));
+		idle(recorder);
+		recorder.stop();
+		assertEquals(1, settings.getUsageDataUploadFiles().length);
+		assertEquals(3, readLines(new UsageDataFileReader(settings.getUsageDataUploadFiles()[0])).size());
+	}
+
+	@Test
+	public void testTornLineTruncatedOnStart() throws Exception {
+		writeFile(settings.getEventFile(), "what,kind,bundleId,bundleVersion,description,time\nactivated,view,mybundle,1.0,\"myview\",1000\nactivated,vi");
+
+		UsageDataRecorder recorder = new UsageDataRecorder(settings, null, UsageDataLog.SYSTEM_ERR);
+		recorder.start();
+		recorder.accept(new UsageDataEvent("activated", "view", "myview", "mybundle", "1.0", 2000));
+		recorder.stop();
+
+		List<String> lines = readLines(settings.getEventFile());
+		assertEquals(3, lines.size());
+		assertEquals("activated,view,mybundle,1.0,\"myview\",1000", lines.get(1));
+		assertEquals("activated,view,mybundle,1.0,\"myview\",2000", lines.get(2));
+	}
+
+	@Test
+	public void testTornLineTruncatedOnReopen() throws Exception {
+		UsageDataRecorder recorder = new UsageDataRecorder(settings, null, UsageDataLog.SYSTEM_ERR);
+		recorder.start();
+		// Stands in for a commit that failed partway, after which the file was closed.
+		writeFile(settings.getEventFile(), "what,kind,bundleId,bundleVersion,description,time\nactivated,view,mybundle,1.0,\"myview\",1000\nactivated,vi");
+		recorder.accept(new UsageDataEvent("activated", "view", "myview", "mybundle", "1.0", 2000));
+		recorder.stop();
+
+		List<String> lines = readLines(settings.getEventFile());
+		assertEquals(3, lines.size());
+		assertEquals("activated,view,mybundle,1.0,\"myview\",2000", lines.get(2));
+	}
+
+	@Test
+	public void testTornHeaderTruncatedOnStart() throws Exception {
+		writeFile(settings.getEventFile(), "what,kind,bund");
+
+		UsageDataRecorder recorder = new UsageDataRecorder(settings, null, UsageDataLog.SYSTEM_ERR);
+		recorder.recover();
+		assertEquals(0, settings.getEventFile().length());
+
+		recorder.start();
+		recorder.accept(new UsageDataEvent("activated", "view", "myview", "mybundle", "1.0", 1000));
+		recorder.stop();
+		assertEquals("what,kind,bundleId,bundleVersion,description,time", readLines(settings.getEventFile()).get(0));
+	}
+
+	@Test
+	public void testCompleteFileNotTruncated() throws Exception {
+		String contents = "what,kind,bundleId,bundleVersion,description,time\nactivated,view,mybundle,1.0,\"myview\",1000\n";
+		writeFile(settings.getEventFile(), contents);
+		new UsageDataRecorder(settings, null, UsageDataLog.SYSTEM_ERR).recover();
+		assertEquals(contents.length(), settings.getEventFile().length());
+	}
+
+	@Test
+	public void testDurabilityModes() throws Exception {
+		String[] modes = {RecordingSettings.DURABILITY_NONE, RecordingSettings.DURABILITY_INTERVAL_FSYNC, RecordingSettings.DURABILITY_BATCH_FSYNC};
+		for (String mode : modes) {
+			settings.setDurability(mode);
+			UsageDataRecorder recorder = new UsageDataRecorder(settings, null, UsageDataLog.SYSTEM_ERR);
+			recorder.start();
+			recorder.accept(new UsageDataEvent("activated", "view", mode, "mybundle", "1.0", 1000));
+			idle(recorder);
+			recorder.stop();
+		}
+		List<String> lines = readLines(settings.getEventFile());
+		assertEquals(4, lines.size());
+		assertEquals("activated,view,mybundle,1.0,\"batch-fsync\",1000", lines.get(3));
+	}
+
+	@Test (timeout=10000)
+	public void testIntervalSyncWithoutFurtherEvents() throws Exception {
+		settings.setDurability(RecordingSettings.DURABILITY_INTERVAL_FSYNC);
+		settings.setSyncInterval(2000);
+		UsageDataRecorder recorder = new UsageDataRecorder(settings, null, UsageDataLog.SYSTEM_ERR);
+		recorder.start();
+		recorder.accept(new UsageDataEvent("activated", "view", "myview", "mybundle", "1.0", 1000));
+		idle(recorder);
+		recorder.accept(new UsageDataEvent("activated", "view", "myview", "mybundle", "1.0", 2000));
+		idle(recorder);
+		// Too soon after the first commit to force the second.
+		assertTrue(recorder.isUnsynced());
+
+		// Nothing else happens, but the events are forced once the interval is up.
+		while (recorder.isUnsynced()) {
+			Thread.sleep(100);
+		}
+		recorder.stop();
+	}
+
+	@Test (expected=IllegalArgumentException.class)
+	public void testUnknownDurabilityRejected() {
+		settings.setDurability("sometimes");
+	}
+
+	@Test
+	public void testWriteStagesTimed() throws Exception {
+		UsageDataMetrics metrics = UsageDataMetrics.getDefault();
+		long written = metrics.getStageLatency(UsageDataMetrics.WRITE_STAGE).getCount();
+		long total = metrics.getStageLatency(UsageDataMetrics.TOTAL_STAGE).getCount();
+
+		UsageDataRecorder recorder = new UsageDataRecorder(settings, null, UsageDataLog.SYSTEM_ERR);
+		recorder.start();
+		UsageDataEvent event = new UsageDataEvent("activated", "view", "myview", "mybundle", "1.0", 1000);
+		event.enqueued = System.nanoTime();
+		event.dispatched = event.enqueued;
+		recorder.accept(event);
+		recorder.accept(new UsageDataEvent("activated", "view", "myview", "mybundle", "1.0", 1000));
+		recorder.stop();
+
+		// Only the event that went through the service is timed.
+		assertEquals(written + 1, metrics.getStageLatency(UsageDataMetrics.WRITE_STAGE).getCount());
+		assertEquals(total + 1, metrics.getStageLatency(UsageDataMetrics.TOTAL_STAGE).getCount());
+	}
+
+	@Test
+	public void testSegmentsSealedForUpload() throws Exception {
+		settings.setStorage(RecordingSettings.STORAGE_SEGMENTS);
+		UsageDataRecorder recorder = new UsageDataRecorder(settings, null, UsageDataLog.SYSTEM_ERR);
+		recorder.start();
+		StringBuilder description = new StringBuilder();
+		for (int index = 0; index < 1000; index++) description.append('x');
+		for (int index = 0; index < 30; index++) {
+			recorder.accept(new UsageDataEvent("activated", "view", description.toString(), "mybundle", "1.0", index));
+		}
+		idle(recorder);
+		assertFalse(settings.getEventFile().exists());
+		// The active segment is emptied in place, for the next events.
+		assertTrue(settings.getSegmentFile().exists());
+		assertEquals(1, settings.getUsageDataUploadFiles().length);
+		assertEquals(31, readLines(new UsageDataFileReader(settings.getUsageDataUploadFiles()[0])).size());
+
+		recorder.accept(new UsageDataEvent("activated", "view", "myview", "mybundle", "1.0", 1000));
+		recorder.stop();
+		assertTrue(settings.getSegmentFile().exists());
+		assertFalse(settings.getEventFile().exists());
+	}
+
+	@Test
+	public void testBinaryEncoding() throws Exception {
+		settings.setEncoding(RecordingSettings.ENCODING_BINARY);
+		UsageDataRecorder recorder = new UsageDataRecorder(settings, null, UsageDataLog.SYSTEM_ERR);
+		recorder.start();
+		recorder.accept(new UsageDataEvent("activated", "view", "myview", "mybundle", "1.0", 1000));
+		idle(recorder);
+		recorder.stop();
+
+		// A second session appends to the same file with the same dictionary.
+		recorder.start();
+		recorder.accept(new UsageDataEvent("activated", "view", "myview", "mybundle", "1.0", 2000));
+		recorder.stop();
+
+		assertFalse(settings.getEventFile().exists());
+		List<String> lines = readLines(new UsageDataFileReader(settings.getBinaryEventFile()));
+		assertEquals(3, lines.size());
+		assertEquals("activated,view,mybundle,1.0,\"myview\",1000", lines.get(1));
+		assertEquals("activated,view,mybundle,1.0,\"myview\",2000", lines.get(2));
+	}
+
+	@Test
+	public void testIncompleteBinaryEventTruncatedOnStart() throws Exception {
+		settings.setEncoding(RecordingSettings.ENCODING_BINARY);
+		UsageDataRecorder recorder = new UsageDataRecorder(settings, null, UsageDataLog.SYSTEM_ERR);
+		recorder.start();
+		recorder.accept(new UsageDataEvent("activated", "view", "myview", "mybundle", "1.0", 1000));
+		recorder.stop();
+		long length = settings.getBinaryEventFile().length();
+		FileWriter writer = new FileWriter(settings.getBinaryEventFile(), true);
+		writer.write("\u0002\u0001");
+		writer.close();
+
+		recorder.start();
+		assertEquals(length, settings.getBinaryEventFile().length());
+		recorder.accept(new UsageDataEvent("activated", "view", "myview", "mybundle", "1.0", 2000));
+		recorder.stop();
+		assertEquals(3, readLines(new UsageDataFileReader(settings.getBinaryEventFile())).size());
+	}
+
+	@Test
+	public void testEventFileOfOtherEncodingRolledOver() throws Exception {
+		UsageDataRecorder recorder = new UsageDataRecorder(settings, null, UsageDataLog.SYSTEM_ERR);
+		recorder.start();
+		recorder.accept(new UsageDataEvent("activated", "view", "myview", "mybundle", "1.0", 1000));
+		recorder.stop();
+
+		settings.setEncoding(RecordingSettings.ENCODING_BINARY);
+		recorder.start();
+		recorder.stop();
+		assertFalse(settings.getEventFile().exists());
+		assertEquals(1, settings.getUsageDataUploadFiles().length);
+		assertEquals(2, readLines(settings.getUsageDataUploadFiles()[0]).size());
+	}
+
+	@Test
+	public void testRolledOverFileCompressed() throws Exception {
+		settings.setCompression(RecordingSettings.COMPRESSION_GZIP);
+		UsageDataMetrics metrics = UsageDataMetrics.getDefault();
+		long bytesCompressed = metrics.getBytesCompressed();
+		long compressedBytes = metrics.getCompressedBytes();
+		UsageDataRecorder recorder = new UsageDataRecorder(settings, null, UsageDataLog.SYSTEM_ERR);
+		recorder.start();
+		StringBuilder description = new StringBuilder();
+		for (int index = 0; index < 1000; index++) description.append('x');
+		for (int index = 0; index < 30; index++) {
+			recorder.accept(new UsageDataEvent("activated", "view", description.toString(), "mybundle", "1.0", index));
+		}
+		idle(recorder);
+		assertTrue(recorder.getCompressor().join(10000));
+		recorder.stop();
+
+		File[] files = settings.getUsageDataUploadFiles();
+		assertEquals(1, files.length);
+		assertTrue(files[0].getName().endsWith(".csv.gz"));
+		assertEquals(31, readLines(new UsageDataFileReader(files[0])).size());
+		assertTrue(metrics.getBytesCompressed() - bytesCompressed > 30000);
+		assertEquals(files[0].length(), metrics.getCompressedBytes() - compressedBytes);
+	}
+
+	@Test
+	public void testUncompressedFilesCompressedOnStart() throws Exception {
+		File file = settings.computeDestinationFile();
+		writeFile(file, "what,kind,bundleId,bundleVersion,description,time\nactivated,view,mybundle,1.0,\"myview\",1000\n");
+		// As if left by an earlier session, which did not record it.
+		settings = new BasicRecordingSettings(directory);
+		settings.setCompression(RecordingSettings.COMPRESSION_LZ);
+		UsageDataRecorder recorder = new UsageDataRecorder(settings, null, UsageDataLog.SYSTEM_ERR);
+		recorder.start();
+		assertTrue(recorder.getCompressor().join(10000));
+		recorder.stop();
+
+		assertFalse(file.exists());
+		File[] files = settings.getUsageDataUploadFiles();
+		assertEquals(1, files.length);
+		assertEquals(file.getName() + RecordingSettings.LZ_EXTENSION, files[0].getName());
+		assertEquals(2, readLines(new UsageDataFileReader(files[0])).size());
+		assertFalse(file.getName().equals(settings.computeDestinationFile().getName()));
+	}
+
+	@Test
+	public void testNoUploadFiles() {
+		assertEquals(0, settings.getUsageDataUploadFiles().length);
+	}
+
+	/**
+	 * This method tells the recorder that the service is idle, and waits
+	 * for the writer to do what it does then.
+	 */
+	private void idle(UsageDataRecorder recorder) throws Exception {
+		recorder.idle();
+		assertTrue(recorder.join(10000));
+	}
+
+	private void writeFile(File file, String contents) throws Exception {
+		FileWriter writer = new FileWriter(file);
+		try {
+			writer.write(contents);
+		} finally {
+			writer.close();
+		}
+	}
+
+	private List<String> readLines(UsageDataFileReader reader) throws Exception {
+		final List<String> lines = new ArrayList<String>();
+		try {
+			reader.iterate(new UsageDataFileReader.Iterator() {
+				public void header(String header) {
+					lines.add(header);
+				}
+
+				public void event(String line, UsageDataEvent event) {
+					lines.add(line);
+				}
+			});
+		} finally {
+			reader.close();
+		}
+		return lines;
+	}
+
+	private List<String> readLines(File file) throws Exception {
+		List<String> lines = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) lines.add(line);
+		} finally {
+			reader.close();
+		}
+		return lines;
+	}
+}
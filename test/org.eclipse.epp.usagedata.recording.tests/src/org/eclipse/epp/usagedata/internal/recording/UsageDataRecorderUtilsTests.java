@@ -42,6 +42,15 @@ public class UsageDataRecorderUtilsTests {
 		assertEquals("\"first\\nsecond\"", UsageDataRecorderUtils.encode("first\nsecond"));
 	}	
 	
+	@Test
+	public void testDecode() {
+		assertEquals("first", UsageDataRecorderUtils.decode("first"));
+		assertEquals("first\nsecond\\", UsageDataRecorderUtils.decode("first\\nsecond\\\\"));
+		String description = "a \"quoted\",\r\n\tdescription";
+		String encoded = UsageDataRecorderUtils.encode(description);
+		assertEquals(description, UsageDataRecorderUtils.decode(UsageDataRecorderUtils.splitLine(encoded)[0]));
+	}
+
 	@Test
 	public void testSplitLine() {
 		String[] strings = UsageDataRecorderUtils.splitLine("x,y,z");
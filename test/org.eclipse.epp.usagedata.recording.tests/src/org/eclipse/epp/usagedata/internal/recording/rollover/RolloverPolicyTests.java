@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.recording.rollover;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.eclipse.epp.usagedata.internal.recording.settings.BasicRecordingSettings;
+import org.eclipse.epp.usagedata.internal.recording.settings.RecordingSettings;
+import org.junit.Test;
+
+public class RolloverPolicyTests {
+	@Test
+	public void testSize() {
+		RolloverPolicy policy = new SizeRolloverPolicy(1000);
+		assertFalse(policy.isTimeToRollOver(999, 1000, Long.MAX_VALUE));
+		assertTrue(policy.isTimeToRollOver(1000, 0, 0));
+		assertEquals(1000, policy.getExpectedLength());
+	}
+
+	@Test
+	public void testAge() {
+		RolloverPolicy policy = new AgeRolloverPolicy(60000);
+		assertFalse(policy.isTimeToRollOver(Long.MAX_VALUE, 1000, 59999));
+		assertTrue(policy.isTimeToRollOver(0, 0, 60000));
+		assertEquals(0, policy.getExpectedLength());
+	}
+
+	@Test
+	public void testEventCount() {
+		RolloverPolicy policy = new EventCountRolloverPolicy(10);
+		assertFalse(policy.isTimeToRollOver(Long.MAX_VALUE, 9, Long.MAX_VALUE));
+		assertTrue(policy.isTimeToRollOver(0, 10, 0));
+	}
+
+	@Test
+	public void testUploadAligned() {
+		final boolean[] due = new boolean[1];
+		BasicRecordingSettings settings = new BasicRecordingSettings(new File(".")) {
+			@Override
+			public boolean isTimeToUpload() {
+				return due[0];
+			}
+		};
+		settings.setPeriodBetweenUploads(60000);
+		RolloverPolicy policy = new UploadAlignedRolloverPolicy(settings, 1000);
+		// Not time to upload yet, but too long.
+		assertFalse(policy.isTimeToRollOver(999, 0, 0));
+		assertTrue(policy.isTimeToRollOver(1000, 0, 0));
+
+		due[0] = true;
+		assertTrue(policy.isTimeToRollOver(10, 0, 0));
+		// The upload did not happen; don't roll over again straight away.
+		assertFalse(policy.isTimeToRollOver(10, 0, 0));
+	}
+
+	@Test
+	public void testCreatedFromSettings() {
+		BasicRecordingSettings settings = new BasicRecordingSettings(new File("."));
+		assertTrue(settings.getRolloverPolicy() instanceof SizeRolloverPolicy);
+		assertEquals(SizeRolloverPolicy.DEFAULT_LENGTH, settings.getRolloverPolicy().getExpectedLength());
+
+		settings.setRolloverThreshold(5000);
+		assertEquals(5000, settings.getRolloverPolicy().getExpectedLength());
+
+		settings.setRollover(RecordingSettings.ROLLOVER_AGE);
+		assertTrue(settings.getRolloverPolicy() instanceof AgeRolloverPolicy);
+		settings.setRollover(RecordingSettings.ROLLOVER_EVENT_COUNT);
+		assertTrue(settings.getRolloverPolicy() instanceof EventCountRolloverPolicy);
+		settings.setRollover(RecordingSettings.ROLLOVER_UPLOAD);
+		assertTrue(settings.getRolloverPolicy() instanceof UploadAlignedRolloverPolicy);
+	}
+
+	@Test (expected=IllegalArgumentException.class)
+	public void testUnknownRolloverRejected() {
+		new BasicRecordingSettings(new File(".")).setRollover("weekly");
+	}
+}
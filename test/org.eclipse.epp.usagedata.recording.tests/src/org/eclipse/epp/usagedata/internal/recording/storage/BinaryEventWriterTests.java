@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.recording.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEvent;
+import org.eclipse.epp.usagedata.internal.recording.UsageDataRecorderUtils;
+import org.eclipse.epp.usagedata.internal.recording.uploading.UsageDataFileReader;
+import org.junit.Test;
+
+public class BinaryEventWriterTests {
+	private List<UsageDataEvent> getEvents() {
+		List<UsageDataEvent> events = new ArrayList<UsageDataEvent>();
+		events.add(new UsageDataEvent("activated", "view", "org.eclipse.ui.views.ProblemView", "org.eclipse.ui.ide", "3.4.0", 1210000000000L));
+		events.add(new UsageDataEvent("executed", "command", "org.eclipse.ui.file.save", "org.eclipse.ui", "3.4.0", 1210000000500L));
+		events.add(new UsageDataEvent("activated", "view", "a \"quoted\",\ndescription", "org.eclipse.ui.ide", null, 1209999999000L));
+		events.add(new UsageDataEvent("started", "bundle", null, "org.eclipse.ui", "3.4.0", 1210000000500L));
+		return events;
+	}
+
+	private byte[] getFile(BinaryEventWriter writer, List<UsageDataEvent> events) throws Exception {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		output.write(BinaryEventWriter.getHeader());
+		output.write(writer.encode(events));
+		return output.toByteArray();
+	}
+
+	private String getCsv(List<UsageDataEvent> events) throws Exception {
+		StringWriter writer = new StringWriter();
+		UsageDataRecorderUtils.writeHeader(writer);
+		for (UsageDataEvent event : events) {
+			UsageDataRecorderUtils.writeEvent(writer, event);
+		}
+		return writer.toString();
+	}
+
+	private void assertEvent(UsageDataEvent expected, UsageDataEvent actual) {
+		assertEquals(expected.what, actual.what);
+		assertEquals(expected.kind, actual.kind);
+		assertEquals(expected.description, actual.description);
+		assertEquals(expected.bundleId, actual.bundleId);
+		assertEquals(expected.bundleVersion, actual.bundleVersion);
+		assertEquals(expected.when, actual.when);
+	}
+
+	@Test
+	public void testEventsReadBack() throws Exception {
+		List<UsageDataEvent> events = getEvents();
+		BinaryEventReader reader = new BinaryEventReader(new ByteArrayInputStream(getFile(new BinaryEventWriter(), events)));
+		for (UsageDataEvent event : events) {
+			assertEvent(event, reader.read());
+		}
+		assertNull(reader.read());
+	}
+
+	@Test
+	public void testSmallerThanCsv() throws Exception {
+		List<UsageDataEvent> events = new ArrayList<UsageDataEvent>();
+		for (int index = 0; index < 100; index++) {
+			events.addAll(getEvents());
+		}
+		assertTrue(getFile(new BinaryEventWriter(), events).length * 5 < getCsv(events).length());
+	}
+
+	@Test
+	public void testResumedWriterAppends() throws Exception {
+		List<UsageDataEvent> events = getEvents();
+		byte[] first = getFile(new BinaryEventWriter(), events.subList(0, 2));
+		BinaryEventReader reader = new BinaryEventReader(new ByteArrayInputStream(first));
+		while (reader.read() != null) {
+		}
+		BinaryEventWriter writer = new BinaryEventWriter();
+		writer.resume(reader);
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		output.write(first);
+		output.write(writer.encode(events.subList(2, 4)));
+		reader = new BinaryEventReader(new ByteArrayInputStream(output.toByteArray()));
+		for (UsageDataEvent event : events) {
+			assertEvent(event, reader.read());
+		}
+		assertNull(reader.read());
+	}
+
+	@Test
+	public void testIncompleteRecordIgnored() throws Exception {
+		List<UsageDataEvent> events = getEvents();
+		byte[] complete = getFile(new BinaryEventWriter(), events.subList(0, 1));
+		byte[] file = getFile(new BinaryEventWriter(), events.subList(0, 2));
+
+		BinaryEventReader reader = new BinaryEventReader(new ByteArrayInputStream(Arrays.copyOf(file, file.length - 1)));
+		assertEvent(events.get(0), reader.read());
+		assertNull(reader.read());
+		assertTrue(reader.getPosition() >= complete.length);
+		assertTrue(reader.getPosition() < file.length);
+	}
+
+	@Test
+	public void testConvertedToCsv() throws Exception {
+		List<UsageDataEvent> events = getEvents();
+		InputStream input = new CsvEventInputStream(new BinaryEventReader(new ByteArrayInputStream(getFile(new BinaryEventWriter(), events))));
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		byte[] bytes = new byte[7];
+		int count;
+		while ((count = input.read(bytes)) != -1) {
+			output.write(bytes, 0, count);
+		}
+		input.close();
+		assertEquals(getCsv(events), new String(output.toByteArray()));
+	}
+
+	@Test
+	public void testReadAsUsageDataFile() throws Exception {
+		final List<UsageDataEvent> events = getEvents();
+		final List<String> lines = new ArrayList<String>();
+		UsageDataFileReader reader = new UsageDataFileReader(new ByteArrayInputStream(getFile(new BinaryEventWriter(), events)));
+		reader.iterate(new UsageDataFileReader.Iterator() {
+			public void header(String header) {
+				lines.add(header + "\n");
+			}
+
+			public void event(String line, UsageDataEvent event) {
+				assertEvent(events.get(lines.size() - 1), event);
+				lines.add(line + "\n");
+			}
+		});
+		reader.close();
+		StringBuilder csv = new StringBuilder();
+		for (String line : lines) csv.append(line);
+		assertEquals(getCsv(events), csv.toString());
+	}
+}
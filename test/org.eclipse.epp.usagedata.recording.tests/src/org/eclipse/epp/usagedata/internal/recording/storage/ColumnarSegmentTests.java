@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.recording.storage;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEvent;
+import org.eclipse.epp.usagedata.internal.recording.settings.BasicRecordingSettings;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ColumnarSegmentTests {
+	private File directory;
+	private BasicRecordingSettings settings;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = File.createTempFile("udc", "");
+		directory.delete();
+		directory.mkdirs();
+		settings = new BasicRecordingSettings(directory);
+	}
+
+	@After
+	public void tearDown() {
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	private List<UsageDataEvent> getEvents() {
+		List<UsageDataEvent> events = new ArrayList<UsageDataEvent>();
+		events.add(new UsageDataEvent("activated", "view", "org.eclipse.ui.views.ProblemView", "org.eclipse.ui.ide", "3.4.0", 1210000000000L));
+		events.add(new UsageDataEvent("executed", "command", "a \"quoted\",\ndescription", "org.eclipse.ui", "3.4.0", 1210000000500L));
+		events.add(new UsageDataEvent("activated", "view", "org.eclipse.ui.views.ProblemView", "org.eclipse.ui.ide", null, 1209999999000L));
+		return events;
+	}
+
+	private File write(List<UsageDataEvent> events) throws Exception {
+		File file = new File(directory, "upload0.col");
+		FileOutputStream output = new FileOutputStream(file);
+		try {
+			output.write(ColumnarSegment.encode(events));
+		} finally {
+			output.close();
+		}
+		return file;
+	}
+
+	@Test
+	public void testColumnsReadBack() throws Exception {
+		List<UsageDataEvent> events = getEvents();
+		ColumnarSegmentReader reader = new ColumnarSegmentReader(write(events));
+		assertEquals(3, reader.getRowCount());
+		assertArrayEquals(new String[] {"org.eclipse.ui.ide", "org.eclipse.ui", "org.eclipse.ui.ide"}, reader.readStrings(ColumnarSegment.BUNDLE_ID));
+		assertArrayEquals(new String[] {"3.4.0", "3.4.0", null}, reader.readStrings(ColumnarSegment.BUNDLE_VERSION));
+		assertArrayEquals(new long[] {1210000000000L, 1210000000500L, 1209999999000L}, reader.readTimes());
+
+		String[] descriptions = reader.readStrings(ColumnarSegment.DESCRIPTION);
+		assertEquals("a \"quoted\",\ndescription", descriptions[1]);
+		assertSame(descriptions[0], descriptions[2]);
+	}
+
+	@Test
+	public void testStatistics() throws Exception {
+		ColumnarSegmentReader reader = new ColumnarSegmentReader(write(getEvents()));
+		assertEquals("org.eclipse.ui", reader.getMinimum(ColumnarSegment.BUNDLE_ID));
+		assertEquals("org.eclipse.ui.ide", reader.getMaximum(ColumnarSegment.BUNDLE_ID));
+		assertEquals("activated", reader.getMinimum(ColumnarSegment.WHAT));
+		assertEquals("executed", reader.getMaximum(ColumnarSegment.WHAT));
+		assertEquals(1209999999000L, reader.getMinimumTime());
+		assertEquals(1210000000500L, reader.getMaximumTime());
+	}
+
+	@Test
+	public void testEmptySegment() throws Exception {
+		ColumnarSegmentReader reader = new ColumnarSegmentReader(write(new ArrayList<UsageDataEvent>()));
+		assertEquals(0, reader.getRowCount());
+		assertNull(reader.getMinimum(ColumnarSegment.KIND));
+		assertEquals(0, reader.readTimes().length);
+		assertNull(reader.getEvents().read());
+	}
+
+	@Test
+	public void testEventsReadBack() throws Exception {
+		List<UsageDataEvent> events = getEvents();
+		EventReader reader = new ColumnarSegmentReader(write(events)).getEvents();
+		for (UsageDataEvent expected : events) {
+			UsageDataEvent actual = reader.read();
+			assertEquals(expected.what, actual.what);
+			assertEquals(expected.kind, actual.kind);
+			assertEquals(expected.description, actual.description);
+			assertEquals(expected.bundleId, actual.bundleId);
+			assertEquals(expected.bundleVersion, actual.bundleVersion);
+			assertEquals(expected.when, actual.when);
+		}
+		assertNull(reader.read());
+	}
+
+	@Test
+	public void testSegmentTransposed() throws Exception {
+		SegmentedEventLog log = new SegmentedEventLog(settings.getSegmentFile(), settings, 1024);
+		log.append("activated,view,mybundle,1.0,\"my\\\\view\",1000\n".getBytes());
+		log.append("bogus\n".getBytes());
+		log.close();
+		File segment = new File(directory, "upload3.seg");
+		assertTrue(settings.getSegmentFile().renameTo(segment));
+
+		File columnar = ColumnarSegment.transpose(segment);
+		assertEquals("upload3.col", columnar.getName());
+		assertFalse(segment.exists());
+		EventReader reader = new ColumnarSegmentReader(columnar).getEvents();
+		assertEquals("my\\view", reader.read().description);
+		assertNull(reader.read());
+	}
+
+	@Test
+	public void testNotColumnar() throws Exception {
+		File file = new File(directory, "upload0.csv");
+		FileOutputStream output = new FileOutputStream(file);
+		output.write("what,kind,bundleId,bundleVersion,description,time\n".getBytes());
+		output.close();
+		assertFalse(ColumnarSegment.isColumnar(file));
+	}
+
+	@Test
+	public void testPacking() throws Exception {
+		long[] values = {0, 1, 5, 1023, 77, Long.MAX_VALUE, -1};
+		for (int width : new int[] {0, 1, 3, 10, 64}) {
+			long[] expected = new long[values.length];
+			for (int index = 0; index < values.length; index++) {
+				expected[index] = width == 64 ? values[index] : values[index] & ((1L << width) - 1);
+			}
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			ColumnarSegment.pack(output, expected, width);
+			assertArrayEquals(expected, ColumnarSegment.unpack(ByteBuffer.wrap(output.toByteArray()), expected.length));
+		}
+	}
+}
@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.recording.storage;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.eclipse.epp.usagedata.internal.recording.settings.BasicRecordingSettings;
+import org.eclipse.epp.usagedata.internal.recording.settings.RecordingSettings;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompressedFileTests {
+	private File directory;
+	private BasicRecordingSettings settings;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = File.createTempFile("udc", "");
+		directory.delete();
+		settings = new BasicRecordingSettings(directory);
+	}
+
+	@After
+	public void tearDown() {
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	private byte[] getCsv(int lines) {
+		StringBuilder csv = new StringBuilder("what,kind,bundleId,bundleVersion,description,time\n");
+		for (int index = 0; index < lines; index++) {
+			csv.append("activated,view,org.eclipse.ui.ide,3.4.0,\"org.eclipse.ui.views.view").append(index % 17).append("\",").append(1210000000000L + index * 37).append('\n');
+		}
+		return csv.toString().getBytes();
+	}
+
+	private byte[] compressLz(byte[] bytes) throws Exception {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		LzOutputStream compressed = new LzOutputStream(output);
+		compressed.write(bytes);
+		compressed.close();
+		return output.toByteArray();
+	}
+
+	private byte[] read(InputStream input) throws Exception {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		try {
+			byte[] buffer = new byte[1000];
+			int read;
+			while ((read = input.read(buffer)) != -1) {
+				output.write(buffer, 0, read);
+			}
+		} finally {
+			input.close();
+		}
+		return output.toByteArray();
+	}
+
+	@Test
+	public void testLzRoundTrip() throws Exception {
+		// Several blocks, the last of them partly full.
+		byte[] csv = getCsv(5000);
+		byte[] compressed = compressLz(csv);
+		assertTrue(compressed.length * 4 < csv.length);
+		assertArrayEquals(csv, read(new LzInputStream(new ByteArrayInputStream(compressed))));
+	}
+
+	@Test
+	public void testLzLongRuns() throws Exception {
+		byte[] bytes = new byte[100000];
+		Arrays.fill(bytes, 0, 300, (byte) 'a');
+		Arrays.fill(bytes, 300, 70000, (byte) 'b');
+		byte[] compressed = compressLz(bytes);
+		assertTrue(compressed.length < 1000);
+		assertArrayEquals(bytes, read(new LzInputStream(new ByteArrayInputStream(compressed))));
+	}
+
+	@Test
+	public void testLzIncompressible() throws Exception {
+		byte[] bytes = new byte[LzOutputStream.BLOCK_SIZE + 10];
+		new Random(42).nextBytes(bytes);
+		byte[] compressed = compressLz(bytes);
+		assertTrue(compressed.length < bytes.length + 20);
+		assertArrayEquals(bytes, read(new LzInputStream(new ByteArrayInputStream(compressed))));
+	}
+
+	@Test
+	public void testLzEmpty() throws Exception {
+		assertEquals(0, read(new LzInputStream(new ByteArrayInputStream(compressLz(new byte[0])))).length);
+	}
+
+	@Test
+	public void testTruncatedLzStream() throws Exception {
+		byte[] compressed = compressLz(getCsv(100));
+		try {
+			read(new LzInputStream(new ByteArrayInputStream(compressed, 0, compressed.length - 1)));
+			fail();
+		} catch (EOFException e) {
+			// Expected.
+		}
+	}
+
+	@Test
+	public void testFileCompressed() throws Exception {
+		for (String compression : new String[] {RecordingSettings.COMPRESSION_GZIP, RecordingSettings.COMPRESSION_LZ}) {
+			File file = settings.computeDestinationFile();
+			byte[] csv = getCsv(1000);
+			FileOutputStream output = new FileOutputStream(file);
+			output.write(csv);
+			output.close();
+			assertFalse(CompressedFile.isCompressed(file));
+
+			File compressed = CompressedFile.compress(file, compression);
+			assertEquals(file.getName() + CompressedFile.getExtension(compression), compressed.getName());
+			assertFalse(file.exists());
+			assertTrue(CompressedFile.isCompressed(compressed));
+			assertTrue(compressed.length() * 4 < csv.length);
+			assertArrayEquals(csv, read(CompressedFile.open(compressed)));
+		}
+		// Each file got its own number, and no temporary files are left.
+		assertEquals(2, directory.listFiles().length);
+		assertEquals(2, new BasicRecordingSettings(directory).getUsageDataUploadFiles().length);
+	}
+
+	@Test
+	public void testOriginalHiddenOnceCompressed() throws Exception {
+		File file = settings.computeDestinationFile();
+		FileOutputStream output = new FileOutputStream(file);
+		output.write(getCsv(10));
+		output.close();
+		File compressed = CompressedFile.compress(file, RecordingSettings.COMPRESSION_LZ);
+
+		// As if the original could not be deleted.
+		output = new FileOutputStream(file);
+		output.write(getCsv(10));
+		output.close();
+		File[] files = new BasicRecordingSettings(directory).getUsageDataUploadFiles();
+		assertEquals(1, files.length);
+		assertEquals(compressed, files[0]);
+		assertFalse(file.exists());
+	}
+}
@@ -0,0 +1,204 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.recording.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.List;
+
+import org.eclipse.epp.usagedata.internal.recording.settings.RecordingSettings;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SegmentCatalogTests {
+	private File directory;
+	private File manifest;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = File.createTempFile("udc", "");
+		directory.delete();
+		directory.mkdirs();
+		manifest = new File(directory, "usagedata.manifest");
+	}
+
+	@After
+	public void tearDown() {
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	private SegmentCatalog getCatalog() {
+		return new SegmentCatalog(manifest, "upload");
+	}
+
+	private File create(File file, String contents) throws Exception {
+		FileWriter writer = new FileWriter(file);
+		try {
+			writer.write(contents);
+		} finally {
+			writer.close();
+		}
+		return file;
+	}
+
+	private File add(SegmentCatalog catalog, String extension, int events) throws Exception {
+		File file = create(catalog.allocate(extension), "events");
+		catalog.add(file, 6, events, 1000, 2000);
+		return file;
+	}
+
+	@Test
+	public void testFilesNamedInSequence() throws Exception {
+		SegmentCatalog catalog = getCatalog();
+		File first = add(catalog, RecordingSettings.CSV_EXTENSION, 10);
+		File second = add(catalog, RecordingSettings.SEGMENT_EXTENSION, 20);
+		assertEquals("upload0.csv", first.getName());
+		assertEquals("upload1.seg", second.getName());
+
+		File[] files = catalog.getPendingFiles();
+		assertEquals(2, files.length);
+		assertEquals(first, files[0]);
+		assertEquals(second, files[1]);
+
+		SegmentCatalog.Entry entry = catalog.getEntries().get(1);
+		assertEquals(1, entry.getSequence());
+		assertEquals(6, entry.getLength());
+		assertEquals(20, entry.getEventCount());
+		assertEquals(1000, entry.getFirstTime());
+		assertEquals(2000, entry.getLastTime());
+		assertFalse(entry.isUploaded());
+	}
+
+	@Test
+	public void testFileFoundByEarlierName() throws Exception {
+		SegmentCatalog catalog = getCatalog();
+		File file = add(catalog, RecordingSettings.CSV_EXTENSION, 10);
+		File compressed = create(new File(directory, "upload0.csv.gz"), "e");
+		catalog.moved(file, compressed);
+
+		// As an uploader that listed the file before it was compressed would.
+		catalog.uploaded(file);
+		assertEquals(0, catalog.getPendingFiles().length);
+		assertEquals(compressed, catalog.getEntries().get(0).getFile());
+		assertTrue(catalog.getEntries().get(0).isUploaded());
+	}
+
+	@Test
+	public void testFileClaimedOnce() throws Exception {
+		SegmentCatalog catalog = getCatalog();
+		File file = add(catalog, RecordingSettings.CSV_EXTENSION, 10);
+		File compressed = create(new File(directory, "upload0.csv.gz"), "e");
+		assertEquals(file, catalog.claim(file).getFile());
+		assertEquals(null, catalog.claim(file));
+		catalog.moved(file, compressed);
+		catalog.release(compressed);
+
+		// Claimed by the name that it had, but answered by the one that it has.
+		assertEquals(compressed, catalog.claim(file).getFile());
+		catalog.release(file);
+		catalog.removed(compressed);
+		assertEquals(null, catalog.claim(compressed));
+	}
+
+	@Test
+	public void testNothingWrittenUntilSomethingChanges() throws Exception {
+		getCatalog().allocate(RecordingSettings.CSV_EXTENSION);
+		assertFalse(manifest.exists());
+	}
+
+	@Test
+	public void testChangesPersisted() throws Exception {
+		SegmentCatalog catalog = getCatalog();
+		File first = add(catalog, RecordingSettings.CSV_EXTENSION, 10);
+		File second = add(catalog, RecordingSettings.CSV_EXTENSION, 20);
+		File third = add(catalog, RecordingSettings.CSV_EXTENSION, 30);
+		File compressed = CompressedFile.compress(second, RecordingSettings.COMPRESSION_LZ);
+		catalog.moved(second, compressed);
+		catalog.uploaded(first);
+
+		catalog = getCatalog();
+		List<SegmentCatalog.Entry> entries = catalog.getEntries();
+		assertEquals(3, entries.size());
+		assertTrue(entries.get(0).isUploaded());
+		assertEquals(compressed, entries.get(1).getFile());
+		assertEquals(compressed.length(), entries.get(1).getLength());
+		assertEquals(20, entries.get(1).getEventCount());
+		assertEquals(third, entries.get(2).getFile());
+
+		File[] files = catalog.getPendingFiles();
+		assertEquals(2, files.length);
+		assertEquals(compressed, files[0]);
+		assertEquals(third, files[1]);
+	}
+
+	@Test
+	public void testNumbersNotReused() throws Exception {
+		SegmentCatalog catalog = getCatalog();
+		File file = add(catalog, RecordingSettings.CSV_EXTENSION, 10);
+		assertTrue(file.delete());
+		catalog.removed(file);
+		assertEquals(0, catalog.getEntries().size());
+
+		assertEquals("upload1.csv", getCatalog().allocate(RecordingSettings.CSV_EXTENSION).getName());
+	}
+
+	@Test
+	public void testReconciledWithDirectory() throws Exception {
+		SegmentCatalog catalog = getCatalog();
+		File gone = add(catalog, RecordingSettings.CSV_EXTENSION, 10);
+		File kept = add(catalog, RecordingSettings.CSV_EXTENSION, 20);
+		assertTrue(gone.delete());
+		// Renamed, but not recorded before a crash.
+		File unrecorded = create(catalog.allocate(RecordingSettings.BINARY_EXTENSION), "events");
+		// Transposed, but the original could not be deleted.
+		File segment = create(catalog.allocate(RecordingSettings.SEGMENT_EXTENSION), "segment");
+		File columnar = create(new File(directory, "upload3" + RecordingSettings.COLUMNAR_EXTENSION), "columnar");
+		// Left by an older version, without a manifest.
+		File old = create(new File(directory, "upload7.csv"), "events");
+
+		catalog = getCatalog();
+		List<SegmentCatalog.Entry> entries = catalog.getEntries();
+		assertEquals(4, entries.size());
+		assertEquals(kept, entries.get(0).getFile());
+		assertEquals(20, entries.get(0).getEventCount());
+		assertEquals(unrecorded, entries.get(1).getFile());
+		assertEquals(-1, entries.get(1).getEventCount());
+		assertEquals(6, entries.get(1).getLength());
+		assertEquals(columnar, entries.get(2).getFile());
+		assertFalse(segment.exists());
+		assertEquals(old, entries.get(3).getFile());
+		assertEquals("upload8.csv", catalog.allocate(RecordingSettings.CSV_EXTENSION).getName());
+	}
+
+	@Test
+	public void testTornRecordIgnored() throws Exception {
+		SegmentCatalog catalog = getCatalog();
+		File file = add(catalog, RecordingSettings.CSV_EXTENSION, 10);
+		FileWriter writer = new FileWriter(manifest, true);
+		writer.write("A,1,uplo");
+		writer.close();
+
+		catalog = getCatalog();
+		assertEquals(1, catalog.getPendingFiles().length);
+		assertEquals(file, catalog.getPendingFiles()[0]);
+		// The manifest is written afresh with the next change.
+		add(catalog, RecordingSettings.CSV_EXTENSION, 20);
+		assertEquals(2, getCatalog().getPendingFiles().length);
+	}
+}
@@ -0,0 +1,247 @@
+/*******************************************************************************
+ * Copyright (c) 2026 The Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.usagedata.internal.recording.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.epp.usagedata.internal.gathering.events.UsageDataEvent;
+import org.eclipse.epp.usagedata.internal.recording.settings.BasicRecordingSettings;
+import org.eclipse.epp.usagedata.internal.recording.uploading.UsageDataFileReader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SegmentedEventLogTests {
+	private static final String HEADER = "what,kind,bundleId,bundleVersion,description,time\n";
+	private static final String EVENT = "activated,view,mybundle,1.0,\"myview\",1000\n";
+
+	private File directory;
+	private BasicRecordingSettings settings;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = File.createTempFile("udc", "");
+		directory.delete();
+		settings = new BasicRecordingSettings(directory);
+	}
+
+	@After
+	public void tearDown() {
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	@Test
+	public void testSealedSegmentPublished() throws Exception {
+		SegmentedEventLog log = new SegmentedEventLog(settings.getSegmentFile(), settings, 1024);
+		log.append(EVENT.getBytes());
+		assertEquals(HEADER.length() + EVENT.length(), log.getLength());
+		log.seal();
+		assertEquals(0, log.getLength());
+
+		// The active segment is emptied, not renamed.
+		assertEquals("", getPayload(settings.getSegmentFile()));
+		File[] files = settings.getUsageDataUploadFiles();
+		assertEquals(1, files.length);
+		assertTrue(files[0].getName().endsWith(".col"));
+		assertTrue(ColumnarSegment.isColumnar(files[0]));
+		assertEquals(HEADER + EVENT, getCsv(files[0]));
+	}
+
+	@Test
+	public void testUntransposedSegmentTransposedOnOpen() throws Exception {
+		SegmentedEventLog log = new SegmentedEventLog(settings.getSegmentFile(), settings, 1024);
+		log.append(EVENT.getBytes());
+		log.close();
+		// Stands in for a segment that was renamed just before a crash.
+		assertTrue(settings.getSegmentFile().renameTo(new File(directory, "upload0.seg")));
+		// The next session finds it, although it was never recorded.
+		settings = new BasicRecordingSettings(directory);
+		assertEquals(1, settings.getUsageDataUploadFiles().length);
+
+		log = new SegmentedEventLog(settings.getSegmentFile(), settings, 1024);
+		log.append(EVENT.getBytes());
+		log.close();
+		File[] files = settings.getUsageDataUploadFiles();
+		assertEquals(1, files.length);
+		assertEquals("upload0.col", files[0].getName());
+		assertEquals(HEADER + EVENT, getCsv(files[0]));
+		assertFalse(new File(directory, "upload0.seg").exists());
+	}
+
+	@Test
+	public void testFullSegmentSealed() throws Exception {
+		SegmentedEventLog log = new SegmentedEventLog(settings.getSegmentFile(), settings, HEADER.length() + EVENT.length());
+		log.append(EVENT.getBytes());
+		log.append(EVENT.getBytes());
+		log.close();
+
+		assertEquals(1, settings.getUsageDataUploadFiles().length);
+		assertEquals(HEADER + EVENT, getCsv(settings.getUsageDataUploadFiles()[0]));
+		assertEquals(HEADER + EVENT, getPayload(settings.getSegmentFile()));
+	}
+
+	@Test
+	public void testSealedSegmentPublishedOnceOnOpen() throws Exception {
+		SegmentedEventLog log = new SegmentedEventLog(settings.getSegmentFile(), settings, 1024);
+		log.append(EVENT.getBytes());
+		log.force();
+		log.close();
+
+		// Stands in for a segment that was sealed, but not copied, before a crash.
+		RandomAccessFile file = new RandomAccessFile(settings.getSegmentFile(), "rw");
+		try {
+			file.seek(EventSegment.STATE_OFFSET);
+			file.write(EventSegment.SEALED);
+		} finally {
+			file.close();
+		}
+
+		log = new SegmentedEventLog(settings.getSegmentFile(), settings, 1024);
+		log.append(EVENT.getBytes());
+		log.close();
+		assertEquals(1, settings.getUsageDataUploadFiles().length);
+		assertEquals(HEADER + EVENT, getCsv(settings.getUsageDataUploadFiles()[0]));
+		assertEquals(HEADER + EVENT, getPayload(settings.getSegmentFile()));
+
+		// The active segment is open again, so it is not published twice.
+		log = new SegmentedEventLog(settings.getSegmentFile(), settings, 1024);
+		log.append(EVENT.getBytes());
+		log.close();
+		assertEquals(1, settings.getUsageDataUploadFiles().length);
+		assertEquals(HEADER + EVENT + EVENT, getPayload(settings.getSegmentFile()));
+	}
+
+	@Test
+	public void testOversizedAppendPublishedAlone() throws Exception {
+		SegmentedEventLog log = new SegmentedEventLog(settings.getSegmentFile(), settings, HEADER.length() + EVENT.length());
+		log.append((EVENT + EVENT).getBytes(), 2, 1000, 1000);
+		assertEquals(0, log.getLength());
+		log.append(EVENT.getBytes());
+		log.close();
+
+		assertEquals(1, settings.getUsageDataUploadFiles().length);
+		assertEquals(HEADER + EVENT + EVENT, getCsv(settings.getUsageDataUploadFiles()[0]));
+		assertEquals(2, settings.getSegmentCatalog().getEntries().get(0).getEventCount());
+		// The active segment keeps its size.
+		assertEquals(EventSegment.HEADER_SIZE + HEADER.length() + EVENT.length(), settings.getSegmentFile().length());
+		assertEquals(HEADER + EVENT, getPayload(settings.getSegmentFile()));
+	}
+
+	@Test
+	public void testOpenSegmentResumed() throws Exception {
+		SegmentedEventLog log = new SegmentedEventLog(settings.getSegmentFile(), settings, 1024);
+		log.append(EVENT.getBytes());
+		log.force();
+		log.close();
+
+		// Bytes beyond the committed length are an incomplete append.
+		RandomAccessFile file = new RandomAccessFile(settings.getSegmentFile(), "rw");
+		try {
+			file.seek(EventSegment.HEADER_SIZE + HEADER.length() + EVENT.length());
+			file.write("activated,vi".getBytes());
+		} finally {
+			file.close();
+		}
+
+		log = new SegmentedEventLog(settings.getSegmentFile(), settings, 1024);
+		log.append(EVENT.getBytes());
+		log.close();
+		assertEquals(HEADER + EVENT + EVENT, getPayload(settings.getSegmentFile()));
+	}
+
+	@Test
+	public void testPayloadStreamedUpToLength() throws Exception {
+		SegmentedEventLog log = new SegmentedEventLog(settings.getSegmentFile(), settings, 1024);
+		log.append(EVENT.getBytes());
+		log.force();
+		log.close();
+
+		// The rest of the preallocated segment is left out.
+		InputStream input = EventSegment.openPayload(settings.getSegmentFile());
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		byte[] bytes = new byte[100];
+		int count;
+		while ((count = input.read(bytes)) != -1) {
+			output.write(bytes, 0, count);
+		}
+		input.close();
+		assertEquals(HEADER + EVENT, new String(output.toByteArray()));
+	}
+
+	@Test
+	public void testCsvFileIsNotSegment() throws Exception {
+		File file = new File(directory, "upload0.csv");
+		directory.mkdirs();
+		RandomAccessFile access = new RandomAccessFile(file, "rw");
+		try {
+			access.write((HEADER + EVENT).getBytes());
+		} finally {
+			access.close();
+		}
+		assertFalse(EventSegment.isSegment(file));
+	}
+
+	@Test
+	public void testSegmentReadAsEvents() throws Exception {
+		SegmentedEventLog log = new SegmentedEventLog(settings.getSegmentFile(), settings, 1024);
+		log.append(EVENT.getBytes());
+		log.append(EVENT.getBytes());
+		log.seal();
+
+		final List<UsageDataEvent> events = new ArrayList<UsageDataEvent>();
+		UsageDataFileReader reader = new UsageDataFileReader(settings.getUsageDataUploadFiles()[0]);
+		try {
+			reader.iterate(new UsageDataFileReader.Iterator() {
+				public void header(String header) {
+				}
+
+				public void event(String line, UsageDataEvent event) {
+					events.add(event);
+				}
+			});
+		} finally {
+			reader.close();
+		}
+		assertEquals(2, events.size());
+		assertEquals("myview", events.get(1).description);
+	}
+
+	private String getCsv(File file) throws Exception {
+		InputStream input = new CsvEventInputStream(new ColumnarSegmentReader(file).getEvents());
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		int next;
+		while ((next = input.read()) != -1) {
+			output.write(next);
+		}
+		input.close();
+		return new String(output.toByteArray());
+	}
+
+	private String getPayload(File file) throws Exception {
+		ByteBuffer payload = EventSegment.mapPayload(file);
+		byte[] bytes = new byte[payload.remaining()];
+		payload.get(bytes);
+		return new String(bytes);
+	}
+}